@@ -1,14 +1,170 @@
 package org.novalegal.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+/**
+ * Executors of the application. With {@code spring.threads.virtual.enabled=true} on Java 21 or later, Spring Boot
+ * runs Tomcat requests and {@code @Async} methods on virtual threads; the pools below then start virtual threads too,
+ * keeping their sizes and queues as concurrency limits rather than as a cost of idle platform threads.
+ */
 @Configuration
 public class AppConfig {
-    @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    private final boolean virtualThreads;
+
+    public AppConfig(Environment environment) {
+        this.virtualThreads = Threading.VIRTUAL.isActive(environment);
+    }
+
+    /**
+     * Executor used to fan out chunk and merge calls to the LLM. Its pool size is the
+     * upper bound on concurrent OpenAI requests issued by the parallel summarization mode.
+     */
+    @Bean(name = "llmExecutor")
+    public ThreadPoolTaskExecutor llmExecutor(@Value("${openai.summarization.max-concurrency:4}") int maxConcurrency) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrency);
+        executor.setMaxPoolSize(maxConcurrency);
+        executor.setThreadNamePrefix("llm-");
+        executor.setVirtualThreads(virtualThreads);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Threads that carry individual LLM requests for {@code ResilientLlmBackend}, so the caller can stop waiting at
+     * the deadline or start a hedge while the first request is still running. Concurrency is already bounded by
+     * {@code llmExecutor} and the rate limiter; abandoned requests are aborted, so this pool only caps the threads
+     * they hold until their connection is closed.
+     */
+    @Bean(name = "llmCallExecutor")
+    public ThreadPoolTaskExecutor llmCallExecutor(@Value("${llm.resilience.max-in-flight:256}") int maxInFlight) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(0);
+        executor.setMaxPoolSize(maxInFlight);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("llm-call-");
+        executor.setVirtualThreads(virtualThreads);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs document extraction and simplification jobs so that {@code /upload} returns as soon as the file is
+     * queued. Both the pool and the queue are bounded; once they are full new uploads are turned away instead of
+     * piling up in memory.
+     */
+    @Bean(name = "documentExecutor")
+    public ThreadPoolTaskExecutor documentExecutor(@Value("${document.jobs.max-concurrency:4}") int maxConcurrency,
+                                                   @Value("${document.jobs.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrency);
+        executor.setMaxPoolSize(maxConcurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("document-");
+        executor.setVirtualThreads(virtualThreads);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs {@code processMeetingFileAsync}. Admission is decided up front by {@code MeetingJobQueueService}, whose
+     * places match this pool plus its queue, so uploads are refused before their file is written rather than here.
+     */
+    @Bean(name = "meetingExecutor")
+    public ThreadPoolTaskExecutor meetingExecutor(@Value("${meeting.jobs.max-concurrency:2}") int maxConcurrency,
+                                                  @Value("${meeting.jobs.queue-capacity:20}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrency);
+        executor.setMaxPoolSize(maxConcurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("meeting-");
+        executor.setVirtualThreads(virtualThreads);
+        executor.initialize();
+        return executor;
     }
 
+    /**
+     * Sends meeting status events to the browsers watching a job. Every stream has at most one send in flight, so a
+     * few stalled clients take only a few of these threads, and never the threads that serve requests or documents.
+     */
+    @Bean(name = "statusExecutor")
+    public ThreadPoolTaskExecutor statusExecutor(@Value("${meeting.status.send-threads:8}") int threads,
+                                                 @Value("${meeting.status.send-queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("status-");
+        executor.setVirtualThreads(virtualThreads);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Feeds or drains the one ffmpeg of a meeting job whose other end the job's own thread is busy with: the audio
+     * of a streamed upload, or the audio going into pause detection. A job uses at most one of these threads while
+     * it holds a meeting job slot, so this pool, one thread per slot, never makes a job wait behind another one.
+     */
+    @Bean(name = "pipeExecutor")
+    public ThreadPoolTaskExecutor pipeExecutor(@Value("${meeting.jobs.max-concurrency:2}") int maxConcurrency) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrency);
+        executor.setMaxPoolSize(maxConcurrency);
+        executor.setThreadNamePrefix("pipe-");
+        executor.setVirtualThreads(virtualThreads);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Transcodes the pieces of long meetings, each with a single-threaded ffmpeg, so that splitting a recording
+     * uses every core for the few seconds it takes. 0 sizes the pool to the number of cores.
+     */
+    @Bean(name = "audioExecutor")
+    public ThreadPoolTaskExecutor audioExecutor(@Value("${meeting.segmentation.transcode-parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("audio-");
+        executor.setVirtualThreads(virtualThreads);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Sends the pieces of long meetings to Whisper. Its pool size is the upper bound on concurrent transcription
+     * requests across all meeting jobs, which has to stay within what the Whisper backend can serve at once.
+     */
+    @Bean(name = "transcriptionExecutor")
+    public ThreadPoolTaskExecutor transcriptionExecutor(@Value("${meeting.segmentation.max-parallel-transcriptions:4}") int maxConcurrency) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrency);
+        executor.setMaxPoolSize(maxConcurrency);
+        executor.setThreadNamePrefix("transcription-");
+        executor.setVirtualThreads(virtualThreads);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Uploads the parts of large meeting audio objects, {@code parallelism} at a time for each of the meeting jobs
+     * that may run at once.
+     */
+    @Bean(name = "uploadExecutor")
+    public ThreadPoolTaskExecutor uploadExecutor(@Value("${meeting.audio.composite-upload.parallelism:4}") int parallelism,
+                                                 @Value("${meeting.jobs.max-concurrency:2}") int maxConcurrency) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism * maxConcurrency);
+        executor.setMaxPoolSize(parallelism * maxConcurrency);
+        executor.setThreadNamePrefix("upload-");
+        executor.setVirtualThreads(virtualThreads);
+        executor.initialize();
+        return executor;
+    }
 }
@@ -0,0 +1,153 @@
+package org.novalegal.config;
+
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.novalegal.util.CallScope;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Apache HttpClient request factory that adds a total deadline on top of the connect and read timeouts.
+ * <p>
+ * The read timeout only bounds the gap between two packets, so a peer that trickles bytes can hold a thread
+ * indefinitely. Here every exchange is aborted once {@code totalDeadline} has elapsed since it was sent,
+ * including while the caller is still reading a streamed body. The timer is cancelled when the response is closed.
+ * An exchange sent within a {@link CallScope} is also aborted when that scope is.
+ */
+public class DeadlineClientHttpRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+    // postProcessHttpRequest runs inside super.createRequest on the calling thread
+    private static final ThreadLocal<Cancellable> CREATED_REQUEST = new ThreadLocal<>();
+
+    private final ScheduledExecutorService scheduler;
+    private final Duration totalDeadline;
+
+    public DeadlineClientHttpRequestFactory(HttpClient httpClient, ScheduledExecutorService scheduler, Duration totalDeadline) {
+        super(httpClient);
+        this.scheduler = scheduler;
+        this.totalDeadline = totalDeadline;
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        try {
+            ClientHttpRequest request = super.createRequest(uri, httpMethod);
+            return new DeadlineRequest(request, CREATED_REQUEST.get());
+        } finally {
+            CREATED_REQUEST.remove();
+        }
+    }
+
+    @Override
+    protected void postProcessHttpRequest(ClassicHttpRequest request) {
+        if (request instanceof Cancellable cancellable) {
+            CREATED_REQUEST.set(cancellable);
+        }
+    }
+
+    private final class DeadlineRequest implements ClientHttpRequest {
+        private final ClientHttpRequest delegate;
+        private final Cancellable underlying;
+
+        DeadlineRequest(ClientHttpRequest delegate, Cancellable underlying) {
+            this.delegate = delegate;
+            this.underlying = underlying;
+        }
+
+        @Override
+        public ClientHttpResponse execute() throws IOException {
+            if (underlying == null) {
+                return delegate.execute();
+            }
+            Runnable cancel = underlying::cancel;
+            ScheduledFuture<?> timer = scheduler.schedule(cancel, totalDeadline.toMillis(), TimeUnit.MILLISECONDS);
+            Runnable forgetAbort = CallScope.onAbort(cancel);
+            try {
+                return new DeadlineResponse(delegate.execute(), timer, forgetAbort);
+            } catch (IOException | RuntimeException e) {
+                timer.cancel(false);
+                forgetAbort.run();
+                throw e;
+            }
+        }
+
+        @Override
+        public OutputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public HttpMethod getMethod() {
+            return delegate.getMethod();
+        }
+
+        @Override
+        public URI getURI() {
+            return delegate.getURI();
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return delegate.getAttributes();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+    }
+
+    private static final class DeadlineResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final ScheduledFuture<?> timer;
+        private final Runnable forgetAbort;
+
+        DeadlineResponse(ClientHttpResponse delegate, ScheduledFuture<?> timer, Runnable forgetAbort) {
+            this.delegate = delegate;
+            this.timer = timer;
+            this.forgetAbort = forgetAbort;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public void close() {
+            timer.cancel(false);
+            forgetAbort.run();
+            delegate.close();
+        }
+    }
+}
@@ -3,14 +3,26 @@ package org.novalegal.config;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.storage.Storage;
 import com.google.cloud.storage.StorageOptions;
+import org.novalegal.services.ObjectStore;
+import org.novalegal.services.impl.GcsObjectStore;
+import org.novalegal.util.CompositeUploader;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.util.unit.DataSize;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 
+/**
+ * Keeps meeting audio in the GCS bucket {@code gcs.bucket.name}; the default {@code storage.backend}.
+ */
 @Configuration
+@ConditionalOnProperty(name = "storage.backend", havingValue = "gcs", matchIfMissing = true)
 public class GcsStorageConfig {
 
     @Bean
@@ -40,4 +52,23 @@ public class GcsStorageConfig {
 
         return builder.build().getService();
     }
-}
\ No newline at end of file
+
+    /**
+     * Uploads extracted meeting audio larger than one part as a parallel composite upload, each job holding at most
+     * {@code parallelism + 1} parts in memory; smaller audio, or all of it with composite uploads disabled, goes over
+     * one stream.
+     */
+    @Bean
+    public ObjectStore objectStore(Storage storage,
+                                   @Value("${gcs.bucket.name}") String bucketName,
+                                   @Qualifier("uploadExecutor") TaskExecutor uploadExecutor,
+                                   @Value("${meeting.audio.composite-upload.enabled:true}") boolean compositeUpload,
+                                   @Value("${meeting.audio.composite-upload.part-size:8MB}") DataSize partSize,
+                                   @Value("${meeting.audio.composite-upload.parallelism:4}") int parallelism,
+                                   @Value("${meeting.audio.upload-buffer-size:1MB}") DataSize uploadBufferSize) {
+        CompositeUploader compositeUploader = compositeUpload
+                ? new CompositeUploader(storage, uploadExecutor, (int) partSize.toBytes(), parallelism)
+                : null;
+        return new GcsObjectStore(storage, bucketName, compositeUploader, (int) uploadBufferSize.toBytes());
+    }
+}
@@ -0,0 +1,136 @@
+package org.novalegal.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.DefaultSchemePortResolver;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.routing.RoutingSupport;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.util.TimeValue;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * Single pooled outbound HTTP layer shared by every external call (OpenAI, Whisper backend).
+ * <p>
+ * All {@link RestTemplate}s use one Apache HttpClient connection pool, so TLS sessions are kept alive and
+ * reused across chunk calls. Each call type gets its own connect, read and total deadline.
+ */
+@Configuration
+public class HttpClientConfig {
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager outboundConnectionManager(
+            @Value("${http.pool.max-total:100}") int maxTotal,
+            @Value("${http.pool.max-per-route:20}") int maxPerRoute,
+            @Value("${http.openai.max-connections:50}") int openAiMaxConnections,
+            @Value("${http.whisper.max-connections:10}") int whisperMaxConnections,
+            @Value("${llm.base-url:https://api.openai.com/v1}") String llmBaseUrl,
+            @Value("${modal.whisper.transcriber.url:}") String whisperUrl,
+            MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setPoolConcurrencyPolicy(PoolConcurrencyPolicy.STRICT)
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setTimeToLive(TimeValue.ofMinutes(5))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                        .build())
+                .build();
+
+        connectionManager.setMaxPerRoute(routeOf(llmBaseUrl), openAiMaxConnections);
+        if (whisperUrl != null && !whisperUrl.isBlank()) {
+            connectionManager.setMaxPerRoute(routeOf(whisperUrl), whisperMaxConnections);
+        }
+
+        // httpcomponents.httpclient.pool.* gauges: leased/available connections, pending lease requests
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "outbound").bindTo(meterRegistry);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient outboundHttpClient(PoolingHttpClientConnectionManager outboundConnectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(outboundConnectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                .disableAutomaticRetries()
+                .build();
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService httpDeadlineScheduler() {
+        ScheduledThreadPoolExecutor scheduler = (ScheduledThreadPoolExecutor) Executors.newScheduledThreadPool(1, runnable -> {
+            Thread thread = new Thread(runnable, "http-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    @Bean(name = "openAiRestTemplate")
+    public RestTemplate openAiRestTemplate(CloseableHttpClient outboundHttpClient,
+                                           @Qualifier("httpDeadlineScheduler") ScheduledExecutorService httpDeadlineScheduler,
+                                           @Value("${http.openai.connect-timeout:5s}") Duration connectTimeout,
+                                           @Value("${http.openai.read-timeout:120s}") Duration readTimeout,
+                                           @Value("${http.openai.total-timeout:300s}") Duration totalTimeout,
+                                           @Value("${http.pool.lease-timeout:30s}") Duration leaseTimeout) {
+        return restTemplate(outboundHttpClient, httpDeadlineScheduler, connectTimeout, readTimeout, totalTimeout, leaseTimeout);
+    }
+
+    @Bean(name = "whisperRestTemplate")
+    public RestTemplate whisperRestTemplate(CloseableHttpClient outboundHttpClient,
+                                            @Qualifier("httpDeadlineScheduler") ScheduledExecutorService httpDeadlineScheduler,
+                                            @Value("${http.whisper.connect-timeout:5s}") Duration connectTimeout,
+                                            @Value("${http.whisper.read-timeout:310s}") Duration readTimeout,
+                                            @Value("${http.whisper.total-timeout:330s}") Duration totalTimeout,
+                                            @Value("${http.pool.lease-timeout:30s}") Duration leaseTimeout) {
+        return restTemplate(outboundHttpClient, httpDeadlineScheduler, connectTimeout, readTimeout, totalTimeout, leaseTimeout);
+    }
+
+    // Segment streams stay open for the whole transcription, so only the gap between segments is bounded tightly
+    @Bean(name = "whisperStreamRestTemplate")
+    public RestTemplate whisperStreamRestTemplate(CloseableHttpClient outboundHttpClient,
+                                                  @Qualifier("httpDeadlineScheduler") ScheduledExecutorService httpDeadlineScheduler,
+                                                  @Value("${http.whisper.connect-timeout:5s}") Duration connectTimeout,
+                                                  @Value("${http.whisper-stream.read-timeout:600s}") Duration readTimeout,
+                                                  @Value("${http.whisper-stream.total-timeout:90m}") Duration totalTimeout,
+                                                  @Value("${http.pool.lease-timeout:30s}") Duration leaseTimeout) {
+        return restTemplate(outboundHttpClient, httpDeadlineScheduler, connectTimeout, readTimeout, totalTimeout, leaseTimeout);
+    }
+
+    private static RestTemplate restTemplate(CloseableHttpClient httpClient,
+                                             ScheduledExecutorService scheduler,
+                                             Duration connectTimeout,
+                                             Duration readTimeout,
+                                             Duration totalTimeout,
+                                             Duration leaseTimeout) {
+        DeadlineClientHttpRequestFactory requestFactory = new DeadlineClientHttpRequestFactory(httpClient, scheduler, totalTimeout);
+        requestFactory.setConnectTimeout(connectTimeout);
+        requestFactory.setReadTimeout(readTimeout);
+        requestFactory.setConnectionRequestTimeout(leaseTimeout);
+        return new RestTemplate(requestFactory);
+    }
+
+    // Must match the route HttpClient plans for the URL, including the default port and TLS flag
+    private static HttpRoute routeOf(String url) {
+        HttpHost host = HttpHost.create(URI.create(url));
+        HttpHost target = RoutingSupport.normalize(host, DefaultSchemePortResolver.INSTANCE);
+        return new HttpRoute(target, null, "https".equalsIgnoreCase(target.getSchemeName()));
+    }
+}
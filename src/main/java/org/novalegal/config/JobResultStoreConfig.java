@@ -0,0 +1,38 @@
+package org.novalegal.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.novalegal.util.CompressedTextStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+@Configuration
+public class JobResultStoreConfig {
+
+    /**
+     * Holds the summaries of meeting and document jobs until their jobs are evicted, compressed outside the heap
+     * when they are large.
+     */
+    @Bean
+    public CompressedTextStore jobResultStore(@Value("${jobs.results.inline-max-size:4KB}") DataSize inlineMaxSize,
+                                              @Value("${jobs.results.off-heap-max-size:64MB}") DataSize offHeapMaxSize,
+                                              @Value("${jobs.results.spill-dir:${java.io.tmpdir}/novalegal-job-results}") String spillDir,
+                                              MeterRegistry meterRegistry) {
+        CompressedTextStore store = new CompressedTextStore((int) inlineMaxSize.toBytes(), offHeapMaxSize.toBytes(), Path.of(spillDir));
+        Gauge.builder("jobs.results.bytes", store, CompressedTextStore::offHeapBytes)
+                .description("Compressed job results held outside the heap")
+                .tag("location", "offheap")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("jobs.results.bytes", store, CompressedTextStore::spilledBytes)
+                .description("Compressed job results held outside the heap")
+                .tag("location", "disk")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        return store;
+    }
+}
@@ -0,0 +1,32 @@
+package org.novalegal.config;
+
+import org.novalegal.util.LlmStubServer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Starts the local chat completions stub inside the application when {@code llm.stub.enabled=true}.
+ * Point {@code llm.base-url} at {@code http://127.0.0.1:<llm.stub.port>/v1} to route every LLM call to it.
+ */
+@Configuration
+@ConditionalOnProperty(name = "llm.stub.enabled", havingValue = "true")
+public class LlmStubConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public LlmStubServer llmStubServer(@Value("${llm.stub.port:8089}") int port,
+                                       @Value("${llm.stub.latency-median:800ms}") Duration latencyMedian,
+                                       @Value("${llm.stub.latency-p99:4s}") Duration latencyP99,
+                                       @Value("${llm.stub.tokens-per-second:60}") int tokensPerSecond,
+                                       @Value("${llm.stub.completion-tokens:250}") int completionTokens,
+                                       @Value("${llm.stub.error-rate:0.0}") double errorRate,
+                                       @Value("${llm.stub.rate-limit-rate:0.0}") double rateLimitRate,
+                                       @Value("${llm.stub.retry-after:1s}") Duration retryAfter,
+                                       @Value("${llm.stub.seed:42}") long seed) {
+        return new LlmStubServer(new LlmStubServer.Settings(port, latencyMedian, latencyP99, tokensPerSecond,
+                completionTokens, errorRate, rateLimitRate, retryAfter, seed));
+    }
+}
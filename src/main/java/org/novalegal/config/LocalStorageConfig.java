@@ -0,0 +1,49 @@
+package org.novalegal.config;
+
+import org.novalegal.services.ObjectStore;
+import org.novalegal.services.impl.LocalObjectStore;
+import org.novalegal.util.SignedUrlFileServer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.Duration;
+
+/**
+ * Keeps meeting audio as files under {@code storage.local.root} when {@code storage.backend=local}: no cloud
+ * credentials needed. The transcriber downloads audio through signed URLs served by an embedded server, so
+ * {@code storage.local.public-url} must be an address it can reach.
+ */
+@Configuration
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local")
+public class LocalStorageConfig {
+
+    @Bean
+    public ObjectStore objectStore(@Value("${storage.local.root:${java.io.tmpdir}/novalegal-objects}") String root,
+                                   @Value("${storage.local.bind-address:127.0.0.1}") String bindAddress,
+                                   @Value("${storage.local.port:8090}") int port,
+                                   @Value("${storage.local.public-url:}") String publicUrl,
+                                   @Value("${storage.local.signing-key:}") String signingKey,
+                                   @Value("${storage.local.max-connections:16}") int maxConnections,
+                                   @Value("${storage.local.request-timeout:10s}") Duration requestTimeout) throws IOException {
+        byte[] key;
+        if (signingKey.isBlank()) {
+            // URLs then stop working when the application restarts, which outlasts none of them by much
+            key = new byte[32];
+            new SecureRandom().nextBytes(key);
+        } else {
+            key = signingKey.getBytes(StandardCharsets.UTF_8);
+        }
+        Path directory = Files.createDirectories(Path.of(root));
+        SignedUrlFileServer server = new SignedUrlFileServer(directory, new InetSocketAddress(bindAddress, port),
+                publicUrl, key, LocalObjectStore::contentType, maxConnections, requestTimeout).start();
+        return new LocalObjectStore(directory, server);
+    }
+}
@@ -2,82 +2,171 @@ package org.novalegal.controllers;
 
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletResponse;
+import org.novalegal.models.DocumentJob;
 import org.novalegal.models.IpUsage;
+import org.novalegal.services.DocumentJobService;
 import org.novalegal.services.DocumentProcessingService;
 import org.novalegal.services.EmailService;
 import org.novalegal.services.OpenAIClientService;
+import org.novalegal.services.SummaryStreamListener;
+import org.novalegal.util.CompressedTextStore;
 import com.stripe.exception.StripeException;
 import com.stripe.model.checkout.Session;
 import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
 
 @Controller
 public class DocumentController {
+    private static final Logger logger = LoggerFactory.getLogger(DocumentController.class);
+    private static final long STREAM_TIMEOUT_MS = 10 * 60 * 1000L;
+    private static final int BUSY_RETRY_AFTER_SECONDS = 30;
+
     private final DocumentProcessingService processingService;
     private final OpenAIClientService openAIClientService;
     private final EmailService emailService;
+    private final TaskExecutor streamExecutor;
+    private final DocumentJobService documentJobService;
+
+    @Value("${openai.chunk.max-tokens:5000}")
+    private int chunkMaxTokens = 5000;
+    private volatile MultipartFile sampleDocument;
 
     public DocumentController(DocumentProcessingService processingService,
                               OpenAIClientService openAIClientService,
-                              EmailService emailService) {
+                              EmailService emailService,
+                              @Qualifier("applicationTaskExecutor") TaskExecutor streamExecutor,
+                              DocumentJobService documentJobService) {
         this.processingService = processingService;
         this.openAIClientService = openAIClientService;
         this.emailService = emailService;
+        this.streamExecutor = streamExecutor;
+        this.documentJobService = documentJobService;
     }
 
+    /**
+     * Queues the document as a {@link DocumentJob} and answers right away; extraction and simplification run on the
+     * document executor. Only the checks that do not read the file happen here, so a bad upload still fails at once.
+     */
     @PostMapping("/upload")
     public String handleFileUpload(@RequestParam("file") MultipartFile file,
                                    @RequestParam(value = "useSample", required = false) String useSample,
                                    HttpServletRequest request,
                                    HttpServletResponse response,
                                    Model model) throws Exception {
-        // Get IP and headers
-        String ip = request.getRemoteAddr();
-        String userAgent = request.getHeader("User-Agent");
-        String referer = request.getHeader("Referer");
+        recordUsage(request, response);
 
-        // Check for existing UUID cookie
-        String uuid = null;
-        if (request.getCookies() != null) {
-            for (Cookie cookie : request.getCookies()) {
-                if ("simplifier_uuid".equals(cookie.getName())) {
-                    uuid = cookie.getValue();
-                    break;
-                }
-            }
+        if ("on".equals(useSample)) {
+            file = sampleDocument();
         }
 
-        // If UUID cookie is missing, create and set it
-        if (uuid == null || uuid.isBlank()) {
-            uuid = UUID.randomUUID().toString();
-            Cookie uuidCookie = new Cookie("simplifier_uuid", uuid);
-            uuidCookie.setPath("/");
-            uuidCookie.setMaxAge(60 * 60 * 24 * 365); // 1 year
-            response.addCookie(uuidCookie);
+        String jobId;
+        try {
+            processingService.checkFile(file);
+            jobId = documentJobService.submitJob(file);
+        } catch (IllegalArgumentException ex) {
+            String errorMsg = ex.getMessage() != null ? ex.getMessage() : "Invalid or unsupported file uploaded.";
+            return uploadError(HttpServletResponse.SC_BAD_REQUEST, errorMsg, request, response, model);
+        } catch (TaskRejectedException ex) {
+            logger.warn("Document queue is full; rejecting upload");
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(BUSY_RETRY_AFTER_SECONDS));
+            return uploadError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    "We are simplifying a lot of documents right now. Please try again in a minute.", request, response, model);
         }
 
-        // Fetch or create usage entry
-        IpUsage usage = processingService.getOrCreateUsage(uuid, ip, userAgent, referer);
+        if (isAjaxRequest(request)) {
+            response.setContentType("application/json;charset=UTF-8");
+            response.getWriter().write("{\"jobId\": \"" + jobId + "\", \"redirect\": \"/result/" + jobId + "\"}");
+            return null;
+        }
+        return "redirect:/result/" + jobId;
+    }
 
-        // Usage limit logic (optional)
-       /* if (usage.getUsageCount() >= usage.getUsageLimit()) {
-            model.addAttribute("error", "You have used your free quota. Please upgrade.");
-            model.addAttribute("showLimitModal", true);
-            return "document-simplifier";
-        }*/
+    /**
+     * Shows a document job: a waiting page that polls {@code /result/{jobId}/status} until the job finishes, then
+     * the summary or the error.
+     */
+    @GetMapping("/result/{jobId}")
+    public String documentJobResult(@PathVariable String jobId, Model model) {
+        DocumentJob job = documentJobService.getJob(jobId);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Document job not found");
+        }
+        model.addAttribute("job", job);
+        if ("COMPLETED".equals(job.getStatus())) {
+            try {
+                model.addAttribute("summary", job.getSummaryText());
+            } catch (CompressedTextStore.EvictedException e) {
+                throw new ResponseStatusException(HttpStatus.GONE, "Document job has expired");
+            }
+        }
+        return "result";
+    }
 
-        // Record new usage
-        processingService.addUsage(usage);
+    /**
+     * Returns the state of a document job as JSON; {@code summary} is filled in once it has completed.
+     */
+    @GetMapping(value = "/result/{jobId}/status", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> documentJobStatus(@PathVariable String jobId) {
+        DocumentJob job = documentJobService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("jobId", job.getJobId());
+        body.put("status", job.getStatus());
+        if ("COMPLETED".equals(job.getStatus())) {
+            try {
+                body.put("summary", job.getSummaryText());
+            } catch (CompressedTextStore.EvictedException e) {
+                // Evicted after getJob returned it
+                return ResponseEntity.status(HttpStatus.GONE).build();
+            }
+        } else if ("FAILED".equals(job.getStatus())) {
+            body.put("error", job.getErrorMessage());
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(body);
+    }
+
+    /**
+     * Streams the summary over Server-Sent Events instead of waiting for the whole completion.
+     * Emits {@code progress} events while chunk summaries are produced, {@code delta} events carrying
+     * pieces of the final summary as the model generates them, then {@code done} (or {@code error}).
+     */
+    @PostMapping(value = "/upload/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> streamFileUpload(@RequestParam(value = "file", required = false) MultipartFile file,
+                                              @RequestParam(value = "useSample", required = false) String useSample,
+                                              HttpServletRequest request,
+                                              HttpServletResponse response) throws Exception {
+        recordUsage(request, response);
 
         if ("on".equals(useSample)) {
-            ClassPathResource sample = new ClassPathResource("static/sample-nda.pdf");
-            file = processingService.toMultipartFile(sample, "sample-nda.pdf", "application/pdf");
+            file = sampleDocument();
+        }
+        if (file == null) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body("No file uploaded.");
         }
 
         String text;
@@ -85,39 +174,39 @@ public class DocumentController {
             text = processingService.extractTextFromFile(file);
         } catch (IllegalArgumentException ex) {
             String errorMsg = ex.getMessage() != null ? ex.getMessage() : "Invalid or unsupported file uploaded.";
-            if (isAjaxRequest(request)) {
-                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-                response.setContentType("text/plain;charset=UTF-8");
-                response.getWriter().write(errorMsg);
-                return null;
-            } else {
-                model.addAttribute("error", errorMsg);
-                model.addAttribute("showErrorModal", true);
-                return "document-simplifier";
-            }
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(errorMsg);
         }
 
-        String summary = openAIClientService.simplifyDocumentWithChunking(text, 4000);
-        model.addAttribute("summary", summary);
-        // Store summary in session for AJAX redirect
-        request.getSession().setAttribute("summary", summary);
-        if (isAjaxRequest(request)) {
-            response.setContentType("application/json;charset=UTF-8");
-            response.getWriter().write("{\"redirect\": \"/result\"}");
-            return null;
-        }
-        return "result";
-    }
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        streamExecutor.execute(() -> {
+            try {
+                openAIClientService.streamDocumentSimplification(text, chunkMaxTokens, new SummaryStreamListener() {
+                    @Override
+                    public void onProgress(int completedChunks, int totalChunks) {
+                        send(emitter, SseEmitter.event().name("progress")
+                                .data(Map.of("completed", completedChunks, "total", totalChunks), MediaType.APPLICATION_JSON));
+                    }
 
-    @GetMapping("/result")
-    public String resultPage(HttpServletRequest request, Model model) {
-        Object summary = request.getSession().getAttribute("summary");
-        if (summary != null) {
-            model.addAttribute("summary", summary);
-            // Optionally clear the summary from session after displaying
-            request.getSession().removeAttribute("summary");
-        }
-        return "result";
+                    @Override
+                    public void onDelta(String delta) {
+                        send(emitter, SseEmitter.event().name("delta")
+                                .data(Map.of("text", delta), MediaType.APPLICATION_JSON));
+                    }
+                });
+                emitter.send(SseEmitter.event().name("done").data("{}", MediaType.APPLICATION_JSON));
+                emitter.complete();
+            } catch (Exception e) {
+                logger.error("Streaming summary failed: {}", e.getMessage());
+                try {
+                    emitter.send(SseEmitter.event().name("error")
+                            .data(Map.of("message", "Could not simplify the document. Please try again."), MediaType.APPLICATION_JSON));
+                    emitter.complete();
+                } catch (Exception sendFailure) {
+                    emitter.completeWithError(e);
+                }
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(emitter);
     }
 
     @GetMapping("/")
@@ -177,6 +266,80 @@ public class DocumentController {
         return "contact";
     }
 
+    private void recordUsage(HttpServletRequest request, HttpServletResponse response) {
+        // Get IP and headers
+        String ip = request.getRemoteAddr();
+        String userAgent = request.getHeader("User-Agent");
+        String referer = request.getHeader("Referer");
+
+        // Check for existing UUID cookie
+        String uuid = null;
+        if (request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if ("simplifier_uuid".equals(cookie.getName())) {
+                    uuid = cookie.getValue();
+                    break;
+                }
+            }
+        }
+
+        // If UUID cookie is missing, create and set it
+        if (uuid == null || uuid.isBlank()) {
+            uuid = UUID.randomUUID().toString();
+            Cookie uuidCookie = new Cookie("simplifier_uuid", uuid);
+            uuidCookie.setPath("/");
+            uuidCookie.setMaxAge(60 * 60 * 24 * 365); // 1 year
+            response.addCookie(uuidCookie);
+        }
+
+        // Fetch or create usage entry
+        IpUsage usage = processingService.getOrCreateUsage(uuid, ip, userAgent, referer);
+
+        // Usage limit logic (optional)
+       /* if (usage.getUsageCount() >= usage.getUsageLimit()) {
+            model.addAttribute("error", "You have used your free quota. Please upgrade.");
+            model.addAttribute("showLimitModal", true);
+            return "document-simplifier";
+        }*/
+
+        // Record new usage
+        processingService.addUsage(usage);
+    }
+
+    // The sample never changes, so its bytes are read once; extraction and summary come from the content cache
+    private MultipartFile sampleDocument() {
+        MultipartFile sample = sampleDocument;
+        if (sample == null) {
+            sample = processingService.toMultipartFile(
+                    new ClassPathResource("static/sample-nda.pdf"), "sample-nda.pdf", "application/pdf");
+            sampleDocument = sample;
+        }
+        return sample;
+    }
+
+    // The client may have gone away; the remaining events are simply dropped
+    private static void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Dropping SSE event: {}", e.getMessage());
+        }
+    }
+
+    private String uploadError(int status, String errorMsg, HttpServletRequest request,
+                               HttpServletResponse response, Model model) throws IOException {
+        if (isAjaxRequest(request)) {
+            response.setStatus(status);
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write(errorMsg);
+            return null;
+        }
+        response.setStatus(status);
+        model.addAttribute("error", errorMsg);
+        model.addAttribute("showErrorModal", true);
+        return "document-simplifier";
+    }
+
     private boolean isAjaxRequest(HttpServletRequest request) {
         String requestedWith = request.getHeader("X-Requested-With");
         return requestedWith != null && requestedWith.equalsIgnoreCase("XMLHttpRequest");
@@ -4,28 +4,62 @@ import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.novalegal.models.IpUsage;
+import org.novalegal.models.JobStatus;
 import org.novalegal.models.MeetingJob;
+import org.novalegal.models.MeetingStage;
 import org.novalegal.models.MeetingSummarizerUsage;
+import org.novalegal.services.MeetingJobQueueService;
 import org.novalegal.services.MeetingJobService;
 import org.novalegal.services.MeetingProcessingService;
 import org.novalegal.services.MeetingTranscriptionService;
+import org.novalegal.services.VideoProcessingService;
+import org.novalegal.util.CompressedTextStore;
+import org.novalegal.util.LatestValueSender;
+import org.novalegal.util.MultipartStream;
 import org.novalegal.util.VideoUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 @Controller
 public class MeetingSummarizerController {
+    private static final Logger logger = LoggerFactory.getLogger(MeetingSummarizerController.class);
+    // Enough of the recording to find the moov or mdat box of an MP4 or MOV behind ftyp and any free boxes
+    private static final int PROBE_BYTES = 64 * 1024;
     private static final Set<String> ALLOWED_VIDEO_TYPES = Set.of(
             "video/mp4",
             "video/x-matroska",  // .mkv
@@ -36,18 +70,42 @@ public class MeetingSummarizerController {
     private final MeetingTranscriptionService transcriptionService;
     private final MeetingJobService jobService;
     private final MeetingProcessingService processingService;
+    private final MeetingJobQueueService jobQueue;
+    private final TaskExecutor statusExecutor;
+    private final ScheduledExecutorService statusSendScheduler;
+    private final VideoProcessingService videoProcessingService;
+
+    @Value("${meeting.ingest.streaming:true}")
+    private boolean streamingIngest = true;
+    @Value("${spring.servlet.multipart.max-file-size:1GB}")
+    private DataSize maxFileSize = DataSize.ofGigabytes(1);
+    @Value("${meeting.status.long-poll-timeout:30s}")
+    private Duration longPollTimeout = Duration.ofSeconds(30);
+    @Value("${meeting.status.stream-timeout:30m}")
+    private Duration streamTimeout = Duration.ofMinutes(30);
+    @Value("${meeting.status.send-timeout:10s}")
+    private Duration statusSendTimeout = Duration.ofSeconds(10);
 
     @Autowired
     public MeetingSummarizerController(MeetingTranscriptionService transcriptionService,
                                        MeetingJobService jobService,
-                                       MeetingProcessingService processingService) {
+                                       MeetingProcessingService processingService,
+                                       MeetingJobQueueService jobQueue,
+                                       @Qualifier("statusExecutor") TaskExecutor statusExecutor,
+                                       @Qualifier("httpDeadlineScheduler") ScheduledExecutorService statusSendScheduler,
+                                       VideoProcessingService videoProcessingService) {
         this.transcriptionService = transcriptionService;
         this.jobService = jobService;
         this.processingService = processingService;
+        this.jobQueue = jobQueue;
+        this.statusExecutor = statusExecutor;
+        this.statusSendScheduler = statusSendScheduler;
+        this.videoProcessingService = videoProcessingService;
     }
 
     @GetMapping("/meeting-summarizer")
     public String showUploadForm(Model model) {
+        model.addAttribute("uploadUrl", streamingIngest ? "/meeting-summarizer/stream" : "/meeting-summarizer");
         return "meeting-summarizer/meeting-summarizer"; // Thymeleaf template name (meeting-summarizer.html)
     }
 
@@ -71,6 +129,121 @@ public class MeetingSummarizerController {
                     .body("Unsupported file format: " + mimeType + ". Please upload an MP4, MKV, WebM, or MOV file.");
         }
 
+        String uuid = recordUsage(request, response);
+
+        // Refuse before the upload is copied to /tmp, so a burst cannot fill the disk with files that would wait
+        Optional<String> admitted = jobQueue.admit();
+        if (admitted.isEmpty()) {
+            return queueFull();
+        }
+        String jobId = admitted.get();
+
+        String inputFileName = VideoUtils.generateTempFilename(file.getOriginalFilename());
+        File inputFile = new File(inputFileName);
+
+        try {
+            file.transferTo(inputFile);
+
+            transcriptionService.processMeetingFileAsync(uuid, inputFile, inputFileName, jobId);
+            return accepted(jobId, request);
+        } catch (Exception e) {
+            // The job never reached the executor: give its place back
+            jobService.failJob(jobId, e.getMessage());
+            jobQueue.finished(jobId);
+            if (inputFile.exists()) inputFile.delete();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Streaming variant of {@link #processMeetingUpload}: reads the multipart body itself as it arrives instead of
+     * letting the servlet container buffer it first. A recording ffmpeg can read from a pipe is transcoded while it
+     * is being uploaded, so neither the video nor a spool file ever lands on disk. That takes one of the meeting job
+     * slots, so when none is free, or for anything ffmpeg cannot read from a pipe (MP4 or MOV with the index at the
+     * end), the recording is spooled to /tmp and queued like a regular upload.
+     */
+    @PostMapping("/meeting-summarizer/stream")
+    public ResponseEntity<?> streamMeetingUpload(HttpServletRequest request, HttpServletResponse response) {
+        String boundary = MultipartStream.boundaryOf(request.getContentType());
+        if (boundary == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Expected a multipart/form-data upload.");
+        }
+
+        MultipartStream.Part file;
+        try {
+            MultipartStream parts = new MultipartStream(request.getInputStream(), boundary, maxFileSize.toBytes());
+            do {
+                file = parts.nextPart();
+            } while (file != null && !"file".equals(file.name()));
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Error: " + e.getMessage());
+        }
+        if (file == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Error: No file uploaded");
+        }
+
+        String mimeType = file.contentType();
+        if (mimeType == null || !ALLOWED_VIDEO_TYPES.contains(mimeType)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Unsupported file format: " + mimeType + ". Please upload an MP4, MKV, WebM, or MOV file.");
+        }
+
+        String uuid = recordUsage(request, response);
+
+        // Refuse before reading the recording, so nothing is transcoded or spooled for a job that could not run
+        Optional<String> admitted = jobQueue.admit();
+        if (admitted.isEmpty()) {
+            return queueFull();
+        }
+        String jobId = admitted.get();
+
+        File inputFile = null;
+        try {
+            String inputFileName = VideoUtils.generateTempFilename(file.fileName());
+            byte[] head = file.body().readNBytes(PROBE_BYTES);
+            if (head.length == 0) {
+                throw new IllegalArgumentException("File is empty");
+            }
+            InputStream video = new SequenceInputStream(new ByteArrayInputStream(head), file.body());
+
+            // Transcoding on this thread still takes one of the meeting job slots; with none free, queue the upload
+            if (VideoUtils.isPipeReadable(head) && jobQueue.tryStart(jobId)) {
+                jobService.startJob(jobId);
+                jobService.advanceStage(jobId, MeetingStage.EXTRACTING_AUDIO);
+                String gcsObjectName = videoProcessingService.extractAudioAndUploadToGCS(video, file.fileName());
+                jobQueue.requeued(jobId);
+                transcriptionService.processMeetingAudioAsync(uuid, gcsObjectName, jobId);
+            } else {
+                inputFile = new File(inputFileName);
+                Files.copy(video, inputFile.toPath());
+                transcriptionService.processMeetingFileAsync(uuid, inputFile, inputFileName, jobId);
+            }
+            return accepted(jobId, request);
+        } catch (Exception e) {
+            // The job never reached the executor: give its place back
+            jobService.failJob(jobId, e.getMessage());
+            jobQueue.finished(jobId);
+            if (inputFile != null && inputFile.exists()) inputFile.delete();
+            HttpStatus status = e instanceof MultipartStream.PartTooLargeException ? HttpStatus.PAYLOAD_TOO_LARGE
+                    : e instanceof IllegalArgumentException ? HttpStatus.BAD_REQUEST
+                    : HttpStatus.INTERNAL_SERVER_ERROR;
+            return ResponseEntity.status(status).body("Error: " + e.getMessage());
+        }
+    }
+
+    private static ResponseEntity<?> accepted(String jobId, HttpServletRequest request) {
+        // Detect if it's an AJAX request and respond with JSON
+        if ("XMLHttpRequest".equals(request.getHeader("X-Requested-With"))) {
+            return ResponseEntity.ok(Map.of("redirect", "/meeting-summarizer/status/" + jobId));
+        }
+
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .header(HttpHeaders.LOCATION, "/meeting-summarizer/status/" + jobId)
+                .build();
+    }
+
+    private String recordUsage(HttpServletRequest request, HttpServletResponse response) {
         // Get IP and headers
         String ip = request.getRemoteAddr();
         String userAgent = request.getHeader("User-Agent");
@@ -99,32 +272,19 @@ public class MeetingSummarizerController {
         // Fetch or create usage entry
         MeetingSummarizerUsage usage = processingService.getOrCreateUsage(uuid, ip, userAgent, referer);
         processingService.addUsage(usage);
+        return uuid;
+    }
 
-        String inputFileName = VideoUtils.generateTempFilename(file.getOriginalFilename());
-        File inputFile = new File(inputFileName);
-
-        try {
-            file.transferTo(inputFile);
-
-            String jobId = jobService.createJob();
-            transcriptionService.processMeetingFileAsync(uuid, inputFile, inputFileName, jobId);
-
-            // Detect if it's an AJAX request and respond with JSON
-            if ("XMLHttpRequest".equals(request.getHeader("X-Requested-With"))) {
-                return ResponseEntity.ok(Map.of("redirect", "/meeting-summarizer/status/" + jobId));
-            }
-
-            return ResponseEntity.status(HttpStatus.FOUND)
-                    .header(HttpHeaders.LOCATION, "/meeting-summarizer/status/" + jobId)
-                    .build();
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error: " + e.getMessage());
-        }
+    private ResponseEntity<String> queueFull() {
+        long retryAfterSeconds = jobQueue.getRetryAfter().toSeconds();
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body("We are processing a lot of meetings right now. Please try again in about "
+                        + Math.max(1, (retryAfterSeconds + 59) / 60) + " minute(s).");
     }
 
     @GetMapping("/meeting-summarizer/status/{jobId}")
-    public String getJobStatus(@PathVariable String jobId, Model model) {
+    public String getJobStatus(@PathVariable String jobId, Model model, HttpServletResponse response) {
         MeetingJob job = jobService.getJob(jobId);
 
         if (job == null) {
@@ -133,6 +293,177 @@ public class MeetingSummarizerController {
         }
 
         model.addAttribute("job", job);
+        if (job.getState() == JobStatus.COMPLETED) {
+            try {
+                model.addAttribute("summary", job.getSummaryText());
+            } catch (CompressedTextStore.EvictedException e) {
+                response.setStatus(HttpStatus.GONE.value());
+                model.addAttribute("error", "The summary for job " + jobId + " has expired.");
+                return "meeting-summarizer";
+            }
+        }
+        int queuePosition = jobQueue.getQueuePosition(jobId);
+        if (queuePosition > 0) {
+            model.addAttribute("queuePosition", queuePosition);
+            jobQueue.getEstimatedWait(jobId).ifPresent(wait -> {
+                model.addAttribute("estimatedStart", Instant.now().plus(wait));
+                model.addAttribute("estimatedWaitMinutes", Math.max(1, (wait.toSeconds() + 59) / 60));
+            });
+        }
         return "meeting-summarizer/meeting-summarizer-status";
     }
-}
\ No newline at end of file
+
+    /**
+     * Streams the job's status as server-sent {@code status} events: the current state at once, then every change
+     * of state, stage or queue position as {@link MeetingJobService} reports it. The stream ends when the job does.
+     */
+    @GetMapping(path = "/meeting-summarizer/status/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamJobStatus(@PathVariable String jobId) {
+        MeetingJob current = jobService.getJob(jobId);
+        if (current == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (isEvicted(current)) {
+            // Refused outright, so the browser does not keep reconnecting to a stream that can only fail
+            return ResponseEntity.status(HttpStatus.GONE).build();
+        }
+
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        AtomicLong lastSent = new AtomicLong(-1);
+        AtomicReference<Runnable> unsubscribe = new AtomicReference<>(() -> {
+        });
+        // Sends run on the status executor so that a slow client never holds up the job that changed. Each stream
+        // has at most one send in flight and skips to the latest snapshot, so a stalled client holds one thread
+        // until meeting.status.send-timeout and is then dropped
+        LatestValueSender<MeetingJob> sender = new LatestValueSender<>(statusExecutor, statusSendScheduler, statusSendTimeout,
+                (waiting, offered) -> offered.getVersion() >= waiting.getVersion() ? offered : waiting,
+                job -> {
+                    // Stale snapshots can arrive late; an equal version is a queue update and is sent again
+                    if (job.getVersion() < lastSent.get()) {
+                        return;
+                    }
+                    lastSent.set(job.getVersion());
+                    emitter.send(SseEmitter.event().name("status").id(Long.toString(job.getVersion()))
+                            .data(statusBody(job), MediaType.APPLICATION_JSON));
+                    if (job.getState().isFinished()) {
+                        emitter.complete();
+                    }
+                },
+                e -> {
+                    logger.debug("Dropping status stream for job {}: {}", jobId, e.getMessage());
+                    unsubscribe.get().run();
+                    try {
+                        emitter.completeWithError(e);
+                    } catch (IllegalStateException alreadyComplete) {
+                        // the client is gone already
+                    }
+                });
+        Consumer<MeetingJob> push = sender::offer;
+        unsubscribe.set(jobService.subscribe(jobId, push));
+        emitter.onCompletion(() -> {
+            sender.close();
+            unsubscribe.get().run();
+        });
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> {
+            sender.close();
+            unsubscribe.get().run();
+        });
+
+        // Read again after subscribing, so that a change in between is not missed
+        MeetingJob latest = jobService.getJob(jobId);
+        push.accept(latest != null ? latest : current);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(emitter);
+    }
+
+    /**
+     * Long-poll fallback for clients without server-sent events. Answers at once when the job is already past
+     * {@code version}, otherwise when it next changes or after {@code meeting.status.long-poll-timeout}, whichever
+     * comes first; either way with the job's current status.
+     */
+    @GetMapping("/meeting-summarizer/status/{jobId}/poll")
+    @ResponseBody
+    public DeferredResult<ResponseEntity<Map<String, Object>>> pollJobStatus(@PathVariable String jobId,
+                                                                             @RequestParam(defaultValue = "-1") long version) {
+        DeferredResult<ResponseEntity<Map<String, Object>>> result = new DeferredResult<>(longPollTimeout.toMillis());
+        MeetingJob current = jobService.getJob(jobId);
+        if (current == null) {
+            result.setResult(ResponseEntity.notFound().build());
+            return result;
+        }
+        if (current.getVersion() > version || current.getState().isFinished()) {
+            result.setResult(statusResponse(current));
+            return result;
+        }
+
+        AtomicBoolean answered = new AtomicBoolean();
+        Runnable unsubscribe = jobService.subscribe(jobId, job -> {
+            if (answered.compareAndSet(false, true)) {
+                result.setResult(statusResponse(job));
+            }
+        });
+        result.onCompletion(unsubscribe);
+        result.onTimeout(() -> {
+            MeetingJob latest = jobService.getJob(jobId);
+            result.setResult(latest != null ? statusResponse(latest) : ResponseEntity.notFound().build());
+        });
+
+        // The job may have changed before the listener was in place
+        MeetingJob latest = jobService.getJob(jobId);
+        if (latest != null && latest.getVersion() > version && answered.compareAndSet(false, true)) {
+            result.setResult(statusResponse(latest));
+        }
+        return result;
+    }
+
+    private ResponseEntity<Map<String, Object>> statusResponse(MeetingJob job) {
+        try {
+            return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(statusBody(job));
+        } catch (CompressedTextStore.EvictedException e) {
+            // Evicted after getJob returned it
+            return ResponseEntity.status(HttpStatus.GONE).build();
+        }
+    }
+
+    private static boolean isEvicted(MeetingJob job) {
+        if (job.getState() != JobStatus.COMPLETED) {
+            return false;
+        }
+        try {
+            job.getSummaryText();
+            return false;
+        } catch (CompressedTextStore.EvictedException e) {
+            return true;
+        }
+    }
+
+    private Map<String, Object> statusBody(MeetingJob job) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("jobId", job.getJobId());
+        body.put("status", job.getStatus());
+        body.put("version", job.getVersion());
+        // Not only pending jobs: a streamed upload waits again in progress, once its audio is extracted
+        int queuePosition = jobQueue.getQueuePosition(job.getJobId());
+        if (queuePosition > 0) {
+            body.put("queuePosition", queuePosition);
+            jobQueue.getEstimatedWait(job.getJobId()).ifPresent(wait -> {
+                body.put("estimatedStart", Instant.now().plus(wait).toString());
+                body.put("estimatedWaitMinutes", Math.max(1, (wait.toSeconds() + 59) / 60));
+            });
+        }
+        switch (job.getState()) {
+            case IN_PROGRESS -> {
+                if (job.getStage() != null) {
+                    body.put("stage", job.getStage().name());
+                    body.put("stageLabel", job.getStage().getLabel());
+                }
+            }
+            case COMPLETED -> body.put("summary", job.getSummaryText());
+            case FAILED -> body.put("error", job.getErrorMessage());
+        }
+        return body;
+    }
+}
@@ -0,0 +1,9 @@
+package org.novalegal.dao;
+
+import org.novalegal.models.CacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CacheEntryRepository extends JpaRepository<CacheEntry, String> {
+}
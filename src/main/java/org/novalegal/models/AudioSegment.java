@@ -0,0 +1,7 @@
+package org.novalegal.models;
+
+/**
+ * A piece of a meeting's audio stored as its own object, with where it lies in the whole recording, in seconds.
+ */
+public record AudioSegment(String objectName, double start, double end) {
+}
@@ -0,0 +1,57 @@
+package org.novalegal.models;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Second-level (shared, persistent) entry of the content cache.
+ */
+@Entity
+@Table(name = "content_cache")
+public class CacheEntry {
+
+    @Id
+    @Column(length = 96)
+    private String cacheKey;
+
+    @Column(length = 32, nullable = false)
+    private String region;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String payload;
+
+    private LocalDateTime createdAt;
+
+    public String getCacheKey() {
+        return cacheKey;
+    }
+
+    public void setCacheKey(String cacheKey) {
+        this.cacheKey = cacheKey;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public void setRegion(String region) {
+        this.region = region;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,66 @@
+package org.novalegal.models;
+
+import org.novalegal.util.CompressedTextStore;
+
+import java.time.Instant;
+
+/**
+ * Immutable snapshot of a document job; every state change produces a new snapshot.
+ */
+public final class DocumentJob {
+
+    private final String jobId;
+    private final String fileName;
+    private final JobStatus state;
+    private final CompressedTextStore.Handle summary;
+    private final String errorMessage;
+    private final Instant createdAt;
+
+    public DocumentJob(String jobId, String fileName) {
+        this(jobId, fileName, JobStatus.PENDING, null, null, Instant.now());
+    }
+
+    private DocumentJob(String jobId, String fileName, JobStatus state, CompressedTextStore.Handle summary,
+                        String errorMessage, Instant createdAt) {
+        this.jobId = jobId;
+        this.fileName = fileName;
+        this.state = state;
+        this.summary = summary;
+        this.errorMessage = errorMessage;
+        this.createdAt = createdAt;
+    }
+
+    // Getters
+    public String getJobId() { return jobId; }
+    public String getFileName() { return fileName; }
+    public String getStatus() { return state.name(); } // PENDING, IN_PROGRESS, COMPLETED, FAILED
+    public JobStatus getState() { return state; }
+    public String getSummaryText() { return summary == null ? null : summary.read(); }
+    public CompressedTextStore.Handle getSummary() { return summary; }
+    public String getErrorMessage() { return errorMessage; }
+    public Instant getCreatedAt() { return createdAt; }
+
+    public boolean isFinished() {
+        return state.isFinished();
+    }
+
+    // Transitions
+    public DocumentJob inProgress() {
+        return to(JobStatus.IN_PROGRESS, null, null);
+    }
+
+    public DocumentJob completed(CompressedTextStore.Handle summary) {
+        return to(JobStatus.COMPLETED, summary, null);
+    }
+
+    public DocumentJob failed(String errorMessage) {
+        return to(JobStatus.FAILED, null, errorMessage);
+    }
+
+    private DocumentJob to(JobStatus next, CompressedTextStore.Handle summary, String errorMessage) {
+        if (!state.canBecome(next)) {
+            throw new IllegalStateException("Document job " + jobId + " cannot go from " + state + " to " + next);
+        }
+        return new DocumentJob(jobId, fileName, next, summary, errorMessage, createdAt);
+    }
+}
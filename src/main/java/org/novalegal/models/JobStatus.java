@@ -0,0 +1,24 @@
+package org.novalegal.models;
+
+/**
+ * Life cycle of a background job: {@code PENDING → IN_PROGRESS → COMPLETED | FAILED}, where a job may also fail
+ * before it starts. Finished jobs never change again.
+ */
+public enum JobStatus {
+    PENDING,
+    IN_PROGRESS,
+    COMPLETED,
+    FAILED;
+
+    public boolean canBecome(JobStatus next) {
+        return switch (this) {
+            case PENDING -> next == IN_PROGRESS || next == FAILED;
+            case IN_PROGRESS -> next == COMPLETED || next == FAILED;
+            case COMPLETED, FAILED -> false;
+        };
+    }
+
+    public boolean isFinished() {
+        return this == COMPLETED || this == FAILED;
+    }
+}
@@ -1,28 +1,72 @@
 package org.novalegal.models;
 
+import org.novalegal.util.CompressedTextStore;
+
 import java.time.Instant;
 
-public class MeetingJob {
+/**
+ * Immutable snapshot of a meeting job; every state change produces a new snapshot with the next version.
+ */
+public final class MeetingJob {
 
-    private String jobId;
-    private String status; // PENDING, IN_PROGRESS, COMPLETED, FAILED
-    private String summaryText;
-    private String errorMessage;
-    private Instant createdAt;
+    private final String jobId;
+    private final JobStatus state;
+    private final MeetingStage stage;
+    private final long version;
+    private final CompressedTextStore.Handle summary;
+    private final String errorMessage;
+    private final Instant createdAt;
 
     public MeetingJob(String jobId) {
+        this(jobId, JobStatus.PENDING, null, 0, null, null, Instant.now());
+    }
+
+    private MeetingJob(String jobId, JobStatus state, MeetingStage stage, long version,
+                       CompressedTextStore.Handle summary, String errorMessage, Instant createdAt) {
         this.jobId = jobId;
-        this.status = "PENDING";
-        this.createdAt = Instant.now();
+        this.state = state;
+        this.stage = stage;
+        this.version = version;
+        this.summary = summary;
+        this.errorMessage = errorMessage;
+        this.createdAt = createdAt;
     }
 
-    // Getters and setters
+    // Getters
     public String getJobId() { return jobId; }
-    public String getStatus() { return status; }
-    public String getSummaryText() { return summaryText; }
+    public String getStatus() { return state.name(); } // PENDING, IN_PROGRESS, COMPLETED, FAILED
+    public JobStatus getState() { return state; }
+    public MeetingStage getStage() { return stage; } // null unless IN_PROGRESS
+    public long getVersion() { return version; }
+    public String getSummaryText() { return summary == null ? null : summary.read(); }
+    public CompressedTextStore.Handle getSummary() { return summary; }
     public String getErrorMessage() { return errorMessage; }
+    public Instant getCreatedAt() { return createdAt; }
+
+    // Transitions
+    public MeetingJob inProgress() {
+        return to(JobStatus.IN_PROGRESS, null, null);
+    }
+
+    public MeetingJob atStage(MeetingStage next) {
+        if (state != JobStatus.IN_PROGRESS) {
+            throw new IllegalStateException("Meeting job " + jobId + " is " + state + ", not in progress");
+        }
+        return new MeetingJob(jobId, state, next, version + 1, null, null, createdAt);
+    }
+
+    public MeetingJob completed(CompressedTextStore.Handle summary) {
+        return to(JobStatus.COMPLETED, summary, null);
+    }
 
-    public void setStatus(String status) { this.status = status; }
-    public void setSummaryText(String summaryText) { this.summaryText = summaryText; }
-    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+    public MeetingJob failed(String errorMessage) {
+        return to(JobStatus.FAILED, null, errorMessage);
+    }
+
+    private MeetingJob to(JobStatus next, CompressedTextStore.Handle summary, String errorMessage) {
+        if (!state.canBecome(next)) {
+            throw new IllegalStateException("Meeting job " + jobId + " cannot go from " + state + " to " + next);
+        }
+        return new MeetingJob(jobId, next, null, version + 1, summary, errorMessage, createdAt);
+    }
 }
@@ -0,0 +1,23 @@
+package org.novalegal.models;
+
+/**
+ * Steps a meeting job goes through while it is {@link JobStatus#IN_PROGRESS}. A recording transcoded while it was
+ * uploaded waits at {@link #QUEUED} for a meeting job slot once its audio is extracted.
+ */
+public enum MeetingStage {
+    EXTRACTING_AUDIO("Extracting audio"),
+    QUEUED("Waiting for a free slot"),
+    SPLITTING_AUDIO("Splitting audio at pauses"),
+    TRANSCRIBING("Transcribing"),
+    SUMMARIZING("Summarizing");
+
+    private final String label;
+
+    MeetingStage(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
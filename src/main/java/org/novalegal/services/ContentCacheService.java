@@ -0,0 +1,52 @@
+package org.novalegal.services;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Content-addressed cache for work that is expensive to repeat: extracted document text and final summaries.
+ * <p>
+ * Each region has a bounded in-process first level. When {@code cache.l2.enabled=true} a second level in the
+ * database survives restarts and is shared by every node. The clause region is written to the database even without
+ * it unless {@code cache.clause.persistent=false}, since its entries are only worth anything once many documents
+ * have been seen.
+ */
+public interface ContentCacheService {
+
+    enum Region {
+        /** SHA-256 of the uploaded file bytes to the text extracted from it. */
+        EXTRACTED_TEXT,
+        /** Hash of (text, prompt template version, model, chunk size) to the final summary. */
+        SUMMARY,
+        /** Hash of (normalized clause, prompt version, model) to the plain-English explanation of the clause. */
+        CLAUSE
+    }
+
+    /**
+     * Looks up a value, first in memory and then in the shared store. A second-level hit is promoted to memory.
+     *
+     * @param region the cache region
+     * @param key    the content hash
+     * @return the cached value, or empty on a miss
+     */
+    Optional<String> get(Region region, String key);
+
+    /**
+     * Stores a value in both levels.
+     *
+     * @param region the cache region
+     * @param key    the content hash
+     * @param value  the value to cache
+     */
+    void put(Region region, String key, String value);
+
+    /**
+     * Returns hit and miss counts per region and level, e.g. {@code summary.l1_hit}.
+     */
+    Map<String, Long> getStats();
+
+    /**
+     * Returns the share of lookups in a region that were answered from either level, or 0 before the first lookup.
+     */
+    double getHitRatio(Region region);
+}
@@ -0,0 +1,29 @@
+package org.novalegal.services;
+
+import org.novalegal.models.DocumentJob;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Service interface for simplifying documents in the background.
+ */
+public interface DocumentJobService {
+
+    /**
+     * Queues extraction and simplification of a document and returns the job ID right away.
+     * The file's bytes are copied first, so the upload may be discarded as soon as this returns.
+     *
+     * @param file the uploaded file, already checked with {@link DocumentProcessingService#checkFile}
+     * @return the unique job ID for the newly created document job
+     * @throws TaskRejectedException if the document executor and its queue are full
+     */
+    String submitJob(MultipartFile file) throws TaskRejectedException;
+
+    /**
+     * Retrieves a document job by its job ID.
+     *
+     * @param jobId the unique identifier of the document job
+     * @return the DocumentJob object if found, or null if not found
+     */
+    DocumentJob getJob(String jobId);
+}
@@ -19,6 +19,15 @@ public interface DocumentProcessingService {
      */
     String extractTextFromFile(MultipartFile file) throws IllegalArgumentException, Exception;
 
+    /**
+     * Runs the checks of {@link #extractTextFromFile(MultipartFile)} that do not read the file: presence, size,
+     * name and type.
+     *
+     * @param file the uploaded file
+     * @throws IllegalArgumentException if the file is invalid or unsupported
+     */
+    void checkFile(MultipartFile file) throws IllegalArgumentException;
+
     /**
      * Retrieves the IpUsage record for the given IP address, or creates a new one if it does not exist.
      *
@@ -0,0 +1,33 @@
+package org.novalegal.services;
+
+import java.util.function.Consumer;
+
+/**
+ * One chat-completion call to a language model, independent of who serves it.
+ * <p>
+ * The production implementation speaks the OpenAI chat completions protocol over HTTP to whatever base URL is
+ * configured in {@code llm.base-url}, which can be OpenAI itself or the local stub used for load testing.
+ */
+public interface LlmBackend {
+
+    /**
+     * Sends a single-message prompt and waits for the whole completion.
+     *
+     * @param type   what the call is for, reported in metrics
+     * @param model  the model to ask, e.g. {@code gpt-3.5-turbo-16k}
+     * @param prompt the user message
+     * @return the completion text
+     */
+    String complete(LlmCallType type, String model, String prompt);
+
+    /**
+     * Sends a single-message prompt and hands each fragment of the completion to {@code onDelta} as it arrives.
+     * Returns once the completion has ended.
+     *
+     * @param type    what the call is for, reported in metrics
+     * @param model   the model to ask
+     * @param prompt  the user message
+     * @param onDelta receives the completion fragments in order
+     */
+    void stream(LlmCallType type, String model, String prompt, Consumer<String> onDelta);
+}
@@ -0,0 +1,17 @@
+package org.novalegal.services;
+
+/**
+ * An LLM call that did not produce a usable completion: the backend answered with something that is not a chat
+ * completion, or no answer arrived before the call's deadline.
+ */
+public class LlmCallException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public LlmCallException(String message) {
+        super(message);
+    }
+
+    public LlmCallException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
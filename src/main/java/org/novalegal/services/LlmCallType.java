@@ -0,0 +1,32 @@
+package org.novalegal.services;
+
+/**
+ * What an LLM call is for. Used as the {@code type} tag on every {@code llm.call.*} metric so latency and token
+ * usage can be compared per pipeline stage.
+ */
+public enum LlmCallType {
+    /** Whole document summarized in one call, no merge needed. */
+    DOCUMENT_SINGLE("document-single"),
+    /** Summary of one document chunk (map phase). */
+    DOCUMENT_CHUNK("document-chunk"),
+    /** Plain-English explanations of a batch of clauses not found in the clause store. */
+    DOCUMENT_CLAUSES("document-clauses"),
+    /** Merge of document chunk summaries, intermediate or final. */
+    DOCUMENT_MERGE("document-merge"),
+    /** Whole meeting transcript summarized in one call. */
+    MEETING_SINGLE("meeting-single"),
+    /** Summary of one meeting transcript chunk. */
+    MEETING_CHUNK("meeting-chunk"),
+    /** Final meeting summary built from the chunk summaries. */
+    MEETING_FINAL("meeting-final");
+
+    private final String tag;
+
+    LlmCallType(String tag) {
+        this.tag = tag;
+    }
+
+    public String tag() {
+        return tag;
+    }
+}
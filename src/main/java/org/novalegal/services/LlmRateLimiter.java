@@ -0,0 +1,29 @@
+package org.novalegal.services;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Process-wide admission control for OpenAI calls.
+ * <p>
+ * Keeps one bucket for requests per minute and one for tokens per minute. Callers block in {@link #acquire}
+ * until both buckets can cover the call, so bursts are queued rather than rejected with 429s, and the buckets are
+ * continuously corrected from the {@code x-ratelimit-*} headers the API returns.
+ */
+public interface LlmRateLimiter {
+
+    /**
+     * Blocks until a request with the given prompt may be sent. The token cost is estimated from the prompt plus
+     * a reserve for the completion.
+     *
+     * @param prompt the prompt about to be sent
+     * @throws IllegalStateException if the calling thread is interrupted while waiting
+     */
+    void acquire(String prompt);
+
+    /**
+     * Feeds the rate-limit headers of a response (successful or not) back into the buckets.
+     *
+     * @param headers the response headers, may be {@code null}
+     */
+    void onResponse(HttpHeaders headers);
+}
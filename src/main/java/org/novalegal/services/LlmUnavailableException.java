@@ -0,0 +1,13 @@
+package org.novalegal.services;
+
+/**
+ * Thrown without contacting the LLM backend while its circuit breaker is open, i.e. after enough consecutive
+ * failures that further calls would most likely fail too.
+ */
+public class LlmUnavailableException extends LlmCallException {
+    private static final long serialVersionUID = 1L;
+
+    public LlmUnavailableException(String message) {
+        super(message);
+    }
+}
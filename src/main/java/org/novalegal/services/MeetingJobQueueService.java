@@ -0,0 +1,73 @@
+package org.novalegal.services;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Admission control and queue bookkeeping for meeting jobs.
+ * <p>
+ * At most {@code meeting.jobs.max-concurrency} jobs run and {@code meeting.jobs.queue-capacity} more wait; an upload
+ * beyond that is turned away before its file is written to disk.
+ */
+public interface MeetingJobQueueService {
+
+    /**
+     * Reserves a place for a new job and creates it, or returns empty when the queue is full.
+     *
+     * @return the ID of the newly created, queued meeting job
+     */
+    Optional<String> admit();
+
+    /**
+     * Marks a queued job as started; called by the executor thread that picked it up. Waits while the slots are
+     * held by jobs started with {@link #tryStart}.
+     *
+     * @param jobId the unique identifier of the meeting job
+     */
+    void started(String jobId);
+
+    /**
+     * Starts a queued job on the calling thread if it can run right now, counting it against the concurrency limit
+     * like a job on the executor. The caller then ends it with {@link #requeued} or {@link #finished}.
+     *
+     * @param jobId the unique identifier of the meeting job
+     * @return false, leaving the job queued, when all slots are taken
+     */
+    boolean tryStart(String jobId);
+
+    /**
+     * Puts a job started with {@link #tryStart} back in the queue at {@link org.novalegal.models.MeetingStage#QUEUED}
+     * and frees its slot, once the caller has handed the rest of the job to the executor.
+     *
+     * @param jobId the unique identifier of the meeting job
+     */
+    void requeued(String jobId);
+
+    /**
+     * Frees the job's place, whether it ran to the end, failed, or was never handed to the executor.
+     *
+     * @param jobId the unique identifier of the meeting job
+     */
+    void finished(String jobId);
+
+    /**
+     * Returns the job's 1-based position among the jobs waiting to start, or 0 when it is not waiting.
+     *
+     * @param jobId the unique identifier of the meeting job
+     */
+    int getQueuePosition(String jobId);
+
+    /**
+     * Estimates how long until a waiting job starts, from the jobs running and queued ahead of it and the recent
+     * median job duration.
+     *
+     * @param jobId the unique identifier of the meeting job
+     * @return the estimated wait, or empty when the job is not waiting
+     */
+    Optional<Duration> getEstimatedWait(String jobId);
+
+    /**
+     * Estimates how long until a rejected upload could be admitted, for the {@code Retry-After} header.
+     */
+    Duration getRetryAfter();
+}
@@ -1,9 +1,16 @@
 package org.novalegal.services;
 
 import org.novalegal.models.MeetingJob;
+import org.novalegal.models.MeetingStage;
+
+import java.util.function.Consumer;
 
 /**
  * Service interface for managing meeting jobs.
+ * <p>
+ * Jobs are immutable snapshots that move through {@code PENDING → IN_PROGRESS → COMPLETED | FAILED}; each
+ * transition is applied atomically and refused when the job is no longer in a state it can be applied to. Finished
+ * jobs are forgotten after a while, so {@link #getJob} may return null for an id that once existed.
  */
 public interface MeetingJobService {
 
@@ -18,15 +25,53 @@ public interface MeetingJobService {
      * Retrieves a meeting job by its job ID.
      *
      * @param jobId the unique identifier of the meeting job
-     * @return the MeetingJob object if found, or null if not found
+     * @return the current snapshot of the MeetingJob if found, or null if not found or evicted
      */
     MeetingJob getJob(String jobId);
 
     /**
-     * Updates the meeting job with the specified job ID.
+     * Moves a pending meeting job to IN_PROGRESS.
+     *
+     * @param jobId the unique identifier of the meeting job
+     * @return true if the job was pending and is now in progress
+     */
+    boolean startJob(String jobId);
+
+    /**
+     * Records which stage a meeting job in progress has reached.
+     *
+     * @param jobId the unique identifier of the meeting job
+     * @param stage the stage the job is starting
+     * @return true if the job is in progress and now at that stage
+     */
+    boolean advanceStage(String jobId, MeetingStage stage);
+
+    /**
+     * Moves a meeting job in progress to COMPLETED with its summary.
      *
-     * @param jobId the unique identifier of the meeting job to update
-     * @param updatedJob the updated MeetingJob object
+     * @param jobId the unique identifier of the meeting job
+     * @param summaryText the meeting summary
+     * @return true if the job was in progress and is now completed
+     */
+    boolean completeJob(String jobId, String summaryText);
+
+    /**
+     * Moves an unfinished meeting job to FAILED.
+     *
+     * @param jobId the unique identifier of the meeting job
+     * @param errorMessage the message shown to the user
+     * @return true if the job was unfinished and has now failed
+     */
+    boolean failJob(String jobId, String errorMessage);
+
+    /**
+     * Registers a listener for changes to a meeting job. It is called with the new snapshot after every transition,
+     * and with an unchanged snapshot when a queued job may have moved up the queue. Calls happen on the thread that
+     * changed the job, so the listener must hand off anything that could block.
+     *
+     * @param jobId the unique identifier of the meeting job
+     * @param listener receives snapshots of the job
+     * @return removes the listener; safe to run more than once
      */
-    void updateJob(String jobId, MeetingJob updatedJob);
+    Runnable subscribe(String jobId, Consumer<MeetingJob> listener);
 }
@@ -0,0 +1,33 @@
+package org.novalegal.services;
+
+import org.novalegal.util.WhisperSegmentParser;
+
+/**
+ * Meeting summarization that runs while the transcript is still being produced.
+ * <p>
+ * Segments are fed in transcript order as they become available. Whenever enough of them have accumulated for one
+ * chunk, that chunk's summary request is dispatched in the background; {@link #finish()} waits for the remaining
+ * chunk summaries and makes the final merge call. Instances are single-use and must be fed from one thread.
+ */
+public interface MeetingSummaryPipeline extends WhisperSegmentParser.SegmentHandler {
+
+    /**
+     * Adds the next transcript segment.
+     *
+     * @param start segment start in seconds from the beginning of the recording
+     * @param end   segment end in seconds
+     * @param text  the transcribed text
+     */
+    @Override
+    void onSegment(double start, double end, String text);
+
+    /**
+     * Flushes the last chunk, waits for every chunk summary and returns the final meeting summary.
+     */
+    String finish();
+
+    /**
+     * Abandons the pipeline, cancelling chunk summaries that have not started yet.
+     */
+    void cancel();
+}
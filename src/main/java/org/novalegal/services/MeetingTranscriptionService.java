@@ -22,4 +22,12 @@ public interface MeetingTranscriptionService {
      * @param jobId the unique job ID associated with this meeting
      */
     void processMeetingFileAsync(String UUID, File inputFile, String inputFileName, String jobId);
+
+    /**
+     * Asynchronously transcribes and summarizes a meeting whose audio was already extracted while it was uploaded.
+     *
+     * @param gcsObjectName the audio object in GCS
+     * @param jobId the unique job ID associated with this meeting
+     */
+    void processMeetingAudioAsync(String UUID, String gcsObjectName, String jobId);
 }
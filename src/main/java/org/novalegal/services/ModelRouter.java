@@ -0,0 +1,46 @@
+package org.novalegal.services;
+
+/**
+ * Decides which model serves each LLM call and when a whole input can be summarized in one pass.
+ * <p>
+ * With routing enabled ({@code llm.routing.enabled=true}) documents whose estimated token count fits the
+ * single-pass model's budget are summarized with one call instead of chunk summaries plus merges; otherwise
+ * map-phase chunk summaries go to a fast, cheap model and merges to the stronger model. With routing disabled every
+ * call uses {@code openai.model} and the legacy chunk thresholds.
+ */
+public interface ModelRouter {
+
+    /**
+     * Estimates the token count of a document and decides whether it is summarized in a single call.
+     *
+     * @param document the full document text
+     * @return {@code true} if the document should be sent as one chunk to the single-pass model
+     */
+    boolean fitsSinglePass(CharSequence document);
+
+    /**
+     * Returns the model for a call of the given type.
+     */
+    String modelFor(LlmCallType type);
+
+    /**
+     * Returns the largest meeting transcript, in characters, that is summarized without chunking.
+     */
+    int meetingSinglePassMaxChars();
+
+    /**
+     * Returns the maximum size, in characters, of one meeting transcript chunk.
+     */
+    int meetingChunkMaxChars();
+
+    /**
+     * Returns whether a transcript that fits {@link #meetingSinglePassMaxChars()} is summarized with one
+     * {@link LlmCallType#MEETING_SINGLE} call rather than a chunk summary plus a final summary.
+     */
+    boolean isSinglePassMeetingEnabled();
+
+    /**
+     * Returns a stable description of the routing configuration, to be part of summary cache keys.
+     */
+    String signature();
+}
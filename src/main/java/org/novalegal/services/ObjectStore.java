@@ -0,0 +1,52 @@
+package org.novalegal.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.time.Duration;
+
+/**
+ * Where meeting audio is kept between extraction and transcription, independent of who stores it.
+ * <p>
+ * The production implementation is a GCS bucket; the local implementation keeps objects as files and serves
+ * presigned URLs itself, so the meeting pipeline can run on premises or in a benchmark without cloud credentials.
+ * Object names are flat: letters, digits, {@code .}, {@code _} and {@code -}.
+ */
+public interface ObjectStore {
+
+    /**
+     * Stores everything read from {@code content} as {@code name}, replacing any object of that name. Readers never
+     * see a partly written object.
+     *
+     * @param contentType the media type to serve the object with, e.g. {@code audio/ogg}
+     * @return the bytes stored
+     */
+    long put(String name, InputStream content, String contentType) throws IOException;
+
+    /**
+     * Opens an object for reading. A missing object is reported as {@link java.nio.file.NoSuchFileException} by the
+     * time the first byte is read.
+     */
+    InputStream get(String name) throws IOException;
+
+    /**
+     * Describes an object, or returns null if there is no such object.
+     */
+    ObjectInfo stat(String name) throws IOException;
+
+    /**
+     * Returns a URL that lets anyone holding it download the object with a plain {@code GET} for {@code validity}.
+     */
+    URL presignedUrl(String name, Duration validity);
+
+    /**
+     * Deletes an object; returns false if there was no such object.
+     */
+    boolean delete(String name) throws IOException;
+
+    /**
+     * What {@link #stat} knows about an object.
+     */
+    record ObjectInfo(String name, long size, String contentType) {
+    }
+}
@@ -9,16 +9,39 @@ public interface OpenAIClientService {
     /**
      * Simplifies and summarizes a legal document using a chunking approach to avoid token limits.
      * <p>
-     * The document is split into chunks. Each chunk is sent to the OpenAI API sequentially, with the previous summary
-     * provided as context for subsequent chunks. All chunk summaries are then merged and sent for a final simplification.
-     * If the document fits in a single chunk, only one API call is made.
+     * The document is split into chunks. In the default sequential mode each chunk is sent to the OpenAI API in turn,
+     * with the previous summary provided as context for subsequent chunks, and all chunk summaries are then merged and
+     * sent for a final simplification. In parallel mode ({@code openai.summarization.mode=parallel}) chunks are
+     * summarized concurrently and the summaries are merged in a tree of {@code openai.summarization.reduce-fan-in}
+     * summaries per call, so the number of round trips on the critical path grows logarithmically with the chunk count.
+     * If the document fits in a single chunk, only one API call is made. With model routing enabled (see
+     * {@link ModelRouter}) a document whose estimated token count fits the single-pass model is always sent in one
+     * call, chunk summaries use the cheaper chunk model and merges use the stronger merge model.
+     * <p>
+     * Concurrent calls for the same text, prompt version and model configuration share one run: the first caller
+     * does the work and the others wait for its summary (or its exception).
      *
      * @param doc       The full legal document text to simplify and summarize.
-     * @param chunkSize The maximum number of words per chunk.
+     * @param chunkSize The token budget per chunk, as estimated by {@link org.novalegal.util.TokenEstimator}. Chunks
+     *                  are cut preferably at section and clause headings (see {@link org.novalegal.util.ClauseChunker}).
      * @return The fully simplified and summarized document as a single string.
      */
     String simplifyDocumentWithChunking(String doc, int chunkSize);
 
+    /**
+     * Streaming variant of {@link #simplifyDocumentWithChunking(String, int)}.
+     * <p>
+     * Chunk summaries are produced exactly as in the blocking variant and reported through
+     * {@link SummaryStreamListener#onProgress}. The final call (the single-chunk summary or the final merge) is made
+     * with {@code stream=true} and every content delta is handed to {@link SummaryStreamListener#onDelta} as soon as
+     * it arrives, without buffering the full completion. The method returns once the completion has ended.
+     *
+     * @param doc       The full legal document text to simplify and summarize.
+     * @param chunkSize The token budget per chunk.
+     * @param listener  Receives progress events and summary fragments.
+     */
+    void streamDocumentSimplification(String doc, int chunkSize, SummaryStreamListener listener);
+
     /**
      * Generates a summarized meeting transcript by chunking Whisper transcription segments
      * and using the OpenAI GPT model for summarization.
@@ -34,6 +57,8 @@ public interface OpenAIClientService {
      * The chunk size is limited to ~12,000 characters to remain well under the
      * GPT-3.5-turbo-16k token limit (with final assembly).</p>
      *
+     * <p>Concurrent calls with an identical transcript share one run and return the same summary.</p>
+     *
      * @param whisperJson the full JSON string returned from Whisper's transcription,
      *                    expected to contain a top-level "segments" array
      * @return a concise final meeting summary generated from all segments,
@@ -43,4 +68,16 @@ public interface OpenAIClientService {
      *
      */
     String generateMeetingSummaryFromSegmentsChunked(String whisperJson);
-}
\ No newline at end of file
+
+    /**
+     * Opens a pipelined meeting summarization that consumes transcript segments while transcription is still
+     * running.
+     * <p>
+     * Chunking and prompts are the same as in {@link #generateMeetingSummaryFromSegmentsChunked(String)}, but every
+     * chunk summary is requested on the LLM executor as soon as its chunk is complete, so for long recordings the
+     * summary is ready roughly one LLM call after the last segment arrives.
+     *
+     * @return a new pipeline to feed segments into
+     */
+    MeetingSummaryPipeline openMeetingSummaryPipeline();
+}
@@ -0,0 +1,25 @@
+package org.novalegal.services;
+
+/**
+ * Receives the progress and the output of a streamed summarization as it happens.
+ * <p>
+ * Callbacks may arrive on worker threads; {@link #onProgress} can be called concurrently when chunks are
+ * summarized in parallel, while {@link #onDelta} calls are sequential and in order.
+ */
+public interface SummaryStreamListener {
+
+    /**
+     * Called each time a chunk summary of the map phase has completed.
+     *
+     * @param completedChunks number of chunk summaries completed so far
+     * @param totalChunks     total number of chunks in the document
+     */
+    void onProgress(int completedChunks, int totalChunks);
+
+    /**
+     * Called with each piece of the final summary as the model produces it.
+     *
+     * @param text the next fragment of the summary
+     */
+    void onDelta(String text);
+}
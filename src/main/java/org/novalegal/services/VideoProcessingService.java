@@ -1,10 +1,33 @@
 package org.novalegal.services;
 
+import org.novalegal.models.AudioSegment;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
+import java.io.InputStream;
+import java.util.List;
 
 public interface VideoProcessingService {
 
     String extractAudioAndUploadToGCS(File inputFile, String inputFileName) throws Exception;
+
+    /**
+     * Extracts the audio of a recording while it is still being received: the stream is piped into ffmpeg's stdin,
+     * so transcoding keeps pace with the upload. Only for containers ffmpeg can read without seeking.
+     *
+     * @param video the recording, read to its end
+     * @param inputFileName the original file name, for logging
+     * @return the name of the audio object in GCS
+     */
+    String extractAudioAndUploadToGCS(InputStream video, String inputFileName) throws Exception;
+
+    /**
+     * Cuts extracted meeting audio at its pauses into pieces of about {@code meeting.segmentation.target-length},
+     * transcoding the pieces in parallel and storing each as its own object, which the caller deletes once it is
+     * done with them. Audio too short to be worth cutting comes back as a single segment: the object itself.
+     *
+     * @param gcsObjectName the audio object in GCS, as returned by {@code extractAudioAndUploadToGCS}
+     * @return the segments in recording order
+     */
+    List<AudioSegment> splitAudioAtSilences(String gcsObjectName) throws Exception;
 }
@@ -0,0 +1,142 @@
+package org.novalegal.services.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.novalegal.dao.CacheEntryRepository;
+import org.novalegal.models.CacheEntry;
+import org.novalegal.services.ContentCacheService;
+import org.novalegal.util.BoundedLruCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+@Service
+public class ContentCacheServiceImpl implements ContentCacheService {
+    private static final Logger logger = LoggerFactory.getLogger(ContentCacheServiceImpl.class);
+    private static final String LOOKUPS_METRIC = "content.cache.lookups";
+    private static final String L1_HIT = "l1_hit";
+    private static final String L2_HIT = "l2_hit";
+    private static final String MISS = "miss";
+
+    private final CacheEntryRepository repository;
+    private final Set<Region> l2Regions = EnumSet.noneOf(Region.class);
+    private final Map<Region, BoundedLruCache> l1 = new EnumMap<>(Region.class);
+    private final Map<Region, Map<String, Counter>> counters = new EnumMap<>(Region.class);
+
+    public ContentCacheServiceImpl(CacheEntryRepository repository,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${cache.l1.max-bytes:67108864}") long l1MaxBytes,
+                                   @Value("${cache.l2.enabled:false}") boolean l2Enabled,
+                                   @Value("${cache.clause.persistent:true}") boolean clausePersistent) {
+        this.repository = repository;
+        if (l2Enabled) {
+            l2Regions.addAll(EnumSet.allOf(Region.class));
+        } else if (clausePersistent) {
+            l2Regions.add(Region.CLAUSE);
+        }
+        for (Region region : Region.values()) {
+            BoundedLruCache cache = new BoundedLruCache(l1MaxBytes);
+            l1.put(region, cache);
+
+            String regionTag = regionName(region);
+            Map<String, Counter> regionCounters = new LinkedHashMap<>();
+            for (String result : new String[]{L1_HIT, L2_HIT, MISS}) {
+                regionCounters.put(result, Counter.builder(LOOKUPS_METRIC)
+                        .description("Content cache lookups by region and outcome")
+                        .tag("region", regionTag)
+                        .tag("result", result)
+                        .register(meterRegistry));
+            }
+            counters.put(region, regionCounters);
+            Gauge.builder("content.cache.l1.bytes", cache, BoundedLruCache::sizeInBytes)
+                    .description("Approximate heap used by the in-process cache level")
+                    .tag("region", regionTag)
+                    .register(meterRegistry);
+            Gauge.builder("content.cache.hit.ratio", this, service -> service.getHitRatio(region))
+                    .description("Share of lookups answered from either cache level")
+                    .tag("region", regionTag)
+                    .register(meterRegistry);
+        }
+    }
+
+    public Optional<String> get(Region region, String key) {
+        BoundedLruCache memory = l1.get(region);
+        String value = memory.get(key);
+        if (value != null) {
+            count(region, L1_HIT);
+            return Optional.of(value);
+        }
+
+        if (l2Regions.contains(region)) {
+            try {
+                Optional<CacheEntry> entry = repository.findById(storageKey(region, key));
+                if (entry.isPresent()) {
+                    value = entry.get().getPayload();
+                    memory.put(key, value);
+                    count(region, L2_HIT);
+                    return Optional.of(value);
+                }
+            } catch (Exception e) {
+                // The shared level is an optimization; fall back to recomputing
+                logger.warn("Content cache L2 lookup failed: {}", e.getMessage());
+            }
+        }
+
+        count(region, MISS);
+        return Optional.empty();
+    }
+
+    public void put(Region region, String key, String value) {
+        l1.get(region).put(key, value);
+        if (!l2Regions.contains(region)) {
+            return;
+        }
+        try {
+            CacheEntry entry = new CacheEntry();
+            entry.setCacheKey(storageKey(region, key));
+            entry.setRegion(region.name());
+            entry.setPayload(value);
+            entry.setCreatedAt(LocalDateTime.now());
+            repository.save(entry);
+        } catch (Exception e) {
+            logger.warn("Content cache L2 write failed: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        counters.forEach((region, regionCounters) -> regionCounters.forEach((result, counter) ->
+                stats.put(regionName(region) + "." + result, (long) counter.count())));
+        return stats;
+    }
+
+    public double getHitRatio(Region region) {
+        Map<String, Counter> regionCounters = counters.get(region);
+        double hits = regionCounters.get(L1_HIT).count() + regionCounters.get(L2_HIT).count();
+        double lookups = hits + regionCounters.get(MISS).count();
+        return lookups == 0 ? 0 : hits / lookups;
+    }
+
+    private void count(Region region, String result) {
+        counters.get(region).get(result).increment();
+    }
+
+    private static String storageKey(Region region, String key) {
+        return region.name().charAt(0) + ":" + key;
+    }
+
+    private static String regionName(Region region) {
+        return region.name().toLowerCase(Locale.ROOT);
+    }
+}
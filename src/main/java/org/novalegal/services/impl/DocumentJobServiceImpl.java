@@ -0,0 +1,135 @@
+package org.novalegal.services.impl;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.novalegal.models.DocumentJob;
+import org.novalegal.models.JobStatus;
+import org.novalegal.services.DocumentJobService;
+import org.novalegal.services.DocumentProcessingService;
+import org.novalegal.services.OpenAIClientService;
+import org.novalegal.util.CompressedTextStore;
+import org.novalegal.util.JobRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+@Service
+public class DocumentJobServiceImpl implements DocumentJobService {
+    private static final Logger logger = LoggerFactory.getLogger(DocumentJobServiceImpl.class);
+    private static final String INVALID_FILE = "Invalid or unsupported file uploaded.";
+    private static final String SIMPLIFICATION_FAILED = "Could not simplify the document. Please try again.";
+
+    private final JobRegistry<DocumentJob> jobs;
+    private final CompressedTextStore resultStore;
+    private final DocumentProcessingService processingService;
+    private final OpenAIClientService openAIClientService;
+    private final TaskExecutor documentExecutor;
+
+    @Value("${openai.chunk.max-tokens:5000}")
+    private int chunkMaxTokens = 5000;
+
+    @Autowired
+    public DocumentJobServiceImpl(DocumentProcessingService processingService,
+                                  OpenAIClientService openAIClientService,
+                                  @Qualifier("documentExecutor") TaskExecutor documentExecutor,
+                                  CompressedTextStore resultStore,
+                                  @Value("${document.jobs.registry.max-size:1000}") int maxSize,
+                                  @Value("${document.jobs.ttl:1h}") Duration ttl,
+                                  MeterRegistry meterRegistry) {
+        this(processingService, openAIClientService, documentExecutor, resultStore, maxSize, ttl, meterRegistry, System::nanoTime);
+    }
+
+    DocumentJobServiceImpl(DocumentProcessingService processingService,
+                           OpenAIClientService openAIClientService,
+                           TaskExecutor documentExecutor,
+                           CompressedTextStore resultStore,
+                           int maxSize,
+                           Duration ttl,
+                           MeterRegistry meterRegistry,
+                           LongSupplier clock) {
+        this.processingService = processingService;
+        this.openAIClientService = openAIClientService;
+        this.documentExecutor = documentExecutor;
+        this.resultStore = resultStore;
+        this.jobs = new JobRegistry<>(maxSize, ttl, DocumentJob::isFinished, DocumentJobServiceImpl::release, clock);
+
+        Gauge.builder("jobs.registry.size", jobs, JobRegistry::size)
+                .description("Jobs currently held in memory")
+                .tag("type", "document")
+                .register(meterRegistry);
+        FunctionCounter.builder("jobs.registry.evictions", jobs, JobRegistry::expiredCount)
+                .description("Finished jobs dropped from memory")
+                .tags("type", "document", "reason", "expired")
+                .register(meterRegistry);
+        FunctionCounter.builder("jobs.registry.evictions", jobs, JobRegistry::displacedCount)
+                .description("Finished jobs dropped from memory")
+                .tags("type", "document", "reason", "size")
+                .register(meterRegistry);
+    }
+
+    public String submitJob(MultipartFile file) {
+        // The servlet container deletes the upload once the request ends, so the job keeps its own copy
+        MultipartFile document = copyOf(file);
+        String jobId = UUID.randomUUID().toString();
+        jobs.add(jobId, new DocumentJob(jobId, document.getOriginalFilename()));
+        try {
+            documentExecutor.execute(() -> process(jobId, document));
+        } catch (TaskRejectedException e) {
+            jobs.remove(jobId);
+            throw e;
+        }
+        return jobId;
+    }
+
+    public DocumentJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    private void process(String jobId, MultipartFile document) {
+        jobs.transition(jobId, DocumentJob::inProgress);
+        try {
+            String text = processingService.extractTextFromFile(document);
+            CompressedTextStore.Handle summary = resultStore.put(openAIClientService.simplifyDocumentWithChunking(text, chunkMaxTokens));
+            jobs.transition(jobId, job -> job.completed(summary));
+        } catch (IllegalArgumentException e) {
+            fail(jobId, e.getMessage() != null ? e.getMessage() : INVALID_FILE);
+        } catch (Exception e) {
+            logger.error("Document job {} failed: {}", jobId, e.getMessage());
+            fail(jobId, SIMPLIFICATION_FAILED);
+        }
+    }
+
+    private void fail(String jobId, String errorMessage) {
+        jobs.transition(jobId, job -> job.getState().canBecome(JobStatus.FAILED) ? job.failed(errorMessage) : null);
+    }
+
+    private static void release(DocumentJob job) {
+        if (job.getSummary() != null) {
+            job.getSummary().release();
+        }
+    }
+
+    private MultipartFile copyOf(MultipartFile file) {
+        byte[] content;
+        try {
+            content = file.getBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return processingService.toMultipartFile(new ByteArrayResource(content), file.getOriginalFilename(), file.getContentType());
+    }
+}
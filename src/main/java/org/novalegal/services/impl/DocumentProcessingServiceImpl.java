@@ -2,8 +2,10 @@ package org.novalegal.services.impl;
 
 import org.novalegal.dao.IpUsageRepository;
 import org.novalegal.models.IpUsage;
+import org.novalegal.services.ContentCacheService;
 import org.novalegal.services.DocumentProcessingService;
 import org.novalegal.services.DocumentTextExtractionService;
+import org.novalegal.util.ContentHash;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -12,6 +14,8 @@ import java.io.*;
 import java.time.LocalDateTime;
 import java.util.Optional;
 
+import static org.novalegal.services.ContentCacheService.Region.EXTRACTED_TEXT;
+
 @Service
 public class DocumentProcessingServiceImpl implements DocumentProcessingService {
     private static final long MAX_FILE_SIZE = 10 * 1024 * 1024; // 10 MB
@@ -24,13 +28,37 @@ public class DocumentProcessingServiceImpl implements DocumentProcessingService
 
     private final DocumentTextExtractionService extractionService;
     private final IpUsageRepository ipUsageRepository;
+    private final ContentCacheService contentCache;
 
-    public DocumentProcessingServiceImpl(DocumentTextExtractionService extractionService, IpUsageRepository ipUsageRepository) {
+    public DocumentProcessingServiceImpl(DocumentTextExtractionService extractionService,
+                                         IpUsageRepository ipUsageRepository,
+                                         ContentCacheService contentCache) {
         this.extractionService = extractionService;
         this.ipUsageRepository = ipUsageRepository;
+        this.contentCache = contentCache;
     }
 
     public String extractTextFromFile(MultipartFile file) throws IllegalArgumentException, Exception {
+        boolean pdf = validateFile(file);
+
+        // Identical bytes always extract to the same text, so skip PDFBox/POI on a cache hit
+        String contentHash = ContentHash.sha256(file.getBytes());
+        Optional<String> cached = contentCache.get(EXTRACTED_TEXT, contentHash);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        String text = pdf ? extractionService.extractTextFromPDF(file) : extractionService.extractTextFromDocx(file);
+        contentCache.put(EXTRACTED_TEXT, contentHash, text);
+        return text;
+    }
+
+    public void checkFile(MultipartFile file) throws IllegalArgumentException {
+        validateFile(file);
+    }
+
+    // Returns whether the file is a PDF; anything else that passes is a DOCX
+    private static boolean validateFile(MultipartFile file) {
         if (file.isEmpty()) {
             throw new IllegalArgumentException(NO_FILE_UPLOADED);
         }
@@ -44,14 +72,13 @@ public class DocumentProcessingServiceImpl implements DocumentProcessingService
         String lowerName = filename.toLowerCase();
         String contentType = file.getContentType();
 
-        if (lowerName.endsWith(".pdf") && (contentType == null || contentType.equals(CONTENT_TYPE))) {
-            return extractionService.extractTextFromPDF(file);
-        } else if (lowerName.endsWith(".docx") && (contentType == null
-                || contentType.equals(WORDPROCESSINGML_DOCUMENT))) {
-            return extractionService.extractTextFromDocx(file);
-        } else {
+        boolean pdf = lowerName.endsWith(".pdf") && (contentType == null || contentType.equals(CONTENT_TYPE));
+        boolean docx = lowerName.endsWith(".docx") && (contentType == null
+                || contentType.equals(WORDPROCESSINGML_DOCUMENT));
+        if (!pdf && !docx) {
             throw new IllegalArgumentException(PDF_AND_DOCX_ARE_ALLOWED);
         }
+        return pdf;
     }
 
     public IpUsage getOrCreateIpUsage(String ip) {
@@ -0,0 +1,94 @@
+package org.novalegal.services.impl;
+
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import org.novalegal.services.ObjectStore;
+import org.novalegal.util.CompositeUploader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ObjectStore} on a GCS bucket. Large objects go up as parallel composite uploads when a
+ * {@link CompositeUploader} is given, otherwise over one resumable upload stream written in large direct buffers.
+ */
+public class GcsObjectStore implements ObjectStore {
+
+    private final Storage storage;
+    private final String bucketName;
+    private final CompositeUploader compositeUploader;
+    private final int uploadBufferSize;
+
+    /**
+     * @param compositeUploader null to upload every object over a single stream
+     */
+    public GcsObjectStore(Storage storage, String bucketName, CompositeUploader compositeUploader, int uploadBufferSize) {
+        this.storage = storage;
+        this.bucketName = bucketName;
+        this.compositeUploader = compositeUploader;
+        this.uploadBufferSize = uploadBufferSize;
+    }
+
+    @Override
+    public long put(String name, InputStream content, String contentType) throws IOException {
+        BlobInfo blobInfo = BlobInfo.newBuilder(bucketName, name).setContentType(contentType).build();
+        if (compositeUploader != null) {
+            return compositeUploader.upload(content, blobInfo);
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(uploadBufferSize);
+        long bytes = 0;
+        try (
+                ReadableByteChannel source = Channels.newChannel(content);
+                WriteChannel gcsWriter = storage.writer(blobInfo)
+        ) {
+            while (source.read(buffer) >= 0) {
+                if (!buffer.hasRemaining()) {
+                    bytes += drain(buffer, gcsWriter);
+                }
+            }
+            bytes += drain(buffer, gcsWriter);
+        }
+        return bytes;
+    }
+
+    @Override
+    public InputStream get(String name) {
+        return Channels.newInputStream(storage.reader(BlobId.of(bucketName, name)));
+    }
+
+    @Override
+    public ObjectInfo stat(String name) {
+        Blob blob = storage.get(BlobId.of(bucketName, name));
+        return blob == null ? null : new ObjectInfo(name, blob.getSize(), blob.getContentType());
+    }
+
+    @Override
+    public URL presignedUrl(String name, Duration validity) {
+        return storage.signUrl(BlobInfo.newBuilder(bucketName, name).build(), validity.toSeconds(), TimeUnit.SECONDS);
+    }
+
+    @Override
+    public boolean delete(String name) {
+        return storage.delete(BlobId.of(bucketName, name));
+    }
+
+    private static int drain(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        return length;
+    }
+}
@@ -0,0 +1,163 @@
+package org.novalegal.services.impl;
+
+import org.novalegal.services.ObjectStore;
+import org.novalegal.util.SignedUrlFileServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * {@link ObjectStore} on a local directory, one file per object, for on-premise deployments and benchmarks.
+ * <p>
+ * Reads are memory-mapped, and presigned URLs are served by an embedded {@link SignedUrlFileServer} that sends
+ * files to the socket with {@code sendfile}, so serving audio to the transcriber copies nothing through the heap.
+ * Content types are not stored; they follow from the file extension.
+ */
+public class LocalObjectStore implements ObjectStore, AutoCloseable {
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]*");
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            "ogg", "audio/ogg",
+            "flac", "audio/flac",
+            "mp3", "audio/mpeg",
+            "json", "application/json",
+            "txt", "text/plain");
+
+    private final Path root;
+    private final SignedUrlFileServer server;
+    private final Clock clock;
+
+    /**
+     * Serves presigned URLs through {@code server}, which must serve {@code root} and is closed with the store.
+     */
+    public LocalObjectStore(Path root, SignedUrlFileServer server) throws IOException {
+        this(root, server, Clock.systemUTC());
+    }
+
+    LocalObjectStore(Path root, SignedUrlFileServer server, Clock clock) throws IOException {
+        this.root = Files.createDirectories(root);
+        this.server = server;
+        this.clock = clock;
+    }
+
+    @Override
+    public long put(String name, InputStream content, String contentType) throws IOException {
+        Path target = path(name);
+        // Written beside the target and moved over it, so no reader sees half an object
+        Path partial = root.resolve("." + name + "." + UUID.randomUUID() + ".partial");
+        try {
+            long bytes = Files.copy(content, partial);
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return bytes;
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    @Override
+    public InputStream get(String name) throws IOException {
+        try (FileChannel channel = FileChannel.open(path(name), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return Files.newInputStream(path(name));
+            }
+            // The mapping outlives the channel
+            return new MappedInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    @Override
+    public ObjectInfo stat(String name) throws IOException {
+        Path file = path(name);
+        try {
+            return new ObjectInfo(name, Files.size(file), contentType(file));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public URL presignedUrl(String name, Duration validity) {
+        path(name);
+        return server.sign(name, clock.instant().plus(validity));
+    }
+
+    @Override
+    public boolean delete(String name) throws IOException {
+        return Files.deleteIfExists(path(name));
+    }
+
+    @Override
+    public void close() {
+        server.close();
+    }
+
+    /**
+     * The media type a file is served with, from its extension.
+     */
+    public static String contentType(Path file) {
+        String fileName = file.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return CONTENT_TYPES.getOrDefault(extension, "application/octet-stream");
+    }
+
+    private Path path(String name) {
+        if (!NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid object name: " + name);
+        }
+        return root.resolve(name);
+    }
+
+    private static final class MappedInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private MappedInputStream(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(length, buffer.remaining());
+            buffer.get(target, offset, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package org.novalegal.services.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.novalegal.models.MeetingStage;
+import org.novalegal.services.MeetingJobQueueService;
+import org.novalegal.services.MeetingJobService;
+import org.novalegal.util.LatencyWindow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+@Service
+public class MeetingJobQueueServiceImpl implements MeetingJobQueueService {
+    private static final int DURATION_WINDOW_SIZE = 50;
+    private static final Duration MIN_RETRY_AFTER = Duration.ofSeconds(5);
+
+    private final MeetingJobService jobService;
+    private final int maxConcurrency;
+    private final Duration initialDurationEstimate;
+    private final LongSupplier clock;
+    // One permit per running or queued job, so the executor's own queue can never overflow
+    private final Semaphore places;
+    // One permit per running job, whether it runs on the executor or was started by tryStart on another thread
+    private final Semaphore slots;
+    private final LatencyWindow durations = new LatencyWindow(DURATION_WINDOW_SIZE);
+    // Guards both maps; a lock rather than synchronized because nothing here should pin a virtual thread
+    private final ReentrantLock lock = new ReentrantLock();
+    // Job id to admission time, in admission order, which is the executor's FIFO order
+    private final Map<String, Long> queued = new LinkedHashMap<>();
+    // Job id to start time
+    private final Map<String, Long> running = new LinkedHashMap<>();
+    private final Timer queueWait;
+    private final Timer jobDuration;
+    private final Counter rejections;
+
+    @Autowired
+    public MeetingJobQueueServiceImpl(MeetingJobService jobService,
+                                      @Value("${meeting.jobs.max-concurrency:2}") int maxConcurrency,
+                                      @Value("${meeting.jobs.queue-capacity:20}") int queueCapacity,
+                                      @Value("${meeting.jobs.initial-duration-estimate:10m}") Duration initialDurationEstimate,
+                                      MeterRegistry meterRegistry) {
+        this(jobService, maxConcurrency, queueCapacity, initialDurationEstimate, meterRegistry, System::nanoTime);
+    }
+
+    MeetingJobQueueServiceImpl(MeetingJobService jobService,
+                               int maxConcurrency,
+                               int queueCapacity,
+                               Duration initialDurationEstimate,
+                               MeterRegistry meterRegistry,
+                               LongSupplier clock) {
+        this.jobService = jobService;
+        this.maxConcurrency = maxConcurrency;
+        this.initialDurationEstimate = initialDurationEstimate;
+        this.clock = clock;
+        this.places = new Semaphore(maxConcurrency + queueCapacity);
+        this.slots = new Semaphore(maxConcurrency);
+
+        this.queueWait = Timer.builder("meeting.jobs.queue.wait")
+                .description("Time meeting jobs waited between upload and start")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.jobDuration = Timer.builder("meeting.jobs.duration")
+                .description("Time meeting jobs took from start to finish")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejections = Counter.builder("meeting.jobs.rejected")
+                .description("Meeting uploads turned away because the queue was full")
+                .register(meterRegistry);
+        Gauge.builder("meeting.jobs.queue.depth", this, service -> service.count(service.queued))
+                .description("Meeting jobs waiting to start")
+                .register(meterRegistry);
+        Gauge.builder("meeting.jobs.active", this, service -> service.count(service.running))
+                .description("Meeting jobs running")
+                .register(meterRegistry);
+        Gauge.builder("meeting.jobs.capacity", () -> maxConcurrency + queueCapacity)
+                .description("Meeting jobs that may be running or queued at once")
+                .register(meterRegistry);
+    }
+
+    public Optional<String> admit() {
+        if (!places.tryAcquire()) {
+            rejections.increment();
+            return Optional.empty();
+        }
+        String jobId = jobService.createJob();
+        lock.lock();
+        try {
+            queued.put(jobId, clock.getAsLong());
+        } finally {
+            lock.unlock();
+        }
+        return Optional.of(jobId);
+    }
+
+    public void started(String jobId) {
+        // Only waits while jobs started by tryStart hold slots the executor's threads would otherwise have
+        slots.acquireUninterruptibly();
+        if (!start(jobId)) {
+            slots.release();
+        }
+    }
+
+    public boolean tryStart(String jobId) {
+        if (!slots.tryAcquire()) {
+            return false;
+        }
+        if (!start(jobId)) {
+            slots.release();
+            return false;
+        }
+        return true;
+    }
+
+    public void requeued(String jobId) {
+        long now = clock.getAsLong();
+        lock.lock();
+        try {
+            if (running.remove(jobId) == null) {
+                return;
+            }
+            // Goes to the back, as the rest of the job does in the executor's queue
+            queued.put(jobId, now);
+        } finally {
+            lock.unlock();
+        }
+        jobService.advanceStage(jobId, MeetingStage.QUEUED);
+        slots.release();
+    }
+
+    public void finished(String jobId) {
+        long now = clock.getAsLong();
+        Long startedAt;
+        boolean held;
+        lock.lock();
+        try {
+            startedAt = running.remove(jobId);
+            if (startedAt != null) {
+                durations.record(now - startedAt);
+                jobDuration.record(now - startedAt, TimeUnit.NANOSECONDS);
+            }
+            held = startedAt != null || queued.remove(jobId) != null;
+        } finally {
+            lock.unlock();
+        }
+        if (startedAt != null) {
+            slots.release();
+        }
+        if (held) {
+            places.release();
+        }
+    }
+
+    public int getQueuePosition(String jobId) {
+        lock.lock();
+        try {
+            int position = 1;
+            for (String queuedId : queued.keySet()) {
+                if (queuedId.equals(jobId)) {
+                    return position;
+                }
+                position++;
+            }
+            return 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Optional<Duration> getEstimatedWait(String jobId) {
+        lock.lock();
+        try {
+            if (!queued.containsKey(jobId)) {
+                return Optional.empty();
+            }
+            long typical = typicalDurationNanos();
+            PriorityQueue<Long> slotsFreeAt = freeSlots(typical);
+            // Each job ahead takes the earliest free slot for one typical duration
+            for (String queuedId : queued.keySet()) {
+                if (queuedId.equals(jobId)) {
+                    break;
+                }
+                slotsFreeAt.add(slotsFreeAt.poll() + typical);
+            }
+            return Optional.of(Duration.ofNanos(slotsFreeAt.poll()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Duration getRetryAfter() {
+        lock.lock();
+        try {
+            // A place opens when the earliest running job is expected to end and the head of the queue starts
+            Duration wait = Duration.ofNanos(freeSlots(typicalDurationNanos()).poll());
+            return wait.compareTo(MIN_RETRY_AFTER) < 0 ? MIN_RETRY_AFTER : wait;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Moves a queued job to running; false when it is not queued, e.g. already finished
+    private boolean start(String jobId) {
+        long now = clock.getAsLong();
+        lock.lock();
+        try {
+            Long admittedAt = queued.remove(jobId);
+            if (admittedAt == null) {
+                return false;
+            }
+            running.put(jobId, now);
+            queueWait.record(now - admittedAt, TimeUnit.NANOSECONDS);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Nanos from now until each executor slot is expected to be free; overdue jobs are assumed to end any moment
+    private PriorityQueue<Long> freeSlots(long typical) {
+        long now = clock.getAsLong();
+        PriorityQueue<Long> slotsFreeAt = new PriorityQueue<>();
+        for (long startedAt : running.values()) {
+            slotsFreeAt.add(Math.max(0, typical - (now - startedAt)));
+        }
+        while (slotsFreeAt.size() < maxConcurrency) {
+            slotsFreeAt.add(0L);
+        }
+        return slotsFreeAt;
+    }
+
+    private long typicalDurationNanos() {
+        long median = durations.percentile(0.5);
+        return median < 0 ? initialDurationEstimate.toNanos() : median;
+    }
+
+    private int count(Map<String, Long> jobs) {
+        lock.lock();
+        try {
+            return jobs.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
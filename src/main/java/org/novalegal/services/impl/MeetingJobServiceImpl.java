@@ -1,22 +1,70 @@
 package org.novalegal.services.impl;
 
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.novalegal.models.JobStatus;
 import org.novalegal.models.MeetingJob;
+import org.novalegal.models.MeetingStage;
 import org.novalegal.services.MeetingJobService;
+import org.novalegal.util.CompressedTextStore;
+import org.novalegal.util.JobRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.Map;
+import java.time.Duration;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
 
 @Service
 public class MeetingJobServiceImpl implements MeetingJobService {
 
-    private final Map<String, MeetingJob> jobs = new ConcurrentHashMap<>();
+    private final JobRegistry<MeetingJob> jobs;
+    private final CompressedTextStore resultStore;
+    private final ConcurrentMap<String, Set<Consumer<MeetingJob>>> listeners = new ConcurrentHashMap<>();
+
+    @Autowired
+    public MeetingJobServiceImpl(CompressedTextStore resultStore,
+                                 @Value("${meeting.jobs.registry.max-size:1000}") int maxSize,
+                                 @Value("${meeting.jobs.ttl:24h}") Duration ttl,
+                                 MeterRegistry meterRegistry) {
+        this(resultStore, maxSize, ttl, meterRegistry, System::nanoTime);
+    }
+
+    MeetingJobServiceImpl(CompressedTextStore resultStore,
+                          int maxSize,
+                          Duration ttl,
+                          MeterRegistry meterRegistry,
+                          LongSupplier clock) {
+        this.resultStore = resultStore;
+        this.jobs = new JobRegistry<>(maxSize, ttl, job -> job.getState().isFinished(), MeetingJobServiceImpl::release, clock);
+
+        Gauge.builder("jobs.registry.size", jobs, JobRegistry::size)
+                .description("Jobs currently held in memory")
+                .tag("type", "meeting")
+                .register(meterRegistry);
+        FunctionCounter.builder("jobs.registry.evictions", jobs, JobRegistry::expiredCount)
+                .description("Finished jobs dropped from memory")
+                .tags("type", "meeting", "reason", "expired")
+                .register(meterRegistry);
+        FunctionCounter.builder("jobs.registry.evictions", jobs, JobRegistry::displacedCount)
+                .description("Finished jobs dropped from memory")
+                .tags("type", "meeting", "reason", "size")
+                .register(meterRegistry);
+    }
 
     public String createJob() {
         String jobId = UUID.randomUUID().toString();
-        jobs.put(jobId, new MeetingJob(jobId));
+        jobs.add(jobId, new MeetingJob(jobId));
         return jobId;
     }
 
@@ -24,7 +72,86 @@ public class MeetingJobServiceImpl implements MeetingJobService {
         return jobs.get(jobId);
     }
 
-    public void updateJob(String jobId, MeetingJob updatedJob) {
-        jobs.put(jobId, updatedJob);
+    public boolean startJob(String jobId) {
+        if (!transition(jobId, job -> job.getState().canBecome(JobStatus.IN_PROGRESS) ? job.inProgress() : null)) {
+            return false;
+        }
+        notifyWaiting();
+        return true;
+    }
+
+    public boolean advanceStage(String jobId, MeetingStage stage) {
+        AtomicBoolean leftQueue = new AtomicBoolean();
+        if (!transition(jobId, job -> {
+            if (job.getState() != JobStatus.IN_PROGRESS) {
+                return null;
+            }
+            leftQueue.set(job.getStage() == MeetingStage.QUEUED && stage != MeetingStage.QUEUED);
+            return job.atStage(stage);
+        })) {
+            return false;
+        }
+        if (leftQueue.get()) {
+            notifyWaiting();
+        }
+        return true;
+    }
+
+    public boolean completeJob(String jobId, String summaryText) {
+        CompressedTextStore.Handle summary = resultStore.put(summaryText);
+        if (!transition(jobId, job -> job.getState().canBecome(JobStatus.COMPLETED) ? job.completed(summary) : null)) {
+            summary.release();
+            return false;
+        }
+        return true;
+    }
+
+    public boolean failJob(String jobId, String errorMessage) {
+        return transition(jobId, job -> job.getState().canBecome(JobStatus.FAILED) ? job.failed(errorMessage) : null);
+    }
+
+    public Runnable subscribe(String jobId, Consumer<MeetingJob> listener) {
+        // Added inside compute so that a concurrent unsubscribe cannot drop the set in between
+        listeners.compute(jobId, (id, subscribed) -> {
+            Set<Consumer<MeetingJob>> updated = subscribed != null ? subscribed : new CopyOnWriteArraySet<>();
+            updated.add(listener);
+            return updated;
+        });
+        return () -> listeners.computeIfPresent(jobId, (id, subscribed) -> {
+            subscribed.remove(listener);
+            return subscribed.isEmpty() ? null : subscribed;
+        });
+    }
+
+    private boolean transition(String jobId, UnaryOperator<MeetingJob> next) {
+        MeetingJob updated = jobs.transition(jobId, next);
+        if (updated == null) {
+            return false;
+        }
+        notifyListeners(updated);
+        return true;
+    }
+
+    // A place in the queue has just been taken up, so every job still waiting has moved up
+    private void notifyWaiting() {
+        listeners.keySet().forEach(waiting -> {
+            MeetingJob job = jobs.get(waiting);
+            if (job != null && (job.getState() == JobStatus.PENDING || job.getStage() == MeetingStage.QUEUED)) {
+                notifyListeners(job);
+            }
+        });
+    }
+
+    private void notifyListeners(MeetingJob job) {
+        Set<Consumer<MeetingJob>> subscribed = listeners.get(job.getJobId());
+        if (subscribed != null) {
+            subscribed.forEach(listener -> listener.accept(job));
+        }
+    }
+
+    private static void release(MeetingJob job) {
+        if (job.getSummary() != null) {
+            job.getSummary().release();
+        }
     }
 }
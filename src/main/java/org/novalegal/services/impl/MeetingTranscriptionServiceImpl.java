@@ -1,13 +1,16 @@
 package org.novalegal.services.impl;
 
-import com.google.cloud.storage.BlobInfo;
-import com.google.cloud.storage.Storage;
-import org.novalegal.models.MeetingJob;
+import org.novalegal.models.AudioSegment;
+import org.novalegal.models.MeetingStage;
 import org.novalegal.services.*;
+import org.novalegal.util.TranscriptStitcher;
+import org.novalegal.util.WhisperSegmentParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.http.*;
@@ -15,9 +18,15 @@ import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class MeetingTranscriptionServiceImpl implements MeetingTranscriptionService {
@@ -27,69 +36,187 @@ public class MeetingTranscriptionServiceImpl implements MeetingTranscriptionServ
     @Autowired
     private MeetingJobService jobService;
     @Autowired
+    private MeetingJobQueueService jobQueue;
+    @Autowired
     private OpenAIClientService openAIClientService;
     @Autowired
     private VideoProcessingService videoProcessingService;
     @Autowired
-    private Storage storage;
+    private ObjectStore objectStore;
     @Autowired
     private MeetingProcessingService processingService;
+    @Autowired
+    @Qualifier("whisperRestTemplate")
+    private RestTemplate whisperRestTemplate;
+    @Autowired
+    @Qualifier("whisperStreamRestTemplate")
+    private RestTemplate whisperStreamRestTemplate;
+    @Autowired
+    @Qualifier("transcriptionExecutor")
+    private TaskExecutor transcriptionExecutor;
 
     @Value("${transcribe.api.key}")
     private String transcribeApiKey;
-    @Value("${gcs.bucket.name}")
-    private String bucketName;
     @Value("${modal.whisper.transcriber.url}")
     private String whisperAPI;
-
-    @Async
+    // Segment-streaming endpoint; when set, chunk summaries start while transcription is still running
+    @Value("${modal.whisper.stream.url:}")
+    private String whisperStreamAPI;
+    // Long meetings are cut at pauses and their pieces transcribed in parallel; off by default, since every
+    // meeting is decoded once more to find the pauses
+    @Value("${meeting.segmentation.enabled:false}")
+    private boolean segmentationEnabled;
+
+    @Async("meetingExecutor")
     public void processMeetingFileAsync(String UUID, File inputFile, String inputFileName, String jobId) {
-        MeetingJob job = jobService.getJob(jobId);
-        job.setStatus("IN_PROGRESS");
-        jobService.updateJob(jobId, job);
+        jobQueue.started(jobId);
+        try {
+            processMeetingFile(UUID, inputFile, inputFileName, jobId);
+        } finally {
+            jobQueue.finished(jobId);
+        }
+    }
 
+    @Async("meetingExecutor")
+    public void processMeetingAudioAsync(String UUID, String gcsObjectName, String jobId) {
+        jobQueue.started(jobId);
         try {
+            jobService.startJob(jobId);
+            runJob(UUID, jobId, () -> summarizeAudio(gcsObjectName, jobId));
+        } finally {
+            jobQueue.finished(jobId);
+        }
+    }
+
+    private void processMeetingFile(String UUID, File inputFile, String inputFileName, String jobId) {
+        jobService.startJob(jobId);
+        runJob(UUID, jobId, () -> {
             // ✅ Extract audio and upload to GCS
+            jobService.advanceStage(jobId, MeetingStage.EXTRACTING_AUDIO);
             String gcsObjectName = videoProcessingService.extractAudioAndUploadToGCS(inputFile, inputFileName);
+            return summarizeAudio(gcsObjectName, jobId);
+        });
+    }
 
-            // ✅ Generate signed URL or GCS path
-            String gcsAudioUrl = generateSignedUrl(gcsObjectName);
-
-            // ✅ Transcribe from GCS file using Whisper
-            String transcript = transcribeFromGcsUrl(gcsAudioUrl);
-
-            // ✅ Generate summary using OpenAI
-            String summary = openAIClientService.generateMeetingSummaryFromSegmentsChunked(transcript);
-
+    private void runJob(String UUID, String jobId, Callable<String> work) {
+        String status;
+        try {
             // ✅ Finalize job
-            job.setStatus("COMPLETED");
-            job.setSummaryText(summary);
+            jobService.completeJob(jobId, work.call());
+            status = "COMPLETED";
         } catch (Exception e) {
-            job.setStatus("FAILED");
-            job.setErrorMessage(e.getMessage());
+            jobService.failJob(jobId, e.getMessage());
+            status = "FAILED";
             logger.error(e.getMessage());
         }
 
-        processingService.addJobStatus(UUID, job.getStatus());
-        jobService.updateJob(jobId, job);
+        processingService.addJobStatus(UUID, status);
+    }
+
+    private String summarizeAudio(String gcsObjectName, String jobId) throws Exception {
+        boolean pipelined = whisperStreamAPI != null && !whisperStreamAPI.isBlank();
+        // The pipelined path already summarizes while Whisper works through the recording, so it is not split
+        if (segmentationEnabled && !pipelined) {
+            jobService.advanceStage(jobId, MeetingStage.SPLITTING_AUDIO);
+            List<AudioSegment> segments = videoProcessingService.splitAudioAtSilences(gcsObjectName);
+            if (segments.size() > 1) {
+                jobService.advanceStage(jobId, MeetingStage.TRANSCRIBING);
+                String transcript;
+                try {
+                    transcript = transcribeSegments(segments);
+                } finally {
+                    deletePieces(segments);
+                }
+
+                jobService.advanceStage(jobId, MeetingStage.SUMMARIZING);
+                return openAIClientService.generateMeetingSummaryFromSegmentsChunked(transcript);
+            }
+        }
+
+        // ✅ Generate signed URL or GCS path
+        String gcsAudioUrl = generateSignedUrl(gcsObjectName);
+
+        jobService.advanceStage(jobId, MeetingStage.TRANSCRIBING);
+        if (pipelined) {
+            // ✅ Transcribe and summarize in one pipeline: chunks are summarized as segments arrive
+            return transcribeAndSummarizePipelined(gcsAudioUrl, jobId);
+        }
+        // ✅ Transcribe from GCS file using Whisper
+        String transcript = transcribeFromGcsUrl(gcsAudioUrl);
+
+        // ✅ Generate summary using OpenAI
+        jobService.advanceStage(jobId, MeetingStage.SUMMARIZING);
+        return openAIClientService.generateMeetingSummaryFromSegmentsChunked(transcript);
     }
 
     private String generateSignedUrl(String objectName) {
-        BlobInfo blobInfo = BlobInfo.newBuilder(bucketName, objectName).build();
-        URL url = storage.signUrl(blobInfo, 15, TimeUnit.MINUTES);  // 15-minute signed URL
+        URL url = objectStore.presignedUrl(objectName, Duration.ofMinutes(15));  // 15-minute signed URL
         return url.toString();
     }
 
     private String transcribeFromGcsUrl(String audioUrl) {
-        RestTemplate restTemplate = new RestTemplate();
+        ResponseEntity<String> response = whisperRestTemplate.postForEntity(whisperAPI, transcriptionRequest(audioUrl), String.class);
+        return response.getBody();
+    }
+
+    // Transcribes every piece at once, as far as transcriptionExecutor allows, and joins the pieces' segments on the
+    // recording's timeline, so the summary sees one transcript
+    private String transcribeSegments(List<AudioSegment> segments) throws Exception {
+        List<CompletableFuture<String>> transcripts = new ArrayList<>();
+        for (AudioSegment segment : segments) {
+            transcripts.add(CompletableFuture.supplyAsync(
+                    () -> transcribeFromGcsUrl(generateSignedUrl(segment.objectName())), transcriptionExecutor));
+        }
+        TranscriptStitcher stitcher = new TranscriptStitcher();
+        try {
+            for (int i = 0; i < segments.size(); i++) {
+                stitcher.add(transcripts.get(i).join(), segments.get(i).start());
+            }
+        } catch (Exception e) {
+            // Pieces still waiting for a thread are skipped
+            transcripts.forEach(transcript -> transcript.cancel(false));
+            throw e instanceof CompletionException && e.getCause() instanceof Exception cause ? cause : e;
+        }
+        return stitcher.finish();
+    }
+
+    // The pieces are copies cut for transcription; the extracted audio itself stays
+    private void deletePieces(List<AudioSegment> segments) {
+        for (AudioSegment segment : segments) {
+            try {
+                objectStore.delete(segment.objectName());
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Could not delete audio piece {}: {}", segment.objectName(), e.getMessage());
+            }
+        }
+    }
+
+    private String transcribeAndSummarizePipelined(String audioUrl, String jobId) {
+        MeetingSummaryPipeline pipeline = openAIClientService.openMeetingSummaryPipeline();
+        try {
+            whisperStreamRestTemplate.execute(
+                    whisperStreamAPI,
+                    HttpMethod.POST,
+                    whisperStreamRestTemplate.httpEntityCallback(transcriptionRequest(audioUrl)),
+                    response -> {
+                        WhisperSegmentParser.forEachStreamedSegment(response.getBody(), pipeline);
+                        return null;
+                    });
+        } catch (RuntimeException e) {
+            pipeline.cancel();
+            throw e;
+        }
+        // Only the chunks still in flight and the final merge are left once the transcript has ended
+        jobService.advanceStage(jobId, MeetingStage.SUMMARIZING);
+        return pipeline.finish();
+    }
+
+    private HttpEntity<Map<String, String>> transcriptionRequest(String audioUrl) {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
         headers.set("Authorization", String.format("Bearer %s", transcribeApiKey));
 
         Map<String, String> body = Map.of(SIGNED_URL, audioUrl);
-        HttpEntity<Map<String, String>> request = new HttpEntity<>(body, headers);
-
-        ResponseEntity<String> response = restTemplate.postForEntity(whisperAPI, request, String.class);
-        return response.getBody();
+        return new HttpEntity<>(body, headers);
     }
 }
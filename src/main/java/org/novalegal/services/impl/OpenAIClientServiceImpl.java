@@ -1,53 +1,206 @@
 package org.novalegal.services.impl;
 
+import org.novalegal.services.ContentCacheService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.novalegal.services.LlmBackend;
+import org.novalegal.services.LlmCallType;
+import org.novalegal.services.MeetingSummaryPipeline;
+import org.novalegal.services.ModelRouter;
 import org.novalegal.services.OpenAIClientService;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.novalegal.services.SummaryStreamListener;
+import org.novalegal.util.ClauseChunker;
+import org.novalegal.util.ClauseNormalizer;
+import org.novalegal.util.ContentHash;
+import org.novalegal.util.SingleFlight;
+import org.novalegal.util.TokenEstimator;
+import org.novalegal.util.TranscriptChunker;
+import org.novalegal.util.WhisperSegmentParser;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 public class OpenAIClientServiceImpl implements OpenAIClientService {
-    private static final String OPENAI_COM_V_1_CHAT_COMPLETIONS = "https://api.openai.com/v1/chat/completions";
     private static final String LEGAL_DOCUMENT_PROMPT = "Please simplify and summarize the following legal document:\n\n";
-    private static final String MODEL = "model";
     private static final String GPT_4 = "gpt-4";
-    private static final String MESSAGES = "messages";
-    private static final String TEMPERATURE = "temperature";
-    private static final String ROLE = "role";
-    private static final String USER = "user";
-    private static final String CONTENT = "content";
-    private static final String CHOICES = "choices";
-    private static final String MESSAGE = "message";
-    private static final String GPT_3_5_TURBO_16_K = "gpt-3.5-turbo-16k";
-    private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper;
+    private static final String PARALLEL_MODE = "parallel";
+    // Part of the summary cache key: bump whenever a document prompt changes so stale summaries are not served
+    private static final String DOCUMENT_PROMPT_VERSION = "doc-v2";
+    // Part of the clause store key: bump whenever the clause prompt changes
+    private static final String CLAUSE_PROMPT_VERSION = "clause-v1";
+    // Part of the in-flight meeting key: bump whenever a meeting prompt changes
+    private static final String MEETING_PROMPT_VERSION = "meeting-v1";
+    private static final Pattern CLAUSE_MARKER = Pattern.compile("\\[\\[CLAUSE (\\d+)]]");
+    private static final SummaryStreamListener NO_OP_LISTENER = new SummaryStreamListener() {
+        @Override
+        public void onProgress(int completedChunks, int totalChunks) {
+        }
 
-    @Value("${openai.api.key}")
-    private String openAIApiKey;
+        @Override
+        public void onDelta(String text) {
+        }
+    };
+    private final LlmBackend llmBackend;
+    private final Executor llmExecutor;
+    private final ContentCacheService contentCache;
+    private final ModelRouter modelRouter;
+    private final DistributionSummary documentChunks;
+    private final DistributionSummary meetingChunks;
+    private final Counter cachedClauses;
+    private final Counter novelClauses;
+    private final SingleFlight<String, String> documentFlights = new SingleFlight<>();
+    private final SingleFlight<String, String> meetingFlights = new SingleFlight<>();
+
+    @Value("${openai.summarization.mode:sequential}")
+    private String summarizationMode = "sequential";
+    @Value("${openai.summarization.reduce-fan-in:4}")
+    private int reduceFanIn = 4;
+    @Value("${openai.clause-cache.enabled:true}")
+    private boolean clauseCacheEnabled = true;
+    @Value("${openai.clause-cache.min-hit-share:0.5}")
+    private double clauseCacheMinHitShare = 0.5;
+
+    public OpenAIClientServiceImpl(LlmBackend llmBackend,
+                                   @Qualifier("llmExecutor") Executor llmExecutor,
+                                   ContentCacheService contentCache,
+                                   ModelRouter modelRouter,
+                                   MeterRegistry meterRegistry) {
+        this.llmBackend = llmBackend;
+        this.llmExecutor = llmExecutor;
+        this.contentCache = contentCache;
+        this.modelRouter = modelRouter;
+        this.documentChunks = DistributionSummary.builder("llm.document.chunks")
+                .description("Chunks per summarized document")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.meetingChunks = DistributionSummary.builder("llm.meeting.chunks")
+                .description("Transcript chunks per summarized meeting")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.cachedClauses = meterRegistry.counter("llm.document.clauses", "source", "cached");
+        this.novelClauses = meterRegistry.counter("llm.document.clauses", "source", "novel");
+        registerFlightMetrics(meterRegistry, "document", documentFlights);
+        registerFlightMetrics(meterRegistry, "meeting", meetingFlights);
+    }
 
-    public OpenAIClientServiceImpl(RestTemplate restTemplate, ObjectMapper objectMapper) {
-        this.restTemplate = restTemplate;
-        this.objectMapper = objectMapper;
+    private static void registerFlightMetrics(MeterRegistry meterRegistry, String operation, SingleFlight<String, String> flights) {
+        FunctionCounter.builder("llm.singleflight.calls", flights, SingleFlight::executedCount)
+                .description("Summarization calls that ran their own pipeline")
+                .tag("operation", operation)
+                .tag("result", "executed")
+                .register(meterRegistry);
+        FunctionCounter.builder("llm.singleflight.calls", flights, SingleFlight::coalescedCount)
+                .description("Summarization calls that attached to an identical run already in flight")
+                .tag("operation", operation)
+                .tag("result", "coalesced")
+                .register(meterRegistry);
+        Gauge.builder("llm.singleflight.inflight", flights, SingleFlight::inFlightCount)
+                .description("Distinct summarization runs in flight")
+                .tag("operation", operation)
+                .register(meterRegistry);
     }
 
     // Main chunking-based simplification method
     public String simplifyDocumentWithChunking(String doc, int chunkSize) {
-        List<String> chunkedText = chunkText(doc, chunkSize);
+        String cacheKey = summaryCacheKey(doc, chunkSize);
+        Optional<String> cached = contentCache.get(ContentCacheService.Region.SUMMARY, cacheKey);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        // Identical uploads arriving together (the sample NDA, a popular template) share one pipeline run
+        return documentFlights.execute(cacheKey, () -> {
+            // A run for this key may have finished between the lookup above and joining the flight
+            Optional<String> finished = contentCache.get(ContentCacheService.Region.SUMMARY, cacheKey);
+            if (finished.isPresent()) {
+                return finished.get();
+            }
+            FinalPrompt finalPrompt = prepareFinalDocumentPrompt(doc, chunkSize, NO_OP_LISTENER);
+            String summary = simplifyWithPrompt(finalPrompt.type(), finalPrompt.prompt());
+            contentCache.put(ContentCacheService.Region.SUMMARY, cacheKey, summary);
+            return summary;
+        });
+    }
+
+    public void streamDocumentSimplification(String doc, int chunkSize, SummaryStreamListener listener) {
+        String cacheKey = summaryCacheKey(doc, chunkSize);
+        Optional<String> cached = contentCache.get(ContentCacheService.Region.SUMMARY, cacheKey);
+        if (cached.isPresent()) {
+            listener.onDelta(cached.get());
+            return;
+        }
+
+        FinalPrompt finalPrompt = prepareFinalDocumentPrompt(doc, chunkSize, listener);
+        // The deltas are relayed as they arrive; this single copy is only kept for the cache. The backend returns
+        // only once the completion has ended, so a stream cut off midway throws before reaching the cache
+        StringBuilder summary = new StringBuilder();
+        streamWithPrompt(finalPrompt.type(), finalPrompt.prompt(), new SummaryStreamListener() {
+            @Override
+            public void onProgress(int completedChunks, int totalChunks) {
+                listener.onProgress(completedChunks, totalChunks);
+            }
+
+            @Override
+            public void onDelta(String text) {
+                summary.append(text);
+                listener.onDelta(text);
+            }
+        });
+        contentCache.put(ContentCacheService.Region.SUMMARY, cacheKey, summary.toString());
+    }
+
+    private String summaryCacheKey(String doc, int chunkSize) {
+        return ContentHash.sha256(doc, DOCUMENT_PROMPT_VERSION, modelRouter.signature(),
+                Integer.toString(chunkSize), summarizationMode.toLowerCase(), clauseCacheEnabled ? CLAUSE_PROMPT_VERSION : "");
+    }
+
+    private record FinalPrompt(LlmCallType type, String prompt) {
+    }
+
+    // Runs every call except the last one and returns that last call, so callers can either wait for the
+    // final completion or stream it.
+    private FinalPrompt prepareFinalDocumentPrompt(String doc, int chunkSize, SummaryStreamListener listener) {
+        // A document that fits the single-pass model is sent whole, skipping the chunk and merge round trips
+        boolean singlePass = modelRouter.fitsSinglePass(doc);
+        if (clauseCacheEnabled) {
+            Optional<List<String>> explanations = explainClauses(doc, chunkSize, singlePass, listener);
+            if (explanations.isPresent()) {
+                documentChunks.record(explanations.get().size());
+                // One explanation per clause: merged in rounds so no merge prompt outgrows a chunk
+                Executor executor = PARALLEL_MODE.equalsIgnoreCase(summarizationMode) ? llmExecutor : Runnable::run;
+                List<String> merged = reduceSummaries(explanations.get(), Integer.MAX_VALUE, chunkSize, executor);
+                return new FinalPrompt(LlmCallType.DOCUMENT_MERGE, buildDocumentMergePrompt(merged));
+            }
+        }
+
+        List<String> chunkedText = singlePass ? List.of(doc.strip()) : ClauseChunker.chunk(doc, chunkSize);
+        documentChunks.record(chunkedText.size());
         if (chunkedText.size() == 1) {
             // Only one chunk, no need to merge
-            String prompt = "You are a legal assistant. Simplify and summarize the following legal document in plain English.\n" +
+            return new FinalPrompt(LlmCallType.DOCUMENT_SINGLE, "You are a legal assistant. Simplify and summarize the following legal document in plain English.\n" +
                     "At the end, include a section titled '⚠️ Potential Concerns' if any unusual or important details appear.\n\n" +
-                    chunkedText.get(0);
-            return simplifyWithPrompt(prompt);
+                    chunkedText.get(0));
+        }
+
+        if (PARALLEL_MODE.equalsIgnoreCase(summarizationMode)) {
+            return new FinalPrompt(LlmCallType.DOCUMENT_MERGE, buildDocumentMergePrompt(summarizeChunksInParallel(chunkedText, listener)));
         }
 
         List<String> summaries = new ArrayList<>();
@@ -69,80 +222,288 @@ public class OpenAIClientServiceImpl implements OpenAIClientService {
                         chunk;
             }
 
-            String summary = simplifyWithPrompt(prompt);
+            String summary = simplifyWithPrompt(LlmCallType.DOCUMENT_CHUNK, prompt);
             summaries.add(summary);
             previousSummary = summary;
+            listener.onProgress(i + 1, chunkedText.size());
         }
 
-        String mergedPrompt = "You are a legal assistant. Combine the following section summaries into a full plain-English explanation of the document.\n\n" +
-                "Include a final section at the end titled '⚠️ Potential Concerns' combining all important issues or red flags from the summaries.\n\n" +
-                String.join("\n\n", summaries);
+        return new FinalPrompt(LlmCallType.DOCUMENT_MERGE, buildDocumentMergePrompt(summaries));
+    }
+
+    // Clause-level memoization: boilerplate such as severability or governing law recurs nearly verbatim
+    // across uploads, so every clause is normalized and looked up in the clause store and only the novel
+    // ones are explained by the model, in batches of up to chunkSize tokens. Returns the explanations in
+    // document order, or empty when a document that fits one call has too few known clauses to be worth
+    // splitting up.
+    private Optional<List<String>> explainClauses(String doc, int chunkSize, boolean singlePass, SummaryStreamListener listener) {
+        List<String> clauses = ClauseChunker.clauses(doc, chunkSize);
+        if (clauses.size() < 2) {
+            return Optional.empty();
+        }
+        ClauseNormalizer.PartyMask partyMask = ClauseNormalizer.PartyMask.of(doc);
+        String model = modelRouter.modelFor(LlmCallType.DOCUMENT_CLAUSES);
+        String[] explanations = new String[clauses.size()];
+        // Document position of every distinct clause, so a clause repeated within the document is handled once
+        Map<String, Integer> positions = new LinkedHashMap<>();
+        Map<String, String> novel = new LinkedHashMap<>();
+        long cachedTokens = 0;
+        long totalTokens = 0;
+        for (int i = 0; i < clauses.size(); i++) {
+            String masked = partyMask.mask(clauses.get(i));
+            String key = ContentHash.sha256(ClauseNormalizer.canonicalKey(masked), CLAUSE_PROMPT_VERSION, model);
+            int tokens = TokenEstimator.estimate(clauses.get(i));
+            totalTokens += tokens;
+            if (positions.putIfAbsent(key, i) != null) {
+                continue;
+            }
+            Optional<String> cached = contentCache.get(ContentCacheService.Region.CLAUSE, key);
+            if (cached.isPresent()) {
+                explanations[i] = cached.get();
+                cachedTokens += tokens;
+            } else {
+                novel.put(key, masked);
+            }
+        }
+        if (singlePass && cachedTokens < clauseCacheMinHitShare * totalTokens) {
+            return Optional.empty();
+        }
+        cachedClauses.increment(positions.size() - novel.size());
+        novelClauses.increment(novel.size());
+
+        List<List<String>> batches = new ArrayList<>();
+        List<String> batch = new ArrayList<>();
+        int batchTokens = 0;
+        for (Map.Entry<String, String> clause : novel.entrySet()) {
+            int tokens = TokenEstimator.estimate(clause.getValue());
+            if (!batch.isEmpty() && batchTokens + tokens > chunkSize) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                batchTokens = 0;
+            }
+            batch.add(clause.getKey());
+            batchTokens += tokens;
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+
+        Executor executor = PARALLEL_MODE.equalsIgnoreCase(summarizationMode) ? llmExecutor : Runnable::run;
+        AtomicInteger completed = new AtomicInteger();
+        List<CompletableFuture<Void>> calls = new ArrayList<>(batches.size());
+        for (List<String> keys : batches) {
+            List<String> maskedClauses = keys.stream().map(novel::get).toList();
+            calls.add(CompletableFuture.runAsync(() -> {
+                List<String> explained = explainClauseBatch(maskedClauses);
+                if (explained.size() != keys.size()) {
+                    // The answer could not be split per clause: explain this batch one clause at a time instead
+                    explained = maskedClauses.stream().map(clause -> explainClauseBatch(List.of(clause)).get(0)).toList();
+                }
+                for (int k = 0; k < keys.size(); k++) {
+                    contentCache.put(ContentCacheService.Region.CLAUSE, keys.get(k), explained.get(k));
+                    explanations[positions.get(keys.get(k))] = explained.get(k);
+                }
+                listener.onProgress(completed.incrementAndGet(), batches.size());
+            }, executor));
+        }
+        joinAll(calls);
 
-        return simplifyWithPrompt(mergedPrompt);
+        List<String> ordered = new ArrayList<>(clauses.size());
+        for (int i = 0; i < clauses.size(); i++) {
+            // Repeats of a clause are left empty
+            if (explanations[i] != null) {
+                ordered.add(partyMask.unmask(explanations[i]));
+            }
+        }
+        return Optional.of(ordered);
     }
 
-    public String generateMeetingSummaryFromSegmentsChunked(String whisperJson) {
-        ObjectMapper mapper = new ObjectMapper();
-        JsonNode root;
-        try {
-            root = mapper.readTree(whisperJson);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to parse Whisper response", e);
+    // Returns one explanation per clause, or the whole answer as a single element when its markers do not
+    // line up with the clauses that were sent; for a single clause that is always its explanation
+    private List<String> explainClauseBatch(List<String> maskedClauses) {
+        StringBuilder prompt = new StringBuilder("""
+        You are a legal assistant. Explain each of the following clauses of a legal document in plain English, in one or two sentences each.
+        Start the explanation of every clause with its marker line exactly as given, e.g. [[CLAUSE 1]].
+        Keep placeholders such as [PARTY_1] unchanged; they stand for the parties of the document.
+        Mention anything unusual or important for the reader as a potential concern.
+
+        """);
+        for (int i = 0; i < maskedClauses.size(); i++) {
+            prompt.append("[[CLAUSE ").append(i + 1).append("]]\n").append(maskedClauses.get(i)).append("\n\n");
+        }
+        String answer = simplifyWithPrompt(LlmCallType.DOCUMENT_CLAUSES, prompt.toString());
+
+        List<String> explained = new ArrayList<>(maskedClauses.size());
+        Matcher marker = CLAUSE_MARKER.matcher(answer);
+        int markers = 0;
+        int bodyStart = -1;
+        while (marker.find()) {
+            if (Integer.parseInt(marker.group(1)) != ++markers) {
+                return List.of(answer.strip());
+            }
+            if (bodyStart >= 0) {
+                explained.add(answer.substring(bodyStart, marker.start()).strip());
+            }
+            bodyStart = marker.end();
+        }
+        if (bodyStart >= 0) {
+            explained.add(answer.substring(bodyStart).strip());
         }
+        boolean complete = explained.size() == maskedClauses.size() && explained.stream().noneMatch(String::isBlank);
+        return complete ? explained : List.of(answer.strip());
+    }
 
-        JsonNode segments = root.get("segments");
-        if (segments == null || !segments.isArray()) {
-            throw new IllegalArgumentException("Missing 'segments' array");
+    // Map-reduce variant: every chunk is summarized independently on the llm executor, then the
+    // summaries are merged level by level in groups of reduceFanIn until at most reduceFanIn remain
+    // for the final merge.
+    private List<String> summarizeChunksInParallel(List<String> chunks, SummaryStreamListener listener) {
+        List<CompletableFuture<String>> mapped = new ArrayList<>(chunks.size());
+        AtomicInteger completed = new AtomicInteger();
+        for (int i = 0; i < chunks.size(); i++) {
+            String prompt = "You are a legal assistant. Simplify and summarize part " + (i + 1) + " of " + chunks.size() +
+                    " of a legal document in plain English.\n" +
+                    "Include a section titled '⚠️ Potential Concerns' if needed.\n\n" +
+                    chunks.get(i);
+            mapped.add(CompletableFuture.supplyAsync(() -> {
+                String summary = simplifyWithPrompt(LlmCallType.DOCUMENT_CHUNK, prompt);
+                listener.onProgress(completed.incrementAndGet(), chunks.size());
+                return summary;
+            }, llmExecutor));
         }
+        return reduceSummaries(joinAll(mapped), reduceFanIn, Integer.MAX_VALUE, llmExecutor);
+    }
 
-        StringBuilder allText = new StringBuilder();
-        List<String> entries = new ArrayList<>();
+    // Merges consecutive summaries level by level, each merge taking at most fanIn of them and maxTokens of
+    // text, until at most fanIn remain within maxTokens for the final merge. A summary too long to share a
+    // merge with its neighbour is carried up unchanged.
+    private List<String> reduceSummaries(List<String> summaries, int fanIn, int maxTokens, Executor executor) {
+        int groupSize = Math.max(2, fanIn);
+        while (summaries.size() > groupSize || TokenEstimator.estimate(String.join("\n\n", summaries)) > maxTokens) {
+            List<List<String>> groups = new ArrayList<>();
+            List<String> group = new ArrayList<>();
+            int groupTokens = 0;
+            for (String summary : summaries) {
+                int tokens = TokenEstimator.estimate(summary);
+                if (!group.isEmpty() && (group.size() == groupSize || groupTokens + tokens > maxTokens)) {
+                    groups.add(group);
+                    group = new ArrayList<>();
+                    groupTokens = 0;
+                }
+                group.add(summary);
+                groupTokens += tokens;
+            }
+            groups.add(group);
+            if (groups.size() == summaries.size()) {
+                // Every summary fills a merge on its own; merging further cannot make the result smaller
+                break;
+            }
+
+            List<CompletableFuture<String>> merged = new ArrayList<>();
+            for (List<String> members : groups) {
+                if (members.size() == 1) {
+                    merged.add(CompletableFuture.completedFuture(members.get(0)));
+                    continue;
+                }
+                String prompt = buildIntermediateMergePrompt(members);
+                merged.add(CompletableFuture.supplyAsync(() -> simplifyWithPrompt(LlmCallType.DOCUMENT_MERGE, prompt), executor));
+            }
+            summaries = joinAll(merged);
+        }
+        return summaries;
+    }
+
+    private String buildDocumentMergePrompt(List<String> summaries) {
+        return "You are a legal assistant. Combine the following section summaries into a full plain-English explanation of the document.\n\n" +
+                "Include a final section at the end titled '⚠️ Potential Concerns' combining all important issues or red flags from the summaries.\n\n" +
+                String.join("\n\n", summaries);
+    }
 
-        for (JsonNode segment : segments) {
-            double start = segment.get("start").asDouble();
-            double end = segment.get("end").asDouble();
-            String text = segment.get("text").asText();
-            String timestamp = String.format("[%02d:%02d - %02d:%02d]",
-                    (int)(start / 60), (int)(start % 60),
-                    (int)(end / 60), (int)(end % 60));
+    private String buildIntermediateMergePrompt(List<String> summaries) {
+        return "You are a legal assistant. The following are summaries of consecutive sections of one legal document.\n" +
+                "Combine them into a single plain-English summary of those sections, keeping every obligation, deadline and amount.\n" +
+                "Keep a section titled '⚠️ Potential Concerns' listing all issues raised in the summaries.\n\n" +
+                String.join("\n\n", summaries);
+    }
 
-            String entry = timestamp + " " + text;
-            entries.add(entry);
-            allText.append(entry).append("\n");
+    private static <T> List<T> joinAll(List<CompletableFuture<T>> futures) {
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            futures.forEach(f -> f.cancel(false));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
         }
+        return results;
+    }
 
-        // If entire text fits comfortably under 13,000 characters, no need to chunk
-        if (allText.length() <= 13000) {
-            String prompt = buildChunkPrompt(allText.toString(), 1);
-            String rawSummary = simplifyWithPrompt(prompt);
-            return buildFinalSummary(List.of(rawSummary));
+    public String generateMeetingSummaryFromSegmentsChunked(String whisperJson) {
+        String flightKey = ContentHash.sha256(whisperJson, MEETING_PROMPT_VERSION, modelRouter.signature(),
+                Integer.toString(modelRouter.meetingChunkMaxChars()), Integer.toString(modelRouter.meetingSinglePassMaxChars()));
+        return meetingFlights.execute(flightKey, () -> summarizeMeetingSegments(whisperJson));
+    }
+
+    private String summarizeMeetingSegments(String whisperJson) {
+        // Segments are streamed straight into the chunker and each chunk is summarized as soon as it is
+        // complete, so only the chunk being filled is held besides the input itself.
+        MeetingSummaryPipeline pipeline = openMeetingSummaryPipeline();
+        try {
+            WhisperSegmentParser.forEachSegment(whisperJson, pipeline);
+        } catch (IOException e) {
+            pipeline.cancel();
+            throw new RuntimeException("Failed to parse Whisper response", e);
+        } catch (RuntimeException e) {
+            pipeline.cancel();
+            throw e;
         }
+        return pipeline.finish();
+    }
 
-        // Otherwise chunk the entries
-        List<String> chunks = new ArrayList<>();
-        StringBuilder currentChunk = new StringBuilder();
-        int chunkCharLimit = 12000;
+    public MeetingSummaryPipeline openMeetingSummaryPipeline() {
+        return new ChunkedMeetingSummaryPipeline();
+    }
 
-        for (String entry : entries) {
-            if (currentChunk.length() + entry.length() + 1 > chunkCharLimit) {
-                chunks.add(currentChunk.toString());
-                currentChunk = new StringBuilder();
+    private class ChunkedMeetingSummaryPipeline implements MeetingSummaryPipeline {
+        private final List<CompletableFuture<String>> partialSummaries = new ArrayList<>();
+        private final TranscriptChunker chunker = new TranscriptChunker(modelRouter.meetingChunkMaxChars(),
+                modelRouter.meetingSinglePassMaxChars(), this::dispatch);
+        private boolean finishing;
+        private String singlePassTranscript;
+
+        private void dispatch(int part, String chunk) {
+            if (finishing && part == 1 && modelRouter.isSinglePassMeetingEnabled()) {
+                // The whole transcript fits one call: summarize it directly in finish()
+                singlePassTranscript = chunk;
+                return;
             }
-            currentChunk.append(entry).append("\n");
+            String prompt = buildChunkPrompt(chunk, part);
+            partialSummaries.add(CompletableFuture.supplyAsync(() -> simplifyWithPrompt(LlmCallType.MEETING_CHUNK, prompt), llmExecutor));
         }
-        if (!currentChunk.isEmpty()) {
-            chunks.add(currentChunk.toString());
+
+        @Override
+        public void onSegment(double start, double end, String text) {
+            chunker.accept(start, end, text);
         }
 
-        // Summarize each chunk
-        List<String> partialSummaries = new ArrayList<>();
-        for (int i = 0; i < chunks.size(); i++) {
-            String prompt = buildChunkPrompt(chunks.get(i), i + 1);
-            String summary = simplifyWithPrompt(prompt);
-            partialSummaries.add(summary);
+        @Override
+        public String finish() {
+            finishing = true;
+            chunker.finish();
+            meetingChunks.record(chunker.chunkCount());
+            if (singlePassTranscript != null) {
+                return simplifyWithPrompt(LlmCallType.MEETING_SINGLE, buildSinglePassMeetingPrompt(singlePassTranscript));
+            }
+            return buildFinalSummary(joinAll(partialSummaries));
         }
 
-        return buildFinalSummary(partialSummaries);
+        @Override
+        public void cancel() {
+            partialSummaries.forEach(f -> f.cancel(false));
+        }
     }
 
     private String buildChunkPrompt(String chunkText, int partNumber) {
@@ -159,6 +520,22 @@ public class OpenAIClientServiceImpl implements OpenAIClientService {
         """.formatted(partNumber, chunkText);
     }
 
+    private String buildSinglePassMeetingPrompt(String transcript) {
+        return """
+        You are an AI meeting assistant. Below is the full transcript of a meeting.
+
+        Generate a comprehensive summary. Be sure to:
+        - Summarize the content clearly and professionally
+        - Emphasize key insights and decisions made
+        - Clearly list all action items with timestamps, e.g., "[00:02 - 00:05] John to email client."
+        - Keep output under 400 words
+        - Use bullet points for action items if possible
+
+        Transcript:
+        %s
+        """.formatted(transcript);
+    }
+
     private String buildFinalSummary(List<String> partialSummaries) {
         StringBuilder prompt = new StringBuilder("""
         Based on the following summaries of a meeting, generate a final comprehensive summary.
@@ -177,54 +554,16 @@ public class OpenAIClientServiceImpl implements OpenAIClientService {
             prompt.append("Part ").append(i + 1).append(":\n").append(partialSummaries.get(i)).append("\n\n");
         }
 
-        return simplifyWithPrompt(prompt.toString());
-    }
-
-    // Helper to call OpenAI with a custom prompt
-    protected String simplifyWithPrompt(String prompt) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(openAIApiKey);
-
-        Map<String, Object> message = Map.of(ROLE, USER, CONTENT, prompt);
-        Map<String, Object> requestBody = Map.of(
-                MODEL, GPT_3_5_TURBO_16_K,
-                MESSAGES, List.of(message),
-                TEMPERATURE, 0.2
-        );
-        HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-        ResponseEntity<String> response = restTemplate.postForEntity(
-                OPENAI_COM_V_1_CHAT_COMPLETIONS,
-                request,
-                String.class
-        );
-        return extractContentFromResponse(response.getBody());
+        return simplifyWithPrompt(LlmCallType.MEETING_FINAL, prompt.toString());
     }
 
-    private String extractContentFromResponse(String responseBody) {
-        try {
-            JsonNode root = objectMapper.readTree(responseBody);
-            JsonNode choices = root.path(CHOICES);
-            if (choices.isArray() && choices.size() > 0) {
-                JsonNode message = choices.get(0).path(MESSAGE);
-                return message.path(CONTENT).asText();
-            }
-        } catch (Exception e) {
-            // Log error or handle as needed
-        }
-        return "Could not extract summary from OpenAI response.";
+    // Helper to call the configured model with a custom prompt
+    protected String simplifyWithPrompt(LlmCallType type, String prompt) {
+        return llmBackend.complete(type, modelRouter.modelFor(type), prompt);
     }
 
-    private List<String> chunkText(String fullText, int maxWordsPerChunk) {
-        String[] words = fullText.split("\\s+");
-        List<String> chunks = new ArrayList<>();
-
-        for (int i = 0; i < words.length; i += maxWordsPerChunk) {
-            int end = Math.min(i + maxWordsPerChunk, words.length);
-            String chunk = String.join(" ", Arrays.copyOfRange(words, i, end));
-            chunks.add(chunk);
-        }
-
-        return chunks;
+    // Streams a completion, handing each delta to the listener as soon as the backend reads it
+    protected void streamWithPrompt(LlmCallType type, String prompt, SummaryStreamListener listener) {
+        llmBackend.stream(type, modelRouter.modelFor(type), prompt, listener::onDelta);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,341 @@
+package org.novalegal.services.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.novalegal.services.LlmBackend;
+import org.novalegal.services.LlmCallException;
+import org.novalegal.services.LlmCallType;
+import org.novalegal.services.LlmRateLimiter;
+import org.novalegal.util.CallScope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.*;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * {@link LlmBackend} for any server that implements the OpenAI chat completions API.
+ * <p>
+ * Every attempt is measured per call type and model: {@code llm.call.latency} (with outcome), {@code llm.call.ttft}
+ * for streamed calls, {@code llm.call.tokens} from the {@code usage} the API reports, and
+ * {@code llm.call.failures} by HTTP status. A response without message content is an {@link LlmCallException},
+ * never a placeholder summary.
+ */
+@Service
+public class OpenAiHttpLlmBackend implements LlmBackend {
+    private static final Logger logger = LoggerFactory.getLogger(OpenAiHttpLlmBackend.class);
+    private static final String CHAT_COMPLETIONS_PATH = "/chat/completions";
+    private static final String MODEL = "model";
+    private static final String MESSAGES = "messages";
+    private static final String TEMPERATURE = "temperature";
+    private static final String ROLE = "role";
+    private static final String USER = "user";
+    private static final String CONTENT = "content";
+    private static final String CHOICES = "choices";
+    private static final String MESSAGE = "message";
+    private static final String STREAM = "stream";
+    private static final String DELTA = "delta";
+    private static final String FINISH_REASON = "finish_reason";
+    private static final String SSE_DATA_PREFIX = "data:";
+    private static final String SSE_DONE = "[DONE]";
+    private static final String RETRY_AFTER_MS = "retry-after-ms";
+    private static final String STREAM_OPTIONS = "stream_options";
+    private static final String INCLUDE_USAGE = "include_usage";
+    private static final String USAGE = "usage";
+    private static final String PROMPT_TOKENS = "prompt_tokens";
+    private static final String COMPLETION_TOKENS = "completion_tokens";
+
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final LlmRateLimiter rateLimiter;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${openai.api.key}")
+    private String openAIApiKey;
+    @Value("${llm.base-url:https://api.openai.com/v1}")
+    private String baseUrl = "https://api.openai.com/v1";
+    @Value("${openai.retry.max-attempts:5}")
+    private int retryMaxAttempts = 5;
+    @Value("${openai.retry.initial-backoff:1s}")
+    private Duration retryInitialBackoff = Duration.ofSeconds(1);
+    @Value("${openai.retry.max-backoff:30s}")
+    private Duration retryMaxBackoff = Duration.ofSeconds(30);
+
+    public OpenAiHttpLlmBackend(@Qualifier("openAiRestTemplate") RestTemplate restTemplate,
+                                ObjectMapper objectMapper,
+                                LlmRateLimiter rateLimiter,
+                                MeterRegistry meterRegistry) {
+        this.restTemplate = restTemplate;
+        this.objectMapper = objectMapper;
+        this.rateLimiter = rateLimiter;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public String complete(LlmCallType type, String model, String prompt) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(openAIApiKey);
+
+        Map<String, Object> message = Map.of(ROLE, USER, CONTENT, prompt);
+        Map<String, Object> requestBody = Map.of(
+                MODEL, model,
+                MESSAGES, List.of(message),
+                TEMPERATURE, 0.2
+        );
+        HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
+        ResponseEntity<String> response = callWithRetry(type, model, prompt, () -> {
+            ResponseEntity<String> entity = restTemplate.postForEntity(
+                    chatCompletionsUrl(),
+                    request,
+                    String.class
+            );
+            rateLimiter.onResponse(entity.getHeaders());
+            return entity;
+        });
+        try {
+            return extractContentFromResponse(type, model, response.getBody());
+        } catch (LlmCallException e) {
+            countFailure(type, model, "invalid");
+            throw e;
+        }
+    }
+
+    // Hands each content delta to the consumer as soon as it is read from the response body.
+    // Nothing is accumulated here. A body that ends before [DONE] or a finish_reason is an LlmCallException,
+    // so a completion cut off by a dropped connection is never mistaken for a whole one.
+    public void stream(LlmCallType type, String model, String prompt, Consumer<String> onDelta) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setAccept(List.of(MediaType.TEXT_EVENT_STREAM));
+        headers.setBearerAuth(openAIApiKey);
+
+        Map<String, Object> message = Map.of(ROLE, USER, CONTENT, prompt);
+        Map<String, Object> requestBody = Map.of(
+                MODEL, model,
+                MESSAGES, List.of(message),
+                TEMPERATURE, 0.2,
+                STREAM, true,
+                STREAM_OPTIONS, Map.of(INCLUDE_USAGE, true)
+        );
+        HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
+        // Error statuses are raised before the body is read, so a retry never repeats a delta
+        callWithRetry(type, model, prompt, () -> {
+            long start = System.nanoTime();
+            return restTemplate.execute(
+                    chatCompletionsUrl(),
+                    HttpMethod.POST,
+                    restTemplate.httpEntityCallback(request),
+                    response -> {
+                        rateLimiter.onResponse(response.getHeaders());
+                        readEventStream(type, model, start, response.getBody(), onDelta);
+                        return null;
+                    }
+            );
+        });
+    }
+
+    private String chatCompletionsUrl() {
+        return baseUrl.endsWith("/")
+                ? baseUrl.substring(0, baseUrl.length() - 1) + CHAT_COMPLETIONS_PATH
+                : baseUrl + CHAT_COMPLETIONS_PATH;
+    }
+
+    // Queues the call in the rate limiter and retries 429 and 5xx responses with jittered exponential
+    // backoff, waiting at least as long as the API asks to via retry-after-ms / Retry-After.
+    private <T> T callWithRetry(LlmCallType type, String model, String prompt, Supplier<T> call) {
+        for (int attempt = 1; ; attempt++) {
+            // Queueing for a permit is not the call taking long: a caller's deadline starts once it is sent
+            CallScope.waiting(() -> rateLimiter.acquire(prompt));
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                T result = call.get();
+                sample.stop(latencyTimer(type, model, "success"));
+                return result;
+            } catch (HttpStatusCodeException e) {
+                sample.stop(latencyTimer(type, model, "failure"));
+                countFailure(type, model, Integer.toString(e.getStatusCode().value()));
+                rateLimiter.onResponse(e.getResponseHeaders());
+                boolean retryable = e.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value()
+                        || e.getStatusCode().is5xxServerError();
+                if (!retryable || attempt >= retryMaxAttempts) {
+                    throw e;
+                }
+                long delayMs = retryDelayMillis(attempt, e.getResponseHeaders());
+                logger.warn("LLM backend returned {}; retrying in {} ms (attempt {} of {})",
+                        e.getStatusCode().value(), delayMs, attempt + 1, retryMaxAttempts);
+                CallScope.waiting(() -> sleep(delayMs));
+            } catch (RuntimeException e) {
+                sample.stop(latencyTimer(type, model, "failure"));
+                countFailure(type, model, e instanceof ResourceAccessException ? "io"
+                        : e instanceof LlmCallException ? "truncated" : "other");
+                throw e;
+            }
+        }
+    }
+
+    private Timer latencyTimer(LlmCallType type, String model, String outcome) {
+        return Timer.builder("llm.call.latency")
+                .description("Duration of one LLM call attempt, from request to the end of the completion")
+                .tags("type", type.tag(), "model", model, "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private void countFailure(LlmCallType type, String model, String status) {
+        meterRegistry.counter("llm.call.failures", "type", type.tag(), "model", model, "status", status).increment();
+    }
+
+    private void recordTimeToFirstToken(LlmCallType type, String model, long nanos) {
+        Timer.builder("llm.call.ttft")
+                .description("Time until the first content delta of a streamed LLM call")
+                .tags("type", type.tag(), "model", model)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void recordUsage(LlmCallType type, String model, JsonNode usage) {
+        if (usage == null || !usage.isObject()) {
+            return;
+        }
+        recordTokens(type, model, "prompt", usage.path(PROMPT_TOKENS));
+        recordTokens(type, model, "completion", usage.path(COMPLETION_TOKENS));
+    }
+
+    private void recordTokens(LlmCallType type, String model, String kind, JsonNode count) {
+        if (count == null || !count.canConvertToLong()) {
+            return;
+        }
+        DistributionSummary.builder("llm.call.tokens")
+                .description("Tokens per LLM call as reported in the usage field")
+                .baseUnit("tokens")
+                .tags("type", type.tag(), "model", model, "kind", kind)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(count.asLong());
+    }
+
+    long retryDelayMillis(int attempt, HttpHeaders headers) {
+        long cap = Math.min(retryMaxBackoff.toMillis(), retryInitialBackoff.toMillis() << Math.min(attempt - 1, 20));
+        // Full jitter keeps retries from many concurrent chunks from arriving in lockstep
+        long delay = ThreadLocalRandom.current().nextLong(cap + 1);
+        return Math.max(delay, retryAfterMillis(headers));
+    }
+
+    private static long retryAfterMillis(HttpHeaders headers) {
+        if (headers == null) {
+            return 0;
+        }
+        String retryAfterMs = headers.getFirst(RETRY_AFTER_MS);
+        if (retryAfterMs != null) {
+            try {
+                return (long) Double.parseDouble(retryAfterMs.trim());
+            } catch (NumberFormatException ignored) {
+                // fall through to Retry-After
+            }
+        }
+        String retryAfter = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return 0;
+        }
+        try {
+            return (long) (Double.parseDouble(retryAfter.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            try {
+                Instant at = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+                return Math.max(0, Duration.between(Instant.now(), at).toMillis());
+            } catch (DateTimeParseException ignored) {
+                return 0;
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry the LLM call", e);
+        }
+    }
+
+    private void readEventStream(LlmCallType type, String model, long start, InputStream body,
+                                 Consumer<String> onDelta) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        boolean firstDelta = true;
+        boolean finished = false;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.startsWith(SSE_DATA_PREFIX)) {
+                continue;
+            }
+            String data = line.substring(SSE_DATA_PREFIX.length()).trim();
+            if (SSE_DONE.equals(data)) {
+                return;
+            }
+            JsonNode event = objectMapper.readTree(data);
+            JsonNode choices = event.path(CHOICES);
+            if (choices.isArray() && choices.size() > 0) {
+                String delta = choices.get(0).path(DELTA).path(CONTENT).asText("");
+                if (!delta.isEmpty()) {
+                    if (firstDelta) {
+                        recordTimeToFirstToken(type, model, System.nanoTime() - start);
+                        firstDelta = false;
+                    }
+                    onDelta.accept(delta);
+                }
+                finished |= choices.get(0).hasNonNull(FINISH_REASON);
+            }
+            // With include_usage the last event before [DONE] carries the usage and no choices
+            recordUsage(type, model, event.get(USAGE));
+        }
+        if (!finished) {
+            throw new LlmCallException("Completion stream from " + model + " ended before the completion did");
+        }
+    }
+
+    private String extractContentFromResponse(LlmCallType type, String model, String responseBody) {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(responseBody == null ? "" : responseBody);
+        } catch (IOException e) {
+            throw new LlmCallException("Chat completion response from " + model + " is not valid JSON", e);
+        }
+        if (root == null) {
+            throw new LlmCallException("Empty chat completion response from " + model);
+        }
+        recordUsage(type, model, root.get(USAGE));
+        JsonNode choices = root.path(CHOICES);
+        if (choices.isArray() && choices.size() > 0) {
+            JsonNode content = choices.get(0).path(MESSAGE).path(CONTENT);
+            if (!content.isMissingNode() && !content.isNull()) {
+                return content.asText();
+            }
+        }
+        throw new LlmCallException("Chat completion response from " + model + " has no message content");
+    }
+}
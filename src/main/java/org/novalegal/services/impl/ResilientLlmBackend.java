@@ -0,0 +1,264 @@
+package org.novalegal.services.impl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.novalegal.services.LlmBackend;
+import org.novalegal.services.LlmCallException;
+import org.novalegal.services.LlmCallType;
+import org.novalegal.services.LlmUnavailableException;
+import org.novalegal.util.CallScope;
+import org.novalegal.util.CircuitBreaker;
+import org.novalegal.util.LatencyWindow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Wraps the HTTP backend so that one slow or failing completion cannot stall or sink a whole document.
+ * <p>
+ * Every {@link #complete} call runs on the call executor under a deadline ({@code llm.resilience.call-timeout}),
+ * counted from when the request is sent rather than from when it started queueing for a rate-limit permit. A request
+ * that is given up on, or that lost to its hedge, is aborted. When hedging is enabled and the call has not answered within the recent p95 latency of its call type, an
+ * identical request is started and whichever answers first wins. Timeouts, connection errors and invalid responses
+ * are retried up to {@code llm.resilience.max-attempts} times for that one call only; 429 and 5xx responses have
+ * already been retried by the HTTP backend. After {@code llm.resilience.circuit.failure-threshold} consecutive
+ * backend failures the circuit opens and calls fail fast with {@link LlmUnavailableException} until a trial call
+ * succeeds.
+ */
+@Service
+@Primary
+public class ResilientLlmBackend implements LlmBackend {
+    private static final Logger logger = LoggerFactory.getLogger(ResilientLlmBackend.class);
+    private static final int LATENCY_WINDOW_SIZE = 200;
+
+    private final LlmBackend delegate;
+    private final Executor callExecutor;
+    private final MeterRegistry meterRegistry;
+    private final CircuitBreaker circuitBreaker;
+    private final Map<LlmCallType, LatencyWindow> latencies = new EnumMap<>(LlmCallType.class);
+
+    @Value("${llm.resilience.call-timeout:120s}")
+    private Duration callTimeout = Duration.ofSeconds(120);
+    @Value("${llm.resilience.max-attempts:2}")
+    private int maxAttempts = 2;
+    @Value("${llm.resilience.hedge.enabled:false}")
+    private boolean hedgeEnabled = false;
+    @Value("${llm.resilience.hedge.percentile:0.95}")
+    private double hedgePercentile = 0.95;
+    @Value("${llm.resilience.hedge.min-delay:2s}")
+    private Duration hedgeMinDelay = Duration.ofSeconds(2);
+    @Value("${llm.resilience.hedge.min-samples:20}")
+    private int hedgeMinSamples = 20;
+
+    @Autowired
+    public ResilientLlmBackend(OpenAiHttpLlmBackend delegate,
+                               @Qualifier("llmCallExecutor") Executor callExecutor,
+                               MeterRegistry meterRegistry,
+                               @Value("${llm.resilience.circuit.failure-threshold:5}") int failureThreshold,
+                               @Value("${llm.resilience.circuit.open-duration:30s}") Duration openDuration) {
+        this(delegate, callExecutor, meterRegistry, new CircuitBreaker(failureThreshold, openDuration));
+    }
+
+    ResilientLlmBackend(LlmBackend delegate, Executor callExecutor, MeterRegistry meterRegistry, CircuitBreaker circuitBreaker) {
+        this.delegate = delegate;
+        this.callExecutor = callExecutor;
+        this.meterRegistry = meterRegistry;
+        this.circuitBreaker = circuitBreaker;
+        for (LlmCallType type : LlmCallType.values()) {
+            latencies.put(type, new LatencyWindow(LATENCY_WINDOW_SIZE));
+        }
+        Gauge.builder("llm.circuit.state", circuitBreaker, breaker -> breaker.state().ordinal())
+                .description("LLM backend circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .register(meterRegistry);
+    }
+
+    public String complete(LlmCallType type, String model, String prompt) {
+        for (int attempt = 1; ; attempt++) {
+            acquireCircuit(type);
+            try {
+                String completion = hedgedCall(type, model, prompt);
+                circuitBreaker.onSuccess();
+                return completion;
+            } catch (RejectedExecutionException e) {
+                // Never sent, so neither a success nor a failure of the backend
+                circuitBreaker.release();
+                throw e;
+            } catch (RuntimeException e) {
+                boolean backendFailure = isBackendFailure(e);
+                if (backendFailure) {
+                    circuitBreaker.onFailure();
+                } else {
+                    // The backend answered, it just did not like this request
+                    circuitBreaker.onSuccess();
+                }
+                if (!backendFailure || e instanceof HttpStatusCodeException || attempt >= maxAttempts) {
+                    throw e;
+                }
+                meterRegistry.counter("llm.call.retries", "type", type.tag(), "model", model).increment();
+                logger.warn("LLM {} call failed ({}); retrying (attempt {} of {})",
+                        type.tag(), e.getMessage(), attempt + 1, maxAttempts);
+            }
+        }
+    }
+
+    // Streamed deltas cannot be taken back, so a stream is neither hedged nor retried here
+    public void stream(LlmCallType type, String model, String prompt, Consumer<String> onDelta) {
+        acquireCircuit(type);
+        try {
+            delegate.stream(type, model, prompt, onDelta);
+            circuitBreaker.onSuccess();
+        } catch (RuntimeException e) {
+            if (isBackendFailure(e)) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+            throw e;
+        }
+    }
+
+    private void acquireCircuit(LlmCallType type) {
+        if (!circuitBreaker.tryAcquire()) {
+            meterRegistry.counter("llm.circuit.rejections", "type", type.tag()).increment();
+            throw new LlmUnavailableException("LLM backend is unavailable; not calling it for a while after repeated failures");
+        }
+    }
+
+    // Requests still running when this returns or gives up are aborted rather than left to the HTTP client's
+    // total timeout, so a retry never adds to traffic that is already failing to get through
+    private String hedgedCall(LlmCallType type, String model, String prompt) {
+        CallScope primary = new CallScope();
+        CallScope hedge = null;
+        CompletableFuture<String> answer = start(primary, type, model, prompt);
+        try {
+            long hedgeDelay = hedgeDelayNanos(type);
+            if (hedgeDelay >= 0 && hedgeDelay < callTimeout.toNanos()) {
+                try {
+                    return recordLatency(type, primary, await(answer, primary, hedgeDelay));
+                } catch (TimeoutException e) {
+                    try {
+                        hedge = new CallScope();
+                        answer = firstSuccessful(type, model, answer, start(hedge, type, model, prompt));
+                        meterRegistry.counter("llm.call.hedges", "type", type.tag(), "model", model, "result", "started").increment();
+                    } catch (RejectedExecutionException rejected) {
+                        // No thread for a hedge; keep waiting for the primary
+                    }
+                }
+            }
+            return recordLatency(type, primary, await(answer, primary, callTimeout.toNanos()));
+        } catch (TimeoutException e) {
+            meterRegistry.counter("llm.call.timeouts", "type", type.tag(), "model", model).increment();
+            throw new LlmCallException("LLM " + type.tag() + " call did not finish within " + callTimeout.toSeconds() + "s");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LlmCallException("Interrupted while waiting for the LLM", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } finally {
+            primary.abort();
+            if (hedge != null) {
+                hedge.abort();
+            }
+        }
+    }
+
+    private CompletableFuture<String> start(CallScope scope, LlmCallType type, String model, String prompt) {
+        return CompletableFuture.supplyAsync(() -> scope.call(() -> delegate.complete(type, model, prompt)), callExecutor);
+    }
+
+    // Waits until the answer arrives or the call has been working for budgetNanos; time it spends queueing for a
+    // rate-limit permit or backing off before a retry does not count
+    private static String await(CompletableFuture<String> answer, CallScope call, long budgetNanos)
+            throws TimeoutException, InterruptedException, ExecutionException {
+        while (true) {
+            try {
+                return answer.get(Math.max(0, budgetNanos - call.workingNanos()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (call.workingNanos() >= budgetNanos) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Completes with the first successful answer, or with the primary's failure once both have failed
+    private CompletableFuture<String> firstSuccessful(LlmCallType type, String model,
+                                                     CompletableFuture<String> primary, CompletableFuture<String> hedge) {
+        CompletableFuture<String> first = new CompletableFuture<>();
+        AtomicBoolean otherFailed = new AtomicBoolean();
+        primary.whenComplete((completion, error) -> {
+            if (error == null) {
+                first.complete(completion);
+            } else if (otherFailed.getAndSet(true)) {
+                first.completeExceptionally(error);
+            }
+        });
+        hedge.whenComplete((completion, error) -> {
+            if (error == null) {
+                if (first.complete(completion)) {
+                    meterRegistry.counter("llm.call.hedges", "type", type.tag(), "model", model, "result", "won").increment();
+                }
+            } else if (otherFailed.getAndSet(true)) {
+                primary.whenComplete((ignored, primaryError) -> first.completeExceptionally(primaryError != null ? primaryError : error));
+            }
+        });
+        return first;
+    }
+
+    // -1 while hedging is off or there are too few samples to know what slow means
+    private long hedgeDelayNanos(LlmCallType type) {
+        LatencyWindow window = latencies.get(type);
+        if (!hedgeEnabled || window.size() < hedgeMinSamples) {
+            return -1;
+        }
+        return Math.max(hedgeMinDelay.toNanos(), window.percentile(hedgePercentile));
+    }
+
+    private String recordLatency(LlmCallType type, CallScope call, String completion) {
+        latencies.get(type).record(call.workingNanos());
+        return completion;
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                ? e.getCause().getCause()
+                : e.getCause();
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new LlmCallException("LLM call failed", cause);
+    }
+
+    // Whether the failure says something about the backend's health rather than about this request
+    private static boolean isBackendFailure(RuntimeException e) {
+        if (e instanceof LlmUnavailableException) {
+            return false;
+        }
+        if (e instanceof HttpStatusCodeException status) {
+            return status.getStatusCode().is5xxServerError();
+        }
+        return e instanceof LlmCallException || e instanceof ResourceAccessException;
+    }
+}
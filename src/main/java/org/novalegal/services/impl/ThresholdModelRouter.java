@@ -0,0 +1,105 @@
+package org.novalegal.services.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.novalegal.services.LlmCallType;
+import org.novalegal.services.ModelRouter;
+import org.novalegal.util.TokenEstimator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+@Service
+public class ThresholdModelRouter implements ModelRouter {
+    // Timestamped transcript lines are token-dense; three characters per token keeps the estimate on the safe side
+    private static final int TRANSCRIPT_CHARS_PER_TOKEN = 3;
+
+    private final boolean enabled;
+    private final String defaultModel;
+    private final String singlePassModel;
+    private final String chunkModel;
+    private final String mergeModel;
+    private final int singlePassMaxTokens;
+    private final int meetingSinglePassMaxChars;
+    private final int meetingChunkMaxChars;
+    private final DistributionSummary estimatedTokens;
+    private final Counter singlePassDocuments;
+    private final Counter chunkedDocuments;
+
+    public ThresholdModelRouter(@Value("${llm.routing.enabled:true}") boolean enabled,
+                                @Value("${openai.model:gpt-3.5-turbo-16k}") String defaultModel,
+                                @Value("${llm.routing.single-pass-model:gpt-4o-mini}") String singlePassModel,
+                                @Value("${llm.routing.chunk-model:gpt-4o-mini}") String chunkModel,
+                                @Value("${llm.routing.merge-model:gpt-4o}") String mergeModel,
+                                @Value("${llm.routing.single-pass-max-tokens:100000}") int singlePassMaxTokens,
+                                @Value("${openai.meeting.single-chunk-max-chars:13000}") int meetingSingleChunkMaxChars,
+                                @Value("${openai.meeting.chunk-max-chars:12000}") int meetingChunkMaxChars,
+                                MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.defaultModel = defaultModel;
+        this.singlePassModel = singlePassModel;
+        this.chunkModel = chunkModel;
+        this.mergeModel = mergeModel;
+        this.singlePassMaxTokens = singlePassMaxTokens;
+        this.meetingChunkMaxChars = meetingChunkMaxChars;
+        this.meetingSinglePassMaxChars = enabled
+                ? Math.max(meetingSingleChunkMaxChars, singlePassMaxTokens * TRANSCRIPT_CHARS_PER_TOKEN)
+                : meetingSingleChunkMaxChars;
+
+        this.estimatedTokens = DistributionSummary.builder("llm.routing.estimated.tokens")
+                .description("Estimated input tokens of each routed document")
+                .baseUnit("tokens")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.singlePassDocuments = meterRegistry.counter("llm.routing.decisions", "route", "single-pass");
+        this.chunkedDocuments = meterRegistry.counter("llm.routing.decisions", "route", "chunked");
+        // The active thresholds, so dashboards can line them up with the latency and token histograms
+        Gauge.builder("llm.routing.single-pass.max.tokens", () -> enabled ? singlePassMaxTokens : 0)
+                .register(meterRegistry);
+        Gauge.builder("llm.routing.meeting.single-pass.max.chars", () -> meetingSinglePassMaxChars)
+                .register(meterRegistry);
+        Gauge.builder("llm.routing.meeting.chunk.max.chars", () -> meetingChunkMaxChars)
+                .register(meterRegistry);
+    }
+
+    public boolean fitsSinglePass(CharSequence document) {
+        if (!enabled) {
+            return false;
+        }
+        int tokens = TokenEstimator.estimate(document);
+        estimatedTokens.record(tokens);
+        boolean singlePass = tokens <= singlePassMaxTokens;
+        (singlePass ? singlePassDocuments : chunkedDocuments).increment();
+        return singlePass;
+    }
+
+    public String modelFor(LlmCallType type) {
+        if (!enabled) {
+            return defaultModel;
+        }
+        return switch (type) {
+            case DOCUMENT_SINGLE, MEETING_SINGLE -> singlePassModel;
+            case DOCUMENT_CHUNK, DOCUMENT_CLAUSES, MEETING_CHUNK -> chunkModel;
+            case DOCUMENT_MERGE, MEETING_FINAL -> mergeModel;
+        };
+    }
+
+    public int meetingSinglePassMaxChars() {
+        return meetingSinglePassMaxChars;
+    }
+
+    public int meetingChunkMaxChars() {
+        return meetingChunkMaxChars;
+    }
+
+    public boolean isSinglePassMeetingEnabled() {
+        return enabled;
+    }
+
+    public String signature() {
+        return enabled
+                ? "routed:" + singlePassModel + "/" + chunkModel + "/" + mergeModel + "/" + singlePassMaxTokens
+                : "fixed:" + defaultModel;
+    }
+}
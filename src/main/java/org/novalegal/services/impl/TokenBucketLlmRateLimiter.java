@@ -0,0 +1,205 @@
+package org.novalegal.services.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.novalegal.services.LlmRateLimiter;
+import org.novalegal.util.TokenEstimator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Service
+public class TokenBucketLlmRateLimiter implements LlmRateLimiter {
+    private static final String LIMIT_REQUESTS = "x-ratelimit-limit-requests";
+    private static final String LIMIT_TOKENS = "x-ratelimit-limit-tokens";
+    private static final String REMAINING_REQUESTS = "x-ratelimit-remaining-requests";
+    private static final String REMAINING_TOKENS = "x-ratelimit-remaining-tokens";
+    private static final String RESET_REQUESTS = "x-ratelimit-reset-requests";
+    private static final String RESET_TOKENS = "x-ratelimit-reset-tokens";
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+    private static final long NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private final Bucket requests;
+    private final Bucket tokens;
+    private final int completionReserveTokens;
+    private final LongSupplier clock;
+    // Fair, so callers are served roughly in arrival order
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition refilled = lock.newCondition();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Timer waitTimer;
+
+    @Autowired
+    public TokenBucketLlmRateLimiter(@Value("${openai.ratelimit.requests-per-minute:3500}") long requestsPerMinute,
+                                     @Value("${openai.ratelimit.tokens-per-minute:90000}") long tokensPerMinute,
+                                     @Value("${openai.ratelimit.completion-reserve-tokens:1000}") int completionReserveTokens,
+                                     MeterRegistry meterRegistry) {
+        this(requestsPerMinute, tokensPerMinute, completionReserveTokens, meterRegistry, System::nanoTime);
+    }
+
+    TokenBucketLlmRateLimiter(long requestsPerMinute,
+                              long tokensPerMinute,
+                              int completionReserveTokens,
+                              MeterRegistry meterRegistry,
+                              LongSupplier clock) {
+        this.clock = clock;
+        long now = clock.getAsLong();
+        this.requests = new Bucket(requestsPerMinute, now);
+        this.tokens = new Bucket(tokensPerMinute, now);
+        this.completionReserveTokens = completionReserveTokens;
+        this.waitTimer = Timer.builder("llm.ratelimit.wait")
+                .description("Time OpenAI calls spent queued in the rate limiter")
+                .register(meterRegistry);
+        meterRegistry.gauge("llm.ratelimit.waiting", waiting);
+    }
+
+    public void acquire(String prompt) {
+        long cost = TokenEstimator.estimate(prompt) + completionReserveTokens;
+        long start = clock.getAsLong();
+        waiting.incrementAndGet();
+        lock.lock();
+        try {
+            while (true) {
+                long now = clock.getAsLong();
+                requests.refill(now);
+                tokens.refill(now);
+                // A single call larger than the whole bucket may go once the bucket is full
+                long tokenCost = Math.min(cost, tokens.capacity);
+                long waitNanos = Math.max(requests.nanosUntil(1, now), tokens.nanosUntil(tokenCost, now));
+                if (waitNanos <= 0) {
+                    requests.take(1);
+                    tokens.take(tokenCost);
+                    return;
+                }
+                refilled.awaitNanos(waitNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the OpenAI rate limit", e);
+        } finally {
+            lock.unlock();
+            waiting.decrementAndGet();
+            waitTimer.record(clock.getAsLong() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void onResponse(HttpHeaders headers) {
+        if (headers == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            long now = clock.getAsLong();
+            requests.adjust(parseLong(headers.getFirst(LIMIT_REQUESTS)), parseLong(headers.getFirst(REMAINING_REQUESTS)),
+                    parseDurationNanos(headers.getFirst(RESET_REQUESTS)), now);
+            tokens.adjust(parseLong(headers.getFirst(LIMIT_TOKENS)), parseLong(headers.getFirst(REMAINING_TOKENS)),
+                    parseDurationNanos(headers.getFirst(RESET_TOKENS)), now);
+            refilled.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long availableTokens() {
+        lock.lock();
+        try {
+            tokens.refill(clock.getAsLong());
+            return (long) tokens.available;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Parses OpenAI's reset durations such as {@code 20ms}, {@code 1s}, {@code 6m0s} or {@code 1h2m3.5s}.
+     */
+    static long parseDurationNanos(String value) {
+        if (value == null || value.isBlank()) {
+            return -1;
+        }
+        Matcher matcher = DURATION_PART.matcher(value.trim());
+        double nanos = 0;
+        boolean matched = false;
+        while (matcher.find()) {
+            matched = true;
+            double amount = Double.parseDouble(matcher.group(1));
+            nanos += switch (matcher.group(2)) {
+                case "h" -> amount * TimeUnit.HOURS.toNanos(1);
+                case "m" -> amount * TimeUnit.MINUTES.toNanos(1);
+                case "s" -> amount * TimeUnit.SECONDS.toNanos(1);
+                default -> amount * TimeUnit.MILLISECONDS.toNanos(1);
+            };
+        }
+        return matched ? (long) nanos : -1;
+    }
+
+    private static long parseLong(String value) {
+        if (value == null || value.isBlank()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Continuously refilling bucket; guarded by the limiter lock
+    private static final class Bucket {
+        private long capacity;
+        private double available;
+        private long lastRefill;
+
+        Bucket(long capacity, long now) {
+            this.capacity = capacity;
+            this.available = capacity;
+            this.lastRefill = now;
+        }
+
+        void refill(long now) {
+            long elapsed = now - lastRefill;
+            if (elapsed > 0) {
+                available = Math.min(capacity, available + (double) elapsed * capacity / NANOS_PER_MINUTE);
+                lastRefill = now;
+            }
+        }
+
+        long nanosUntil(long amount, long now) {
+            if (available >= amount) {
+                return 0;
+            }
+            // A reset received from the API may have pushed lastRefill into the future
+            long blocked = Math.max(0, lastRefill - now);
+            return blocked + (long) Math.ceil((amount - available) * NANOS_PER_MINUTE / capacity);
+        }
+
+        void take(long amount) {
+            available -= amount;
+        }
+
+        // The server sees every node's traffic; never believe we have more than it says is left
+        void adjust(long limit, long remaining, long resetNanos, long now) {
+            if (limit > 0) {
+                capacity = limit;
+                available = Math.min(available, capacity);
+            }
+            if (remaining < 0 || remaining >= available) {
+                return;
+            }
+            available = remaining;
+            if (remaining == 0 && resetNanos > 0) {
+                // Nothing refills until the window resets
+                lastRefill = Math.max(lastRefill, now + resetNanos);
+            }
+        }
+    }
+}
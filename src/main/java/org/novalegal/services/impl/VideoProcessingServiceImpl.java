@@ -1,91 +1,268 @@
 package org.novalegal.services.impl;
 
-import com.google.cloud.WriteChannel;
-import com.google.cloud.storage.Blob;
-import com.google.cloud.storage.BlobInfo;
-import com.google.cloud.storage.Storage;
+import org.novalegal.models.AudioSegment;
+import org.novalegal.services.ObjectStore;
 import org.novalegal.services.VideoProcessingService;
-import org.novalegal.util.VideoUtils;
+import org.novalegal.util.AudioProfile;
+import org.novalegal.util.SilenceSegmenter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
-import java.nio.ByteBuffer;
-import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class VideoProcessingServiceImpl implements VideoProcessingService {
     private static final Logger logger = LoggerFactory.getLogger(MeetingTranscriptionServiceImpl.class);
-    private static final int BUFFER_SIZE = 8192;
+    private static final long MIN_AUDIO_BYTES = 10_000;
+    private static final Duration PIECE_URL_VALIDITY = Duration.ofMinutes(15);
 
-    private final Storage storage;
+    private final ObjectStore objectStore;
+    private final TaskExecutor audioExecutor;
+    private final TaskExecutor pipeExecutor;
 
-    @Value("${gcs.bucket.name}")
-    private String bucketName;
+    @Value("${meeting.audio.profile:OPUS_16K_MONO}")
+    private AudioProfile audioProfile = AudioProfile.OPUS_16K_MONO;
+    // 0 shares the cores between the meeting jobs that may run at once
+    @Value("${meeting.audio.ffmpeg-threads:0}")
+    private int ffmpegThreads = 0;
+    @Value("${meeting.jobs.max-concurrency:2}")
+    private int maxConcurrency = 2;
+    @Value("${meeting.segmentation.target-length:10m}")
+    private Duration segmentTargetLength = Duration.ofMinutes(10);
+    @Value("${meeting.segmentation.silence-noise:-35dB}")
+    private String silenceNoise = "-35dB";
+    @Value("${meeting.segmentation.silence-min-duration:500ms}")
+    private Duration silenceMinDuration = Duration.ofMillis(500);
 
-    public VideoProcessingServiceImpl(Storage storage) {
-        this.storage = storage;
+    public VideoProcessingServiceImpl(ObjectStore objectStore,
+                                      @Qualifier("audioExecutor") TaskExecutor audioExecutor,
+                                      @Qualifier("pipeExecutor") TaskExecutor pipeExecutor) {
+        this.objectStore = objectStore;
+        this.audioExecutor = audioExecutor;
+        this.pipeExecutor = pipeExecutor;
     }
 
     @Override
     public String extractAudioAndUploadToGCS(File inputFile, String inputFileName) throws Exception {
-        String outputFileName = "/tmp/output-" + UUID.randomUUID() + ".mp3";
+        Process process = null;
+        try {
+            // Run FFmpeg to extract the audio track only, written to stdout and straight into the object store
+            process = startFfmpeg(inputFileName);
+            process.getOutputStream().close();
+            String objectName = newAudioObjectName();
+            long bytes = upload(process, objectName);
+            return verify(process, objectName, bytes, null, inputFileName);
+
+        } catch (Exception e) {
+            logger.error(e.getMessage());
+            throw e;
+        } finally {
+            if (process != null) process.destroyForcibly();
+            if (inputFile.exists()) inputFile.delete();
+        }
+    }
 
+    @Override
+    public String extractAudioAndUploadToGCS(InputStream video, String inputFileName) throws Exception {
+        Process process = null;
         try {
-            // Run FFmpeg to convert to MP3
-            ProcessBuilder pb = new ProcessBuilder(
-                    "ffmpeg", "-i", inputFileName,
-                    "-f", "mp3", "-ab", "192k", "-y", outputFileName
-            );
-            pb.redirectErrorStream(true);
-            Process process = pb.start();
-
-            // Optional: log ffmpeg output
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    System.out.println("[FFmpeg] " + line);
+            process = startFfmpeg("pipe:0");
+            String objectName = newAudioObjectName();
+            // This thread feeds ffmpeg's stdin, so its stdout is uploaded on one of pipeExecutor's, which the
+            // CPU-bound piece transcodes on audioExecutor cannot hold up
+            Process ffmpeg = process;
+            CompletableFuture<Long> upload = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return upload(ffmpeg, objectName);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
                 }
-            }
+            }, pipeExecutor);
 
-            int exitCode = process.waitFor();
-            if (exitCode != 0) {
-                throw new RuntimeException("FFmpeg exited with code " + exitCode);
+            IOException pipeFailure = null;
+            try (OutputStream stdin = process.getOutputStream()) {
+                video.transferTo(stdin);
+            } catch (IOException e) {
+                // Either the upload broke off or ffmpeg stopped reading; the exit code tells which
+                pipeFailure = e;
             }
 
-            // Upload output file to GCS
-            String objectName = "audio-" + UUID.randomUUID() + ".mp3";
-            BlobInfo blobInfo = BlobInfo.newBuilder(bucketName, objectName).build();
-
-            try (
-                    FileInputStream outputStream = new FileInputStream(outputFileName);
-                    WriteChannel gcsWriter = storage.writer(blobInfo)
-            ) {
-                byte[] buffer = new byte[8192];
-                int len;
-                while ((len = outputStream.read(buffer)) != -1) {
-                    gcsWriter.write(ByteBuffer.wrap(buffer, 0, len));
-                }
+            long bytes;
+            try {
+                bytes = upload.join();
+            } catch (CompletionException e) {
+                throw unwrap(e);
             }
+            return verify(process, objectName, bytes, pipeFailure, inputFileName);
 
-            Blob blob = storage.get(blobInfo.getBlobId());
-            if (blob == null || blob.getSize() < 10_000) {
-                throw new IOException("Output audio is too small. Possibly failed.");
+        } catch (Exception e) {
+            logger.error(e.getMessage());
+            throw e;
+        } finally {
+            if (process != null) process.destroyForcibly();
+        }
+    }
+
+    @Override
+    public List<AudioSegment> splitAudioAtSilences(String gcsObjectName) throws Exception {
+        try {
+            String log = detectSilences(gcsObjectName);
+            double duration = SilenceSegmenter.parseDuration(log);
+            if (duration < 0) {
+                throw new IOException("FFmpeg reported no duration for " + gcsObjectName);
+            }
+            List<SilenceSegmenter.Piece> pieces = SilenceSegmenter.plan(
+                    SilenceSegmenter.parseSilences(log, duration), duration, seconds(segmentTargetLength));
+            if (pieces.size() == 1) {
+                return List.of(new AudioSegment(gcsObjectName, 0, duration));
             }
 
-            return objectName;
+            // One single-threaded ffmpeg per piece, as many at once as audioExecutor has threads
+            List<CompletableFuture<AudioSegment>> transcodes = new ArrayList<>();
+            for (SilenceSegmenter.Piece piece : pieces) {
+                transcodes.add(CompletableFuture.supplyAsync(() -> transcodePiece(gcsObjectName, piece), audioExecutor));
+            }
+            List<AudioSegment> segments = new ArrayList<>();
+            Exception failure = null;
+            for (CompletableFuture<AudioSegment> transcode : transcodes) {
+                try {
+                    segments.add(transcode.join());
+                } catch (CompletionException e) {
+                    failure = failure != null ? failure : unwrap(e);
+                }
+            }
+            if (failure != null) {
+                for (AudioSegment segment : segments) {
+                    objectStore.delete(segment.objectName());
+                }
+                throw failure;
+            }
+            logger.info("Split {} ({} s) into {} pieces", gcsObjectName, Math.round(duration), segments.size());
+            return segments;
 
         } catch (Exception e) {
             logger.error(e.getMessage());
             throw e;
+        }
+    }
+
+    // Each piece is read through a presigned URL, so ffmpeg seeks with range requests and downloads only its piece
+    private AudioSegment transcodePiece(String objectName, SilenceSegmenter.Piece piece) {
+        Process process = null;
+        try {
+            String input = objectStore.presignedUrl(objectName, PIECE_URL_VALIDITY).toString();
+            ProcessBuilder pb = new ProcessBuilder(
+                    audioProfile.ffmpegCommand(input, piece.start(), piece.end(), "pipe:1", 1));
+            pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+            process = pb.start();
+            process.getOutputStream().close();
+            String pieceName = newAudioObjectName();
+            long bytes = upload(process, pieceName);
+            verify(process, pieceName, bytes, null, objectName);
+            return new AudioSegment(pieceName, piece.start(), piece.end());
+        } catch (Exception e) {
+            throw new CompletionException(e);
         } finally {
-            if (inputFile.exists()) inputFile.delete();
-            File outputFile = new File(outputFileName);
-            if (outputFile.exists()) outputFile.delete();
+            if (process != null) process.destroyForcibly();
+        }
+    }
+
+    // Streams the object into ffmpeg's stdin on pipeExecutor while this thread collects the log, so the audio
+    // never lands on disk
+    private String detectSilences(String objectName) throws Exception {
+        Process process = new ProcessBuilder(SilenceSegmenter.detectCommand("pipe:0", silenceNoise, seconds(silenceMinDuration)))
+                .redirectErrorStream(true)
+                .start();
+        try {
+            CompletableFuture<Void> feed = CompletableFuture.runAsync(() -> {
+                // stdin first, so it is closed even when the object cannot be opened and ffmpeg does not wait forever
+                try (OutputStream stdin = process.getOutputStream(); InputStream audio = objectStore.get(objectName)) {
+                    audio.transferTo(stdin);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, pipeExecutor);
+            String log = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new RuntimeException("FFmpeg exited with code " + exitCode + ": " + log.substring(Math.max(0, log.length() - 500)));
+            }
+            try {
+                // A download that broke off leaves ffmpeg a shorter recording, which it decodes without complaint
+                feed.join();
+            } catch (CompletionException e) {
+                throw unwrap(e);
+            }
+            return log;
+        } finally {
+            process.destroyForcibly();
+        }
+    }
+
+    private static double seconds(Duration duration) {
+        return duration.toMillis() / 1000.0;
+    }
+
+    private static Exception unwrap(CompletionException e) {
+        return e.getCause() instanceof Exception cause ? cause : e;
+    }
+
+    private int threads() {
+        return ffmpegThreads > 0 ? ffmpegThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / maxConcurrency);
+    }
+
+    private Process startFfmpeg(String input) throws IOException {
+        ProcessBuilder pb = new ProcessBuilder(audioProfile.ffmpegCommand(input, "pipe:1", threads()));
+        // stdout carries the audio; ffmpeg's log goes straight to ours, so nothing has to drain it
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        return pb.start();
+    }
+
+    private String newAudioObjectName() {
+        return "audio-" + UUID.randomUUID() + "." + audioProfile.getExtension();
+    }
+
+    // Streams ffmpeg's stdout into the object while ffmpeg is still encoding; returns the bytes written
+    private long upload(Process process, String objectName) throws IOException {
+        try {
+            return objectStore.put(objectName, process.getInputStream(), audioProfile.getContentType());
+        } catch (IOException | RuntimeException e) {
+            // Otherwise ffmpeg blocks on a full stdout pipe forever
+            process.destroyForcibly();
+            throw e;
+        }
+    }
+
+    // Waits for ffmpeg and checks what reached the object store; a failed extraction leaves no object behind
+    private String verify(Process process, String objectName, long bytes, IOException pipeFailure,
+                          String inputFileName) throws Exception {
+        int exitCode = process.waitFor();
+        try {
+            if (exitCode != 0) {
+                throw new RuntimeException("FFmpeg exited with code " + exitCode + " reading " + inputFileName);
+            }
+            if (pipeFailure != null) {
+                throw pipeFailure;
+            }
+            if (bytes < MIN_AUDIO_BYTES) {
+                throw new IOException("Output audio is too small. Possibly failed.");
+            }
+            return objectName;
+        } catch (Exception e) {
+            objectStore.delete(objectName);
+            throw e;
         }
     }
 }
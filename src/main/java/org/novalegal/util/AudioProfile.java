@@ -0,0 +1,66 @@
+package org.novalegal.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Audio formats a meeting recording can be extracted to before it is sent for transcription.
+ * <p>
+ * Whisper resamples everything to 16 kHz mono, so the 16 kHz profiles give it exactly what it uses: Opus at 24 kbps
+ * is about an eighth of the legacy 192 kbps MP3, FLAC is lossless at roughly twice the size of Opus. Every profile
+ * maps only the first audio stream and drops video, subtitles and data, so ffmpeg never decodes the video track.
+ */
+public enum AudioProfile {
+    MP3_192K("mp3", "mp3", "audio/mpeg", "-c:a", "libmp3lame", "-b:a", "192k"),
+    OPUS_16K_MONO("ogg", "ogg", "audio/ogg", "-ac", "1", "-ar", "16000", "-c:a", "libopus", "-b:a", "24k", "-application", "voip"),
+    FLAC_16K_MONO("flac", "flac", "audio/flac", "-ac", "1", "-ar", "16000", "-c:a", "flac", "-sample_fmt", "s16");
+
+    private final String format;
+    private final String extension;
+    private final String contentType;
+    private final List<String> codecArguments;
+
+    AudioProfile(String format, String extension, String contentType, String... codecArguments) {
+        this.format = format;
+        this.extension = extension;
+        this.contentType = contentType;
+        this.codecArguments = List.of(codecArguments);
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Builds the ffmpeg command that extracts the audio of {@code input} (a path, or {@code pipe:0} for stdin) into
+     * {@code output}, encoding on at most {@code threads} threads.
+     */
+    public List<String> ffmpegCommand(String input, String output, int threads) {
+        return ffmpegCommand(List.of("-i", input), output, threads);
+    }
+
+    /**
+     * Like {@link #ffmpegCommand(String, String, int)}, for the part of {@code input} from {@code startSeconds} to
+     * {@code endSeconds} only. The output's timeline starts at zero.
+     */
+    public List<String> ffmpegCommand(String input, double startSeconds, double endSeconds, String output, int threads) {
+        return ffmpegCommand(List.of(
+                "-ss", String.format(Locale.ROOT, "%.3f", startSeconds),
+                "-t", String.format(Locale.ROOT, "%.3f", endSeconds - startSeconds),
+                "-i", input), output, threads);
+    }
+
+    private List<String> ffmpegCommand(List<String> inputArguments, String output, int threads) {
+        List<String> command = new ArrayList<>(List.of("ffmpeg", "-hide_banner"));
+        command.addAll(inputArguments);
+        command.addAll(List.of("-map", "0:a:0", "-vn", "-sn", "-dn", "-threads", Integer.toString(threads)));
+        command.addAll(codecArguments);
+        command.addAll(List.of("-f", format, "-y", output));
+        return command;
+    }
+}
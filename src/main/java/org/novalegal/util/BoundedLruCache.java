@@ -0,0 +1,56 @@
+package org.novalegal.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-process least-recently-used cache of strings bounded by the approximate heap size of its values
+ * rather than by entry count, so a few very large documents cannot crowd out the heap.
+ */
+public class BoundedLruCache {
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, String> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes;
+
+    public BoundedLruCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized String get(String key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(String key, String value) {
+        long size = sizeOf(key, value);
+        if (size > maxBytes) {
+            return;
+        }
+        String previous = entries.put(key, value);
+        if (previous != null) {
+            currentBytes -= sizeOf(key, previous);
+        }
+        currentBytes += size;
+
+        Iterator<Map.Entry<String, String>> eldest = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, String> entry = eldest.next();
+            currentBytes -= sizeOf(entry.getKey(), entry.getValue());
+            eldest.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long sizeInBytes() {
+        return currentBytes;
+    }
+
+    // Two bytes per char is the worst case for compact strings
+    private static long sizeOf(String key, String value) {
+        return 2L * (key.length() + value.length());
+    }
+}
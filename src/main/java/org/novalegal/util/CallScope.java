@@ -0,0 +1,178 @@
+package org.novalegal.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Lets whoever waits for a blocking call abort it, and tells them how long the call has actually been working.
+ * <p>
+ * The call runs through {@link #call}. Code deeper in its stack needs no reference to the scope: it registers how
+ * to abort what it is doing with {@link #onAbort} (e.g. cancelling an HTTP exchange), and wraps time spent queueing
+ * rather than working, such as waiting for a rate-limit permit or a retry backoff, in {@link #waiting}, so that a
+ * deadline on {@link #workingNanos} does not count it. {@link #abort} runs the registered actions and interrupts
+ * the calling thread. Outside a scope both static methods do nothing special.
+ */
+public class CallScope {
+
+    private static final ThreadLocal<CallScope> CURRENT = new ThreadLocal<>();
+
+    // Not synchronized: abort actions close sockets, which would pin a virtual thread's carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Runnable> abortActions = new ArrayList<>();
+    private Thread thread;
+    private boolean aborted;
+    private long startedAt = -1;
+    private long endedAt = -1;
+    private long waitingSince = -1;
+    private long waitedNanos;
+
+    /**
+     * Runs {@code call} on the current thread within this scope.
+     *
+     * @throws CancellationException if the scope was aborted before the call started
+     */
+    public <T> T call(Supplier<T> call) {
+        lock.lock();
+        try {
+            if (aborted) {
+                throw new CancellationException("Call aborted before it started");
+            }
+            thread = Thread.currentThread();
+            startedAt = System.nanoTime();
+        } finally {
+            lock.unlock();
+        }
+        CURRENT.set(this);
+        try {
+            return call.get();
+        } finally {
+            CURRENT.remove();
+            boolean wasAborted;
+            lock.lock();
+            try {
+                thread = null;
+                endedAt = System.nanoTime();
+                abortActions.clear();
+                wasAborted = aborted;
+            } finally {
+                lock.unlock();
+            }
+            // An abort that raced the end of the call must not interrupt whatever this thread runs next
+            if (wasAborted) {
+                Thread.interrupted();
+            }
+        }
+    }
+
+    /**
+     * Aborts the call if it is still running, or makes it fail at once if it has not started yet.
+     */
+    public void abort() {
+        List<Runnable> actions;
+        lock.lock();
+        try {
+            if (aborted) {
+                return;
+            }
+            aborted = true;
+            if (thread != null) {
+                thread.interrupt();
+            }
+            actions = new ArrayList<>(abortActions);
+            abortActions.clear();
+        } finally {
+            lock.unlock();
+        }
+        actions.forEach(Runnable::run);
+    }
+
+    /**
+     * Returns how long the call has run so far, or ran, not counting the time it spent {@link #waiting}.
+     */
+    public long workingNanos() {
+        lock.lock();
+        try {
+            if (startedAt < 0) {
+                return 0;
+            }
+            long now = endedAt >= 0 ? endedAt : System.nanoTime();
+            long waited = waitedNanos + (waitingSince >= 0 ? now - waitingSince : 0);
+            return now - startedAt - waited;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Has {@code action} run if the current call is aborted before the returned handle is run.
+     *
+     * @return runs to forget {@code action}, once what it would abort has finished
+     */
+    public static Runnable onAbort(Runnable action) {
+        CallScope scope = CURRENT.get();
+        if (scope == null) {
+            return () -> {
+            };
+        }
+        scope.lock.lock();
+        try {
+            if (!scope.aborted) {
+                scope.abortActions.add(action);
+                return () -> scope.forget(action);
+            }
+        } finally {
+            scope.lock.unlock();
+        }
+        action.run();
+        return () -> {
+        };
+    }
+
+    /**
+     * Runs {@code wait}, which only queues for the call's turn, without counting it as the call working.
+     */
+    public static void waiting(Runnable wait) {
+        CallScope scope = CURRENT.get();
+        if (scope == null) {
+            wait.run();
+            return;
+        }
+        scope.beginWait();
+        try {
+            wait.run();
+        } finally {
+            scope.endWait();
+        }
+    }
+
+    private void forget(Runnable action) {
+        lock.lock();
+        try {
+            abortActions.remove(action);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void beginWait() {
+        lock.lock();
+        try {
+            waitingSince = System.nanoTime();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void endWait() {
+        lock.lock();
+        try {
+            waitedNanos += System.nanoTime() - waitingSince;
+            waitingSince = -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package org.novalegal.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Splits legal text into chunks that fit a token budget, preferring to cut where the document itself
+ * is divided.
+ * <p>
+ * The text is walked once while a {@link TokenEstimator} keeps the running token count. Along the way the
+ * chunker remembers the latest candidate cut of each kind: section or clause headings ("1.", "4.2",
+ * "(a)", "Section 4", "ARTICLE IV", "§"), paragraph breaks, sentence ends and plain word boundaries.
+ * When the budget is exceeded the chunk is cut at the strongest candidate that still leaves the chunk at
+ * least half full, so chunks stay close to the budget without splitting clauses more than necessary.
+ */
+public class ClauseChunker {
+
+    private static final int HEADING = 0;
+    private static final int PARAGRAPH = 1;
+    private static final int SENTENCE = 2;
+    private static final int WORD = 3;
+    private static final int BREAK_KINDS = 4;
+
+    // How far past the start of a line a heading marker may begin (indentation)
+    private static final int MAX_HEADING_INDENT = 8;
+    // A heading line this short is a title ("12. Severability") rather than a clause of its own
+    private static final int MAX_HEADING_TOKENS = 12;
+    private static final String[] HEADING_KEYWORDS = {
+            "section", "article", "clause", "schedule", "exhibit", "appendix", "annex"
+    };
+
+    private ClauseChunker() {
+    }
+
+    /**
+     * Splits the text into chunks of at most roughly {@code maxTokens} estimated tokens each.
+     *
+     * @param text      the text to split
+     * @param maxTokens the token budget per chunk
+     * @return the chunks in document order, trimmed and never empty
+     * @throws IllegalArgumentException if {@code maxTokens} is not positive
+     */
+    public static List<String> chunk(CharSequence text, int maxTokens) {
+        List<String> chunks = new ArrayList<>();
+        forEachChunk(text, maxTokens, chunks::add);
+        return chunks;
+    }
+
+    /**
+     * Streaming variant of {@link #chunk(CharSequence, int)} that hands each chunk to {@code consumer} as
+     * soon as it is cut.
+     */
+    public static void forEachChunk(CharSequence text, int maxTokens, Consumer<String> consumer) {
+        if (maxTokens < 1) {
+            throw new IllegalArgumentException("maxTokens must be positive: " + maxTokens);
+        }
+        int length = text.length();
+        int minFill = Math.max(1, maxTokens / 2);
+        int[] breakPositions = new int[BREAK_KINDS];
+        int[] breakTokens = new int[BREAK_KINDS];
+        Arrays.fill(breakPositions, -1);
+
+        TokenEstimator estimator = new TokenEstimator();
+        int chunkStart = 0;
+        boolean lineBlank = true;
+
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            char previous = i > 0 ? text.charAt(i - 1) : '\n';
+
+            if (previous == '\n') {
+                if (i > chunkStart) {
+                    if (lineBlank) {
+                        record(breakPositions, breakTokens, PARAGRAPH, i, estimator.count());
+                    }
+                    if (isHeadingLine(text, i)) {
+                        record(breakPositions, breakTokens, HEADING, i, estimator.count());
+                    }
+                }
+                lineBlank = true;
+            }
+            if (isWhitespace(c)) {
+                if (i > chunkStart && !isWhitespace(previous)) {
+                    if (previous == '.' || previous == '!' || previous == '?' || previous == ';') {
+                        record(breakPositions, breakTokens, SENTENCE, i, estimator.count());
+                    }
+                    record(breakPositions, breakTokens, WORD, i, estimator.count());
+                }
+            } else {
+                lineBlank = false;
+            }
+
+            estimator.accept(c);
+
+            if (estimator.count() > maxTokens) {
+                int cut = -1;
+                int cutTokens = 0;
+                for (int kind = HEADING; kind < BREAK_KINDS; kind++) {
+                    int position = breakPositions[kind];
+                    if (position > chunkStart && (breakTokens[kind] >= minFill || kind == WORD)) {
+                        cut = position;
+                        cutTokens = breakTokens[kind];
+                        break;
+                    }
+                }
+
+                if (cut < 0) {
+                    // No boundary at all since the chunk started: cut right before the current character
+                    emit(text, chunkStart, i, consumer);
+                    chunkStart = i;
+                    estimator.reset();
+                    estimator.accept(c);
+                    Arrays.fill(breakPositions, -1);
+                    continue;
+                }
+
+                emit(text, chunkStart, cut, consumer);
+                chunkStart = cut;
+                estimator.discount(cutTokens);
+                for (int kind = HEADING; kind < BREAK_KINDS; kind++) {
+                    if (breakPositions[kind] > cut) {
+                        breakTokens[kind] -= cutTokens;
+                    } else {
+                        breakPositions[kind] = -1;
+                    }
+                }
+            }
+        }
+        emit(text, chunkStart, length, consumer);
+    }
+
+    /**
+     * Splits the text into its clauses: a new clause starts at every section or clause heading and after every
+     * blank line. A heading that stands alone on its line ("12. Severability") stays with the text that follows
+     * it, and a clause longer than {@code maxTokens} is cut further like {@link #chunk(CharSequence, int)} does.
+     *
+     * @param text      the text to split
+     * @param maxTokens the token budget per clause
+     * @return the clauses in document order, trimmed and never empty
+     * @throws IllegalArgumentException if {@code maxTokens} is not positive
+     */
+    public static List<String> clauses(CharSequence text, int maxTokens) {
+        if (maxTokens < 1) {
+            throw new IllegalArgumentException("maxTokens must be positive: " + maxTokens);
+        }
+        List<String> clauses = new ArrayList<>();
+        int length = text.length();
+        int clauseStart = -1;
+        int clauseEnd = -1;
+        boolean headingOnly = false;
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && text.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (!isBlank(text, lineStart, lineEnd)) {
+                boolean heading = isHeadingLine(text, lineStart);
+                if (clauseStart >= 0 && heading && !headingOnly) {
+                    addClause(text, clauseStart, clauseEnd, maxTokens, clauses);
+                    clauseStart = -1;
+                }
+                if (clauseStart < 0) {
+                    clauseStart = lineStart;
+                    headingOnly = heading && TokenEstimator.estimate(text.subSequence(lineStart, lineEnd)) <= MAX_HEADING_TOKENS;
+                } else if (!heading) {
+                    headingOnly = false;
+                }
+                clauseEnd = lineEnd;
+            } else if (clauseStart >= 0 && !headingOnly) {
+                addClause(text, clauseStart, clauseEnd, maxTokens, clauses);
+                clauseStart = -1;
+            }
+            lineStart = lineEnd + 1;
+        }
+        if (clauseStart >= 0) {
+            addClause(text, clauseStart, clauseEnd, maxTokens, clauses);
+        }
+        return clauses;
+    }
+
+    private static void addClause(CharSequence text, int start, int end, int maxTokens, List<String> clauses) {
+        CharSequence clause = text.subSequence(start, end);
+        if (TokenEstimator.estimate(clause) > maxTokens) {
+            forEachChunk(clause, maxTokens, clauses::add);
+        } else {
+            emit(text, start, end, clauses::add);
+        }
+    }
+
+    private static boolean isBlank(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void record(int[] positions, int[] tokens, int kind, int position, int tokenCount) {
+        positions[kind] = position;
+        tokens[kind] = tokenCount;
+    }
+
+    private static void emit(CharSequence text, int start, int end, Consumer<String> consumer) {
+        while (start < end && isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (start < end) {
+            consumer.accept(text.subSequence(start, end).toString());
+        }
+    }
+
+    /**
+     * Returns whether the line starting at {@code lineStart} opens with a section or clause marker.
+     */
+    static boolean isHeadingLine(CharSequence text, int lineStart) {
+        int length = text.length();
+        int i = lineStart;
+        while (i < length && i - lineStart < MAX_HEADING_INDENT && (text.charAt(i) == ' ' || text.charAt(i) == '\t')) {
+            i++;
+        }
+        if (i >= length) {
+            return false;
+        }
+        char c = text.charAt(i);
+        if (c == '§') {
+            return true;
+        }
+        if (isDigit(c)) {
+            return isNumberedHeading(text, i);
+        }
+        if (c == '(') {
+            return isParenthesizedMarker(text, i);
+        }
+        for (String keyword : HEADING_KEYWORDS) {
+            if (regionMatchesIgnoreCase(text, i, keyword)) {
+                int end = i + keyword.length();
+                return end >= length || isWhitespace(text.charAt(end));
+            }
+        }
+        return false;
+    }
+
+    // "1.", "12)", "4.2", "4.2.1." followed by whitespace
+    private static boolean isNumberedHeading(CharSequence text, int start) {
+        int length = text.length();
+        int i = start;
+        boolean dotted = false;
+        while (true) {
+            int digits = 0;
+            while (i < length && isDigit(text.charAt(i)) && digits < 3) {
+                i++;
+                digits++;
+            }
+            if (digits == 0) {
+                return false;
+            }
+            if (i + 1 < length && text.charAt(i) == '.' && isDigit(text.charAt(i + 1))) {
+                dotted = true;
+                i++;
+                continue;
+            }
+            break;
+        }
+        if (i < length && (text.charAt(i) == '.' || text.charAt(i) == ')')) {
+            dotted = true;
+            i++;
+        }
+        return dotted && (i >= length || isWhitespace(text.charAt(i)));
+    }
+
+    // "(a)", "(iv)", "(12)"
+    private static boolean isParenthesizedMarker(CharSequence text, int start) {
+        int length = text.length();
+        int i = start + 1;
+        while (i < length && i - start <= 4 && Character.isLetterOrDigit(text.charAt(i))) {
+            i++;
+        }
+        return i > start + 1 && i < length && text.charAt(i) == ')';
+    }
+
+    private static boolean regionMatchesIgnoreCase(CharSequence text, int start, String keyword) {
+        if (start + keyword.length() > text.length()) {
+            return false;
+        }
+        for (int k = 0; k < keyword.length(); k++) {
+            if (Character.toLowerCase(text.charAt(start + k)) != keyword.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t' || Character.isWhitespace(c);
+    }
+}
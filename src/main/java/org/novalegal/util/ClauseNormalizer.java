@@ -0,0 +1,124 @@
+package org.novalegal.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes clauses so that the same boilerplate in two different documents produces the same key.
+ * <p>
+ * Party names differ from one contract to the next, so they are first replaced with placeholders by a
+ * {@link PartyMask} built from the document's definitions ({@code Acme Corp. (the "Company")}). The masked clause
+ * is what the model sees, which keeps its explanation reusable: the placeholders are put back with the names of
+ * whichever document reuses it. {@link #canonicalKey(String)} then drops what does not change the meaning of a
+ * clause: its leading number, the numbers of cross-references, whitespace, quote style and case.
+ */
+public class ClauseNormalizer {
+
+    // A party is defined right after its name ("Acme Corp. (the "Company")") or under a well-known role
+    private static final Pattern DEFINITION = Pattern.compile(
+            "((?:[A-Z][\\w&.,'-]*\\s+){0,5}?[A-Z][\\w&.'-]*)?\\s*\\((?:the\\s+|hereinafter\\s+(?:referred\\s+to\\s+as\\s+)?(?:the\\s+)?)?[\"“]([A-Z][^\"”]{1,39})[\"”]\\)");
+    private static final Set<String> PARTY_ROLES = Set.of(
+            "company", "recipient", "discloser", "disclosing party", "receiving party", "landlord", "tenant",
+            "lessor", "lessee", "licensor", "licensee", "buyer", "seller", "purchaser", "employer", "employee",
+            "contractor", "client", "customer", "supplier", "vendor", "provider", "service provider", "consultant",
+            "borrower", "lender", "party", "owner", "agent", "guarantor");
+    private static final int MAX_PARTIES = 9;
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\[PARTY_(\\d)]");
+    private static final Pattern LEADING_NUMBER = Pattern.compile(
+            "^\\s*(?:(?:section|article|clause|schedule|exhibit|appendix|annex)\\s+[\\dIVXLC]+(?:\\.\\d+)*\\.?|§\\s*[\\d.]+|\\d{1,3}(?:\\.\\d{1,3})*[.)]?|\\([a-z0-9]{1,4}\\))\\s*",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern CROSS_REFERENCE = Pattern.compile(
+            "\\b(section|article|clause|paragraph|schedule|exhibit)\\s+[\\dIVXLC]+(?:\\.\\d+)*(?:\\([a-z0-9]{1,4}\\))*",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private ClauseNormalizer() {
+    }
+
+    /**
+     * Returns the text that identifies a masked clause regardless of numbering, layout and quote style.
+     */
+    public static String canonicalKey(String maskedClause) {
+        String text = LEADING_NUMBER.matcher(maskedClause).replaceFirst("");
+        text = CROSS_REFERENCE.matcher(text).replaceAll("$1 #");
+        text = text.replace('“', '"').replace('”', '"').replace('‘', '\'').replace('’', '\'');
+        return WHITESPACE.matcher(text).replaceAll(" ").strip().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Replaces the parties defined in one document with the placeholders {@code [PARTY_1]} to {@code [PARTY_9]},
+     * numbered in order of definition.
+     */
+    public static final class PartyMask {
+        private final Map<String, String> placeholders = new LinkedHashMap<>();
+        private final List<String> aliases = new ArrayList<>();
+        private final Pattern terms;
+
+        private PartyMask(Map<String, Integer> partyTerms, List<String> aliases) {
+            this.aliases.addAll(aliases);
+            partyTerms.forEach((term, party) -> placeholders.put(term, "[PARTY_" + party + "]"));
+            if (partyTerms.isEmpty()) {
+                terms = null;
+                return;
+            }
+            // Longest terms first so "Disclosing Party" wins over "Party"
+            List<String> alternatives = new ArrayList<>(partyTerms.keySet());
+            alternatives.sort(Comparator.comparingInt(String::length).reversed());
+            StringBuilder regex = new StringBuilder("\\b(?:");
+            for (int i = 0; i < alternatives.size(); i++) {
+                regex.append(i > 0 ? "|" : "").append(Pattern.quote(alternatives.get(i)));
+            }
+            terms = Pattern.compile(regex.append(")(?![\\w-])").toString());
+        }
+
+        /**
+         * Finds the party definitions in a document.
+         */
+        public static PartyMask of(CharSequence document) {
+            Map<String, Integer> partyTerms = new LinkedHashMap<>();
+            List<String> aliases = new ArrayList<>();
+            Matcher matcher = DEFINITION.matcher(document);
+            while (matcher.find() && aliases.size() < MAX_PARTIES) {
+                String name = matcher.group(1) == null ? null : matcher.group(1).strip();
+                String alias = matcher.group(2).strip();
+                if (name == null && !PARTY_ROLES.contains(alias.toLowerCase(Locale.ROOT))) {
+                    continue;
+                }
+                if (partyTerms.containsKey(alias)) {
+                    continue;
+                }
+                aliases.add(alias);
+                int party = aliases.size();
+                partyTerms.put(alias, party);
+                if (name != null && !partyTerms.containsKey(name)) {
+                    partyTerms.put(name, party);
+                }
+            }
+            return new PartyMask(partyTerms, aliases);
+        }
+
+        public String mask(String clause) {
+            if (terms == null) {
+                return clause;
+            }
+            return terms.matcher(clause).replaceAll(match -> Matcher.quoteReplacement(placeholders.get(match.group())));
+        }
+
+        /**
+         * Puts this document's party names back into text written for a masked clause.
+         */
+        public String unmask(String text) {
+            return PLACEHOLDER.matcher(text).replaceAll(match -> {
+                int party = Integer.parseInt(match.group(1));
+                return Matcher.quoteReplacement(party <= aliases.size() ? aliases.get(party - 1) : "the party");
+            });
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package org.novalegal.util;
+
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.zip.CRC32C;
+
+/**
+ * Uploads a stream of unknown length to GCS as a parallel composite upload: the stream is cut into parts that are
+ * uploaded concurrently as temporary objects, then composed into the target server-side and deleted. A single
+ * upload stream is capped at a fraction of the bandwidth several streams get, so large objects finish sooner.
+ * <p>
+ * Each part is checked against the CRC32C computed here as it was read, and the composed object against the
+ * CRC32C of the whole stream. Streams that end within the first part are uploaded in one request. At most
+ * {@code parallelism} parts upload at once and one more is read meanwhile; reading waits for a part to finish
+ * uploading beyond that, so no more than {@code parallelism + 1} parts are held in memory.
+ */
+public class CompositeUploader {
+    // Sources one compose request accepts
+    private static final int MAX_COMPOSE_SOURCES = 32;
+
+    private final Storage storage;
+    private final Executor executor;
+    private final int partSize;
+    private final int parallelism;
+
+    public CompositeUploader(Storage storage, Executor executor, int partSize, int parallelism) {
+        this.storage = storage;
+        this.executor = executor;
+        this.partSize = partSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Uploads {@code in}, read to its end, as {@code target}.
+     *
+     * @return the bytes uploaded
+     * @throws IOException if reading fails, or a part or the composed object does not match its checksum; no
+     *         temporary part is left behind
+     */
+    public long upload(InputStream in, BlobInfo target) throws IOException {
+        byte[] first = in.readNBytes(partSize);
+        if (first.length < partSize) {
+            verifyTarget(storage.create(target, first, 0, first.length), crc32c(first, first.length), target);
+            return first.length;
+        }
+
+        // Filled buffers go to the part uploads, which hand them back here when done
+        BlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(parallelism + 1);
+        Semaphore uploads = new Semaphore(parallelism);
+        int allocated = 1;
+        CRC32C whole = new CRC32C();
+        List<CompletableFuture<BlobId>> parts = new ArrayList<>();
+        long bytes = 0;
+        try {
+            byte[] buffer = first;
+            int length = first.length;
+            while (length > 0) {
+                whole.update(buffer, 0, length);
+                bytes += length;
+                uploads.acquire();
+                parts.add(uploadPart(target, parts.size(), buffer, length, buffers, uploads));
+
+                buffer = buffers.poll();
+                if (buffer == null && allocated <= parallelism) {
+                    buffer = new byte[partSize];
+                    allocated++;
+                } else if (buffer == null) {
+                    buffer = buffers.take();
+                }
+                // Stop reading as soon as a part has failed rather than at the end of the stream
+                parts.stream().filter(CompletableFuture::isCompletedExceptionally).findFirst().ifPresent(CompletableFuture::join);
+                length = in.readNBytes(buffer, 0, partSize);
+            }
+
+            List<BlobId> partIds = new ArrayList<>();
+            for (CompletableFuture<BlobId> part : parts) {
+                partIds.add(part.join());
+            }
+            verifyTarget(compose(partIds, target), checksum(whole), target);
+            return bytes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while uploading " + target.getName(), e);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw e;
+        } finally {
+            deleteParts(parts);
+        }
+    }
+
+    private CompletableFuture<BlobId> uploadPart(BlobInfo target, int index, byte[] buffer, int length,
+                                                 BlockingQueue<byte[]> buffers, Semaphore uploads) {
+        String expected = crc32c(buffer, length);
+        BlobInfo part = BlobInfo.newBuilder(target.getBucket(), partName(target, index)).build();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Blob blob = storage.create(part, buffer, 0, length);
+                try {
+                    verify(blob, expected, part.getName());
+                } catch (IOException e) {
+                    // The caller only cleans up the parts that succeeded
+                    storage.delete(part.getBlobId());
+                    throw new CompletionException(e);
+                }
+                return part.getBlobId();
+            } finally {
+                buffers.offer(buffer);
+                uploads.release();
+            }
+        }, executor);
+    }
+
+    // Composes in rounds of at most 32 sources; intermediate objects are deleted like the parts
+    private Blob compose(List<BlobId> sources, BlobInfo target) {
+        List<BlobId> round = sources;
+        int level = 0;
+        while (round.size() > MAX_COMPOSE_SOURCES) {
+            List<BlobId> next = new ArrayList<>();
+            try {
+                for (int from = 0; from < round.size(); from += MAX_COMPOSE_SOURCES) {
+                    List<BlobId> group = round.subList(from, Math.min(from + MAX_COMPOSE_SOURCES, round.size()));
+                    BlobInfo intermediate = BlobInfo.newBuilder(target.getBucket(),
+                            target.getName() + ".compose-" + level + "-" + next.size()).build();
+                    next.add(storage.compose(composeRequest(group, intermediate)).getBlobId());
+                }
+            } finally {
+                if (level > 0) {
+                    storage.delete(round);
+                }
+            }
+            round = next;
+            level++;
+        }
+        try {
+            return storage.compose(composeRequest(round, target));
+        } finally {
+            if (level > 0) {
+                storage.delete(round);
+            }
+        }
+    }
+
+    private static Storage.ComposeRequest composeRequest(List<BlobId> sources, BlobInfo target) {
+        Storage.ComposeRequest.Builder request = Storage.ComposeRequest.newBuilder().setTarget(target);
+        sources.forEach(source -> request.addSource(source.getName()));
+        return request.build();
+    }
+
+    private void deleteParts(List<CompletableFuture<BlobId>> parts) {
+        List<BlobId> uploaded = new ArrayList<>();
+        for (CompletableFuture<BlobId> part : parts) {
+            try {
+                uploaded.add(part.join());
+            } catch (CompletionException e) {
+                // never created
+            }
+        }
+        if (!uploaded.isEmpty()) {
+            storage.delete(uploaded);
+        }
+    }
+
+    private static String partName(BlobInfo target, int index) {
+        return target.getName() + ".part-" + index;
+    }
+
+    // A target that does not match is deleted rather than left for a reader to find
+    private void verifyTarget(Blob blob, String expectedCrc32c, BlobInfo target) throws IOException {
+        try {
+            verify(blob, expectedCrc32c, target.getName());
+        } catch (IOException e) {
+            storage.delete(target.getBlobId());
+            throw e;
+        }
+    }
+
+    private static void verify(Blob blob, String expectedCrc32c, String name) throws IOException {
+        if (blob == null || !expectedCrc32c.equals(blob.getCrc32c())) {
+            throw new IOException("Upload of " + name + " does not match its CRC32C checksum");
+        }
+    }
+
+    static String crc32c(byte[] bytes, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, length);
+        return checksum(crc);
+    }
+
+    // GCS reports CRC32C as the base64 of its four big-endian bytes
+    private static String checksum(CRC32C crc) {
+        return Base64.getEncoder().encodeToString(ByteBuffer.allocate(4).putInt((int) crc.getValue()).array());
+    }
+}
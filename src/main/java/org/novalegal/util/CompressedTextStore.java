@@ -0,0 +1,235 @@
+package org.novalegal.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Keeps job results out of the Java heap.
+ * <p>
+ * Texts up to {@code inlineMaxBytes} stay on the heap as they are; anything larger is deflated into a direct buffer,
+ * and once {@code offHeapMaxBytes} of those are held, into a file under {@code spillDirectory} instead. The returned
+ * {@link Handle} reads the text back on demand and must be released when its job is evicted. Eviction can come
+ * between a reader fetching a job and reading its text, so readers of a spilled text must expect
+ * {@link EvictedException}.
+ */
+public class CompressedTextStore {
+    private static final String SPILL_PREFIX = "result-";
+    private static final String SPILL_SUFFIX = ".deflate";
+
+    private final int inlineMaxBytes;
+    private final long offHeapMaxBytes;
+    private final Path spillDirectory;
+    private final AtomicLong offHeapBytes = new AtomicLong();
+    private final AtomicLong spilledBytes = new AtomicLong();
+
+    public CompressedTextStore(int inlineMaxBytes, long offHeapMaxBytes, Path spillDirectory) {
+        this.inlineMaxBytes = inlineMaxBytes;
+        this.offHeapMaxBytes = offHeapMaxBytes;
+        this.spillDirectory = spillDirectory;
+        deleteStaleSpills();
+    }
+
+    public Handle put(String text) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length <= inlineMaxBytes) {
+            return new Inline(text);
+        }
+        byte[] compressed = deflate(utf8);
+        if (reserveOffHeap(compressed.length)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(compressed.length).put(compressed).flip();
+            return new OffHeap(buffer, utf8.length);
+        }
+        return spill(compressed, utf8.length);
+    }
+
+    /**
+     * Returns the compressed bytes currently held in direct buffers.
+     */
+    public long offHeapBytes() {
+        return offHeapBytes.get();
+    }
+
+    /**
+     * Returns the compressed bytes currently spilled to disk.
+     */
+    public long spilledBytes() {
+        return spilledBytes.get();
+    }
+
+    private boolean reserveOffHeap(int bytes) {
+        long held;
+        do {
+            held = offHeapBytes.get();
+            if (held + bytes > offHeapMaxBytes) {
+                return false;
+            }
+        } while (!offHeapBytes.compareAndSet(held, held + bytes));
+        return true;
+    }
+
+    private Handle spill(byte[] compressed, int originalLength) {
+        try {
+            Files.createDirectories(spillDirectory);
+            Path file = Files.createTempFile(spillDirectory, SPILL_PREFIX, SPILL_SUFFIX);
+            Files.write(file, compressed);
+            spilledBytes.addAndGet(compressed.length);
+            return new Spilled(file, compressed.length, originalLength);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not spill a job result to " + spillDirectory, e);
+        }
+    }
+
+    // Files left behind by a previous process belong to jobs that no longer exist
+    private void deleteStaleSpills() {
+        if (!Files.isDirectory(spillDirectory)) {
+            return;
+        }
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(spillDirectory, SPILL_PREFIX + "*" + SPILL_SUFFIX)) {
+            for (Path file : stale) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not clean " + spillDirectory, e);
+        }
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, input.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static String inflate(byte[] compressed, int originalLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] output = new byte[originalLength];
+            int length = 0;
+            while (length < originalLength && !inflater.finished()) {
+                length += inflater.inflate(output, length, originalLength - length);
+            }
+            return new String(output, 0, length, StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Stored job result is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Thrown when a text is read after it was released.
+     */
+    public static class EvictedException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        public EvictedException(Throwable cause) {
+            super("Job result has been evicted", cause);
+        }
+    }
+
+    /**
+     * A stored text.
+     */
+    public interface Handle {
+        /**
+         * @throws EvictedException if the text was spilled to disk and has been released since
+         */
+        String read();
+
+        /**
+         * Gives back the memory or file behind the text; reading afterwards is not supported.
+         */
+        void release();
+    }
+
+    private record Inline(String text) implements Handle {
+        public String read() {
+            return text;
+        }
+
+        public void release() {
+        }
+    }
+
+    private final class OffHeap implements Handle {
+        private final ByteBuffer buffer;
+        private final int originalLength;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        OffHeap(ByteBuffer buffer, int originalLength) {
+            this.buffer = buffer;
+            this.originalLength = originalLength;
+        }
+
+        public String read() {
+            // A duplicate has its own position, so concurrent readers do not interfere
+            ByteBuffer view = buffer.duplicate();
+            byte[] compressed = new byte[view.remaining()];
+            view.get(compressed);
+            return inflate(compressed, originalLength);
+        }
+
+        // The direct memory itself is freed once the buffer becomes unreachable
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                offHeapBytes.addAndGet(-buffer.capacity());
+            }
+        }
+    }
+
+    private final class Spilled implements Handle {
+        private final Path file;
+        private final int compressedLength;
+        private final int originalLength;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Spilled(Path file, int compressedLength, int originalLength) {
+            this.file = file;
+            this.compressedLength = compressedLength;
+            this.originalLength = originalLength;
+        }
+
+        public String read() {
+            try {
+                return inflate(Files.readAllBytes(file), originalLength);
+            } catch (NoSuchFileException e) {
+                throw new EvictedException(e);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                spilledBytes.addAndGet(-compressedLength);
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    // Deleted again on the next start
+                }
+            }
+        }
+    }
+}
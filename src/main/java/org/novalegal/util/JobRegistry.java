@@ -0,0 +1,175 @@
+package org.novalegal.util;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-memory registry of background jobs held as immutable snapshots.
+ * <p>
+ * A job changes only through {@link #transition}, which swaps the snapshot with a compare-and-set, so concurrent
+ * writers cannot lose each other's updates and readers always see a complete snapshot. Finished jobs are evicted
+ * {@code ttl} after they finished, and sooner, oldest first, while the registry holds more than {@code maxSize}
+ * jobs; jobs still running are never evicted. {@code onEvict} is told about every evicted job so it can release what
+ * the job holds.
+ *
+ * @param <J> immutable job snapshot type
+ */
+public class JobRegistry<J> {
+
+    private final ConcurrentMap<String, Entry<J>> jobs = new ConcurrentHashMap<>();
+    // Job ids in insertion order, so that eviction for size starts with the oldest jobs
+    private final Queue<String> order = new ConcurrentLinkedQueue<>();
+    private final int maxSize;
+    private final long ttlNanos;
+    private final long sweepIntervalNanos;
+    private final Predicate<J> finished;
+    private final Consumer<J> onEvict;
+    private final LongSupplier clock;
+    private final ReentrantLock sweepLock = new ReentrantLock();
+    private final AtomicLong lastSweep;
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder displaced = new LongAdder();
+
+    public JobRegistry(int maxSize, Duration ttl, Predicate<J> finished, Consumer<J> onEvict) {
+        this(maxSize, ttl, finished, onEvict, System::nanoTime);
+    }
+
+    public JobRegistry(int maxSize, Duration ttl, Predicate<J> finished, Consumer<J> onEvict, LongSupplier clock) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        // Expired jobs are looked for at least this often, and hidden from readers in between
+        this.sweepIntervalNanos = Math.min(ttlNanos, Duration.ofMinutes(1).toNanos());
+        this.finished = finished;
+        this.onEvict = onEvict;
+        this.clock = clock;
+        this.lastSweep = new AtomicLong(clock.getAsLong());
+    }
+
+    public void add(String jobId, J job) {
+        jobs.put(jobId, new Entry<>(job, clock.getAsLong()));
+        order.add(jobId);
+        evictIfDue();
+    }
+
+    /**
+     * Returns the current snapshot of a job, or null when it is unknown or has expired.
+     */
+    public J get(String jobId) {
+        Entry<J> entry = jobs.get(jobId);
+        if (entry == null || isExpired(entry, clock.getAsLong())) {
+            return null;
+        }
+        return entry.job;
+    }
+
+    /**
+     * Replaces a job's snapshot with {@code next} applied to it, retrying if another writer got there first.
+     *
+     * @param next returns the new snapshot, or null to leave the job as it is
+     * @return the snapshot now registered, or null when the job is unknown or {@code next} declined
+     */
+    public J transition(String jobId, UnaryOperator<J> next) {
+        while (true) {
+            Entry<J> current = jobs.get(jobId);
+            if (current == null) {
+                return null;
+            }
+            J updated = next.apply(current.job);
+            if (updated == null) {
+                return null;
+            }
+            if (jobs.replace(jobId, current, new Entry<>(updated, clock.getAsLong()))) {
+                evictIfDue();
+                return updated;
+            }
+        }
+    }
+
+    /**
+     * Drops a job whatever its state, for jobs that never got going; nothing is passed to {@code onEvict}.
+     */
+    public J remove(String jobId) {
+        Entry<J> entry = jobs.remove(jobId);
+        return entry == null ? null : entry.job;
+    }
+
+    public int size() {
+        return jobs.size();
+    }
+
+    /**
+     * Returns how many finished jobs were evicted because their time to live had passed.
+     */
+    public long expiredCount() {
+        return expired.sum();
+    }
+
+    /**
+     * Returns how many finished jobs were evicted early to keep the registry within its maximum size.
+     */
+    public long displacedCount() {
+        return displaced.sum();
+    }
+
+    private void evictIfDue() {
+        long now = clock.getAsLong();
+        boolean periodic = now - lastSweep.get() >= sweepIntervalNanos;
+        if ((!periodic && jobs.size() <= maxSize) || !sweepLock.tryLock()) {
+            return;
+        }
+        try {
+            if (periodic) {
+                lastSweep.set(now);
+            }
+            sweep(now, periodic);
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+
+    private void sweep(long now, boolean periodic) {
+        int excess = jobs.size() - maxSize;
+        Iterator<String> ids = order.iterator();
+        while (ids.hasNext() && (periodic || excess > 0)) {
+            String jobId = ids.next();
+            Entry<J> entry = jobs.get(jobId);
+            if (entry == null) {
+                ids.remove();
+                continue;
+            }
+            boolean isExpired = isExpired(entry, now);
+            if ((isExpired || excess > 0) && finished.test(entry.job) && jobs.remove(jobId, entry)) {
+                ids.remove();
+                excess--;
+                (isExpired ? expired : displaced).increment();
+                onEvict.accept(entry.job);
+            }
+        }
+    }
+
+    private boolean isExpired(Entry<J> entry, long now) {
+        return now - entry.updatedAt >= ttlNanos && finished.test(entry.job);
+    }
+
+    // Compared by identity in replace/remove, so a compare-and-set only succeeds against the very snapshot it read
+    private static final class Entry<J> {
+        private final J job;
+        private final long updatedAt;
+
+        private Entry(J job, long updatedAt) {
+            this.job = job;
+            this.updatedAt = updatedAt;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.novalegal.util;
+
+import java.util.Arrays;
+
+/**
+ * The latest {@code capacity} latencies of some operation, for deciding at run time what counts as slow.
+ * Percentiles are computed over the window only, so they follow the backend as it speeds up or slows down.
+ */
+public class LatencyWindow {
+
+    private final long[] samples;
+    private int next;
+    private int size;
+
+    public LatencyWindow(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        size = Math.min(size + 1, samples.length);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the latency below which {@code percentile} (0 to 1) of the recorded samples fall, or -1 while the
+     * window is empty.
+     */
+    public long percentile(double percentile) {
+        long[] copy;
+        synchronized (this) {
+            if (size == 0) {
+                return -1;
+            }
+            copy = Arrays.copyOf(samples, size);
+        }
+        Arrays.sort(copy);
+        int index = (int) Math.ceil(percentile * copy.length) - 1;
+        return copy[Math.max(0, Math.min(copy.length - 1, index))];
+    }
+}
@@ -0,0 +1,119 @@
+package org.novalegal.util;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+
+/**
+ * Sends snapshots of changing state to one possibly slow receiver, such as a server-sent event stream.
+ * <p>
+ * At most one send is in flight, so a receiver never holds more than one thread of the executor. Values offered
+ * while a send is running are coalesced into the one sent next, so a slow receiver skips intermediate values
+ * instead of queueing them. A send that throws or does not finish within {@code sendTimeout} closes the sender
+ * and is reported to {@code onFailure}, once; nothing is sent after that.
+ *
+ * @param <T> the snapshot type
+ */
+public class LatestValueSender<T> {
+
+    /**
+     * Delivers one value to the receiver, blocking while it does.
+     */
+    @FunctionalInterface
+    public interface Sink<T> {
+        void send(T value) throws Exception;
+    }
+
+    private final Executor executor;
+    private final ScheduledExecutorService scheduler;
+    private final Duration sendTimeout;
+    private final BinaryOperator<T> coalesce;
+    private final Sink<T> sink;
+    private final Consumer<Throwable> onFailure;
+    private final AtomicReference<T> pending = new AtomicReference<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * @param coalesce picks what to send of a value still waiting and a newer offer, e.g. the one with the
+     *                 higher version when offers can arrive out of order
+     */
+    public LatestValueSender(Executor executor, ScheduledExecutorService scheduler, Duration sendTimeout,
+                             BinaryOperator<T> coalesce, Sink<T> sink, Consumer<Throwable> onFailure) {
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.sendTimeout = sendTimeout;
+        this.coalesce = coalesce;
+        this.sink = sink;
+        this.onFailure = onFailure;
+    }
+
+    /**
+     * Sends {@code value} once the send in flight, if any, is done, unless a newer value is offered first.
+     */
+    public void offer(T value) {
+        if (closed.get()) {
+            return;
+        }
+        pending.accumulateAndGet(value, (waiting, offered) -> waiting == null ? offered : coalesce.apply(waiting, offered));
+        if (draining.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                fail(e);
+            }
+        }
+    }
+
+    /**
+     * Stops sending; a send in flight still finishes.
+     */
+    public void close() {
+        closed.set(true);
+        pending.set(null);
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    private void drain() {
+        while (!closed.get()) {
+            T value = pending.getAndSet(null);
+            if (value == null) {
+                draining.set(false);
+                // An offer may have found draining still set just before it was cleared
+                if (pending.get() != null && draining.compareAndSet(false, true)) {
+                    continue;
+                }
+                return;
+            }
+            ScheduledFuture<?> watchdog = scheduler.schedule(
+                    () -> fail(new TimeoutException("Send did not finish within " + sendTimeout.toMillis() + " ms")),
+                    sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            try {
+                sink.send(value);
+            } catch (Exception e) {
+                fail(e);
+                return;
+            } finally {
+                watchdog.cancel(false);
+            }
+        }
+    }
+
+    private void fail(Throwable cause) {
+        if (closed.compareAndSet(false, true)) {
+            pending.set(null);
+            onFailure.accept(cause);
+        }
+    }
+}
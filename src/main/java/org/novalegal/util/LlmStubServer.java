@@ -0,0 +1,302 @@
+package org.novalegal.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Loopback-only HTTP server that imitates the OpenAI chat completions endpoint, for load tests and benchmarks
+ * that must not spend money or touch the network.
+ * <p>
+ * Each request draws its behaviour from a random generator seeded with {@link Settings#seed()} and the request
+ * number, so a run with the same settings and the same request order is reproducible:
+ * <ul>
+ *     <li>time to first token follows a log-normal distribution fitted to the configured median and p99,</li>
+ *     <li>the completion is then produced at {@link Settings#tokensPerSecond()},</li>
+ *     <li>a fraction of requests fails with 500, and another fraction is throttled with 429 and
+ *     {@code retry-after-ms}.</li>
+ * </ul>
+ * Both plain and {@code "stream": true} requests are answered; usage and {@code x-ratelimit-*} headers are filled in
+ * like the real API does.
+ */
+public class LlmStubServer implements AutoCloseable {
+
+    private static final String CHAT_COMPLETIONS_PATH = "/v1/chat/completions";
+    // z-score of the 99th percentile of the standard normal distribution
+    private static final double Z_99 = 2.3263;
+    private static final String[] WORDS = {
+            "The", "party", "must", "pay", "within", "thirty", "days", "and", "may", "end", "the", "agreement",
+            "with", "written", "notice", "to", "other", "side", "before", "term", "expires", "obligations"
+    };
+
+    private final Settings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong requestCounter = new AtomicLong();
+    private final double latencyMu;
+    private final double latencySigma;
+    // Not synchronized: binding and stopping the server block, which would pin a virtual thread's carrier
+    private final ReentrantLock lifecycleLock = new ReentrantLock();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public LlmStubServer(Settings settings) {
+        this.settings = settings;
+        long medianNanos = Math.max(1, settings.latencyMedian().toNanos());
+        long p99Nanos = Math.max(medianNanos, settings.latencyP99().toNanos());
+        this.latencyMu = Math.log(medianNanos);
+        this.latencySigma = Math.log((double) p99Nanos / medianNanos) / Z_99;
+    }
+
+    /**
+     * Starts listening on {@code 127.0.0.1} at the configured port, or an ephemeral port when it is {@code 0}.
+     */
+    public LlmStubServer start() throws IOException {
+        lifecycleLock.lock();
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), settings.port()), 0);
+            // Requests mostly sleep, so one thread per in-flight request keeps the stub from becoming the bottleneck
+            executor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "llm-stub");
+                thread.setDaemon(true);
+                return thread;
+            });
+            server.setExecutor(executor);
+            server.createContext(CHAT_COMPLETIONS_PATH, this::handle);
+            server.start();
+            return this;
+        } finally {
+            lifecycleLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the base URL to put in {@code llm.base-url}, e.g. {@code http://127.0.0.1:8089/v1}.
+     */
+    public String baseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/v1";
+    }
+
+    /**
+     * Returns how many requests the stub has received, including failed and throttled ones.
+     */
+    public long requestCount() {
+        return requestCounter.get();
+    }
+
+    public void close() {
+        lifecycleLock.lock();
+        try {
+            if (server != null) {
+                server.stop(0);
+                executor.shutdownNow();
+                server = null;
+            }
+        } finally {
+            lifecycleLock.unlock();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendJson(exchange, 405, Map.of("error", Map.of("message", "Only POST is supported")));
+                return;
+            }
+            JsonNode request;
+            try (InputStream body = exchange.getRequestBody()) {
+                request = objectMapper.readTree(body);
+            }
+            long requestNumber = requestCounter.incrementAndGet();
+            SplittableRandom random = new SplittableRandom(settings.seed() * 1_000_003L + requestNumber);
+
+            String model = request.path("model").asText("stub");
+            int promptTokens = 0;
+            for (JsonNode message : request.path("messages")) {
+                promptTokens += TokenEstimator.estimate(message.path("content").asText(""));
+            }
+            addRateLimitHeaders(exchange);
+
+            double roll = random.nextDouble();
+            if (roll < settings.rateLimitRate()) {
+                exchange.getResponseHeaders().set("retry-after-ms", Long.toString(settings.retryAfter().toMillis()));
+                sendJson(exchange, 429, Map.of("error", Map.of("message", "Rate limit reached (stub)", "type", "requests")));
+                return;
+            }
+            if (roll < settings.rateLimitRate() + settings.errorRate()) {
+                sleepNanos(sampleLatencyNanos(random));
+                sendJson(exchange, 500, Map.of("error", Map.of("message", "Internal server error (stub)", "type", "server_error")));
+                return;
+            }
+
+            long firstTokenNanos = sampleLatencyNanos(random);
+            int completionTokens = settings.completionTokens();
+            String id = "chatcmpl-stub-" + requestNumber;
+            if (request.path("stream").asBoolean(false)) {
+                boolean includeUsage = request.path("stream_options").path("include_usage").asBoolean(false);
+                stream(exchange, random, id, model, firstTokenNanos, completionTokens, includeUsage ? promptTokens : -1);
+            } else {
+                sleepNanos(firstTokenNanos + completionTokens * nanosPerToken());
+                Map<String, Object> response = new LinkedHashMap<>();
+                response.put("id", id);
+                response.put("object", "chat.completion");
+                response.put("model", model);
+                response.put("choices", List.of(Map.of(
+                        "index", 0,
+                        "message", Map.of("role", "assistant", "content", completion(random, completionTokens)),
+                        "finish_reason", "stop")));
+                response.put("usage", usage(promptTokens, completionTokens));
+                sendJson(exchange, 200, response);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // promptTokens < 0 means the client did not ask for a usage event
+    private void stream(HttpExchange exchange, SplittableRandom random, String id, String model,
+                        long firstTokenNanos, int completionTokens, int promptTokens) throws IOException, InterruptedException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        sleepNanos(firstTokenNanos);
+        writeEvent(out, chunk(id, model, Map.of("role", "assistant")));
+        long perToken = nanosPerToken();
+        for (int i = 0; i < completionTokens; i++) {
+            if (i > 0) {
+                sleepNanos(perToken);
+            }
+            String word = (i == 0 ? "" : " ") + WORDS[random.nextInt(WORDS.length)];
+            writeEvent(out, chunk(id, model, Map.of("content", word)));
+        }
+        if (promptTokens >= 0) {
+            writeEvent(out, Map.of(
+                    "id", id,
+                    "object", "chat.completion.chunk",
+                    "model", model,
+                    "choices", List.of(),
+                    "usage", usage(promptTokens, completionTokens)));
+        }
+        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static Map<String, Object> usage(int promptTokens, int completionTokens) {
+        return Map.of(
+                "prompt_tokens", promptTokens,
+                "completion_tokens", completionTokens,
+                "total_tokens", promptTokens + completionTokens);
+    }
+
+    private Map<String, Object> chunk(String id, String model, Map<String, Object> delta) {
+        return Map.of(
+                "id", id,
+                "object", "chat.completion.chunk",
+                "model", model,
+                "choices", List.of(Map.of("index", 0, "delta", delta)));
+    }
+
+    private void writeEvent(OutputStream out, Object payload) throws IOException {
+        out.write("data: ".getBytes(StandardCharsets.UTF_8));
+        out.write(objectMapper.writeValueAsBytes(payload));
+        out.write("\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private void sendJson(HttpExchange exchange, int status, Object payload) throws IOException {
+        byte[] body = objectMapper.writeValueAsBytes(payload);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private void addRateLimitHeaders(HttpExchange exchange) {
+        // The stub never runs out; the headers only exercise the client's parsing
+        exchange.getResponseHeaders().set("x-ratelimit-limit-requests", "1000000");
+        exchange.getResponseHeaders().set("x-ratelimit-remaining-requests", "999999");
+        exchange.getResponseHeaders().set("x-ratelimit-reset-requests", "1ms");
+        exchange.getResponseHeaders().set("x-ratelimit-limit-tokens", "1000000000");
+        exchange.getResponseHeaders().set("x-ratelimit-remaining-tokens", "999999999");
+        exchange.getResponseHeaders().set("x-ratelimit-reset-tokens", "1ms");
+    }
+
+    private String completion(SplittableRandom random, int tokens) {
+        StringBuilder text = new StringBuilder(tokens * 6);
+        for (int i = 0; i < tokens; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    private long sampleLatencyNanos(SplittableRandom random) {
+        if (latencySigma == 0) {
+            return (long) Math.exp(latencyMu);
+        }
+        // Box-Muller; one normal sample per request is enough
+        double u1 = 1.0 - random.nextDouble();
+        double u2 = random.nextDouble();
+        double normal = Math.sqrt(-2 * Math.log(u1)) * Math.cos(2 * Math.PI * u2);
+        return (long) Math.exp(latencyMu + latencySigma * normal);
+    }
+
+    private long nanosPerToken() {
+        return settings.tokensPerSecond() <= 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / settings.tokensPerSecond();
+    }
+
+    private static void sleepNanos(long nanos) throws InterruptedException {
+        if (nanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        }
+    }
+
+    /**
+     * Behaviour of the stub.
+     *
+     * @param port             port to listen on, {@code 0} for an ephemeral port
+     * @param latencyMedian    median time to first token
+     * @param latencyP99       99th percentile time to first token
+     * @param tokensPerSecond  completion throughput after the first token, {@code 0} for instant
+     * @param completionTokens number of tokens in every completion
+     * @param errorRate        fraction of requests answered with 500
+     * @param rateLimitRate    fraction of requests answered with 429
+     * @param retryAfter       value sent in {@code retry-after-ms} with a 429
+     * @param seed             seed of the per-request random generators
+     */
+    public record Settings(int port,
+                           Duration latencyMedian,
+                           Duration latencyP99,
+                           int tokensPerSecond,
+                           int completionTokens,
+                           double errorRate,
+                           double rateLimitRate,
+                           Duration retryAfter,
+                           long seed) {
+
+        /**
+         * Instant answers with no failures, for functional tests.
+         */
+        public static Settings instant() {
+            return new Settings(0, Duration.ZERO, Duration.ZERO, 0, 20, 0, 0, Duration.ofMillis(10), 42);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package org.novalegal.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads a {@code multipart/form-data} body part by part as it arrives, without buffering any part in memory or on
+ * disk. Each part's body is an {@link InputStream} that ends at the next boundary; asking for the next part skips
+ * whatever is left of the current one.
+ */
+public class MultipartStream {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_HEADER_BYTES = 16 * 1024;
+    private static final Pattern BOUNDARY = Pattern.compile("boundary=(?:\"([^\"]+)\"|([^;\\s]+))", Pattern.CASE_INSENSITIVE);
+    private static final Pattern NAME = Pattern.compile("(?:^|;)\\s*name=\"([^\"]*)\"", Pattern.CASE_INSENSITIVE);
+    private static final Pattern FILE_NAME = Pattern.compile("(?:^|;)\\s*filename=\"([^\"]*)\"", Pattern.CASE_INSENSITIVE);
+
+    private final InputStream in;
+    // CRLF "--" boundary: what ends every part body
+    private final byte[] delimiter;
+    private final long maxPartSize;
+    private final byte[] buffer;
+    private int head;
+    private int tail;
+    // No delimiter starts before this index, so searches need not look there again
+    private int searched;
+    private boolean finished;
+    private PartBody current;
+
+    public MultipartStream(InputStream in, String boundary, long maxPartSize) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.maxPartSize = maxPartSize;
+        this.buffer = new byte[Math.max(BUFFER_SIZE, delimiter.length * 4)];
+        // The first boundary has no CRLF in front of it; pretend it has, so that it is found like every other one
+        buffer[0] = '\r';
+        buffer[1] = '\n';
+        this.tail = 2;
+    }
+
+    /**
+     * Returns the boundary of a {@code multipart/form-data} content type, or null for any other content type.
+     */
+    public static String boundaryOf(String contentType) {
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/form-data")) {
+            return null;
+        }
+        Matcher matcher = BOUNDARY.matcher(contentType);
+        if (!matcher.find()) {
+            return null;
+        }
+        return matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+    }
+
+    /**
+     * Moves to the next part, or returns null after the last one.
+     */
+    public Part nextPart() throws IOException {
+        if (finished) {
+            return null;
+        }
+        // Skips the rest of the current part, or the preamble before the first one
+        PartBody rest = current != null ? current : new PartBody(Long.MAX_VALUE);
+        rest.skipToEnd();
+        current = null;
+
+        if (readByte() == '-' && readByte() == '-') {
+            finished = true;
+            return null;
+        }
+        readLine(); // the rest of the boundary line
+
+        String disposition = null;
+        String contentType = null;
+        int headerBytes = 0;
+        for (String line = readLine(); !line.isEmpty(); line = readLine()) {
+            headerBytes += line.length();
+            if (headerBytes > MAX_HEADER_BYTES) {
+                throw new IOException("Multipart headers are too large");
+            }
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String name = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            if (name.equalsIgnoreCase("Content-Disposition")) {
+                disposition = value;
+            } else if (name.equalsIgnoreCase("Content-Type")) {
+                contentType = value;
+            }
+        }
+
+        current = new PartBody(maxPartSize);
+        return new Part(parameter(NAME, disposition), parameter(FILE_NAME, disposition), contentType, current);
+    }
+
+    private static String parameter(Pattern pattern, String disposition) {
+        if (disposition == null) {
+            return null;
+        }
+        Matcher matcher = pattern.matcher(disposition);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = readByte()) != '\n') {
+            if (line.size() > MAX_HEADER_BYTES) {
+                throw new IOException("Multipart header line is too long");
+            }
+            line.write(b);
+        }
+        byte[] bytes = line.toByteArray();
+        int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private int readByte() throws IOException {
+        if (head == tail && !fill()) {
+            throw new EOFException("Multipart body ended unexpectedly");
+        }
+        return buffer[head++] & 0xff;
+    }
+
+    // Moves what is left to the front of the buffer and reads more behind it; false at the end of the input
+    private boolean fill() throws IOException {
+        if (head > 0) {
+            System.arraycopy(buffer, head, buffer, 0, tail - head);
+            tail -= head;
+            searched = Math.max(0, searched - head);
+            head = 0;
+        }
+        int read = in.read(buffer, tail, buffer.length - tail);
+        if (read < 0) {
+            return false;
+        }
+        tail += read;
+        return true;
+    }
+
+    private int indexOfDelimiter() {
+        int last = tail - delimiter.length;
+        outer:
+        for (int i = Math.max(head, searched); i <= last; i++) {
+            if (buffer[i] != delimiter[0]) {
+                continue;
+            }
+            for (int j = 1; j < delimiter.length; j++) {
+                if (buffer[i + j] != delimiter[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        searched = Math.max(head, last + 1);
+        return -1;
+    }
+
+    /**
+     * One part of the body. {@code fileName} is null for plain form fields.
+     */
+    public record Part(String name, String fileName, String contentType, InputStream body) {
+    }
+
+    /**
+     * Thrown when a part's body is larger than the limit given to the stream.
+     */
+    public static class PartTooLargeException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public PartTooLargeException(long maxPartSize) {
+            super("Multipart part exceeds " + maxPartSize + " bytes");
+        }
+    }
+
+    private final class PartBody extends InputStream {
+        private final long limit;
+        private long consumed;
+        private boolean ended;
+
+        private PartBody(long limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            if (ended) {
+                return -1;
+            }
+            if (length == 0) {
+                return 0;
+            }
+            while (true) {
+                int end = indexOfDelimiter();
+                // Without a delimiter in view, the last bytes might be the start of one and have to wait
+                int available = end >= 0 ? end - head : tail - head - (delimiter.length - 1);
+                if (end == head) {
+                    head += delimiter.length;
+                    ended = true;
+                    return -1;
+                }
+                if (available > 0) {
+                    int n = Math.min(length, available);
+                    System.arraycopy(buffer, head, target, offset, n);
+                    head += n;
+                    consumed += n;
+                    if (consumed > limit) {
+                        throw new PartTooLargeException(limit);
+                    }
+                    return n;
+                }
+                if (!fill()) {
+                    throw new EOFException("Multipart body ended before its closing boundary");
+                }
+            }
+        }
+
+        private void skipToEnd() throws IOException {
+            byte[] discard = new byte[8192];
+            while (read(discard, 0, discard.length) >= 0) {
+                // skip
+            }
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package org.novalegal.util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal HTTP/1.1 server for the files of one directory, reachable only through URLs signed with an HMAC-SHA256
+ * key and valid until their expiry: what a presigned object-store URL is, without the object store.
+ * <p>
+ * Only {@code GET} and {@code HEAD} are answered, with a single byte range if asked for, one request per
+ * connection. File bodies go from the page cache to the socket with {@link FileChannel#transferTo}, which on Linux
+ * is {@code sendfile}: the bytes are never copied into the JVM.
+ * <p>
+ * At most {@code maxConnections} connections are served at once and a few more wait for a thread; beyond that a
+ * connection is answered 503 right away. A client has {@code requestTimeout} to send its request line and headers,
+ * so connections that trickle them in cannot hold the threads.
+ */
+public class SignedUrlFileServer implements AutoCloseable {
+
+    private static final String PATH_PREFIX = "/o/";
+    private static final int MAX_HEADER_BYTES = 8 * 1024;
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+    private static final int QUEUED_CONNECTIONS_PER_THREAD = 4;
+
+    private final Path root;
+    private final InetSocketAddress bindAddress;
+    private final String publicUrl;
+    private final SecretKeySpec key;
+    private final Function<Path, String> contentTypes;
+    private final int maxConnections;
+    private final Duration requestTimeout;
+    private final Clock clock;
+    // Not synchronized: binding and closing block, which would pin a virtual thread's carrier
+    private final ReentrantLock lifecycleLock = new ReentrantLock();
+    private ServerSocketChannel server;
+    private ThreadPoolExecutor executor;
+
+    /**
+     * @param publicUrl      the base of the URLs handed out, as their users reach this server; null or empty for
+     *                       {@code http://} and the bound address
+     * @param contentTypes   the media type to serve each file with
+     * @param maxConnections the connections served at once, one thread each
+     * @param requestTimeout how long a client may take to send its request line and headers
+     */
+    public SignedUrlFileServer(Path root, InetSocketAddress bindAddress, String publicUrl, byte[] key,
+                               Function<Path, String> contentTypes, int maxConnections, Duration requestTimeout) {
+        this(root, bindAddress, publicUrl, key, contentTypes, maxConnections, requestTimeout, Clock.systemUTC());
+    }
+
+    SignedUrlFileServer(Path root, InetSocketAddress bindAddress, String publicUrl, byte[] key,
+                        Function<Path, String> contentTypes, int maxConnections, Duration requestTimeout, Clock clock) {
+        this.root = root;
+        this.bindAddress = bindAddress;
+        this.publicUrl = publicUrl == null || publicUrl.isBlank() ? null : publicUrl.replaceAll("/+$", "");
+        this.key = new SecretKeySpec(key, "HmacSHA256");
+        this.contentTypes = contentTypes;
+        this.maxConnections = maxConnections;
+        this.requestTimeout = requestTimeout;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts listening at the bind address, on an ephemeral port when its port is {@code 0}.
+     */
+    public SignedUrlFileServer start() throws IOException {
+        lifecycleLock.lock();
+        try {
+            server = ServerSocketChannel.open();
+            server.bind(bindAddress);
+            // One thread per connection; connections are short, one file each
+            executor = new ThreadPoolExecutor(maxConnections, maxConnections, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(maxConnections * QUEUED_CONNECTIONS_PER_THREAD), runnable -> {
+                Thread thread = new Thread(runnable, "signed-url-files");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
+            ServerSocketChannel listening = server;
+            Thread acceptor = new Thread(() -> accept(listening), "signed-url-accept");
+            acceptor.setDaemon(true);
+            acceptor.start();
+            return this;
+        } finally {
+            lifecycleLock.unlock();
+        }
+    }
+
+    /**
+     * Returns a URL for the file {@code name} of the directory that works until {@code expiresAt}.
+     */
+    public URL sign(String name, Instant expiresAt) {
+        long expires = expiresAt.getEpochSecond();
+        String base = publicUrl != null ? publicUrl : "http://" + address().getHostString() + ":" + address().getPort();
+        try {
+            return URI.create(base + PATH_PREFIX + URLEncoder.encode(name, StandardCharsets.UTF_8)
+                    + "?expires=" + expires + "&signature=" + signature(name, expires)).toURL();
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException("Invalid public URL " + publicUrl, e);
+        }
+    }
+
+    public InetSocketAddress address() {
+        try {
+            return (InetSocketAddress) server.getLocalAddress();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        lifecycleLock.lock();
+        try {
+            if (server != null) {
+                // Also ends the accept loop
+                server.close();
+                executor.shutdownNow();
+                server = null;
+            }
+        } catch (IOException e) {
+            // closing anyway
+        } finally {
+            lifecycleLock.unlock();
+        }
+    }
+
+    private void accept(ServerSocketChannel listening) {
+        while (listening.isOpen()) {
+            try {
+                SocketChannel client = listening.accept();
+                try {
+                    executor.execute(() -> serve(client));
+                } catch (RejectedExecutionException e) {
+                    // Fits in the socket's send buffer, so this does not block the accept loop
+                    try (client) {
+                        respond(client, 503, "Service Unavailable");
+                    }
+                }
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                // the next connection may do better
+            }
+        }
+    }
+
+    private void serve(SocketChannel client) {
+        try (client) {
+            String head;
+            try {
+                head = readHead(client);
+            } catch (SocketTimeoutException e) {
+                respond(client, 408, "Request Timeout");
+                return;
+            }
+            if (head == null) {
+                respond(client, 400, "Bad Request");
+                return;
+            }
+            String[] lines = head.split("\r\n");
+            String[] requestLine = lines[0].split(" ");
+            if (requestLine.length != 3) {
+                respond(client, 400, "Bad Request");
+                return;
+            }
+            String method = requestLine[0];
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                respond(client, 405, "Method Not Allowed");
+                return;
+            }
+            Map<String, String> headers = new HashMap<>();
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                if (colon > 0) {
+                    headers.put(lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT), lines[i].substring(colon + 1).trim());
+                }
+            }
+
+            Path file = authorizedFile(requestLine[1]);
+            if (file == null) {
+                respond(client, 403, "Forbidden");
+                return;
+            }
+            sendFile(client, file, headers.get("range"), method.equals("HEAD"));
+        } catch (IOException e) {
+            // the client went away
+        }
+    }
+
+    // The file a request target points at, or null unless its signature is valid and unexpired
+    private Path authorizedFile(String target) {
+        int query = target.indexOf('?');
+        if (query < 0 || !target.startsWith(PATH_PREFIX)) {
+            return null;
+        }
+        String name = URLDecoder.decode(target.substring(PATH_PREFIX.length(), query), StandardCharsets.UTF_8);
+        Map<String, String> parameters = new HashMap<>();
+        for (String parameter : target.substring(query + 1).split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0) {
+                parameters.put(parameter.substring(0, equals), URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        long expires;
+        try {
+            expires = Long.parseLong(parameters.getOrDefault("expires", ""));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        String signature = parameters.get("signature");
+        if (signature == null || clock.instant().getEpochSecond() > expires
+                || !MessageDigest.isEqual(signature.getBytes(StandardCharsets.US_ASCII),
+                signature(name, expires).getBytes(StandardCharsets.US_ASCII))) {
+            return null;
+        }
+        Path file = root.resolve(name).normalize();
+        return file.getParent() != null && file.getParent().equals(root.normalize()) ? file : null;
+    }
+
+    private void sendFile(SocketChannel client, Path file, String range, boolean headOnly) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            respond(client, 404, "Not Found");
+            return;
+        }
+        try (channel) {
+            long size = channel.size();
+            long first = 0;
+            long last = size - 1;
+            int status = 200;
+            if (range != null) {
+                Matcher matcher = RANGE.matcher(range);
+                if (matcher.matches() && !(matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+                    try {
+                        if (matcher.group(1).isEmpty()) {
+                            first = Math.max(0, size - Long.parseLong(matcher.group(2)));
+                        } else {
+                            first = Long.parseLong(matcher.group(1));
+                            last = matcher.group(2).isEmpty() ? size - 1 : Math.min(size - 1, Long.parseLong(matcher.group(2)));
+                        }
+                    } catch (NumberFormatException e) {
+                        // More digits than a long holds
+                        first = size;
+                    }
+                    if (first >= size || first > last) {
+                        write(client, "HTTP/1.1 416 Range Not Satisfiable\r\nContent-Range: bytes */" + size
+                                + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n");
+                        return;
+                    }
+                    status = 206;
+                }
+            }
+            long length = last - first + 1;
+            StringBuilder response = new StringBuilder("HTTP/1.1 ")
+                    .append(status == 206 ? "206 Partial Content" : "200 OK").append("\r\n")
+                    .append("Content-Type: ").append(contentTypes.apply(file)).append("\r\n")
+                    .append("Content-Length: ").append(length).append("\r\n")
+                    .append("Accept-Ranges: bytes\r\n");
+            if (status == 206) {
+                response.append("Content-Range: bytes ").append(first).append('-').append(last).append('/').append(size).append("\r\n");
+            }
+            write(client, response.append("Connection: close\r\n\r\n").toString());
+            if (headOnly) {
+                return;
+            }
+            for (long position = first; position <= last; ) {
+                position += channel.transferTo(position, last + 1 - position, client);
+            }
+        }
+    }
+
+    // The request line and headers, or null if they are malformed or larger than 8 KB. Read through the socket's
+    // stream, since a channel read ignores SO_TIMEOUT; the timeout shrinks so the whole head shares one deadline.
+    private String readHead(SocketChannel client) throws IOException {
+        Socket socket = client.socket();
+        InputStream in = socket.getInputStream();
+        byte[] buffer = new byte[MAX_HEADER_BYTES];
+        int length = 0;
+        long deadline = System.nanoTime() + requestTimeout.toNanos();
+        while (length < buffer.length) {
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMillis <= 0) {
+                throw new SocketTimeoutException("No request within " + requestTimeout.toMillis() + " ms");
+            }
+            socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, remainingMillis));
+            int read = in.read(buffer, length, buffer.length - length);
+            if (read < 0) {
+                return null;
+            }
+            length += read;
+            String head = new String(buffer, 0, length, StandardCharsets.ISO_8859_1);
+            int end = head.indexOf("\r\n\r\n");
+            if (end >= 0) {
+                return head.substring(0, end);
+            }
+        }
+        return null;
+    }
+
+    private static void respond(SocketChannel client, int status, String reason) throws IOException {
+        write(client, "HTTP/1.1 " + status + " " + reason + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n");
+    }
+
+    private static void write(SocketChannel client, String text) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1));
+        while (bytes.hasRemaining()) {
+            client.write(bytes);
+        }
+    }
+
+    private String signature(String name, long expires) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            byte[] digest = mac.doFinal((name + "\n" + expires).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
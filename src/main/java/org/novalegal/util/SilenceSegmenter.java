@@ -0,0 +1,127 @@
+package org.novalegal.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Plans where to cut a recording into pieces of roughly equal length, at the pauses ffmpeg's {@code silencedetect}
+ * filter reports, so that no piece starts or ends in the middle of a word.
+ */
+public class SilenceSegmenter {
+
+    private static final Pattern DURATION = Pattern.compile("Duration: (\\d+):(\\d{2}):(\\d{2}(?:\\.\\d+)?)");
+    private static final Pattern PROGRESS_TIME = Pattern.compile("time=(\\d+):(\\d{2}):(\\d{2}(?:\\.\\d+)?)");
+    private static final Pattern SILENCE_START = Pattern.compile("silence_start: (-?[0-9.]+)");
+    private static final Pattern SILENCE_END = Pattern.compile("silence_end: (-?[0-9.]+)");
+
+    private SilenceSegmenter() {
+    }
+
+    /**
+     * A pause, in seconds from the start of the recording.
+     */
+    public record Silence(double start, double end) {
+        double middle() {
+            return (start + end) / 2;
+        }
+    }
+
+    /**
+     * A piece of the recording to transcribe on its own, in seconds from the start of the recording.
+     */
+    public record Piece(double start, double end) {
+    }
+
+    /**
+     * Builds the {@code ffmpeg} command that decodes the first audio stream of {@code input} and logs the pauses
+     * quieter than {@code noise} (e.g. {@code -35dB}) and longer than {@code minSilenceSeconds}, without writing
+     * any output.
+     */
+    public static List<String> detectCommand(String input, String noise, double minSilenceSeconds) {
+        return List.of("ffmpeg", "-hide_banner", "-i", input,
+                "-map", "0:a:0", "-af", "silencedetect=noise=" + noise + ":d=" + minSilenceSeconds,
+                "-f", "null", "-");
+    }
+
+    /**
+     * Reads the input duration from an ffmpeg log, or returns -1 when the log has none. When the header says
+     * {@code Duration: N/A} (FLAC written to a pipe has no sample count), the last progress time is used instead.
+     */
+    public static double parseDuration(String ffmpegLog) {
+        Matcher header = DURATION.matcher(ffmpegLog);
+        if (header.find()) {
+            return seconds(header);
+        }
+        double duration = -1;
+        Matcher progress = PROGRESS_TIME.matcher(ffmpegLog);
+        while (progress.find()) {
+            duration = seconds(progress);
+        }
+        return duration;
+    }
+
+    private static double seconds(Matcher time) {
+        return Integer.parseInt(time.group(1)) * 3600 + Integer.parseInt(time.group(2)) * 60
+                + Double.parseDouble(time.group(3));
+    }
+
+    /**
+     * Reads the pauses from the log of {@link #detectCommand}. A pause still running at the end of the input has
+     * no {@code silence_end} line and ends at {@code duration}.
+     */
+    public static List<Silence> parseSilences(String ffmpegLog, double duration) {
+        List<Silence> silences = new ArrayList<>();
+        double start = -1;
+        for (String line : ffmpegLog.split("\\R")) {
+            Matcher startMatcher = SILENCE_START.matcher(line);
+            if (startMatcher.find()) {
+                start = Math.max(0, Double.parseDouble(startMatcher.group(1)));
+                continue;
+            }
+            Matcher endMatcher = SILENCE_END.matcher(line);
+            if (endMatcher.find() && start >= 0) {
+                silences.add(new Silence(start, Double.parseDouble(endMatcher.group(1))));
+                start = -1;
+            }
+        }
+        if (start >= 0 && start < duration) {
+            silences.add(new Silence(start, duration));
+        }
+        return silences;
+    }
+
+    /**
+     * Cuts {@code [0, duration)} into pieces of about {@code targetSeconds}. Each cut goes in the middle of the
+     * pause closest to where a piece of exactly the target length would end, as long as that leaves the piece
+     * between half and one and a half times the target and at least half the target for the rest; without such a
+     * pause it falls at the target length. A recording up to one and a half times the target stays in one piece.
+     */
+    public static List<Piece> plan(List<Silence> silences, double duration, double targetSeconds) {
+        List<Piece> pieces = new ArrayList<>();
+        double start = 0;
+        while (duration - start > targetSeconds * 1.5) {
+            double ideal = start + targetSeconds;
+            double earliest = start + targetSeconds / 2;
+            // Never leave less than half a piece for the rest
+            double latest = Math.min(start + targetSeconds * 1.5, duration - targetSeconds / 2);
+            double cut = ideal;
+            double bestDistance = Double.MAX_VALUE;
+            for (Silence silence : silences) {
+                double middle = silence.middle();
+                if (middle < earliest || middle > latest) {
+                    continue;
+                }
+                if (Math.abs(middle - ideal) < bestDistance) {
+                    bestDistance = Math.abs(middle - ideal);
+                    cut = middle;
+                }
+            }
+            pieces.add(new Piece(start, cut));
+            start = cut;
+        }
+        pieces.add(new Piece(start, duration));
+        return pieces;
+    }
+}
@@ -0,0 +1,84 @@
+package org.novalegal.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates identical work that is in flight at the same time.
+ * <p>
+ * The first caller for a key runs the work on its own thread; callers that arrive with the same key before it
+ * finishes wait for that run and get the same result, or the same exception. Nothing is kept once the run ends,
+ * so results must be cached elsewhere if later callers should reuse them.
+ *
+ * @param <K> key type, typically a content hash
+ * @param <V> result type
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Runs {@code work} unless a run for the same key is already in progress, in which case its result is awaited.
+     */
+    public V execute(K key, Supplier<V> work) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, created);
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+
+        executed.increment();
+        try {
+            V value = work.get();
+            created.complete(value);
+            return value;
+        } catch (Throwable e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns how many keys are being worked on right now.
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Returns how many calls ran their own work.
+     */
+    public long executedCount() {
+        return executed.sum();
+    }
+
+    /**
+     * Returns how many calls attached to a run that was already in progress.
+     */
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+}
@@ -0,0 +1,118 @@
+package org.novalegal.util;
+
+/**
+ * Offline, incremental estimate of how many tokens a text costs for a BPE tokenizer such as
+ * OpenAI's cl100k_base.
+ * <p>
+ * The estimator mirrors the tokenizer's pre-tokenization rules (letter runs with an optional leading
+ * space, digit groups of at most three, punctuation runs, newline runs) and prices each piece with a
+ * per-run heuristic instead of the real merge table. It is fed one character at a time so callers can
+ * track the running token count of a text while walking it once.
+ */
+public class TokenEstimator {
+
+    private static final int NONE = 0;
+    private static final int LETTER = 1;
+    private static final int DIGIT = 2;
+    private static final int PUNCT = 3;
+    private static final int SPACE = 4;
+
+    // A run of ASCII letters costs one token per 8 characters; common English words fit in one token.
+    private static final int LETTER_UNITS_PER_TOKEN = 8;
+
+    private int tokens;
+    private int runType = NONE;
+    private int runLength;
+    private int runUnits;
+    private boolean runHasNewline;
+
+    /**
+     * Estimates the token count of a whole text.
+     */
+    public static int estimate(CharSequence text) {
+        TokenEstimator estimator = new TokenEstimator();
+        for (int i = 0; i < text.length(); i++) {
+            estimator.accept(text.charAt(i));
+        }
+        return estimator.count();
+    }
+
+    /**
+     * Feeds the next character of the text.
+     */
+    public void accept(char c) {
+        int type = classify(c);
+        if (type != runType) {
+            tokens += pendingTokens();
+            runType = type;
+            runLength = 0;
+            runUnits = 0;
+            runHasNewline = false;
+        }
+        runLength++;
+        if (type == LETTER) {
+            runUnits += letterUnits(c);
+        } else if (type == SPACE && (c == '\n' || c == '\r')) {
+            runHasNewline = true;
+        }
+    }
+
+    /**
+     * Returns the estimated token count of everything accepted so far.
+     */
+    public int count() {
+        return tokens + pendingTokens();
+    }
+
+    /**
+     * Subtracts tokens that were handed off elsewhere, e.g. a chunk that has been cut from the front of
+     * the text. Only valid at a run boundary, which is where the chunker cuts.
+     */
+    public void discount(int consumedTokens) {
+        tokens -= consumedTokens;
+    }
+
+    /**
+     * Forgets everything accepted so far.
+     */
+    public void reset() {
+        tokens = 0;
+        runType = NONE;
+        runLength = 0;
+        runUnits = 0;
+        runHasNewline = false;
+    }
+
+    private int pendingTokens() {
+        return switch (runType) {
+            case LETTER -> 1 + (runUnits - 1) / LETTER_UNITS_PER_TOKEN;
+            case DIGIT -> (runLength + 2) / 3;
+            case PUNCT -> (runLength + 2) / 3;
+            // A single space is merged into the following word; longer runs and line breaks cost one token
+            case SPACE -> runHasNewline || runLength > 1 ? 1 : 0;
+            default -> 0;
+        };
+    }
+
+    private static int classify(char c) {
+        if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || Character.isWhitespace(c)) {
+            return SPACE;
+        }
+        if (c >= '0' && c <= '9') {
+            return DIGIT;
+        }
+        if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c > 0x7F && Character.isLetter(c))) {
+            return LETTER;
+        }
+        return PUNCT;
+    }
+
+    // Non-ASCII letters are rarer in the merge table: two-byte UTF-8 scripts (Latin extended, Cyrillic,
+    // Greek) average roughly three characters per token and CJK roughly one.
+    private static int letterUnits(char c) {
+        if (c < 0x80) {
+            return 1;
+        }
+        return c < 0x800 ? 3 : LETTER_UNITS_PER_TOKEN;
+    }
+}
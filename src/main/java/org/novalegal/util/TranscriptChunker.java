@@ -0,0 +1,120 @@
+package org.novalegal.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Builds timestamped transcript chunks of bounded size from segments fed one at a time.
+ * <p>
+ * Each segment becomes a line {@code [mm:ss - mm:ss] text}. Lines are packed greedily into chunks of at most
+ * {@code chunkCharLimit} characters and a chunk is handed on as soon as the next line no longer fits, so only the
+ * chunk being filled is held in memory. A transcript of at most {@code singleChunkCharLimit} characters in total is
+ * still handed on as one chunk; to know that, chunks are held back until the transcript outgrows that limit.
+ */
+public class TranscriptChunker {
+
+    private final int chunkCharLimit;
+    private final int singleChunkCharLimit;
+    private final BiConsumer<Integer, String> chunkConsumer;
+    private StringBuilder current;
+    private final List<String> heldChunks = new ArrayList<>();
+    private boolean holding = true;
+    private long totalLength;
+    private int emitted;
+
+    /**
+     * @param chunkCharLimit       maximum characters per chunk once the transcript has to be split
+     * @param singleChunkCharLimit transcripts up to this size are never split
+     * @param chunkConsumer        receives the 1-based part number and the chunk text, in order
+     */
+    public TranscriptChunker(int chunkCharLimit, int singleChunkCharLimit, BiConsumer<Integer, String> chunkConsumer) {
+        this.chunkCharLimit = chunkCharLimit;
+        this.singleChunkCharLimit = singleChunkCharLimit;
+        this.chunkConsumer = chunkConsumer;
+        this.current = new StringBuilder(Math.min(chunkCharLimit, 16 * 1024));
+    }
+
+    public void accept(double start, double end, String text) {
+        // "[mm:ss - mm:ss] " plus the text; minutes may run past two digits
+        int entryLength = 16 + digitsBeyondTwo(start) + digitsBeyondTwo(end) + text.length();
+        if (current.length() + entryLength + 1 > chunkCharLimit && !current.isEmpty()) {
+            cut();
+        }
+        current.append('[');
+        appendTimestamp(current, start);
+        current.append(" - ");
+        appendTimestamp(current, end);
+        current.append("] ").append(text).append('\n');
+        totalLength += entryLength + 1;
+        if (holding && totalLength > singleChunkCharLimit) {
+            holding = false;
+            heldChunks.forEach(this::release);
+            heldChunks.clear();
+        }
+    }
+
+    /**
+     * Hands on whatever is left. Must be called once after the last segment.
+     */
+    public void finish() {
+        if (holding) {
+            // The whole transcript stayed under the single-chunk limit
+            StringBuilder whole = new StringBuilder();
+            heldChunks.forEach(whole::append);
+            release(whole.append(current).toString());
+            heldChunks.clear();
+        } else if (emitted == 0 || !current.isEmpty()) {
+            release(current.toString());
+        }
+        current = new StringBuilder();
+    }
+
+    /**
+     * Returns how many chunks have been handed on so far.
+     */
+    public int chunkCount() {
+        return emitted;
+    }
+
+    private void cut() {
+        String chunk = current.toString();
+        current.setLength(0);
+        if (holding) {
+            heldChunks.add(chunk);
+        } else {
+            release(chunk);
+        }
+    }
+
+    private void release(String chunk) {
+        emitted++;
+        chunkConsumer.accept(emitted, chunk);
+    }
+
+    // mm:ss with the same truncation as (int) (seconds / 60) and (int) (seconds % 60), without String.format
+    static void appendTimestamp(StringBuilder out, double seconds) {
+        int minutes = (int) (seconds / 60);
+        int remainder = (int) (seconds % 60);
+        appendTwoDigits(out, minutes);
+        out.append(':');
+        appendTwoDigits(out, remainder);
+    }
+
+    private static void appendTwoDigits(StringBuilder out, int value) {
+        if (value >= 0 && value < 10) {
+            out.append('0');
+        }
+        out.append(value);
+    }
+
+    private static int digitsBeyondTwo(double seconds) {
+        int minutes = (int) (seconds / 60);
+        int digits = 0;
+        while (minutes >= 100) {
+            minutes /= 10;
+            digits++;
+        }
+        return digits;
+    }
+}
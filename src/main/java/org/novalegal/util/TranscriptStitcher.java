@@ -0,0 +1,65 @@
+package org.novalegal.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+
+/**
+ * Joins the Whisper responses of consecutive pieces of one recording into a single response, as if the whole
+ * recording had been transcribed at once: segment times are moved from each piece's timeline to the recording's.
+ * Only {@code start}, {@code end} and {@code text} of each segment are kept, which is all the summarizer reads.
+ */
+public class TranscriptStitcher {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final StringWriter json = new StringWriter();
+    private final JsonGenerator generator;
+
+    public TranscriptStitcher() {
+        try {
+            generator = JSON_FACTORY.createGenerator(json);
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("segments");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Appends the segments of the next piece, which starts {@code offsetSeconds} into the recording. Pieces must be
+     * added in order.
+     *
+     * @throws IllegalArgumentException if the response has no {@code segments} array
+     */
+    public void add(String whisperJson, double offsetSeconds) throws IOException {
+        WhisperSegmentParser.forEachSegment(whisperJson, (start, end, text) -> {
+            try {
+                generator.writeStartObject();
+                generator.writeNumberField("start", start + offsetSeconds);
+                generator.writeNumberField("end", end + offsetSeconds);
+                generator.writeStringField("text", text);
+                generator.writeEndObject();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Returns the joined response, {@code {"segments":[...]}}. Nothing can be added afterwards.
+     */
+    public String finish() {
+        try {
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return json.toString();
+    }
+}
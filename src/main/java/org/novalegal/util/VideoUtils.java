@@ -1,5 +1,6 @@
 package org.novalegal.util;
 
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 
 public class VideoUtils {
@@ -12,6 +13,50 @@ public class VideoUtils {
         return "/tmp/input-" + UUID.randomUUID() + "." + extension;
     }
 
+    /**
+     * Tells from the first bytes of a recording whether ffmpeg can read it from a pipe. Matroska and WebM always
+     * can. MP4 and MOV can only when the {@code moov} index comes before the media data; with the index at the end
+     * (the default for most recorders), ffmpeg has to seek and the file must be spooled first. Anything not
+     * recognised within {@code head} is treated as unreadable.
+     */
+    public static boolean isPipeReadable(byte[] head) {
+        if (head.length >= 4 && (head[0] & 0xff) == 0x1A && (head[1] & 0xff) == 0x45
+                && (head[2] & 0xff) == 0xDF && (head[3] & 0xff) == 0xA3) {
+            return true; // EBML header: Matroska or WebM
+        }
+        // ISO base media file (MP4, MOV): walk the top-level boxes until moov or mdat shows up
+        long position = 0;
+        while (position + 8 <= head.length) {
+            int offset = (int) position;
+            long size = ((head[offset] & 0xffL) << 24) | ((head[offset + 1] & 0xffL) << 16)
+                    | ((head[offset + 2] & 0xffL) << 8) | (head[offset + 3] & 0xffL);
+            String type = new String(head, offset + 4, 4, StandardCharsets.ISO_8859_1);
+            if (position == 0 && !type.equals("ftyp")) {
+                return false;
+            }
+            if (type.equals("moov")) {
+                return true;
+            }
+            if (type.equals("mdat") || size == 0) {
+                return false;
+            }
+            if (size == 1) {
+                if (offset + 16 > head.length) {
+                    return false;
+                }
+                size = 0;
+                for (int i = 8; i < 16; i++) {
+                    size = (size << 8) | (head[offset + i] & 0xffL);
+                }
+            }
+            if (size < 8) {
+                return false;
+            }
+            position += size;
+        }
+        return false;
+    }
+
     private static String getFileExtension(String filename) {
         if (filename == null || !filename.contains(".")) {
             return "mp4"; // default fallback
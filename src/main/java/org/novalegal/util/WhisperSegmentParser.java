@@ -0,0 +1,112 @@
+package org.novalegal.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * Streams the {@code segments} of a Whisper transcription response without building a JSON tree.
+ * <p>
+ * Only {@code start}, {@code end} and {@code text} of each segment are read; everything else (token ids,
+ * log-probabilities, the top-level {@code text} copy of the whole transcript) is skipped by the parser without
+ * being materialized.
+ */
+public class WhisperSegmentParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String SEGMENTS = "segments";
+    private static final String START = "start";
+    private static final String END = "end";
+    private static final String TEXT = "text";
+
+    private WhisperSegmentParser() {
+    }
+
+    /**
+     * Receives one transcript segment.
+     */
+    @FunctionalInterface
+    public interface SegmentHandler {
+        void onSegment(double start, double end, String text);
+    }
+
+    public static void forEachSegment(String json, SegmentHandler handler) throws IOException {
+        forEachSegment(new StringReader(json), handler);
+    }
+
+    public static void forEachSegment(InputStream json, SegmentHandler handler) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            parse(parser, handler);
+        }
+    }
+
+    public static void forEachSegment(Reader json, SegmentHandler handler) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            parse(parser, handler);
+        }
+    }
+
+    /**
+     * Reads a stream of bare segment objects, one after another (typically newline-delimited JSON), handing each
+     * segment on as soon as it has been read. Returns at the end of the stream.
+     */
+    public static void forEachStreamedSegment(InputStream json, SegmentHandler handler) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.START_OBJECT) {
+                    readSegment(parser, handler);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the document has no top-level {@code segments} array
+     */
+    private static void parse(JsonParser parser, SegmentHandler handler) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Missing 'segments' array");
+        }
+        boolean sawSegments = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (SEGMENTS.equals(field) && value == JsonToken.START_ARRAY) {
+                sawSegments = true;
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    readSegment(parser, handler);
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (!sawSegments) {
+            throw new IllegalArgumentException("Missing 'segments' array");
+        }
+    }
+
+    private static void readSegment(JsonParser parser, SegmentHandler handler) throws IOException {
+        double start = 0;
+        double end = 0;
+        String text = "";
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case START -> start = parser.getValueAsDouble();
+                case END -> end = parser.getValueAsDouble();
+                case TEXT -> text = value == JsonToken.VALUE_STRING ? parser.getText() : "";
+                default -> parser.skipChildren();
+            }
+        }
+        handler.onSegment(start, end, text);
+    }
+}
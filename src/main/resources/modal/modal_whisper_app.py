@@ -1,7 +1,9 @@
+import json
 import modal
 import os
 import tempfile
 from fastapi import FastAPI, Request, HTTPException
+from fastapi.responses import StreamingResponse
 
 # ✅ Define custom image and install dependencies
 whisper_image = (
@@ -39,11 +41,35 @@ def transcribe_signed_url_mp3(signed_url: str):
         result = model.transcribe(tmp_file.name)
     return result
 
+# ✅ Segmented GPU Whisper function: transcribes the audio in fixed windows and yields
+# each window's segments (with absolute timestamps) as soon as that window is done
+@app.function(gpu="A10G", timeout=3600, secrets=[secrets], image=whisper_image)
+def transcribe_signed_url_windows(signed_url: str, window_seconds: int = 300):
+    import whisper
+    import requests
+
+    model = whisper.load_model("base")
+
+    with tempfile.NamedTemporaryFile(suffix=".mp3", delete=False) as tmp_file:
+        with requests.get(signed_url, stream=True) as r:
+            r.raise_for_status()
+            for chunk in r.iter_content(chunk_size=8192):
+                tmp_file.write(chunk)
+        tmp_file.flush()
+
+        audio = whisper.load_audio(tmp_file.name)
+
+    window = window_seconds * whisper.audio.SAMPLE_RATE
+    for offset in range(0, len(audio), window):
+        result = model.transcribe(audio[offset:offset + window])
+        base = offset / whisper.audio.SAMPLE_RATE
+        for segment in result["segments"]:
+            yield {"start": segment["start"] + base, "end": segment["end"] + base, "text": segment["text"]}
+
 # ✅ FastAPI web app
 web_app = FastAPI()
 
-@web_app.post("/transcribe-gcs")
-async def transcribe_from_signed_url(request: Request):
+def check_api_key(request: Request):
     expected_api_key = os.getenv("TRANSCRIBE_API_KEY", "dev-secret")
     auth_header = request.headers.get("Authorization")
 
@@ -54,14 +80,33 @@ async def transcribe_from_signed_url(request: Request):
     if token != expected_api_key:
         raise HTTPException(status_code=403, detail="Invalid API key")
 
+async def read_signed_url(request: Request):
     data = await request.json()
     signed_url = data.get("signed_url")
     if not signed_url:
         raise HTTPException(status_code=400, detail="Missing signed_url")
+    return signed_url
+
+@web_app.post("/transcribe-gcs")
+async def transcribe_from_signed_url(request: Request):
+    check_api_key(request)
+    signed_url = await read_signed_url(request)
 
     result = transcribe_signed_url_mp3.remote(signed_url)
     return result
 
+# ✅ Streams segments as newline-delimited JSON ({"start", "end", "text"} per line)
+@web_app.post("/transcribe-gcs-stream")
+async def transcribe_stream_from_signed_url(request: Request):
+    check_api_key(request)
+    signed_url = await read_signed_url(request)
+
+    def lines():
+        for segment in transcribe_signed_url_windows.remote_gen(signed_url):
+            yield json.dumps(segment) + "\n"
+
+    return StreamingResponse(lines(), media_type="application/x-ndjson")
+
 # ✅ Mount FastAPI app
 @app.function(secrets=[secrets], image=whisper_image)
 @modal.asgi_app()
@@ -18,6 +18,15 @@ document.addEventListener('DOMContentLoaded', function() {
       e.preventDefault();
       spinnerOverlay.classList.add('is-active');
       const formData = new FormData(form);
+      const streamAction = form.getAttribute('data-stream-action');
+      if (streamAction && window.ReadableStream && window.TextDecoder) {
+        streamUpload(streamAction, formData, spinnerOverlay)
+          .catch(error => {
+            spinnerOverlay.classList.remove('is-active');
+            showErrorModal(error.message || 'Upload failed.');
+          });
+        return;
+      }
       fetch(form.getAttribute('action') || window.location.pathname, {
         method: 'POST',
         body: formData,
@@ -135,4 +144,77 @@ function showFileName(input) {
   } else {
     fileNameSpan.textContent = "";
   }
-}
\ No newline at end of file
+}
+
+// Posts the form to the SSE endpoint and renders the summary while it is being generated
+function streamUpload(url, formData, spinnerOverlay) {
+  const resultBox = document.getElementById('stream-result');
+  const output = document.getElementById('stream-output');
+  const spinnerMessage = document.getElementById('spinner-message');
+
+  return fetch(url, {
+    method: 'POST',
+    body: formData,
+    headers: {
+      'X-Requested-With': 'XMLHttpRequest',
+      'Accept': 'text/event-stream'
+    }
+  }).then(response => {
+    const contentType = response.headers.get('content-type') || '';
+    if (!response.ok || !contentType.includes('text/event-stream')) {
+      return response.text().then(text => {
+        throw new Error(text || 'Upload failed.');
+      });
+    }
+
+    const reader = response.body.getReader();
+    const decoder = new TextDecoder();
+    let buffer = '';
+    output.textContent = '';
+
+    function handleEvent(block) {
+      let name = 'message';
+      let data = '';
+      block.split('\n').forEach(line => {
+        if (line.startsWith('event:')) {
+          name = line.slice(6).trim();
+        } else if (line.startsWith('data:')) {
+          data += line.slice(5);
+        }
+      });
+      if (!data) return;
+      const payload = JSON.parse(data);
+      if (name === 'progress') {
+        if (spinnerMessage) {
+          spinnerMessage.textContent = 'Summarized section ' + payload.completed + ' of ' + payload.total + '…';
+        }
+      } else if (name === 'delta') {
+        spinnerOverlay.classList.remove('is-active');
+        resultBox.style.display = 'block';
+        output.appendChild(document.createTextNode(payload.text));
+      } else if (name === 'error') {
+        throw new Error(payload.message);
+      } else if (name === 'done') {
+        spinnerOverlay.classList.remove('is-active');
+      }
+    }
+
+    function pump() {
+      return reader.read().then(({ done, value }) => {
+        if (done) {
+          spinnerOverlay.classList.remove('is-active');
+          return;
+        }
+        buffer += decoder.decode(value, { stream: true });
+        let boundary;
+        while ((boundary = buffer.indexOf('\n\n')) >= 0) {
+          handleEvent(buffer.slice(0, boundary));
+          buffer = buffer.slice(boundary + 2);
+        }
+        return pump();
+      });
+    }
+
+    return pump();
+  });
+}
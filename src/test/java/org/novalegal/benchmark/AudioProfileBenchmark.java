@@ -0,0 +1,127 @@
+package org.novalegal.benchmark;
+
+import org.novalegal.util.AudioProfile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Audio extraction cost per {@link AudioProfile} on synthetic recordings that ffmpeg generates itself from lavfi test
+ * sources: no network, no sample files. Each recording is a 720p H.264 video with a stereo AAC track, like a screen
+ * recording of a call. For every profile, and for the command used before profiles existed, it reports wall time,
+ * bytes produced and CPU seconds per minute of audio, with CPU taken from ffmpeg's own {@code -benchmark} report.
+ * <p>
+ * Needs ffmpeg with libx264, libopus and libmp3lame on the PATH. Run with
+ * {@code gradle benchmark -Pbench=AudioProfileBenchmark}, optionally {@code --args="minutes"} (default 10).
+ */
+public class AudioProfileBenchmark {
+
+    private static final Pattern BENCH = Pattern.compile("bench: utime=([0-9.]+)s stime=([0-9.]+)s rtime=([0-9.]+)s");
+    private static final int RUNS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int minutes = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        if (!ffmpegAvailable()) {
+            System.out.println("ffmpeg was not found on the PATH; install it to run this benchmark.");
+            return;
+        }
+
+        Path directory = Files.createTempDirectory("audio-profile-benchmark");
+        try {
+            Path recording = directory.resolve("recording.mp4");
+            generateRecording(recording, minutes);
+            System.out.printf("Synthetic recording: %d min, %,d bytes, %d ffmpeg threads%n%n",
+                    minutes, Files.size(recording), threads());
+            System.out.printf("%-16s %10s %14s %10s %14s %12s%n",
+                    "profile", "wall s", "bytes", "x legacy", "CPU s/min", "wall s/min");
+
+            long legacyBytes = measure("legacy-mp3", directory, minutes,
+                    output -> List.of("ffmpeg", "-i", recording.toString(), "-f", "mp3", "-ab", "192k", "-y", output.toString()),
+                    "mp3", 0);
+            for (AudioProfile profile : AudioProfile.values()) {
+                measure(profile.name(), directory, minutes,
+                        output -> profile.ffmpegCommand(recording.toString(), output.toString(), threads()),
+                        profile.getExtension(), legacyBytes);
+            }
+        } finally {
+            try (var files = Files.walk(directory)) {
+                files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    // Returns the bytes produced; legacyBytes is 0 while measuring the legacy command itself
+    private static long measure(String name, Path directory, int minutes, CommandFactory command, String extension,
+                                long legacyBytes) throws Exception {
+        Path output = directory.resolve(name + "." + extension);
+        double bestWall = Double.MAX_VALUE;
+        double bestCpu = Double.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            List<String> arguments = new ArrayList<>(command.build(output));
+            arguments.add(1, "-benchmark");
+            long start = System.nanoTime();
+            String log = run(arguments);
+            bestWall = Math.min(bestWall, (System.nanoTime() - start) / 1e9);
+            Matcher bench = BENCH.matcher(log);
+            if (bench.find()) {
+                bestCpu = Math.min(bestCpu, Double.parseDouble(bench.group(1)) + Double.parseDouble(bench.group(2)));
+            }
+        }
+        long bytes = Files.size(output);
+        System.out.printf("%-16s %10.2f %,14d %10s %14.3f %12.3f%n",
+                name, bestWall, bytes, String.format("%.2f", legacyBytes == 0 ? 1.0 : (double) bytes / legacyBytes),
+                bestCpu / minutes, bestWall / minutes);
+        return bytes;
+    }
+
+    private static void generateRecording(Path recording, int minutes) throws Exception {
+        run(List.of("ffmpeg", "-hide_banner",
+                "-f", "lavfi", "-i", "testsrc2=size=1280x720:rate=30",
+                // A beeping tone over pink noise, so that neither encoder gets an unrealistically easy signal
+                "-f", "lavfi", "-i", "sine=frequency=220:beep_factor=6:sample_rate=48000",
+                "-f", "lavfi", "-i", "anoisesrc=color=pink:amplitude=0.05:sample_rate=48000",
+                "-filter_complex", "[1:a][2:a]amix=inputs=2,aformat=channel_layouts=stereo[a]",
+                "-map", "0:v", "-map", "[a]",
+                "-t", Integer.toString(minutes * 60),
+                "-c:v", "libx264", "-preset", "ultrafast", "-pix_fmt", "yuv420p",
+                "-c:a", "aac", "-b:a", "128k",
+                "-y", recording.toString()));
+    }
+
+    private static String run(List<String> command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String log = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IllegalStateException("ffmpeg exited with code " + exitCode + ":\n" + log);
+        }
+        return log;
+    }
+
+    private static boolean ffmpegAvailable() {
+        try {
+            run(List.of("ffmpeg", "-hide_banner", "-version"));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // As VideoProcessingServiceImpl does with its defaults: the cores shared by two concurrent meeting jobs
+    private static int threads() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    }
+
+    private interface CommandFactory {
+        List<String> build(Path output);
+    }
+}
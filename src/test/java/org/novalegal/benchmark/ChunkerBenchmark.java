@@ -0,0 +1,96 @@
+package org.novalegal.benchmark;
+
+import com.sun.management.ThreadMXBean;
+import org.novalegal.util.ClauseChunker;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Compares the word-array chunker that {@code OpenAIClientServiceImpl} used to have with
+ * {@link ClauseChunker} on a synthetic 1 MB contract.
+ * <p>
+ * Run with {@code gradle benchmark -Pbench=ChunkerBenchmark}.
+ */
+public class ChunkerBenchmark {
+
+    private static final int INPUT_BYTES = 1024 * 1024;
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int MEASURED_ITERATIONS = 50;
+    // The old default was 4000 words; 5000 tokens is the new default budget covering about the same text
+    private static final int WORDS_PER_CHUNK = 4000;
+    private static final int TOKENS_PER_CHUNK = 5000;
+
+    public static void main(String[] args) {
+        String text = syntheticContract(INPUT_BYTES);
+        System.out.printf("Input: %,d chars%n%n", text.length());
+
+        report("legacy split(\"\\\\s+\")", () -> legacyChunkText(text, WORDS_PER_CHUNK));
+        report("ClauseChunker", () -> ClauseChunker.chunk(text, TOKENS_PER_CHUNK));
+    }
+
+    private static void report(String name, Supplier<List<String>> chunker) {
+        List<String> chunks = null;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            chunks = chunker.get();
+        }
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            chunks = chunker.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        System.out.printf("%-24s %8.2f ms/op %10.1f MB allocated/op %6d chunks%n",
+                name,
+                elapsed / 1e6 / MEASURED_ITERATIONS,
+                allocated / 1024.0 / 1024.0 / MEASURED_ITERATIONS,
+                chunks.size());
+    }
+
+    // Verbatim copy of the previous OpenAIClientServiceImpl.chunkText
+    private static List<String> legacyChunkText(String fullText, int maxWordsPerChunk) {
+        String[] words = fullText.split("\\s+");
+        List<String> chunks = new ArrayList<>();
+
+        for (int i = 0; i < words.length; i += maxWordsPerChunk) {
+            int end = Math.min(i + maxWordsPerChunk, words.length);
+            String chunk = String.join(" ", Arrays.copyOfRange(words, i, end));
+            chunks.add(chunk);
+        }
+
+        return chunks;
+    }
+
+    static String syntheticContract(int size) {
+        String[] words = {
+                "the", "party", "shall", "agreement", "confidential", "information", "termination", "notice",
+                "obligations", "indemnify", "liability", "reasonable", "written", "consent", "provided", "that",
+                "any", "of", "and", "to", "in", "by", "Company", "Recipient", "hereunder", "jurisdiction"
+        };
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder(size + 256);
+        int section = 1;
+        while (text.length() < size) {
+            text.append(section).append(". ").append("Section heading ").append(section++).append('\n');
+            int paragraphs = 1 + random.nextInt(3);
+            for (int p = 0; p < paragraphs; p++) {
+                int sentences = 2 + random.nextInt(6);
+                for (int s = 0; s < sentences; s++) {
+                    int length = 8 + random.nextInt(20);
+                    for (int w = 0; w < length; w++) {
+                        text.append(words[random.nextInt(words.length)]).append(w + 1 < length ? " " : ". ");
+                    }
+                }
+                text.append("\n\n");
+            }
+        }
+        return text.toString();
+    }
+}
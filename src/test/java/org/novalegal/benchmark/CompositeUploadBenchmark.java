@@ -0,0 +1,93 @@
+package org.novalegal.benchmark;
+
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.BlobInfo;
+import org.novalegal.util.CompositeUploader;
+import org.novalegal.util.InMemoryStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Upload time of meeting audio objects over one stream, as {@code VideoProcessingServiceImpl} uploads with the
+ * composite mode off, against parallel composite uploads, on the local {@link InMemoryStorage} stand-in: no
+ * network, no bucket. The stand-in adds a fixed latency to every request and caps each upload stream's bandwidth,
+ * which is what makes several streams faster than one against GCS; adjust both to match a measured bucket.
+ * <p>
+ * Run with {@code gradle benchmark -Pbench=CompositeUploadBenchmark}.
+ */
+public class CompositeUploadBenchmark {
+
+    private static final Duration REQUEST_LATENCY = Duration.ofMillis(40);
+    private static final long STREAM_BYTES_PER_SECOND = 40L * 1024 * 1024;
+    private static final int SINGLE_STREAM_WRITE_SIZE = 1024 * 1024;
+    private static final int PART_SIZE = 8 * 1024 * 1024;
+    private static final int[] PARALLELISM = {2, 4, 8};
+    private static final int[] OBJECT_MEGABYTES = {6, 32, 96};
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("Stand-in: %d ms per request, %d MB/s per stream; parts of %d MB%n%n",
+                REQUEST_LATENCY.toMillis(), STREAM_BYTES_PER_SECOND >> 20, PART_SIZE >> 20);
+        System.out.printf("%-8s %-14s %10s %10s %10s%n", "MB", "mode", "s", "MB/s", "requests");
+
+        ExecutorService executor = Executors.newFixedThreadPool(PARALLELISM[PARALLELISM.length - 1]);
+        try {
+            // Warm-up, so that the first measurement does not pay for class loading and JIT compilation
+            byte[] warmUp = new byte[PART_SIZE * 2];
+            singleStream(new InMemoryStorage(), new ByteArrayInputStream(warmUp));
+            new CompositeUploader(new InMemoryStorage().storage(), executor, PART_SIZE, 2)
+                    .upload(new ByteArrayInputStream(warmUp), target());
+
+            for (int megabytes : OBJECT_MEGABYTES) {
+                byte[] audio = new byte[megabytes * 1024 * 1024];
+                new Random(megabytes).nextBytes(audio);
+
+                InMemoryStorage store = new InMemoryStorage(REQUEST_LATENCY, STREAM_BYTES_PER_SECOND);
+                long start = System.nanoTime();
+                singleStream(store, new ByteArrayInputStream(audio));
+                report(megabytes, "single-stream", start, store);
+
+                for (int parallelism : PARALLELISM) {
+                    store = new InMemoryStorage(REQUEST_LATENCY, STREAM_BYTES_PER_SECOND);
+                    start = System.nanoTime();
+                    new CompositeUploader(store.storage(), executor, PART_SIZE, parallelism)
+                            .upload(new ByteArrayInputStream(audio), target());
+                    report(megabytes, "composite x" + parallelism, start, store);
+                }
+                System.out.println();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Like VideoProcessingServiceImpl.uploadSingleStream
+    private static void singleStream(InMemoryStorage store, InputStream in) throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(SINGLE_STREAM_WRITE_SIZE);
+        byte[] chunk = new byte[SINGLE_STREAM_WRITE_SIZE];
+        try (WriteChannel writer = store.storage().writer(target())) {
+            int read;
+            while ((read = in.readNBytes(chunk, 0, chunk.length)) > 0) {
+                buffer.clear();
+                buffer.put(chunk, 0, read).flip();
+                while (buffer.hasRemaining()) {
+                    writer.write(buffer);
+                }
+            }
+        }
+    }
+
+    private static BlobInfo target() {
+        return BlobInfo.newBuilder("bucket", "audio-benchmark.mp3").build();
+    }
+
+    private static void report(int megabytes, String mode, long start, InMemoryStorage store) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-8d %-14s %10.2f %10.1f %10d%n", megabytes, mode, seconds, megabytes / seconds, store.requestCount());
+    }
+}
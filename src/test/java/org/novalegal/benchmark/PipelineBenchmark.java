@@ -0,0 +1,95 @@
+package org.novalegal.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.novalegal.services.ContentCacheService;
+import org.novalegal.services.impl.OpenAIClientServiceImpl;
+import org.novalegal.services.impl.OpenAiHttpLlmBackend;
+import org.novalegal.services.impl.ThresholdModelRouter;
+import org.novalegal.services.impl.TokenBucketLlmRateLimiter;
+import org.novalegal.util.LlmStubServer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * End-to-end document summarization throughput against the local {@link LlmStubServer}: no network, no cost.
+ * Compares the sequential and parallel summarization modes on the same synthetic contracts.
+ * <p>
+ * Run with {@code gradle benchmark -Pbench=PipelineBenchmark}.
+ */
+public class PipelineBenchmark {
+
+    private static final int DOCUMENTS = 4;
+    private static final int DOCUMENT_BYTES = 120 * 1024;
+    private static final int CHUNK_TOKENS = 5000;
+    private static final int LLM_CONCURRENCY = 4;
+
+    public static void main(String[] args) throws Exception {
+        LlmStubServer.Settings settings = new LlmStubServer.Settings(0, Duration.ofMillis(150), Duration.ofMillis(900),
+                400, 150, 0.02, 0.02, Duration.ofMillis(50), 42);
+        String document = ChunkerBenchmark.syntheticContract(DOCUMENT_BYTES);
+
+        try (LlmStubServer stub = new LlmStubServer(settings).start()) {
+            System.out.printf("Stub at %s, %d documents of %,d chars%n%n", stub.baseUrl(), DOCUMENTS, document.length());
+            for (String mode : new String[]{"sequential", "parallel"}) {
+                run(stub, mode, document);
+            }
+        }
+    }
+
+    private static void run(LlmStubServer stub, String mode, String document) {
+        ExecutorService executor = Executors.newFixedThreadPool(LLM_CONCURRENCY);
+        try {
+            OpenAiHttpLlmBackend backend = new OpenAiHttpLlmBackend(new RestTemplate(), new ObjectMapper(),
+                    new TokenBucketLlmRateLimiter(100_000, 100_000_000, 1000, new SimpleMeterRegistry()), new SimpleMeterRegistry());
+            ReflectionTestUtils.setField(backend, "openAIApiKey", "stub");
+            ReflectionTestUtils.setField(backend, "baseUrl", stub.baseUrl());
+            ReflectionTestUtils.setField(backend, "retryInitialBackoff", Duration.ofMillis(50));
+            OpenAIClientServiceImpl service = new OpenAIClientServiceImpl(backend, executor, new NoCache(),
+                    new ThresholdModelRouter(false, "gpt-3.5-turbo-16k", "", "", "", 0, 13000, 12000, new SimpleMeterRegistry()),
+                    new SimpleMeterRegistry());
+            ReflectionTestUtils.setField(service, "summarizationMode", mode);
+
+            long requestsBefore = stub.requestCount();
+            long start = System.nanoTime();
+            for (int i = 0; i < DOCUMENTS; i++) {
+                // A distinct suffix per document keeps every run a cache miss
+                service.simplifyDocumentWithChunking(document + "\n" + i, CHUNK_TOKENS);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long requests = stub.requestCount() - requestsBefore;
+
+            System.out.printf("%-12s %8.2f s %8.2f docs/s %6d requests %8.2f requests/s%n",
+                    mode, seconds, DOCUMENTS / seconds, requests, requests / seconds);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static final class NoCache implements ContentCacheService {
+        @Override
+        public Optional<String> get(Region region, String key) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void put(Region region, String key, String value) {
+        }
+
+        @Override
+        public Map<String, Long> getStats() {
+            return Map.of();
+        }
+
+        @Override
+        public double getHitRatio(Region region) {
+            return 0;
+        }
+    }
+}
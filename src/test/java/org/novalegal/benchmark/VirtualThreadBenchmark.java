@@ -0,0 +1,234 @@
+package org.novalegal.benchmark;
+
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Compares how many I/O-bound jobs can be in flight at once, and what each in-flight job costs in memory, on the
+ * platform-thread pools and on virtual threads.
+ * <p>
+ * Every job connects to a local {@link HoldServer} and blocks reading the socket until the server answers
+ * {@link #HOLD} after accepting it, the way a meeting job waits on Whisper or a document job on OpenAI. While the
+ * jobs are held the benchmark records the in-flight count, heap in use and resident set size, and reports the growth
+ * over the idle baseline per in-flight job; resident memory includes the native stacks of platform threads, which the
+ * heap does not. It then times how long all jobs take to finish.
+ * <p>
+ * Modes: a fixed pool of {@link #TOMCAT_MAX_THREADS} platform threads (Tomcat's default), one platform thread per
+ * job, and one virtual thread per job as Spring Boot runs {@code @Async} and requests with
+ * {@code spring.threads.virtual.enabled}. The virtual mode needs Java 21:
+ * {@code gradle benchmark -Pbench=VirtualThreadBenchmark -PjavaVersion=21}.
+ */
+public class VirtualThreadBenchmark {
+
+    private static final int JOBS = 1000;
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final Duration HOLD = Duration.ofSeconds(3);
+    private static final Duration SETTLE_TIMEOUT = Duration.ofSeconds(2);
+
+    public static void main(String[] args) throws Exception {
+        try (HoldServer server = new HoldServer(HOLD).start()) {
+            System.out.printf("%d jobs, each blocked %d ms on a loopback socket, Java %d%n%n",
+                    JOBS, HOLD.toMillis(), Runtime.version().feature());
+            System.out.printf("%-16s %9s %12s %14s %14s %10s%n",
+                    "mode", "in-flight", "threads", "heap/job", "rss/job", "total");
+            run(server, "platform-" + TOMCAT_MAX_THREADS, () -> platformPool(TOMCAT_MAX_THREADS), TOMCAT_MAX_THREADS);
+            run(server, "platform-" + JOBS, () -> platformPool(JOBS), JOBS);
+            if (Runtime.version().feature() >= 21) {
+                run(server, "virtual", VirtualThreadBenchmark::virtualThreads, JOBS);
+            } else {
+                System.out.println("virtual          skipped: virtual threads need Java 21 (-PjavaVersion=21)");
+            }
+        }
+    }
+
+    private static void run(HoldServer server, String mode, Supplier<AsyncTaskExecutor> executorFactory,
+                            int expectedInFlight) throws Exception {
+        long heapBefore = usedHeap();
+        long rssBefore = residentSetSize();
+        AsyncTaskExecutor executor = executorFactory.get();
+        AtomicInteger inFlight = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(JOBS);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < JOBS; i++) {
+            executor.execute(() -> {
+                try {
+                    job(server.address(), inFlight);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        long settleDeadline = System.nanoTime() + SETTLE_TIMEOUT.toNanos();
+        while (inFlight.get() < expectedInFlight && System.nanoTime() < settleDeadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        long heapDuring = usedHeap();
+        long rssDuring = residentSetSize();
+        int held = inFlight.get();
+        int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            pool.shutdown();
+        }
+
+        System.out.printf("%-16s %9d %12d %14s %14s %9.2fs%n", mode, held, threads,
+                perJob(heapDuring - heapBefore, held), rssBefore < 0 ? "n/a" : perJob(rssDuring - rssBefore, held), seconds);
+    }
+
+    private static void job(InetSocketAddress address, AtomicInteger inFlight) {
+        try (Socket socket = new Socket(address.getAddress(), address.getPort())) {
+            InputStream in = socket.getInputStream();
+            inFlight.incrementAndGet();
+            try {
+                in.read();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Job could not reach the hold server", e);
+        }
+    }
+
+    private static AsyncTaskExecutor platformPool(int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("bench-");
+        executor.initialize();
+        return executor;
+    }
+
+    // What Spring Boot configures as applicationTaskExecutor when virtual threads are enabled
+    private static AsyncTaskExecutor virtualThreads() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("bench-virtual-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+
+    private static String perJob(long bytes, int jobs) {
+        return jobs == 0 ? "n/a" : String.format("%,d B", bytes / jobs);
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Linux only; -1 elsewhere
+    private static long residentSetSize() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D+", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // fall through
+        }
+        return -1;
+    }
+
+    /**
+     * Accepts loopback connections and answers each with one byte {@code hold} after accepting it, on a single
+     * selector thread so the server itself adds no threads to the measurement.
+     */
+    private static final class HoldServer implements AutoCloseable {
+        private final Duration hold;
+        private final Deque<HeldConnection> held = new ArrayDeque<>();
+        private ServerSocketChannel channel;
+        private Selector selector;
+        private Thread thread;
+
+        HoldServer(Duration hold) {
+            this.hold = hold;
+        }
+
+        HoldServer start() throws IOException {
+            selector = Selector.open();
+            channel = ServerSocketChannel.open();
+            channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), JOBS * 2);
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_ACCEPT);
+            thread = new Thread(this::serve, "hold-server");
+            thread.setDaemon(true);
+            thread.start();
+            return this;
+        }
+
+        InetSocketAddress address() {
+            try {
+                return (InetSocketAddress) channel.getLocalAddress();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void serve() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    HeldConnection next = held.peekFirst();
+                    long waitMillis = next == null ? 0 : Math.max(1, TimeUnit.NANOSECONDS.toMillis(next.releaseAt - System.nanoTime()));
+                    selector.select(waitMillis);
+                    selector.selectedKeys().clear();
+                    long now = System.nanoTime();
+                    SocketChannel accepted;
+                    while ((accepted = channel.accept()) != null) {
+                        held.addLast(new HeldConnection(accepted, now + hold.toNanos()));
+                    }
+                    // Connections are held for the same time, so they are due in the order they were accepted
+                    while (!held.isEmpty() && held.peekFirst().releaseAt <= now) {
+                        try (SocketChannel connection = held.pollFirst().channel) {
+                            connection.write(ByteBuffer.wrap(new byte[]{1}));
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                if (channel.isOpen()) {
+                    throw new IllegalStateException("Hold server failed", e);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            channel.close();
+            selector.close();
+        }
+
+        private record HeldConnection(SocketChannel channel, long releaseAt) {
+        }
+    }
+}
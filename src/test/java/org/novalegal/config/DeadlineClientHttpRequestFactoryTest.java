@@ -0,0 +1,86 @@
+package org.novalegal.config;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlineClientHttpRequestFactoryTest {
+    private HttpServer server;
+    private CloseableHttpClient httpClient;
+    private ScheduledExecutorService scheduler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/fast", exchange -> {
+            byte[] body = "ok".getBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        // Sends a byte every 100 ms: never trips a read timeout, but never finishes in time either
+        server.createContext("/trickle", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (int i = 0; i < 100; i++) {
+                    out.write('x');
+                    out.flush();
+                    Thread.sleep(100);
+                }
+            } catch (Exception ignored) {
+                // client went away
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        httpClient = HttpClients.createDefault();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.stop(0);
+        httpClient.close();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void shouldReturnResponse_whenExchangeFinishesBeforeDeadline() {
+        RestTemplate restTemplate = restTemplate(Duration.ofSeconds(5));
+
+        assertEquals("ok", restTemplate.getForObject(url("/fast"), String.class));
+    }
+
+    @Test
+    void shouldAbortExchange_whenTotalDeadlineElapses() {
+        RestTemplate restTemplate = restTemplate(Duration.ofMillis(500));
+
+        long start = System.nanoTime();
+        assertThrows(RestClientException.class, () -> restTemplate.getForObject(url("/trickle"), String.class));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 5000);
+    }
+
+    private RestTemplate restTemplate(Duration totalDeadline) {
+        DeadlineClientHttpRequestFactory factory = new DeadlineClientHttpRequestFactory(httpClient, scheduler, totalDeadline);
+        factory.setReadTimeout(Duration.ofSeconds(2));
+        return new RestTemplate(factory);
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+}
@@ -1,5 +1,7 @@
 package org.novalegal.controllers;
 
+import org.novalegal.models.DocumentJob;
+import org.novalegal.services.DocumentJobService;
 import org.novalegal.services.EmailService;
 import org.novalegal.services.impl.DocumentProcessingServiceImpl;
 import org.novalegal.services.impl.OpenAIClientServiceImpl;
@@ -12,14 +14,19 @@ import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.servlet.view.InternalResourceViewResolver;
 import org.novalegal.models.IpUsage;
+import org.novalegal.util.CompressedTextStore;
+
+import java.nio.file.NoSuchFileException;
 
 
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -37,6 +44,9 @@ class DocumentControllerTest {
     @Mock
     EmailService emailService;
 
+    @Mock
+    DocumentJobService documentJobService;
+
     @InjectMocks
     private DocumentController documentController;
 
@@ -103,6 +113,102 @@ class DocumentControllerTest {
                 .andExpect(model().attributeExists("error"));
     }
 
+    @Test
+    void testAjaxUploadReturnsJobIdWithoutWaitingForTheSummary() throws Exception {
+        when(documentJobService.submitJob(any())).thenReturn("job-1");
+
+        mockMvc.perform(multipart("/upload")
+                        .file(mockFile)
+                        .header("X-Requested-With", "XMLHttpRequest"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.jobId").value("job-1"))
+                .andExpect(jsonPath("$.redirect").value("/result/job-1"));
+
+        verifyNoInteractions(openAIClientService);
+    }
+
+    @Test
+    void testUploadRedirectsToJobPage() throws Exception {
+        when(documentJobService.submitJob(any())).thenReturn("job-1");
+
+        mockMvc.perform(multipart("/upload").file(mockFile))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/result/job-1"));
+    }
+
+    @Test
+    void testInvalidUploadIsRejectedBeforeQueueing() throws Exception {
+        Mockito.doThrow(new IllegalArgumentException("Unsupported file type. Only PDF and DOCX are allowed."))
+                .when(processingService).checkFile(any());
+
+        mockMvc.perform(multipart("/upload")
+                        .file(mockFile)
+                        .header("X-Requested-With", "XMLHttpRequest"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Unsupported file type. Only PDF and DOCX are allowed."));
+
+        verifyNoInteractions(documentJobService);
+    }
+
+    @Test
+    void testFullDocumentQueueAnswersServiceUnavailable() throws Exception {
+        when(documentJobService.submitJob(any())).thenThrow(new TaskRejectedException("full"));
+
+        mockMvc.perform(multipart("/upload")
+                        .file(mockFile)
+                        .header("X-Requested-With", "XMLHttpRequest"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().exists("Retry-After"));
+    }
+
+    @Test
+    void testJobStatusReportsSummaryOnceCompleted() throws Exception {
+        DocumentJob job = new DocumentJob("job-1", "test.pdf");
+        when(documentJobService.getJob("job-1")).thenReturn(job);
+
+        mockMvc.perform(get("/result/job-1/status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("PENDING"))
+                .andExpect(jsonPath("$.summary").doesNotExist());
+
+        DocumentJob completed = job.inProgress().completed(summary("Simplified summary"));
+        when(documentJobService.getJob("job-1")).thenReturn(completed);
+        mockMvc.perform(get("/result/job-1/status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.summary").value("Simplified summary"));
+    }
+
+    @Test
+    void testJobEvictedWhileBeingReadIsGone() throws Exception {
+        DocumentJob job = new DocumentJob("job-1", "test.pdf").inProgress().completed(evictedSummary());
+        when(documentJobService.getJob("job-1")).thenReturn(job);
+
+        mockMvc.perform(get("/result/job-1/status"))
+                .andExpect(status().isGone());
+        mockMvc.perform(get("/result/job-1"))
+                .andExpect(status().isGone());
+    }
+
+    @Test
+    void testUnknownJobIsNotFound() throws Exception {
+        mockMvc.perform(get("/result/missing/status"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/result/missing"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testJobPageShowsCompletedSummary() throws Exception {
+        DocumentJob job = new DocumentJob("job-1", "test.pdf").inProgress().completed(summary("Simplified summary"));
+        when(documentJobService.getJob("job-1")).thenReturn(job);
+
+        mockMvc.perform(get("/result/job-1"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("result"))
+                .andExpect(model().attribute("summary", "Simplified summary"));
+    }
+
     @Test
     void testPrivacyReturnsPrivacyView() throws Exception {
         mockMvc.perform(get("/privacy"))
@@ -166,4 +272,17 @@ class DocumentControllerTest {
                 .andExpect(view().name("contact"))
                 .andExpect(model().attribute("success", true));
     }
-}
\ No newline at end of file
+
+    // A spilled result released by eviction after getJob returned the job
+    private static CompressedTextStore.Handle evictedSummary() {
+        CompressedTextStore.Handle handle = Mockito.mock(CompressedTextStore.Handle.class);
+        when(handle.read()).thenThrow(new CompressedTextStore.EvictedException(new NoSuchFileException("result")));
+        return handle;
+    }
+
+    private static CompressedTextStore.Handle summary(String text) {
+        CompressedTextStore.Handle handle = Mockito.mock(CompressedTextStore.Handle.class);
+        when(handle.read()).thenReturn(text);
+        return handle;
+    }
+}
@@ -0,0 +1,329 @@
+package org.novalegal.controllers;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.novalegal.models.MeetingJob;
+import org.novalegal.models.MeetingStage;
+import org.novalegal.services.MeetingJobQueueService;
+import org.novalegal.services.MeetingJobService;
+import org.novalegal.services.MeetingProcessingService;
+import org.novalegal.services.MeetingTranscriptionService;
+import org.novalegal.services.VideoProcessingService;
+import org.novalegal.util.CompressedTextStore;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.view.InternalResourceViewResolver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+class MeetingSummarizerControllerTest {
+    private MockMvc mockMvc;
+
+    @Mock
+    private MeetingTranscriptionService transcriptionService;
+    @Mock
+    private MeetingJobService jobService;
+    @Mock
+    private MeetingProcessingService processingService;
+    @Mock
+    private MeetingJobQueueService jobQueue;
+    @Mock
+    private VideoProcessingService videoProcessingService;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final MockMultipartFile video = new MockMultipartFile("file", "standup.mp4", "video/mp4", "video".getBytes());
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @BeforeEach
+    void init() {
+        InternalResourceViewResolver viewResolver = new InternalResourceViewResolver();
+        viewResolver.setPrefix("/templates/");
+        viewResolver.setSuffix(".html");
+        MeetingSummarizerController controller = new MeetingSummarizerController(
+                transcriptionService, jobService, processingService, jobQueue, new SyncTaskExecutor(), scheduler, videoProcessingService);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setViewResolvers(viewResolver)
+                .build();
+    }
+
+    @Test
+    void fullQueueRejectsUploadWithRetryAfter() throws Exception {
+        when(jobQueue.admit()).thenReturn(Optional.empty());
+        when(jobQueue.getRetryAfter()).thenReturn(Duration.ofSeconds(90));
+
+        mockMvc.perform(multipart("/meeting-summarizer")
+                        .file(video)
+                        .header("X-Requested-With", "XMLHttpRequest"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "90"));
+
+        verifyNoInteractions(transcriptionService);
+    }
+
+    @Test
+    void statusPageShowsQueuePositionAndEstimatedStart() throws Exception {
+        when(jobService.getJob("job-1")).thenReturn(new MeetingJob("job-1"));
+        when(jobQueue.getQueuePosition("job-1")).thenReturn(3);
+        when(jobQueue.getEstimatedWait("job-1")).thenReturn(Optional.of(Duration.ofSeconds(61)));
+
+        mockMvc.perform(get("/meeting-summarizer/status/job-1"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("meeting-summarizer/meeting-summarizer-status"))
+                .andExpect(model().attribute("queuePosition", 3))
+                .andExpect(model().attribute("estimatedWaitMinutes", 2L))
+                .andExpect(model().attributeExists("estimatedStart"));
+    }
+
+    @Test
+    void runningJobHasNoQueuePosition() throws Exception {
+        MeetingJob job = new MeetingJob("job-1").inProgress();
+        when(jobService.getJob("job-1")).thenReturn(job);
+
+        mockMvc.perform(get("/meeting-summarizer/status/job-1"))
+                .andExpect(status().isOk())
+                .andExpect(model().attributeDoesNotExist("queuePosition"));
+    }
+
+    @Test
+    void pollAnswersAtOnceWhenTheJobIsPastTheClientsVersion() throws Exception {
+        when(jobService.getJob("job-1")).thenReturn(new MeetingJob("job-1").inProgress());
+
+        MvcResult result = mockMvc.perform(get("/meeting-summarizer/status/job-1/poll").param("version", "0"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("IN_PROGRESS"))
+                .andExpect(jsonPath("$.version").value(1));
+    }
+
+    @Test
+    void pollReportsTheQueuePositionOfAStreamedJobWaitingAgain() throws Exception {
+        // What requeued leaves behind once a streamed upload's audio is extracted
+        MeetingJob requeued = new MeetingJob("job-1").inProgress()
+                .atStage(MeetingStage.EXTRACTING_AUDIO).atStage(MeetingStage.QUEUED);
+        when(jobService.getJob("job-1")).thenReturn(requeued);
+        when(jobQueue.getQueuePosition("job-1")).thenReturn(2);
+        when(jobQueue.getEstimatedWait("job-1")).thenReturn(Optional.of(Duration.ofSeconds(61)));
+
+        MvcResult result = mockMvc.perform(get("/meeting-summarizer/status/job-1/poll").param("version", "0"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("IN_PROGRESS"))
+                .andExpect(jsonPath("$.stage").value("QUEUED"))
+                .andExpect(jsonPath("$.queuePosition").value(2))
+                .andExpect(jsonPath("$.estimatedWaitMinutes").value(2))
+                .andExpect(jsonPath("$.estimatedStart").exists());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void pollParksUntilTheJobChanges() throws Exception {
+        MeetingJob pending = new MeetingJob("job-1");
+        when(jobService.getJob("job-1")).thenReturn(pending);
+        ArgumentCaptor<Consumer<MeetingJob>> listener = ArgumentCaptor.forClass(Consumer.class);
+        when(jobService.subscribe(eq("job-1"), listener.capture())).thenReturn(() -> { });
+
+        MvcResult result = mockMvc.perform(get("/meeting-summarizer/status/job-1/poll").param("version", "0"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        listener.getValue().accept(pending.inProgress());
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("IN_PROGRESS"));
+    }
+
+    @Test
+    void eventStreamSendsTheCurrentStatusAndEndsWithTheJob() throws Exception {
+        CompressedTextStore.Handle summary = mock(CompressedTextStore.Handle.class);
+        when(summary.read()).thenReturn("Action items");
+        MeetingJob completed = new MeetingJob("job-1").inProgress().completed(summary);
+        when(jobService.getJob("job-1")).thenReturn(completed);
+        when(jobService.subscribe(eq("job-1"), any())).thenReturn(() -> { });
+
+        MvcResult result = mockMvc.perform(get("/meeting-summarizer/status/job-1/events"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = result.getResponse().getContentAsString();
+        assertTrue(body.contains("event:status"), body);
+        assertTrue(body.contains("\"status\":\"COMPLETED\""), body);
+        assertTrue(body.contains("\"summary\":\"Action items\""), body);
+    }
+
+    @Test
+    void jobEvictedWhileBeingReadIsGone() throws Exception {
+        // A spilled summary released by eviction after getJob returned the job
+        CompressedTextStore.Handle summary = mock(CompressedTextStore.Handle.class);
+        when(summary.read()).thenThrow(new CompressedTextStore.EvictedException(new NoSuchFileException("result")));
+        when(jobService.getJob("job-1")).thenReturn(new MeetingJob("job-1").inProgress().completed(summary));
+
+        mockMvc.perform(get("/meeting-summarizer/status/job-1"))
+                .andExpect(status().isGone())
+                .andExpect(view().name("meeting-summarizer"))
+                .andExpect(model().attributeExists("error"));
+        mockMvc.perform(get("/meeting-summarizer/status/job-1/events"))
+                .andExpect(status().isGone());
+        MvcResult poll = mockMvc.perform(get("/meeting-summarizer/status/job-1/poll").param("version", "0"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(poll))
+                .andExpect(status().isGone());
+    }
+
+    @Test
+    void unknownJobHasNoStatusStream() throws Exception {
+        mockMvc.perform(get("/meeting-summarizer/status/missing/events"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void streamedWebmIsTranscodedWhileItUploads() throws Exception {
+        byte[] recording = recording(new byte[]{0x1A, 0x45, (byte) 0xDF, (byte) 0xA3}, 200_000);
+        when(jobQueue.admit()).thenReturn(Optional.of("job-1"));
+        when(jobQueue.tryStart("job-1")).thenReturn(true);
+        AtomicReference<byte[]> piped = new AtomicReference<>();
+        when(videoProcessingService.extractAudioAndUploadToGCS(any(InputStream.class), eq("standup.webm")))
+                .thenAnswer(invocation -> {
+                    piped.set(invocation.<InputStream>getArgument(0).readAllBytes());
+                    return "audio-1.mp3";
+                });
+
+        mockMvc.perform(streamedUpload("standup.webm", "video/webm", recording))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.redirect").value("/meeting-summarizer/status/job-1"));
+
+        assertArrayEquals(recording, piped.get());
+        InOrder order = inOrder(jobService, jobQueue, transcriptionService);
+        order.verify(jobService).startJob("job-1");
+        order.verify(jobQueue).requeued("job-1");
+        order.verify(transcriptionService).processMeetingAudioAsync(any(), eq("audio-1.mp3"), eq("job-1"));
+    }
+
+    @Test
+    void streamedWebmIsSpooledWhenNoJobSlotIsFree() throws Exception {
+        byte[] recording = recording(new byte[]{0x1A, 0x45, (byte) 0xDF, (byte) 0xA3}, 100_000);
+        when(jobQueue.admit()).thenReturn(Optional.of("job-1"));
+        AtomicReference<byte[]> spooled = new AtomicReference<>();
+        doAnswer(invocation -> {
+            File spool = invocation.getArgument(1);
+            spooled.set(Files.readAllBytes(spool.toPath()));
+            spool.delete();
+            return null;
+        }).when(transcriptionService).processMeetingFileAsync(any(), any(File.class), any(), eq("job-1"));
+
+        mockMvc.perform(streamedUpload("standup.webm", "video/webm", recording))
+                .andExpect(status().isOk());
+
+        assertArrayEquals(recording, spooled.get());
+        verifyNoInteractions(videoProcessingService);
+        verify(jobService, never()).startJob(any());
+    }
+
+    @Test
+    void streamedMp4WithTheIndexAtTheEndIsSpooled() throws Exception {
+        byte[] ftyp = {0, 0, 0, 16, 'f', 't', 'y', 'p', 'i', 's', 'o', 'm', 0, 0, 2, 0};
+        byte[] mdat = {0, 0, 0, 8, 'm', 'd', 'a', 't'};
+        byte[] header = Arrays.copyOf(ftyp, ftyp.length + mdat.length);
+        System.arraycopy(mdat, 0, header, ftyp.length, mdat.length);
+        byte[] recording = recording(header, 100_000);
+        when(jobQueue.admit()).thenReturn(Optional.of("job-1"));
+        AtomicReference<byte[]> spooled = new AtomicReference<>();
+        doAnswer(invocation -> {
+            File spool = invocation.getArgument(1);
+            spooled.set(Files.readAllBytes(spool.toPath()));
+            spool.delete();
+            return null;
+        }).when(transcriptionService).processMeetingFileAsync(any(), any(File.class), any(), eq("job-1"));
+
+        mockMvc.perform(streamedUpload("standup.mp4", "video/mp4", recording))
+                .andExpect(status().isOk());
+
+        assertArrayEquals(recording, spooled.get());
+        verifyNoInteractions(videoProcessingService);
+    }
+
+    @Test
+    void streamedUploadOfAnUnsupportedTypeIsRefusedBeforeAdmission() throws Exception {
+        mockMvc.perform(streamedUpload("notes.txt", "text/plain", "hello".getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(jobQueue, videoProcessingService, transcriptionService);
+    }
+
+    private static MockHttpServletRequestBuilder streamedUpload(String fileName, String contentType, byte[] content) throws Exception {
+        String boundary = "----meeting-boundary";
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"note\"\r\n\r\n"
+                + "first part\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"\r\n"
+                + "Content-Type: " + contentType + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(content);
+        body.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return post("/meeting-summarizer/stream")
+                .contentType("multipart/form-data; boundary=" + boundary)
+                .header("X-Requested-With", "XMLHttpRequest")
+                .content(body.toByteArray());
+    }
+
+    private static byte[] recording(byte[] header, int length) {
+        byte[] recording = new byte[length];
+        for (int i = 0; i < length; i++) {
+            recording[i] = (byte) (i * 31);
+        }
+        System.arraycopy(header, 0, recording, 0, header.length);
+        return recording;
+    }
+}
@@ -0,0 +1,97 @@
+package org.novalegal.services.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.novalegal.dao.CacheEntryRepository;
+import org.novalegal.models.CacheEntry;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.novalegal.services.ContentCacheService.Region.CLAUSE;
+import static org.novalegal.services.ContentCacheService.Region.EXTRACTED_TEXT;
+import static org.novalegal.services.ContentCacheService.Region.SUMMARY;
+
+class ContentCacheServiceImplTest {
+    private CacheEntryRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(CacheEntryRepository.class);
+    }
+
+    @Test
+    void get_shouldHitL1_afterPut() {
+        ContentCacheServiceImpl cache = new ContentCacheServiceImpl(repository, new SimpleMeterRegistry(), 1024, false, false);
+
+        assertTrue(cache.get(SUMMARY, "k").isEmpty());
+        cache.put(SUMMARY, "k", "summary");
+
+        assertEquals(Optional.of("summary"), cache.get(SUMMARY, "k"));
+        assertTrue(cache.get(EXTRACTED_TEXT, "k").isEmpty(), "regions are separate");
+        assertEquals(1L, cache.getStats().get("summary.l1_hit"));
+        assertEquals(1L, cache.getStats().get("summary.miss"));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void put_shouldEvictLeastRecentlyUsed_whenOverByteBudget() {
+        // Budget of 40 bytes fits two entries of (1 + 9) chars
+        ContentCacheServiceImpl cache = new ContentCacheServiceImpl(repository, new SimpleMeterRegistry(), 40, false, false);
+        cache.put(SUMMARY, "a", "123456789");
+        cache.put(SUMMARY, "b", "123456789");
+        cache.get(SUMMARY, "a");
+        cache.put(SUMMARY, "c", "123456789");
+
+        assertTrue(cache.get(SUMMARY, "a").isPresent());
+        assertTrue(cache.get(SUMMARY, "b").isEmpty());
+        assertTrue(cache.get(SUMMARY, "c").isPresent());
+    }
+
+    @Test
+    void get_shouldFallBackToL2AndPromote_whenEnabled() {
+        ContentCacheServiceImpl cache = new ContentCacheServiceImpl(repository, new SimpleMeterRegistry(), 1024, true, false);
+        CacheEntry entry = new CacheEntry();
+        entry.setPayload("stored text");
+        when(repository.findById(anyString())).thenReturn(Optional.of(entry));
+
+        assertEquals(Optional.of("stored text"), cache.get(EXTRACTED_TEXT, "hash"));
+        assertEquals(Optional.of("stored text"), cache.get(EXTRACTED_TEXT, "hash"));
+
+        verify(repository, times(1)).findById(anyString());
+        assertEquals(1L, cache.getStats().get("extracted_text.l2_hit"));
+        assertEquals(1L, cache.getStats().get("extracted_text.l1_hit"));
+    }
+
+    @Test
+    void get_shouldTreatL2FailureAsMiss() {
+        ContentCacheServiceImpl cache = new ContentCacheServiceImpl(repository, new SimpleMeterRegistry(), 1024, true, false);
+        when(repository.findById(anyString())).thenThrow(new RuntimeException("db down"));
+        when(repository.save(any())).thenThrow(new RuntimeException("db down"));
+
+        assertTrue(cache.get(SUMMARY, "k").isEmpty());
+        cache.put(SUMMARY, "k", "v");
+        assertEquals(Optional.of("v"), cache.get(SUMMARY, "k"));
+    }
+
+    @Test
+    void clauseRegion_shouldBePersistedAndReportHitRatio_whenL2IsOtherwiseDisabled() {
+        ContentCacheServiceImpl cache = new ContentCacheServiceImpl(repository, new SimpleMeterRegistry(), 1024, false, true);
+        when(repository.findById(anyString())).thenReturn(Optional.empty());
+
+        assertTrue(cache.get(CLAUSE, "severability").isEmpty());
+        cache.put(CLAUSE, "severability", "If one part is invalid, the rest still applies.");
+        cache.get(CLAUSE, "severability");
+        cache.get(CLAUSE, "severability");
+        cache.put(SUMMARY, "k", "v");
+
+        verify(repository).findById("C:severability");
+        verify(repository, times(1)).save(any());
+        assertEquals(2.0 / 3, cache.getHitRatio(CLAUSE), 1e-9);
+        assertEquals(0.0, cache.getHitRatio(SUMMARY));
+    }
+}
@@ -0,0 +1,131 @@
+package org.novalegal.services.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.novalegal.models.DocumentJob;
+import org.novalegal.services.DocumentProcessingService;
+import org.novalegal.services.OpenAIClientService;
+import org.novalegal.util.CompressedTextStore;
+import org.springframework.core.io.Resource;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DocumentJobServiceImplTest {
+    @Mock
+    private DocumentProcessingService processingService;
+    @Mock
+    private OpenAIClientService openAIClientService;
+
+    private final MockMultipartFile upload = new MockMultipartFile("file", "nda.pdf", "application/pdf", "pdf bytes".getBytes());
+
+    @TempDir
+    private Path spillDirectory;
+
+    @BeforeEach
+    void copyUploads() {
+        lenient().when(processingService.toMultipartFile(any(Resource.class), anyString(), anyString()))
+                .thenAnswer(invocation -> {
+                    Resource resource = invocation.getArgument(0);
+                    return new MockMultipartFile("file", invocation.getArgument(1), invocation.getArgument(2),
+                            resource.getInputStream().readAllBytes());
+                });
+    }
+
+    @Test
+    void submitJobReturnsBeforeTheDocumentIsProcessed() {
+        List<Runnable> queued = new ArrayList<>();
+        DocumentJobServiceImpl service = newService(queued::add);
+
+        String jobId = service.submitJob(upload);
+
+        DocumentJob job = service.getJob(jobId);
+        assertEquals("PENDING", job.getStatus());
+        assertEquals("nda.pdf", job.getFileName());
+        assertEquals(1, queued.size());
+        verifyNoInteractions(openAIClientService);
+    }
+
+    @Test
+    void completedJobCarriesTheSummary() throws Exception {
+        when(processingService.extractTextFromFile(any())).thenReturn("Extracted text");
+        when(openAIClientService.simplifyDocumentWithChunking(eq("Extracted text"), anyInt())).thenReturn("Simple summary");
+        DocumentJobServiceImpl service = newService(new SyncTaskExecutor());
+
+        String jobId = service.submitJob(upload);
+
+        DocumentJob job = service.getJob(jobId);
+        assertEquals("COMPLETED", job.getStatus());
+        assertEquals("Simple summary", job.getSummaryText());
+        assertTrue(job.isFinished());
+    }
+
+    @Test
+    void jobWorksOnACopyOfTheUpload() throws Exception {
+        when(processingService.extractTextFromFile(any())).thenReturn("Extracted text");
+        List<Runnable> queued = new ArrayList<>();
+        DocumentJobServiceImpl service = newService(queued::add);
+
+        service.submitJob(upload);
+        queued.get(0).run();
+
+        verify(processingService).extractTextFromFile(argThat((MultipartFile copy) -> copy != upload
+                && "nda.pdf".equals(copy.getOriginalFilename())));
+    }
+
+    @Test
+    void invalidDocumentFailsTheJobWithItsMessage() throws Exception {
+        when(processingService.extractTextFromFile(any())).thenThrow(new IllegalArgumentException("File name is missing."));
+        DocumentJobServiceImpl service = newService(new SyncTaskExecutor());
+
+        DocumentJob job = service.getJob(service.submitJob(upload));
+
+        assertEquals("FAILED", job.getStatus());
+        assertEquals("File name is missing.", job.getErrorMessage());
+    }
+
+    @Test
+    void llmFailureFailsTheJobWithoutLeakingDetails() throws Exception {
+        when(processingService.extractTextFromFile(any())).thenReturn("Extracted text");
+        when(openAIClientService.simplifyDocumentWithChunking(anyString(), anyInt()))
+                .thenThrow(new IllegalStateException("401 from https://api.openai.com"));
+        DocumentJobServiceImpl service = newService(new SyncTaskExecutor());
+
+        DocumentJob job = service.getJob(service.submitJob(upload));
+
+        assertEquals("FAILED", job.getStatus());
+        assertFalse(job.getErrorMessage().contains("openai"));
+    }
+
+    @Test
+    void rejectionIsPassedToTheCaller() {
+        DocumentJobServiceImpl service = newService(task -> {
+            throw new TaskRejectedException("full");
+        });
+
+        assertThrows(TaskRejectedException.class, () -> service.submitJob(upload));
+        verifyNoInteractions(openAIClientService);
+    }
+
+    private DocumentJobServiceImpl newService(TaskExecutor executor) {
+        return new DocumentJobServiceImpl(processingService, openAIClientService, executor,
+                new CompressedTextStore(4096, 1 << 20, spillDirectory), 100, Duration.ofHours(1), new SimpleMeterRegistry());
+    }
+}
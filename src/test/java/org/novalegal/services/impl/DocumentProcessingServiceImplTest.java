@@ -1,5 +1,6 @@
 package org.novalegal.services.impl;
 
+import org.novalegal.services.ContentCacheService;
 import org.novalegal.services.DocumentTextExtractionService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -8,7 +9,11 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.Optional;
+
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -17,6 +22,8 @@ public class DocumentProcessingServiceImplTest {
     private DocumentProcessingServiceImpl documentProcessingService;
     @Mock
     private DocumentTextExtractionService extractionService;
+    @Mock
+    private ContentCacheService contentCache;
 
     @Test
     void testExtractTextFromPdfFile_Success() throws Exception {
@@ -25,12 +32,30 @@ public class DocumentProcessingServiceImplTest {
         when(mockFile.getSize()).thenReturn(1024L);
         when(mockFile.getOriginalFilename()).thenReturn("test.pdf");
         when(mockFile.getContentType()).thenReturn("application/pdf");
+        when(mockFile.getBytes()).thenReturn("pdf bytes".getBytes());
 
         when(extractionService.extractTextFromPDF(mockFile)).thenReturn("PDF content");
 
         String result = documentProcessingService.extractTextFromFile(mockFile);
         assertEquals("PDF content", result);
         verify(extractionService).extractTextFromPDF(mockFile);
+        verify(contentCache).put(eq(ContentCacheService.Region.EXTRACTED_TEXT), anyString(), eq("PDF content"));
+    }
+
+    @Test
+    void testExtractTextFromPdfFile_CacheHitSkipsExtraction() throws Exception {
+        MultipartFile mockFile = mock(MultipartFile.class);
+        when(mockFile.isEmpty()).thenReturn(false);
+        when(mockFile.getSize()).thenReturn(1024L);
+        when(mockFile.getOriginalFilename()).thenReturn("test.pdf");
+        when(mockFile.getContentType()).thenReturn("application/pdf");
+        when(mockFile.getBytes()).thenReturn("pdf bytes".getBytes());
+        when(contentCache.get(eq(ContentCacheService.Region.EXTRACTED_TEXT), anyString()))
+                .thenReturn(Optional.of("Cached PDF content"));
+
+        String result = documentProcessingService.extractTextFromFile(mockFile);
+        assertEquals("Cached PDF content", result);
+        verifyNoInteractions(extractionService);
     }
 
     @Test
@@ -40,6 +65,7 @@ public class DocumentProcessingServiceImplTest {
         when(mockFile.getSize()).thenReturn(1024L);
         when(mockFile.getOriginalFilename()).thenReturn("test.docx");
         when(mockFile.getContentType()).thenReturn("application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+        when(mockFile.getBytes()).thenReturn("docx bytes".getBytes());
 
         when(extractionService.extractTextFromDocx(mockFile)).thenReturn("DOCX content");
 
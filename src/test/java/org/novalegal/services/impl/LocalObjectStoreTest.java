@@ -0,0 +1,220 @@
+package org.novalegal.services.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.novalegal.services.ObjectStore;
+import org.novalegal.util.SignedUrlFileServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalObjectStoreTest {
+
+    private static final byte[] KEY = "test-signing-key".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path root;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+    private SignedUrlFileServer server;
+    private LocalObjectStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new SignedUrlFileServer(root, new InetSocketAddress("127.0.0.1", 0), null, KEY,
+                LocalObjectStore::contentType, 2, Duration.ofMillis(500)).start();
+        store = new LocalObjectStore(root, server);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void put_shouldStoreTheObject_andGetShouldReadItBack() throws IOException {
+        byte[] audio = randomBytes(100_000);
+
+        long bytes = store.put("audio-1.ogg", new ByteArrayInputStream(audio), "audio/ogg");
+
+        assertEquals(audio.length, bytes);
+        try (InputStream in = store.get("audio-1.ogg")) {
+            assertArrayEquals(audio, in.readAllBytes());
+        }
+        try (var files = Files.list(root)) {
+            assertEquals(1, files.count(), "no partial file is left behind");
+        }
+    }
+
+    @Test
+    void put_shouldReplaceAnExistingObject() throws IOException {
+        store.put("audio-1.ogg", new ByteArrayInputStream(new byte[]{1, 2, 3}), "audio/ogg");
+
+        store.put("audio-1.ogg", new ByteArrayInputStream(new byte[]{4}), "audio/ogg");
+
+        try (InputStream in = store.get("audio-1.ogg")) {
+            assertArrayEquals(new byte[]{4}, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void get_shouldFail_whenThereIsNoSuchObject() {
+        assertThrows(NoSuchFileException.class, () -> store.get("missing.ogg").read());
+    }
+
+    @Test
+    void stat_shouldDescribeTheObject_orReturnNullWhenItIsMissing() throws IOException {
+        store.put("audio-1.flac", new ByteArrayInputStream(new byte[1234]), "audio/flac");
+
+        assertEquals(new ObjectStore.ObjectInfo("audio-1.flac", 1234, "audio/flac"), store.stat("audio-1.flac"));
+        assertNull(store.stat("missing.flac"));
+    }
+
+    @Test
+    void delete_shouldRemoveTheObject_andReportWhetherThereWasOne() throws IOException {
+        store.put("audio-1.ogg", new ByteArrayInputStream(new byte[10]), "audio/ogg");
+
+        assertTrue(store.delete("audio-1.ogg"));
+        assertFalse(store.delete("audio-1.ogg"));
+        assertNull(store.stat("audio-1.ogg"));
+    }
+
+    @Test
+    void shouldRejectNamesOutsideTheRoot() {
+        assertThrows(IllegalArgumentException.class,
+                () -> store.put("../escape.ogg", new ByteArrayInputStream(new byte[1]), "audio/ogg"));
+        assertThrows(IllegalArgumentException.class, () -> store.presignedUrl("dir/audio.ogg", Duration.ofMinutes(1)));
+        assertThrows(IllegalArgumentException.class, () -> store.delete(".hidden"));
+    }
+
+    @Test
+    void presignedUrl_shouldServeTheObject() throws Exception {
+        byte[] audio = randomBytes(300_000);
+        store.put("audio-1.ogg", new ByteArrayInputStream(audio), "audio/ogg");
+
+        HttpResponse<byte[]> response = send(HttpRequest.newBuilder(uri(store.presignedUrl("audio-1.ogg", Duration.ofMinutes(15)))));
+
+        assertEquals(200, response.statusCode());
+        assertEquals("audio/ogg", response.headers().firstValue("Content-Type").orElseThrow());
+        assertArrayEquals(audio, response.body());
+    }
+
+    @Test
+    void presignedUrl_shouldServeAByteRange() throws Exception {
+        byte[] audio = randomBytes(5000);
+        store.put("audio-1.ogg", new ByteArrayInputStream(audio), "audio/ogg");
+        URI uri = uri(store.presignedUrl("audio-1.ogg", Duration.ofMinutes(15)));
+
+        HttpResponse<byte[]> response = send(HttpRequest.newBuilder(uri).header("Range", "bytes=100-199"));
+
+        assertEquals(206, response.statusCode());
+        assertEquals("bytes 100-199/5000", response.headers().firstValue("Content-Range").orElseThrow());
+        assertArrayEquals(Arrays.copyOfRange(audio, 100, 200), response.body());
+        assertEquals(416, send(HttpRequest.newBuilder(uri).header("Range", "bytes=6000-")).statusCode());
+        assertEquals(416, send(HttpRequest.newBuilder(uri).header("Range", "bytes=99999999999999999999-")).statusCode());
+    }
+
+    @Test
+    void presignedUrl_shouldStillBeServed_whileClientsStallInTheirHeaders() throws Exception {
+        store.put("audio-1.ogg", new ByteArrayInputStream(new byte[10]), "audio/ogg");
+        URL url = store.presignedUrl("audio-1.ogg", Duration.ofMinutes(15));
+        // As many stalled clients as the server has threads
+        List<Socket> stalled = new ArrayList<>();
+        try {
+            for (int i = 0; i < 2; i++) {
+                Socket socket = new Socket(url.getHost(), url.getPort());
+                socket.getOutputStream().write("GET /o/audio-1.ogg HTTP/1.1\r\n".getBytes(StandardCharsets.ISO_8859_1));
+                socket.setSoTimeout(5000);
+                stalled.add(socket);
+            }
+
+            assertEquals(200, send(HttpRequest.newBuilder(uri(url))).statusCode());
+            for (Socket socket : stalled) {
+                String status = new String(socket.getInputStream().readNBytes(12), StandardCharsets.ISO_8859_1);
+                assertEquals("HTTP/1.1 408", status);
+            }
+        } finally {
+            for (Socket socket : stalled) {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    void presignedUrl_shouldAnswerHead_withoutABody() throws Exception {
+        store.put("audio-1.ogg", new ByteArrayInputStream(new byte[4321]), "audio/ogg");
+
+        HttpResponse<byte[]> response = send(HttpRequest.newBuilder(uri(store.presignedUrl("audio-1.ogg", Duration.ofMinutes(15))))
+                .method("HEAD", HttpRequest.BodyPublishers.noBody()));
+
+        assertEquals(200, response.statusCode());
+        assertEquals("4321", response.headers().firstValue("Content-Length").orElseThrow());
+        assertEquals(0, response.body().length);
+    }
+
+    @Test
+    void presignedUrl_shouldBeRefused_whenTamperedWith() throws Exception {
+        store.put("audio-1.ogg", new ByteArrayInputStream(new byte[10]), "audio/ogg");
+        store.put("audio-2.ogg", new ByteArrayInputStream(new byte[10]), "audio/ogg");
+        String url = store.presignedUrl("audio-1.ogg", Duration.ofMinutes(15)).toString();
+
+        assertEquals(403, send(HttpRequest.newBuilder(URI.create(url.replace("audio-1", "audio-2")))).statusCode());
+        assertEquals(403, send(HttpRequest.newBuilder(URI.create(url.replaceAll("expires=\\d+", "expires=99999999999")))).statusCode());
+    }
+
+    @Test
+    void presignedUrl_shouldBeRefused_onceExpired() throws Exception {
+        store.put("audio-1.ogg", new ByteArrayInputStream(new byte[10]), "audio/ogg");
+        Clock anHourAgo = Clock.fixed(Instant.now().minus(Duration.ofHours(1)), ZoneOffset.UTC);
+        LocalObjectStore past = new LocalObjectStore(root, server, anHourAgo);
+
+        URL url = past.presignedUrl("audio-1.ogg", Duration.ofMinutes(15));
+
+        assertEquals(403, send(HttpRequest.newBuilder(uri(url))).statusCode());
+    }
+
+    @Test
+    void presignedUrl_shouldReportAMissingObject() throws Exception {
+        URL url = store.presignedUrl("missing.ogg", Duration.ofMinutes(15));
+
+        assertEquals(404, send(HttpRequest.newBuilder(uri(url))).statusCode());
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest.Builder request) throws Exception {
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static URI uri(URL url) throws Exception {
+        return url.toURI();
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+}
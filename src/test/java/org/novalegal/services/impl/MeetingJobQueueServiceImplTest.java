@@ -0,0 +1,147 @@
+package org.novalegal.services.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.novalegal.models.MeetingStage;
+import org.novalegal.services.MeetingJobService;
+import org.novalegal.util.CompressedTextStore;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MeetingJobQueueServiceImplTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private MeetingJobService jobService;
+    private MeetingJobQueueServiceImpl queue;
+
+    @BeforeEach
+    void setUp(@TempDir Path spillDirectory) {
+        jobService = new MeetingJobServiceImpl(new CompressedTextStore(4096, 1 << 20, spillDirectory), 100, Duration.ofHours(1), registry);
+        // Two jobs run at once, two more may wait, and a job is assumed to take ten minutes until one has finished
+        queue = new MeetingJobQueueServiceImpl(jobService, 2, 2, Duration.ofMinutes(10), registry, now::get);
+    }
+
+    @Test
+    void admitsUpToConcurrencyPlusQueueCapacity_thenRejects() {
+        for (int i = 0; i < 4; i++) {
+            Optional<String> jobId = queue.admit();
+            assertTrue(jobId.isPresent());
+            assertNotNull(jobService.getJob(jobId.get()), "admission creates the job");
+        }
+
+        assertTrue(queue.admit().isEmpty());
+        assertEquals(1.0, registry.get("meeting.jobs.rejected").counter().count());
+        assertEquals(4.0, registry.get("meeting.jobs.queue.depth").gauge().value());
+    }
+
+    @Test
+    void finishedJobFreesItsPlace() {
+        String first = queue.admit().orElseThrow();
+        for (int i = 0; i < 3; i++) {
+            queue.admit();
+        }
+        queue.started(first);
+        queue.finished(first);
+
+        assertTrue(queue.admit().isPresent());
+    }
+
+    @Test
+    void jobNeverHandedToTheExecutorFreesItsPlace() {
+        String abandoned = queue.admit().orElseThrow();
+        for (int i = 0; i < 3; i++) {
+            queue.admit();
+        }
+        queue.finished(abandoned);
+        queue.finished(abandoned);
+
+        assertTrue(queue.admit().isPresent());
+        assertTrue(queue.admit().isEmpty(), "finishing twice releases only one place");
+    }
+
+    @Test
+    void reportsQueuePositionInAdmissionOrder() {
+        String first = queue.admit().orElseThrow();
+        String second = queue.admit().orElseThrow();
+        String third = queue.admit().orElseThrow();
+
+        queue.started(first);
+
+        assertEquals(0, queue.getQueuePosition(first));
+        assertEquals(1, queue.getQueuePosition(second));
+        assertEquals(2, queue.getQueuePosition(third));
+        assertEquals(1.0, registry.get("meeting.jobs.active").gauge().value());
+        assertEquals(2.0, registry.get("meeting.jobs.queue.depth").gauge().value());
+    }
+
+    @Test
+    void jobStartedOffTheExecutorTakesASlotUntilRequeued() {
+        String streamed = queue.admit().orElseThrow();
+        String running = queue.admit().orElseThrow();
+        String waiting = queue.admit().orElseThrow();
+        assertTrue(queue.tryStart(streamed));
+        queue.started(running);
+
+        assertFalse(queue.tryStart(waiting), "both slots are taken");
+        assertEquals(1, queue.getQueuePosition(waiting));
+
+        jobService.startJob(streamed);
+        queue.requeued(streamed);
+        assertEquals(2, queue.getQueuePosition(streamed), "back of the queue, behind the job that waited");
+        assertEquals(MeetingStage.QUEUED, jobService.getJob(streamed).getStage());
+        assertTrue(queue.tryStart(waiting));
+        queue.finished(waiting);
+        queue.started(streamed);
+        assertEquals(0, queue.getQueuePosition(streamed));
+        assertEquals(2.0, registry.get("meeting.jobs.active").gauge().value());
+    }
+
+    @Test
+    void estimatesStartFromRunningJobsAndMedianDuration() {
+        String a = queue.admit().orElseThrow();
+        String b = queue.admit().orElseThrow();
+        queue.started(a);
+        queue.started(b);
+        // One job has taken four minutes, so that is now the typical duration
+        now.addAndGet(Duration.ofMinutes(4).toNanos());
+        queue.finished(a);
+        String c = queue.admit().orElseThrow();
+        queue.started(c);
+        String d = queue.admit().orElseThrow();
+        String e = queue.admit().orElseThrow();
+
+        // b is already four minutes in and due now, c just started and has four minutes left
+        assertEquals(Optional.of(Duration.ZERO), queue.getEstimatedWait(d));
+        assertEquals(Optional.of(Duration.ofMinutes(4)), queue.getEstimatedWait(e));
+        assertEquals(Optional.empty(), queue.getEstimatedWait(c));
+    }
+
+    @Test
+    void recordsQueueWait() {
+        String jobId = queue.admit().orElseThrow();
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+        queue.started(jobId);
+
+        assertEquals(30.0, registry.get("meeting.jobs.queue.wait").timer().totalTime(TimeUnit.SECONDS), 0.001);
+    }
+
+    @Test
+    void retryAfterIsTheTimeUntilARunningJobShouldEnd() {
+        String a = queue.admit().orElseThrow();
+        String b = queue.admit().orElseThrow();
+        queue.started(a);
+        now.addAndGet(Duration.ofMinutes(3).toNanos());
+        queue.started(b);
+
+        assertEquals(Duration.ofMinutes(7), queue.getRetryAfter());
+    }
+}
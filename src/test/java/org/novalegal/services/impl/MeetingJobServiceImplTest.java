@@ -0,0 +1,87 @@
+package org.novalegal.services.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.novalegal.models.JobStatus;
+import org.novalegal.models.MeetingJob;
+import org.novalegal.models.MeetingStage;
+import org.novalegal.util.CompressedTextStore;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MeetingJobServiceImplTest {
+
+    private CompressedTextStore store;
+    private MeetingJobServiceImpl jobService;
+
+    @BeforeEach
+    void setUp(@TempDir Path spillDirectory) {
+        store = new CompressedTextStore(16, 0, spillDirectory);
+        jobService = new MeetingJobServiceImpl(store, 100, Duration.ofHours(1), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void subscribersSeeEveryTransitionInOrder() {
+        String jobId = jobService.createJob();
+        List<MeetingJob> seen = new ArrayList<>();
+        jobService.subscribe(jobId, seen::add);
+
+        jobService.startJob(jobId);
+        jobService.advanceStage(jobId, MeetingStage.TRANSCRIBING);
+        jobService.completeJob(jobId, "Decisions and action items from the weekly sync.");
+
+        assertEquals(List.of(JobStatus.IN_PROGRESS, JobStatus.IN_PROGRESS, JobStatus.COMPLETED),
+                seen.stream().map(MeetingJob::getState).toList());
+        assertEquals(MeetingStage.TRANSCRIBING, seen.get(1).getStage());
+        assertEquals(List.of(1L, 2L, 3L), seen.stream().map(MeetingJob::getVersion).toList());
+        assertEquals("Decisions and action items from the weekly sync.", jobService.getJob(jobId).getSummaryText());
+    }
+
+    @Test
+    void refusedTransitionsAreNotPublished() {
+        String jobId = jobService.createJob();
+        List<MeetingJob> seen = new ArrayList<>();
+        jobService.subscribe(jobId, seen::add);
+
+        assertFalse(jobService.advanceStage(jobId, MeetingStage.TRANSCRIBING), "a pending job has no stage");
+        assertTrue(jobService.failJob(jobId, "upload failed"));
+        assertFalse(jobService.completeJob(jobId, "A summary long enough to be spilled to disk."));
+
+        assertEquals(1, seen.size());
+        assertEquals(0, store.spilledBytes(), "the summary of a refused completion is released");
+    }
+
+    @Test
+    void startingAJobTellsTheJobsStillWaiting() {
+        String running = jobService.createJob();
+        String waiting = jobService.createJob();
+        List<MeetingJob> seen = new ArrayList<>();
+        jobService.subscribe(waiting, seen::add);
+
+        jobService.startJob(running);
+
+        assertEquals(1, seen.size());
+        assertEquals(JobStatus.PENDING, seen.get(0).getState());
+        assertEquals(0, seen.get(0).getVersion());
+    }
+
+    @Test
+    void unsubscribedListenersHearNothingMore() {
+        String jobId = jobService.createJob();
+        List<MeetingJob> seen = new ArrayList<>();
+        Runnable unsubscribe = jobService.subscribe(jobId, seen::add);
+
+        unsubscribe.run();
+        unsubscribe.run();
+        jobService.startJob(jobId);
+
+        assertTrue(seen.isEmpty());
+    }
+}
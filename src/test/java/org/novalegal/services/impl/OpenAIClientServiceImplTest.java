@@ -4,9 +4,36 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.novalegal.services.ContentCacheService;
+import org.novalegal.services.LlmCallException;
+import org.novalegal.services.LlmCallType;
+import org.novalegal.services.LlmRateLimiter;
+import org.novalegal.services.MeetingSummaryPipeline;
+import org.novalegal.services.ModelRouter;
+import org.novalegal.services.SummaryStreamListener;
+import org.novalegal.util.TokenEstimator;
 import org.springframework.http.*;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -14,6 +41,8 @@ import static org.mockito.Mockito.*;
 class OpenAIClientServiceImplTest {
     private RestTemplate restTemplate;
     private ObjectMapper objectMapper;
+    private ContentCacheService contentCache;
+    private LlmRateLimiter rateLimiter;
     private OpenAIClientServiceImpl openAIClientService;
 
     // Use a dummy API key for testing
@@ -23,12 +52,27 @@ class OpenAIClientServiceImplTest {
     void setUp() {
         restTemplate = mock(RestTemplate.class);
         objectMapper = mock(ObjectMapper.class);
-        openAIClientService = new OpenAIClientServiceImpl(restTemplate, objectMapper);
-        try {
-            var field = OpenAIClientServiceImpl.class.getDeclaredField("openAIApiKey");
-            field.setAccessible(true);
-            field.set(openAIClientService, dummyApiKey);
-        } catch (Exception ignored) {}
+        contentCache = mock(ContentCacheService.class);
+        rateLimiter = mock(LlmRateLimiter.class);
+        openAIClientService = new OpenAIClientServiceImpl(backend(objectMapper), Runnable::run, contentCache, legacyRouter(), new SimpleMeterRegistry());
+        // These tests cover the chunked route, which large documents take only without the clause cache
+        ReflectionTestUtils.setField(openAIClientService, "clauseCacheEnabled", false);
+    }
+
+    private static ModelRouter legacyRouter() {
+        return new ThresholdModelRouter(false, "gpt-3.5-turbo-16k", "gpt-4o-mini", "gpt-4o-mini", "gpt-4o",
+                100000, 13000, 12000, new SimpleMeterRegistry());
+    }
+
+    private static ModelRouter routingRouter(int singlePassMaxTokens) {
+        return new ThresholdModelRouter(true, "gpt-3.5-turbo-16k", "long-context", "cheap", "strong",
+                singlePassMaxTokens, 13000, 12000, new SimpleMeterRegistry());
+    }
+
+    private OpenAiHttpLlmBackend backend(ObjectMapper mapper) {
+        OpenAiHttpLlmBackend backend = new OpenAiHttpLlmBackend(restTemplate, mapper, rateLimiter, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(backend, "openAIApiKey", dummyApiKey);
+        return backend;
     }
 
     @Test
@@ -55,7 +99,7 @@ class OpenAIClientServiceImplTest {
         when(mockMessage.path("content")).thenReturn(mockMessage);
         when(mockMessage.asText()).thenReturn("Simplified result.");
 
-        String result = openAIClientService.simplifyWithPrompt(prompt);
+        String result = openAIClientService.simplifyWithPrompt(LlmCallType.DOCUMENT_CHUNK, prompt);
         assertEquals("Simplified result.", result);
     }
 
@@ -91,7 +135,7 @@ class OpenAIClientServiceImplTest {
         String chunk1 = "First part of a long document.";
         String chunk2 = "Second part of a long document.";
         String doc = chunk1 + " " + chunk2;
-        int chunkSize = 5; // Force two chunks
+        int chunkSize = 8; // Force two chunks (each sentence is about 7 tokens)
 
         // Mock responses for each chunk and the merge
         String summary1 = "Summary of first chunk.";
@@ -152,4 +196,369 @@ class OpenAIClientServiceImplTest {
         String result = openAIClientService.simplifyDocumentWithChunking(doc, chunkSize);
         assertEquals(merged, result);
     }
+
+    @Test
+    void simplifyDocumentWithChunking_shouldFanOutAndMergeInTree_whenParallelModeEnabled() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            OpenAIClientServiceImpl parallelService = new OpenAIClientServiceImpl(backend(new ObjectMapper()), executor, contentCache, legacyRouter(), new SimpleMeterRegistry());
+            ReflectionTestUtils.setField(parallelService, "summarizationMode", "parallel");
+            ReflectionTestUtils.setField(parallelService, "reduceFanIn", 2);
+            ReflectionTestUtils.setField(parallelService, "clauseCacheEnabled", false);
+
+            AtomicInteger inFlight = new AtomicInteger();
+            AtomicInteger maxInFlight = new AtomicInteger();
+            AtomicInteger calls = new AtomicInteger();
+            when(restTemplate.postForEntity(anyString(), any(HttpEntity.class), eq(String.class)))
+                    .thenAnswer(invocation -> {
+                        int current = inFlight.incrementAndGet();
+                        maxInFlight.accumulateAndGet(current, Math::max);
+                        Thread.sleep(20);
+                        inFlight.decrementAndGet();
+                        String content = "summary " + calls.incrementAndGet();
+                        return new ResponseEntity<>("{\"choices\":[{\"message\":{\"content\":\"" + content + "\"}}]}", HttpStatus.OK);
+                    });
+
+            // 8 chunks of 5 one-token words each
+            String doc = "word ".repeat(40);
+            String result = parallelService.simplifyDocumentWithChunking(doc, 5);
+
+            // 8 chunk calls, 4 + 2 intermediate merges, 1 final merge
+            assertEquals(15, calls.get());
+            assertEquals("summary 15", result);
+            assertTrue(maxInFlight.get() > 1, "chunk calls should overlap");
+            assertTrue(maxInFlight.get() <= 4, "fan-out must not exceed the executor size");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void streamDocumentSimplification_shouldRelayDeltasInOrder() throws Exception {
+        OpenAIClientServiceImpl streamingService = new OpenAIClientServiceImpl(backend(new ObjectMapper()), Runnable::run, contentCache, legacyRouter(), new SimpleMeterRegistry());
+        String eventStream = "data: {\"choices\":[{\"delta\":{\"role\":\"assistant\"}}]}\n\n" +
+                "data: {\"choices\":[{\"delta\":{\"content\":\"Plain \"}}]}\n\n" +
+                "data: {\"choices\":[{\"delta\":{\"content\":\"English.\"}}]}\n\n" +
+                "data: [DONE]\n\n";
+        when(restTemplate.execute(anyString(), eq(HttpMethod.POST), any(), any()))
+                .thenAnswer(invocation -> {
+                    ResponseExtractor<?> extractor = invocation.getArgument(3);
+                    ClientHttpResponse response = new MockClientHttpResponse(
+                            eventStream.getBytes(StandardCharsets.UTF_8), HttpStatus.OK);
+                    return extractor.extractData(response);
+                });
+
+        List<String> deltas = new ArrayList<>();
+        List<String> progress = new ArrayList<>();
+        streamingService.streamDocumentSimplification("Short legal document.", 100, new SummaryStreamListener() {
+            @Override
+            public void onProgress(int completedChunks, int totalChunks) {
+                progress.add(completedChunks + "/" + totalChunks);
+            }
+
+            @Override
+            public void onDelta(String text) {
+                deltas.add(text);
+            }
+        });
+
+        assertEquals(List.of("Plain ", "English."), deltas);
+        assertTrue(progress.isEmpty(), "a single-chunk document has no map phase");
+        verify(restTemplate, never()).postForEntity(anyString(), any(), eq(String.class));
+    }
+
+    @Test
+    void streamDocumentSimplification_shouldNotCacheASummaryCutOffMidStream() {
+        OpenAIClientServiceImpl streamingService = new OpenAIClientServiceImpl(backend(new ObjectMapper()), Runnable::run, contentCache, legacyRouter(), new SimpleMeterRegistry());
+        // The connection drops before the final event and [DONE]
+        String eventStream = "data: {\"choices\":[{\"delta\":{\"content\":\"Plain \"}}]}\n\n";
+        when(contentCache.get(eq(ContentCacheService.Region.SUMMARY), anyString())).thenReturn(Optional.empty());
+        when(restTemplate.execute(anyString(), eq(HttpMethod.POST), any(), any()))
+                .thenAnswer(invocation -> {
+                    ResponseExtractor<?> extractor = invocation.getArgument(3);
+                    return extractor.extractData(new MockClientHttpResponse(
+                            eventStream.getBytes(StandardCharsets.UTF_8), HttpStatus.OK));
+                });
+        List<String> deltas = new ArrayList<>();
+
+        assertThrows(LlmCallException.class, () -> streamingService.streamDocumentSimplification("Short legal document.", 100,
+                new SummaryStreamListener() {
+                    @Override
+                    public void onProgress(int completedChunks, int totalChunks) {
+                    }
+
+                    @Override
+                    public void onDelta(String text) {
+                        deltas.add(text);
+                    }
+                }));
+
+        assertEquals(List.of("Plain "), deltas);
+        verify(contentCache, never()).put(any(), anyString(), anyString());
+    }
+
+    @Test
+    void simplifyDocumentWithChunking_shouldSkipOpenAI_whenSummaryIsCached() {
+        when(contentCache.get(eq(ContentCacheService.Region.SUMMARY), anyString()))
+                .thenReturn(Optional.of("Cached summary."));
+
+        String result = openAIClientService.simplifyDocumentWithChunking("Short legal document.", 100);
+
+        assertEquals("Cached summary.", result);
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    void generateMeetingSummaryFromSegmentsChunked_shouldSummarizeEachChunkThenMerge() {
+        OpenAIClientServiceImpl meetingService = new OpenAIClientServiceImpl(backend(new ObjectMapper()), Runnable::run, contentCache, legacyRouter(), new SimpleMeterRegistry());
+        List<String> prompts = new ArrayList<>();
+        when(restTemplate.postForEntity(anyString(), any(HttpEntity.class), eq(String.class)))
+                .thenAnswer(invocation -> {
+                    HttpEntity<?> request = invocation.getArgument(1);
+                    List<?> messages = (List<?>) ((Map<?, ?>) request.getBody()).get("messages");
+                    prompts.add((String) ((Map<?, ?>) messages.get(0)).get("content"));
+                    return new ResponseEntity<>("{\"choices\":[{\"message\":{\"content\":\"summary " + prompts.size() + "\"}}]}", HttpStatus.OK);
+                });
+        StringBuilder json = new StringBuilder("{\"segments\":[");
+        for (int i = 0; i < 300; i++) {
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"start\":").append(i * 10).append(",\"end\":").append(i * 10 + 9)
+                    .append(",\"text\":\" ").append("Budget approved for the next quarter. ".repeat(2))
+                    .append("\",\"tokens\":[1,2,3]}");
+        }
+        json.append("]}");
+
+        String result = meetingService.generateMeetingSummaryFromSegmentsChunked(json.toString());
+
+        // ~100 chars per line, 300 lines: three chunks of at most 12,000 characters, then the final summary
+        assertEquals(4, prompts.size());
+        assertTrue(prompts.get(0).contains("part 1 of a transcribed meeting"));
+        assertTrue(prompts.get(0).contains("[00:00 - 00:09]  Budget approved"));
+        assertTrue(prompts.get(2).contains("part 3 of a transcribed meeting"));
+        assertTrue(prompts.get(3).contains("Part 3:\nsummary 3"));
+        assertEquals("summary 4", result);
+    }
+
+    @Test
+    void openMeetingSummaryPipeline_shouldDispatchChunkSummariesBeforeTranscriptEnds() {
+        OpenAIClientServiceImpl meetingService = new OpenAIClientServiceImpl(backend(new ObjectMapper()), Runnable::run, contentCache, legacyRouter(), new SimpleMeterRegistry());
+        when(restTemplate.postForEntity(anyString(), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(new ResponseEntity<>("{\"choices\":[{\"message\":{\"content\":\"summary\"}}]}", HttpStatus.OK));
+        String text = "Budget approved for the next quarter. ".repeat(3);
+
+        MeetingSummaryPipeline pipeline = meetingService.openMeetingSummaryPipeline();
+        for (int i = 0; i < 150; i++) {
+            pipeline.onSegment(i * 10, i * 10 + 9, text);
+        }
+
+        // 131 chars per line: the first 12,000-char chunk goes out once the transcript passes 13,000 chars
+        verify(restTemplate, times(1)).postForEntity(anyString(), any(HttpEntity.class), eq(String.class));
+
+        assertEquals("summary", pipeline.finish());
+        // second chunk and the final merge
+        verify(restTemplate, times(3)).postForEntity(anyString(), any(HttpEntity.class), eq(String.class));
+    }
+
+    @Test
+    void simplifyDocumentWithChunking_shouldMakeOneCall_whenDocumentFitsSinglePassModel() {
+        OpenAIClientServiceImpl routedService = new OpenAIClientServiceImpl(backend(new ObjectMapper()), Runnable::run,
+                contentCache, routingRouter(1000), new SimpleMeterRegistry());
+        List<String> models = recordModels();
+
+        // 40 tokens: eight chunks at a budget of 5, but well under the single-pass limit
+        String result = routedService.simplifyDocumentWithChunking("word ".repeat(40), 5);
+
+        assertEquals(List.of("long-context"), models);
+        assertEquals("summary 1", result);
+    }
+
+    @Test
+    void simplifyDocumentWithChunking_shouldUseCheapModelForChunksAndStrongModelForMerge_whenDocumentIsTooLarge() {
+        OpenAIClientServiceImpl routedService = new OpenAIClientServiceImpl(backend(new ObjectMapper()), Runnable::run,
+                contentCache, routingRouter(20), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(routedService, "clauseCacheEnabled", false);
+        List<String> models = recordModels();
+
+        routedService.simplifyDocumentWithChunking("word ".repeat(40), 20);
+
+        assertEquals(List.of("cheap", "cheap", "strong"), models);
+    }
+
+    @Test
+    void generateMeetingSummaryFromSegmentsChunked_shouldMakeOneCall_whenRoutedTranscriptFits() {
+        OpenAIClientServiceImpl routedService = new OpenAIClientServiceImpl(backend(new ObjectMapper()), Runnable::run,
+                contentCache, routingRouter(1000), new SimpleMeterRegistry());
+        List<String> models = recordModels();
+
+        String result = routedService.generateMeetingSummaryFromSegmentsChunked(
+                "{\"segments\":[{\"start\":0,\"end\":4,\"text\":\" Budget approved.\"}]}");
+
+        assertEquals(List.of("long-context"), models);
+        assertEquals("summary 1", result);
+    }
+
+    // Answers every call with "summary <n>" and records the requested model
+    private List<String> recordModels() {
+        List<String> models = new ArrayList<>();
+        when(restTemplate.postForEntity(anyString(), any(HttpEntity.class), eq(String.class)))
+                .thenAnswer(invocation -> {
+                    HttpEntity<?> request = invocation.getArgument(1);
+                    models.add((String) ((Map<?, ?>) request.getBody()).get("model"));
+                    return new ResponseEntity<>("{\"choices\":[{\"message\":{\"content\":\"summary " + models.size() + "\"}}]}", HttpStatus.OK);
+                });
+        return models;
+    }
+
+    @Test
+    void simplifyDocumentWithChunking_shouldOnlySendNovelClauses_whenBoilerplateIsInClauseStore() {
+        ContentCacheService clauseStore = new ContentCacheServiceImpl(mock(org.novalegal.dao.CacheEntryRepository.class),
+                new SimpleMeterRegistry(), 1 << 20, false, false);
+        OpenAIClientServiceImpl memoizingService = new OpenAIClientServiceImpl(backend(new ObjectMapper()), Runnable::run,
+                clauseStore, legacyRouter(), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(memoizingService, "clauseCacheEnabled", true);
+        List<String> prompts = new ArrayList<>();
+        when(restTemplate.postForEntity(anyString(), any(HttpEntity.class), eq(String.class)))
+                .thenAnswer(invocation -> {
+                    HttpEntity<?> request = invocation.getArgument(1);
+                    List<?> messages = (List<?>) ((Map<?, ?>) request.getBody()).get("messages");
+                    String prompt = (String) ((Map<?, ?>) messages.get(0)).get("content");
+                    prompts.add(prompt);
+                    StringBuilder answer = new StringBuilder();
+                    for (int clause = 1; prompt.contains("[[CLAUSE " + clause + "]]"); clause++) {
+                        answer.append("[[CLAUSE ").append(clause).append("]]\\nExplained for [PARTY_1].\\n");
+                    }
+                    String content = answer.isEmpty() ? "final summary" : answer.toString();
+                    return new ResponseEntity<>("{\"choices\":[{\"message\":{\"content\":\"" + content + "\"}}]}", HttpStatus.OK);
+                });
+        String boilerplate = "\n\n7. Severability\nIf any provision is invalid, the Company and the Recipient agree the rest remains in force.\n\n" +
+                "8. Governing Law\nThis Agreement is governed by the laws of the State of New York, see Section 7.\n";
+
+        memoizingService.simplifyDocumentWithChunking(
+                "Acme Corp. (the \"Company\") and Beta LLC (the \"Recipient\") agree as follows." + boilerplate, 500);
+        int firstUploadCalls = prompts.size();
+        prompts.clear();
+        String second = memoizingService.simplifyDocumentWithChunking(
+                "Gamma Inc. (the \"Discloser\") and Delta Ltd. (the \"Recipient\") agree as follows for a pilot project." +
+                        boilerplate.replace("Company", "Discloser").replace("7.", "11.").replace("8.", "12."), 500);
+
+        assertEquals(2, firstUploadCalls, "one batch of three clauses, then the merge");
+        assertEquals(2, prompts.size());
+        assertTrue(prompts.get(0).contains("[PARTY_1] (the \"[PARTY_1]\") and [PARTY_2]"), "only the novel preamble is sent, masked");
+        assertFalse(prompts.get(0).contains("Severability"));
+        assertTrue(prompts.get(1).contains("Explained for Discloser."), "placeholders are filled with this document's party");
+        assertFalse(prompts.get(1).contains("[PARTY_"));
+        assertEquals("final summary", second);
+        assertEquals(2.0 / 6, clauseStore.getHitRatio(ContentCacheService.Region.CLAUSE), 1e-9);
+    }
+
+    @Test
+    void simplifyDocumentWithChunking_shouldExplainClausesOneByOne_whenABatchAnswerCannotBeSplit() {
+        ContentCacheService clauseStore = new ContentCacheServiceImpl(mock(org.novalegal.dao.CacheEntryRepository.class),
+                new SimpleMeterRegistry(), 1 << 20, false, false);
+        OpenAIClientServiceImpl memoizingService = new OpenAIClientServiceImpl(backend(new ObjectMapper()), Runnable::run,
+                clauseStore, legacyRouter(), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(memoizingService, "clauseCacheEnabled", true);
+        List<String> prompts = new ArrayList<>();
+        when(restTemplate.postForEntity(anyString(), any(HttpEntity.class), eq(String.class)))
+                .thenAnswer(invocation -> {
+                    String prompt = promptOf(invocation.getArgument(1));
+                    prompts.add(prompt);
+                    String content;
+                    if (prompt.contains("[[CLAUSE 2]]")) {
+                        content = "All three clauses are standard.";
+                    } else if (prompt.contains("[[CLAUSE 1]]")) {
+                        content = "[[CLAUSE 1]]\\nExplained on its own.";
+                    } else {
+                        content = "final summary";
+                    }
+                    return new ResponseEntity<>("{\"choices\":[{\"message\":{\"content\":\"" + content + "\"}}]}", HttpStatus.OK);
+                });
+
+        memoizingService.simplifyDocumentWithChunking("Acme Corp. and Beta LLC agree as follows.\n\n" +
+                "1. Term\nThis Agreement lasts two years.\n\n2. Fees\nThe Recipient pays 100 dollars a month.\n", 500);
+
+        assertEquals(5, prompts.size(), "the batch, each of its three clauses alone, then the merge");
+        String merge = prompts.get(4);
+        assertEquals(3, merge.split("Explained on its own\\.", -1).length - 1, "every clause is in the merge");
+        assertFalse(merge.contains("All three clauses are standard."));
+    }
+
+    @Test
+    void simplifyDocumentWithChunking_shouldMergeClauseExplanationsInRounds_whenTheyExceedAChunk() {
+        ContentCacheService clauseStore = new ContentCacheServiceImpl(mock(org.novalegal.dao.CacheEntryRepository.class),
+                new SimpleMeterRegistry(), 1 << 20, false, false);
+        OpenAIClientServiceImpl memoizingService = new OpenAIClientServiceImpl(backend(new ObjectMapper()), Runnable::run,
+                clauseStore, legacyRouter(), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(memoizingService, "clauseCacheEnabled", true);
+        String explanation = "This clause means that the parties must keep their promises for the whole term of the agreement. ".repeat(3);
+        List<String> prompts = new ArrayList<>();
+        when(restTemplate.postForEntity(anyString(), any(HttpEntity.class), eq(String.class)))
+                .thenAnswer(invocation -> {
+                    String prompt = promptOf(invocation.getArgument(1));
+                    prompts.add(prompt);
+                    StringBuilder answer = new StringBuilder();
+                    for (int clause = 1; prompt.contains("[[CLAUSE " + clause + "]]"); clause++) {
+                        answer.append("[[CLAUSE ").append(clause).append("]]\\n").append(explanation).append("\\n");
+                    }
+                    String content = answer.isEmpty() ? "merged" : answer.toString();
+                    return new ResponseEntity<>("{\"choices\":[{\"message\":{\"content\":\"" + content + "\"}}]}", HttpStatus.OK);
+                });
+        StringBuilder document = new StringBuilder("Acme Corp. and Beta LLC agree as follows.\n\n");
+        for (int i = 1; i <= 12; i++) {
+            document.append(i).append(". Clause ").append(i).append("\nParty obligation number ").append(i).append(" applies.\n\n");
+        }
+        int chunkSize = 200;
+
+        memoizingService.simplifyDocumentWithChunking(document.toString(), chunkSize);
+
+        List<String> merges = prompts.stream().filter(prompt -> !prompt.contains("[[CLAUSE")).toList();
+        assertTrue(merges.size() > 1, "the explanations are merged in rounds");
+        assertTrue(merges.get(0).contains("summaries of consecutive sections"));
+        for (String merge : merges) {
+            assertTrue(TokenEstimator.estimate(merge) < 2 * chunkSize, "no merge prompt outgrows a chunk");
+        }
+    }
+
+    private static String promptOf(HttpEntity<?> request) {
+        List<?> messages = (List<?>) ((Map<?, ?>) request.getBody()).get("messages");
+        return (String) ((Map<?, ?>) messages.get(0)).get("content");
+    }
+
+    @Test
+    void simplifyDocumentWithChunking_shouldCoalesceConcurrentIdenticalDocuments() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OpenAIClientServiceImpl coalescingService = new OpenAIClientServiceImpl(backend(new ObjectMapper()), Runnable::run,
+                contentCache, routingRouter(1000), registry);
+        when(contentCache.get(any(), anyString())).thenReturn(Optional.empty());
+        CountDownLatch callStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        when(restTemplate.postForEntity(anyString(), any(HttpEntity.class), eq(String.class)))
+                .thenAnswer(invocation -> {
+                    calls.incrementAndGet();
+                    callStarted.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return new ResponseEntity<>("{\"choices\":[{\"message\":{\"content\":\"shared summary\"}}]}", HttpStatus.OK);
+                });
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = callers.submit(() -> coalescingService.simplifyDocumentWithChunking("Sample NDA text.", 5000));
+            assertTrue(callStarted.await(5, TimeUnit.SECONDS));
+            Future<String> second = callers.submit(() -> coalescingService.simplifyDocumentWithChunking("Sample NDA text.", 5000));
+            FunctionCounter coalesced = registry.get("llm.singleflight.calls")
+                    .tags("operation", "document", "result", "coalesced").functionCounter();
+            for (int i = 0; i < 1000 && coalesced.count() < 1; i++) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertEquals("shared summary", first.get(5, TimeUnit.SECONDS));
+            assertEquals("shared summary", second.get(5, TimeUnit.SECONDS));
+        } finally {
+            callers.shutdownNow();
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, registry.get("llm.singleflight.calls").tags("operation", "document", "result", "coalesced").functionCounter().count());
+        assertEquals(1, registry.get("llm.singleflight.calls").tags("operation", "document", "result", "executed").functionCounter().count());
+    }
 }
@@ -0,0 +1,153 @@
+package org.novalegal.services.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.novalegal.services.LlmCallException;
+import org.novalegal.services.LlmCallType;
+import org.novalegal.services.LlmRateLimiter;
+import org.novalegal.util.LlmStubServer;
+import org.springframework.http.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OpenAiHttpLlmBackendTest {
+    private RestTemplate restTemplate;
+    private LlmRateLimiter rateLimiter;
+    private SimpleMeterRegistry meterRegistry;
+    private OpenAiHttpLlmBackend backend;
+
+    @BeforeEach
+    void setUp() {
+        restTemplate = mock(RestTemplate.class);
+        rateLimiter = mock(LlmRateLimiter.class);
+        meterRegistry = new SimpleMeterRegistry();
+        backend = backend(restTemplate);
+    }
+
+    private OpenAiHttpLlmBackend backend(RestTemplate template) {
+        OpenAiHttpLlmBackend httpBackend = new OpenAiHttpLlmBackend(template, new ObjectMapper(), rateLimiter, meterRegistry);
+        ReflectionTestUtils.setField(httpBackend, "openAIApiKey", "test-api-key");
+        ReflectionTestUtils.setField(httpBackend, "retryInitialBackoff", Duration.ofMillis(1));
+        return httpBackend;
+    }
+
+    @Test
+    void complete_shouldRetryAfter429_andQueueEachAttemptInRateLimiter() {
+        HttpHeaders throttled = new HttpHeaders();
+        throttled.set("retry-after-ms", "5");
+        when(restTemplate.postForEntity(anyString(), any(HttpEntity.class), eq(String.class)))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", throttled, null, null))
+                .thenReturn(new ResponseEntity<>("{\"choices\":[{\"message\":{\"content\":\"Done.\"}}]}", HttpStatus.OK));
+
+        String result = backend.complete(LlmCallType.DOCUMENT_CHUNK, "gpt-3.5-turbo-16k", "Test prompt");
+
+        assertEquals("Done.", result);
+        verify(rateLimiter, times(2)).acquire("Test prompt");
+        verify(rateLimiter).onResponse(throttled);
+    }
+
+    @Test
+    void complete_shouldNotRetryClientErrors() {
+        when(restTemplate.postForEntity(anyString(), any(HttpEntity.class), eq(String.class)))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "Bad Request", new HttpHeaders(), null, null));
+
+        assertThrows(HttpClientErrorException.class, () -> backend.complete(LlmCallType.DOCUMENT_CHUNK, "gpt-3.5-turbo-16k", "Test prompt"));
+        verify(restTemplate, times(1)).postForEntity(anyString(), any(HttpEntity.class), eq(String.class));
+    }
+
+    @Test
+    void complete_shouldPostToConfiguredBaseUrl() {
+        ReflectionTestUtils.setField(backend, "baseUrl", "http://127.0.0.1:8089/v1/");
+        when(restTemplate.postForEntity(anyString(), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(new ResponseEntity<>("{\"choices\":[{\"message\":{\"content\":\"Done.\"}}]}", HttpStatus.OK));
+
+        backend.complete(LlmCallType.DOCUMENT_CHUNK, "gpt-4", "Test prompt");
+
+        verify(restTemplate).postForEntity(eq("http://127.0.0.1:8089/v1/chat/completions"), any(HttpEntity.class), eq(String.class));
+    }
+
+    @Test
+    void complete_shouldThrowInsteadOfReturningPlaceholder_whenResponseHasNoContent() {
+        when(restTemplate.postForEntity(anyString(), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(new ResponseEntity<>("{\"choices\":[]}", HttpStatus.OK))
+                .thenReturn(new ResponseEntity<>("<html>Bad gateway</html>", HttpStatus.OK));
+
+        assertThrows(LlmCallException.class, () -> backend.complete(LlmCallType.DOCUMENT_CHUNK, "gpt-4", "Test prompt"));
+        assertThrows(LlmCallException.class, () -> backend.complete(LlmCallType.DOCUMENT_CHUNK, "gpt-4", "Test prompt"));
+        assertEquals(2, meterRegistry.get("llm.call.failures").tag("status", "invalid").counter().count());
+    }
+
+    @Test
+    void retryDelayMillis_shouldHonorRetryAfterSeconds() {
+        ReflectionTestUtils.setField(backend, "retryInitialBackoff", Duration.ofSeconds(1));
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "2");
+
+        assertTrue(backend.retryDelayMillis(1, headers) >= 2000);
+        assertTrue(backend.retryDelayMillis(1, new HttpHeaders()) <= 1000);
+    }
+
+    @Test
+    void complete_shouldReturnStubCompletion() throws Exception {
+        try (LlmStubServer stub = new LlmStubServer(LlmStubServer.Settings.instant()).start()) {
+            OpenAiHttpLlmBackend stubBackend = backend(new RestTemplate());
+            ReflectionTestUtils.setField(stubBackend, "baseUrl", stub.baseUrl());
+
+            String result = stubBackend.complete(LlmCallType.DOCUMENT_CHUNK, "gpt-3.5-turbo-16k", "Summarize this clause.");
+
+            assertEquals(20, result.split(" ").length);
+            assertEquals(1, stub.requestCount());
+            assertEquals(1, meterRegistry.get("llm.call.latency")
+                    .tags("type", "document-chunk", "model", "gpt-3.5-turbo-16k", "outcome", "success").timer().count());
+            assertEquals(20, meterRegistry.get("llm.call.tokens").tags("type", "document-chunk", "kind", "completion")
+                    .summary().totalAmount());
+            assertTrue(meterRegistry.get("llm.call.tokens").tags("kind", "prompt").summary().totalAmount() > 0);
+        }
+    }
+
+    @Test
+    void stream_shouldRelayStubDeltasInOrder() throws Exception {
+        try (LlmStubServer stub = new LlmStubServer(LlmStubServer.Settings.instant()).start()) {
+            OpenAiHttpLlmBackend stubBackend = backend(new RestTemplate());
+            ReflectionTestUtils.setField(stubBackend, "baseUrl", stub.baseUrl());
+            List<String> deltas = new ArrayList<>();
+
+            stubBackend.stream(LlmCallType.DOCUMENT_MERGE, "gpt-3.5-turbo-16k", "Summarize this clause.", deltas::add);
+
+            assertEquals(20, deltas.size());
+            assertEquals(20, String.join("", deltas).split(" ").length);
+            assertEquals(1, meterRegistry.get("llm.call.ttft").tags("type", "document-merge").timer().count());
+            assertEquals(20, meterRegistry.get("llm.call.tokens").tags("type", "document-merge", "kind", "completion")
+                    .summary().totalAmount());
+        }
+    }
+
+    @Test
+    void complete_shouldGiveUpAfterMaxAttempts_whenStubAlwaysThrottles() throws Exception {
+        LlmStubServer.Settings throttling = new LlmStubServer.Settings(0, Duration.ZERO, Duration.ZERO, 0, 20,
+                0, 1.0, Duration.ofMillis(1), 42);
+        try (LlmStubServer stub = new LlmStubServer(throttling).start()) {
+            OpenAiHttpLlmBackend stubBackend = backend(new RestTemplate());
+            ReflectionTestUtils.setField(stubBackend, "baseUrl", stub.baseUrl());
+            ReflectionTestUtils.setField(stubBackend, "retryMaxAttempts", 3);
+
+            HttpClientErrorException error = assertThrows(HttpClientErrorException.class,
+                    () -> stubBackend.complete(LlmCallType.DOCUMENT_CHUNK, "gpt-3.5-turbo-16k", "Summarize this clause."));
+
+            assertEquals(HttpStatus.TOO_MANY_REQUESTS, error.getStatusCode());
+            assertEquals(3, stub.requestCount());
+            assertEquals(3, meterRegistry.get("llm.call.failures").tags("status", "429").counter().count());
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.novalegal.services.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.novalegal.services.LlmBackend;
+import org.novalegal.services.LlmCallException;
+import org.novalegal.services.LlmCallType;
+import org.novalegal.services.LlmUnavailableException;
+import org.novalegal.util.CallScope;
+import org.novalegal.util.CircuitBreaker;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ResilientLlmBackendTest {
+    private static final LlmCallType CHUNK = LlmCallType.DOCUMENT_CHUNK;
+
+    private LlmBackend delegate;
+    private ExecutorService callExecutor;
+    private SimpleMeterRegistry meterRegistry;
+    private ResilientLlmBackend backend;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(LlmBackend.class);
+        callExecutor = Executors.newCachedThreadPool();
+        meterRegistry = new SimpleMeterRegistry();
+        backend = new ResilientLlmBackend(delegate, callExecutor, meterRegistry, new CircuitBreaker(3, Duration.ofMinutes(1)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        callExecutor.shutdownNow();
+    }
+
+    @Test
+    void complete_shouldRetryOnlyTheFailedCall_whenResponseIsInvalid() {
+        when(delegate.complete(CHUNK, "m", "p"))
+                .thenThrow(new LlmCallException("no content"))
+                .thenReturn("summary");
+
+        assertEquals("summary", backend.complete(CHUNK, "m", "p"));
+        verify(delegate, times(2)).complete(CHUNK, "m", "p");
+        assertEquals(1, meterRegistry.get("llm.call.retries").counter().count());
+    }
+
+    @Test
+    void complete_shouldNotRetryClientErrors() {
+        when(delegate.complete(CHUNK, "m", "p"))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "Bad Request", new HttpHeaders(), null, null));
+
+        assertThrows(HttpClientErrorException.class, () -> backend.complete(CHUNK, "m", "p"));
+        verify(delegate, times(1)).complete(CHUNK, "m", "p");
+    }
+
+    @Test
+    void complete_shouldFailAtDeadline_whenBackendHangs() {
+        ReflectionTestUtils.setField(backend, "callTimeout", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(backend, "maxAttempts", 1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.complete(CHUNK, "m", "p")).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return "too late";
+        });
+
+        long start = System.nanoTime();
+        LlmCallException e = assertThrows(LlmCallException.class, () -> backend.complete(CHUNK, "m", "p"));
+        release.countDown();
+
+        assertTrue(e.getMessage().contains("did not finish"));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        assertEquals(1, meterRegistry.get("llm.call.timeouts").counter().count());
+    }
+
+    @Test
+    void complete_shouldHedgeSlowCall_andUseFirstAnswer() {
+        ReflectionTestUtils.setField(backend, "hedgeEnabled", true);
+        ReflectionTestUtils.setField(backend, "hedgeMinSamples", 5);
+        ReflectionTestUtils.setField(backend, "hedgeMinDelay", Duration.ofMillis(20));
+        when(delegate.complete(CHUNK, "m", "warm-up")).thenReturn("fast");
+        for (int i = 0; i < 5; i++) {
+            backend.complete(CHUNK, "m", "warm-up");
+        }
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger attempts = new AtomicInteger();
+        when(delegate.complete(CHUNK, "m", "p")).thenAnswer(invocation -> {
+            if (attempts.incrementAndGet() == 1) {
+                // The first request is stuck behind a slow replica
+                release.await(5, TimeUnit.SECONDS);
+                return "slow";
+            }
+            return "hedged";
+        });
+
+        String result = backend.complete(CHUNK, "m", "p");
+        release.countDown();
+
+        assertEquals("hedged", result);
+        assertEquals(2, attempts.get());
+        assertEquals(1, meterRegistry.get("llm.call.hedges").tag("result", "started").counter().count());
+        assertEquals(1, meterRegistry.get("llm.call.hedges").tag("result", "won").counter().count());
+    }
+
+    @Test
+    void complete_shouldFailFast_whenCircuitIsOpen() {
+        ReflectionTestUtils.setField(backend, "maxAttempts", 1);
+        when(delegate.complete(eq(CHUNK), eq("m"), anyString()))
+                .thenThrow(new ResourceAccessException("Connection refused"));
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(ResourceAccessException.class, () -> backend.complete(CHUNK, "m", "p"));
+        }
+        assertThrows(LlmUnavailableException.class, () -> backend.complete(CHUNK, "m", "p"));
+
+        verify(delegate, times(3)).complete(any(), anyString(), anyString());
+        assertEquals(1, meterRegistry.get("llm.circuit.state").gauge().value());
+        assertEquals(1, meterRegistry.get("llm.circuit.rejections").counter().count());
+    }
+
+    @Test
+    void complete_shouldAbortTheRequest_whenGivingUpAtTheDeadline() throws InterruptedException {
+        ReflectionTestUtils.setField(backend, "callTimeout", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(backend, "maxAttempts", 1);
+        CountDownLatch aborted = new CountDownLatch(1);
+        when(delegate.complete(CHUNK, "m", "p")).thenAnswer(invocation -> {
+            CallScope.onAbort(aborted::countDown);
+            Thread.sleep(5000);
+            return "too late";
+        });
+
+        assertThrows(LlmCallException.class, () -> backend.complete(CHUNK, "m", "p"));
+
+        assertTrue(aborted.await(1, TimeUnit.SECONDS), "the abandoned request is aborted");
+    }
+
+    @Test
+    void complete_shouldNotCountRateLimitQueueing_againstTheDeadline() {
+        ReflectionTestUtils.setField(backend, "callTimeout", Duration.ofMillis(100));
+        ReflectionTestUtils.setField(backend, "maxAttempts", 1);
+        when(delegate.complete(CHUNK, "m", "p")).thenAnswer(invocation -> {
+            CallScope.waiting(() -> LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(300)));
+            return "summary";
+        });
+
+        assertEquals("summary", backend.complete(CHUNK, "m", "p"));
+    }
+
+    @Test
+    void complete_shouldNotCloseAHalfOpenCircuit_whenTheCallIsRejectedLocally() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(1, Duration.ofSeconds(10), now::get);
+        breaker.tryAcquire();
+        breaker.onFailure();
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        ResilientLlmBackend rejecting = new ResilientLlmBackend(delegate, task -> {
+            throw new TaskRejectedException("llm-call pool is full");
+        }, meterRegistry, breaker);
+
+        assertThrows(TaskRejectedException.class, () -> rejecting.complete(CHUNK, "m", "p"));
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertTrue(breaker.tryAcquire(), "the trial is still available");
+        verifyNoInteractions(delegate);
+    }
+}
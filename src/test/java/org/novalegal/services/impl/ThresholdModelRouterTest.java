@@ -0,0 +1,46 @@
+package org.novalegal.services.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.novalegal.services.LlmCallType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThresholdModelRouterTest {
+
+    @Test
+    void fitsSinglePass_shouldCompareEstimatedTokensWithThreshold_andCountDecisions() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ThresholdModelRouter router = new ThresholdModelRouter(true, "default", "long", "cheap", "strong",
+                10, 13000, 12000, registry);
+
+        assertTrue(router.fitsSinglePass("First part of a long document."));
+        assertFalse(router.fitsSinglePass("word ".repeat(11)));
+
+        assertEquals(1, registry.get("llm.routing.decisions").tag("route", "single-pass").counter().count());
+        assertEquals(1, registry.get("llm.routing.decisions").tag("route", "chunked").counter().count());
+        assertEquals(10, registry.get("llm.routing.single-pass.max.tokens").gauge().value());
+    }
+
+    @Test
+    void modelFor_shouldSplitMapAndMergeModels() {
+        ThresholdModelRouter router = new ThresholdModelRouter(true, "default", "long", "cheap", "strong",
+                10, 13000, 12000, new SimpleMeterRegistry());
+
+        assertEquals("long", router.modelFor(LlmCallType.DOCUMENT_SINGLE));
+        assertEquals("cheap", router.modelFor(LlmCallType.MEETING_CHUNK));
+        assertEquals("strong", router.modelFor(LlmCallType.DOCUMENT_MERGE));
+        assertEquals("strong", router.modelFor(LlmCallType.MEETING_FINAL));
+    }
+
+    @Test
+    void disabledRouter_shouldKeepDefaultModelAndLegacyThresholds() {
+        ThresholdModelRouter router = new ThresholdModelRouter(false, "default", "long", "cheap", "strong",
+                100000, 13000, 12000, new SimpleMeterRegistry());
+
+        assertFalse(router.fitsSinglePass("short"));
+        assertEquals("default", router.modelFor(LlmCallType.DOCUMENT_MERGE));
+        assertEquals(13000, router.meetingSinglePassMaxChars());
+        assertFalse(router.isSinglePassMeetingEnabled());
+    }
+}
@@ -0,0 +1,82 @@
+package org.novalegal.services.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketLlmRateLimiterTest {
+
+    @Test
+    void acquire_shouldTakeEstimatedPromptTokensPlusReserve() {
+        AtomicLong clock = new AtomicLong();
+        TokenBucketLlmRateLimiter limiter = new TokenBucketLlmRateLimiter(60, 1000, 100, new SimpleMeterRegistry(), clock::get);
+
+        limiter.acquire("First part of a long document.");
+
+        assertEquals(1000 - 7 - 100, limiter.availableTokens());
+    }
+
+    @Test
+    void acquire_shouldQueueUntilBucketRefills() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        TokenBucketLlmRateLimiter limiter = new TokenBucketLlmRateLimiter(1, 1000, 0, new SimpleMeterRegistry(), clock::get);
+        limiter.acquire("first");
+
+        CountDownLatch admitted = new CountDownLatch(1);
+        Thread second = new Thread(() -> {
+            limiter.acquire("second");
+            admitted.countDown();
+        });
+        second.start();
+
+        assertFalse(admitted.await(100, TimeUnit.MILLISECONDS), "request bucket is empty, the call must wait");
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        // The waiter sleeps on the real clock; any response wakes it up to re-check the buckets
+        limiter.onResponse(new HttpHeaders());
+        assertTrue(admitted.await(5, TimeUnit.SECONDS), "the call must be admitted once the bucket refills");
+        second.join();
+    }
+
+    @Test
+    void onResponse_shouldLowerAvailableTokensToServerRemaining() {
+        AtomicLong clock = new AtomicLong();
+        TokenBucketLlmRateLimiter limiter = new TokenBucketLlmRateLimiter(60, 1000, 0, new SimpleMeterRegistry(), clock::get);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("x-ratelimit-limit-tokens", "800");
+        headers.set("x-ratelimit-remaining-tokens", "120");
+        headers.set("x-ratelimit-reset-tokens", "6m0s");
+
+        limiter.onResponse(headers);
+
+        assertEquals(120, limiter.availableTokens());
+    }
+
+    @Test
+    void onResponse_shouldHoldBucketEmptyUntilReset_whenNothingRemains() {
+        AtomicLong clock = new AtomicLong();
+        TokenBucketLlmRateLimiter limiter = new TokenBucketLlmRateLimiter(60, 1000, 0, new SimpleMeterRegistry(), clock::get);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("x-ratelimit-remaining-tokens", "0");
+        headers.set("x-ratelimit-reset-tokens", "2s");
+
+        limiter.onResponse(headers);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        assertEquals(0, limiter.availableTokens());
+    }
+
+    @Test
+    void parseDurationNanos_shouldReadOpenAiResetFormats() {
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(20), TokenBucketLlmRateLimiter.parseDurationNanos("20ms"));
+        assertEquals(TimeUnit.MINUTES.toNanos(6), TokenBucketLlmRateLimiter.parseDurationNanos("6m0s"));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1500), TokenBucketLlmRateLimiter.parseDurationNanos("1.5s"));
+        assertEquals(-1, TokenBucketLlmRateLimiter.parseDurationNanos("soon"));
+        assertEquals(-1, TokenBucketLlmRateLimiter.parseDurationNanos(null));
+    }
+}
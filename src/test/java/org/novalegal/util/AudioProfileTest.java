@@ -0,0 +1,45 @@
+package org.novalegal.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AudioProfileTest {
+
+    @Test
+    void ffmpegCommand_shouldMapOnlyTheFirstAudioStream_andNeverTheVideo() {
+        for (AudioProfile profile : AudioProfile.values()) {
+            List<String> command = profile.ffmpegCommand("pipe:0", "/tmp/out." + profile.getExtension(), 3);
+
+            assertEquals("pipe:0", command.get(command.indexOf("-i") + 1));
+            assertEquals("0:a:0", command.get(command.indexOf("-map") + 1));
+            assertTrue(command.contains("-vn"), profile.name());
+            assertEquals(1, Collections.frequency(command, "-map"), profile.name());
+            assertEquals("3", command.get(command.indexOf("-threads") + 1));
+            assertEquals("/tmp/out." + profile.getExtension(), command.get(command.size() - 1));
+        }
+    }
+
+    @Test
+    void ffmpegCommand_shouldResampleTheWhisperProfilesTo16kHzMono() {
+        for (AudioProfile profile : List.of(AudioProfile.OPUS_16K_MONO, AudioProfile.FLAC_16K_MONO)) {
+            List<String> command = profile.ffmpegCommand("in.mp4", "out", 1);
+
+            assertEquals("16000", command.get(command.indexOf("-ar") + 1));
+            assertEquals("1", command.get(command.indexOf("-ac") + 1));
+        }
+    }
+
+    @Test
+    void ffmpegCommand_shouldSeekTheInputToThePiece() {
+        List<String> command = AudioProfile.OPUS_16K_MONO.ffmpegCommand("audio.ogg", 584, 1230.5, "pipe:1", 1);
+
+        assertEquals("584.000", command.get(command.indexOf("-ss") + 1));
+        assertEquals("646.500", command.get(command.indexOf("-t") + 1));
+        assertTrue(command.indexOf("-ss") < command.indexOf("-i"), "input seeking decodes nothing before the piece");
+        assertEquals("pipe:1", command.get(command.size() - 1));
+    }
+}
@@ -0,0 +1,110 @@
+package org.novalegal.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClauseChunkerTest {
+
+    @Test
+    void estimate_shouldCountCommonWordsAsSingleTokens() {
+        assertEquals(7, TokenEstimator.estimate("First part of a long document."));
+        assertEquals(2, TokenEstimator.estimate("1234"));
+        assertEquals(0, TokenEstimator.estimate(""));
+    }
+
+    @Test
+    void estimate_shouldGrowWithWordLength() {
+        assertTrue(TokenEstimator.estimate("indemnificationobligations") > TokenEstimator.estimate("indemnify"));
+    }
+
+    @Test
+    void chunk_shouldReturnSingleChunk_whenTextFitsBudget() {
+        List<String> chunks = ClauseChunker.chunk("  Short legal document.  ", 100);
+        assertEquals(List.of("Short legal document."), chunks);
+    }
+
+    @Test
+    void chunk_shouldReturnNoChunks_whenTextIsBlank() {
+        assertTrue(ClauseChunker.chunk(" \n\n ", 10).isEmpty());
+    }
+
+    @Test
+    void chunk_shouldPreferSectionHeadings() {
+        String text = "1. Definitions\nThe Company means Acme and its affiliates.\n" +
+                "2. Confidentiality\nThe Recipient shall keep all information secret and shall not disclose it.\n";
+
+        List<String> chunks = ClauseChunker.chunk(text, 25);
+
+        assertEquals(2, chunks.size());
+        assertTrue(chunks.get(0).startsWith("1. Definitions"));
+        assertTrue(chunks.get(1).startsWith("2. Confidentiality"));
+    }
+
+    @Test
+    void chunk_shouldFallBackToSentenceEnds_whenNoHeadingIsNearby() {
+        String text = "The tenant pays rent monthly. The landlord repairs the roof. The deposit is refundable.";
+
+        List<String> chunks = ClauseChunker.chunk(text, 12);
+
+        for (String chunk : chunks) {
+            assertTrue(chunk.endsWith("."), chunk);
+            assertTrue(TokenEstimator.estimate(chunk) <= 12, chunk);
+        }
+        assertEquals(text, String.join(" ", chunks));
+    }
+
+    @Test
+    void chunk_shouldHardCut_whenThereIsNoBoundary() {
+        String text = "x".repeat(200);
+
+        List<String> chunks = ClauseChunker.chunk(text, 5);
+
+        assertTrue(chunks.size() > 1);
+        assertEquals(text, String.join("", chunks));
+    }
+
+    @Test
+    void chunk_shouldRejectNonPositiveBudget() {
+        assertThrows(IllegalArgumentException.class, () -> ClauseChunker.chunk("text", 0));
+    }
+
+    @Test
+    void isHeadingLine_shouldRecognizeCommonMarkers() {
+        assertTrue(ClauseChunker.isHeadingLine("4.2 Term", 0));
+        assertTrue(ClauseChunker.isHeadingLine("  12) Notices", 0));
+        assertTrue(ClauseChunker.isHeadingLine("Section 4 Payment", 0));
+        assertTrue(ClauseChunker.isHeadingLine("ARTICLE IV", 0));
+        assertTrue(ClauseChunker.isHeadingLine("(a) the Company", 0));
+        assertTrue(ClauseChunker.isHeadingLine("§ 3 Liability", 0));
+        assertFalse(ClauseChunker.isHeadingLine("2024 was a good year", 0));
+        assertFalse(ClauseChunker.isHeadingLine("Sections are headed", 0));
+    }
+
+    @Test
+    void clauses_shouldSplitAtHeadingsAndParagraphs_keepingTitlesWithTheirText() {
+        String text = "This Agreement is made today.\n\n" +
+                "1. Definitions\n\nThe Company means Acme.\n" +
+                "2. Term. This Agreement lasts two years.\n" +
+                "It renews automatically.\n\n\n" +
+                "Notices must be written.";
+
+        List<String> clauses = ClauseChunker.clauses(text, 100);
+
+        assertEquals(List.of(
+                "This Agreement is made today.",
+                "1. Definitions\n\nThe Company means Acme.",
+                "2. Term. This Agreement lasts two years.\nIt renews automatically.",
+                "Notices must be written."), clauses);
+    }
+
+    @Test
+    void clauses_shouldCutClausesOverBudget() {
+        List<String> clauses = ClauseChunker.clauses("1. Payment\n" + "The tenant pays rent monthly. ".repeat(10), 12);
+
+        assertTrue(clauses.size() > 1);
+        clauses.forEach(clause -> assertTrue(TokenEstimator.estimate(clause) <= 12, clause));
+    }
+}
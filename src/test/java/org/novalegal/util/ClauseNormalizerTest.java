@@ -0,0 +1,30 @@
+package org.novalegal.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClauseNormalizerTest {
+
+    @Test
+    void partyMask_shouldMaskNamesAndDefinedRolesInOrderOfDefinition() {
+        ClauseNormalizer.PartyMask mask = ClauseNormalizer.PartyMask.of(
+                "This NDA is between Acme Corp. (the \"Company\") and Beta LLC, a Delaware company (\"Recipient\").\n" +
+                        "All non-public data (\"Confidential Information\") stays secret.");
+
+        assertEquals("[PARTY_1] may disclose to [PARTY_2], and [PARTY_1] means [PARTY_1].",
+                mask.mask("Company may disclose to Recipient, and Company means Acme Corp.."));
+        assertEquals("Confidential Information is not a party.", mask.mask("Confidential Information is not a party."));
+        assertEquals("Recipient must tell Company.", mask.unmask("[PARTY_2] must tell [PARTY_1]."));
+    }
+
+    @Test
+    void canonicalKey_shouldIgnoreNumberingLayoutQuotesAndCase() {
+        String first = "12. Severability.  If any provision of Section 4.2 is “invalid”,\nthe rest remains.";
+        String second = "Section 3 SEVERABILITY. If any provision of section 9.1 is \"invalid\", the rest remains.";
+
+        assertEquals(ClauseNormalizer.canonicalKey(first), ClauseNormalizer.canonicalKey(second));
+        assertNotEquals(ClauseNormalizer.canonicalKey(first),
+                ClauseNormalizer.canonicalKey("12. Severability. If any provision is invalid, the agreement ends."));
+    }
+}
@@ -0,0 +1,101 @@
+package org.novalegal.util;
+
+import com.google.cloud.storage.BlobInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompositeUploaderTest {
+
+    private static final BlobInfo TARGET = BlobInfo.newBuilder("bucket", "audio-1.ogg").build();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void upload_shouldSendAStreamThatFitsOnePartInOneRequest() throws IOException {
+        InMemoryStorage store = new InMemoryStorage();
+        byte[] audio = randomBytes(1000);
+
+        long bytes = new CompositeUploader(store.storage(), executor, 1024, 4).upload(new ByteArrayInputStream(audio), TARGET);
+
+        assertEquals(1000, bytes);
+        assertArrayEquals(audio, store.objects().get("audio-1.ogg"));
+        assertEquals(1, store.requestCount());
+    }
+
+    @Test
+    void upload_shouldComposeTheParts_andDeleteThem() throws IOException {
+        InMemoryStorage store = new InMemoryStorage();
+        byte[] audio = randomBytes(10 * 1024 + 500);
+
+        long bytes = new CompositeUploader(store.storage(), executor, 1024, 3).upload(new ByteArrayInputStream(audio), TARGET);
+
+        assertEquals(audio.length, bytes);
+        assertArrayEquals(audio, store.objects().get("audio-1.ogg"));
+        assertEquals(Set.of("audio-1.ogg"), store.objects().keySet(), "no part is left behind");
+    }
+
+    @Test
+    void upload_shouldComposeInRounds_whenThereAreMorePartsThanOneComposeTakes() throws IOException {
+        InMemoryStorage store = new InMemoryStorage();
+        byte[] audio = randomBytes(70 * 16 + 5);
+
+        new CompositeUploader(store.storage(), executor, 16, 4).upload(new ByteArrayInputStream(audio), TARGET);
+
+        assertArrayEquals(audio, store.objects().get("audio-1.ogg"));
+        assertEquals(Set.of("audio-1.ogg"), store.objects().keySet(), "no part or intermediate object is left behind");
+    }
+
+    @Test
+    void upload_shouldKeepAtMostParallelismPartsInFlight() throws IOException {
+        InMemoryStorage store = new InMemoryStorage(Duration.ofMillis(5), 0);
+
+        new CompositeUploader(store.storage(), executor, 64, 3).upload(new ByteArrayInputStream(randomBytes(64 * 20)), TARGET);
+
+        assertTrue(store.maxConcurrentUploads() <= 3, "max in flight: " + store.maxConcurrentUploads());
+        assertTrue(store.maxConcurrentUploads() > 1, "parts should go up concurrently");
+    }
+
+    @Test
+    void upload_shouldFailAndCleanUp_whenAPartDoesNotMatchItsChecksum() {
+        InMemoryStorage store = new InMemoryStorage();
+        store.corruptNextUpload("audio-1.ogg.part-2");
+
+        IOException e = assertThrows(IOException.class, () -> new CompositeUploader(store.storage(), executor, 1024, 2)
+                .upload(new ByteArrayInputStream(randomBytes(8 * 1024)), TARGET));
+
+        assertTrue(e.getMessage().contains("audio-1.ogg.part-2"), e.getMessage());
+        assertTrue(store.objects().isEmpty(), "left behind: " + store.objects().keySet());
+    }
+
+    @Test
+    void upload_shouldDeleteTheTarget_whenItDoesNotMatchTheStreamsChecksum() {
+        InMemoryStorage store = new InMemoryStorage();
+        store.corruptNextUpload("audio-1.ogg");
+
+        assertThrows(IOException.class, () -> new CompositeUploader(store.storage(), executor, 1024, 2)
+                .upload(new ByteArrayInputStream(randomBytes(4 * 1024)), TARGET));
+
+        assertTrue(store.objects().isEmpty(), "left behind: " + store.objects().keySet());
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,76 @@
+package org.novalegal.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedTextStoreTest {
+
+    @TempDir
+    Path spillDirectory;
+
+    @Test
+    void put_shouldKeepShortTextsOnTheHeap() {
+        CompressedTextStore store = new CompressedTextStore(64, 1024, spillDirectory);
+
+        CompressedTextStore.Handle handle = store.put("Short summary");
+
+        assertEquals("Short summary", handle.read());
+        assertEquals(0, store.offHeapBytes());
+        assertEquals(0, store.spilledBytes());
+    }
+
+    @Test
+    void put_shouldCompressLargeTextsOffHeap_andReleaseTheirBudget() {
+        CompressedTextStore store = new CompressedTextStore(64, 1 << 20, spillDirectory);
+        String summary = "The parties agree to keep the terms confidential. ".repeat(200);
+
+        CompressedTextStore.Handle handle = store.put(summary);
+
+        assertEquals(summary, handle.read());
+        assertTrue(store.offHeapBytes() > 0);
+        assertTrue(store.offHeapBytes() < summary.length() / 10, "repetitive text compresses well");
+        handle.release();
+        handle.release();
+        assertEquals(0, store.offHeapBytes());
+    }
+
+    @Test
+    void put_shouldSpillToDisk_onceTheOffHeapBudgetIsUsed() throws Exception {
+        CompressedTextStore store = new CompressedTextStore(16, 0, spillDirectory);
+        String summary = "Ünïcode summary — with accents. ".repeat(50);
+
+        CompressedTextStore.Handle handle = store.put(summary);
+
+        assertEquals(summary, handle.read());
+        assertEquals(0, store.offHeapBytes());
+        assertTrue(store.spilledBytes() > 0);
+        assertEquals(1, countFiles());
+
+        handle.release();
+        assertEquals(0, store.spilledBytes());
+        assertEquals(0, countFiles());
+        assertThrows(CompressedTextStore.EvictedException.class, handle::read);
+    }
+
+    @Test
+    void constructor_shouldDeleteResultsSpilledByAnEarlierProcess() throws Exception {
+        new CompressedTextStore(16, 0, spillDirectory).put("x".repeat(100));
+        assertEquals(1, countFiles());
+
+        new CompressedTextStore(16, 0, spillDirectory);
+
+        assertEquals(0, countFiles());
+    }
+
+    private long countFiles() throws Exception {
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            return files.count();
+        }
+    }
+}
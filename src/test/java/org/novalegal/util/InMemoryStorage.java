@@ -0,0 +1,235 @@
+package org.novalegal.util;
+
+import com.google.cloud.RestorableState;
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A local stand-in for GCS: a {@link Storage} whose objects live in memory. Every request can be given a latency,
+ * and every upload stream a bandwidth cap, so that one stream against several streams behaves roughly as it does
+ * against the real service. Only what the upload code uses is implemented: {@code create}, {@code writer},
+ * {@code compose}, {@code get} and {@code delete}; anything else throws.
+ */
+public class InMemoryStorage {
+
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final Set<String> corrupted = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final Duration requestLatency;
+    private final long bytesPerSecondPerStream;
+    private final Storage storage;
+
+    /**
+     * @param bytesPerSecondPerStream the bandwidth of one upload, or 0 for no limit
+     */
+    public InMemoryStorage(Duration requestLatency, long bytesPerSecondPerStream) {
+        this.requestLatency = requestLatency;
+        this.bytesPerSecondPerStream = bytesPerSecondPerStream;
+        this.storage = mock(Storage.class, this::answer);
+    }
+
+    public InMemoryStorage() {
+        this(Duration.ZERO, 0);
+    }
+
+    public Storage storage() {
+        return storage;
+    }
+
+    /**
+     * Returns the contents of the objects by name.
+     */
+    public Map<String, byte[]> objects() {
+        return objects;
+    }
+
+    public int requestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Returns the most uploads that were in progress at once.
+     */
+    public int maxConcurrentUploads() {
+        return maxInFlight.get();
+    }
+
+    /**
+     * Flips a byte of the named object when it is next uploaded, as a transfer error would.
+     */
+    public void corruptNextUpload(String objectName) {
+        corrupted.add(objectName);
+    }
+
+    private Object answer(InvocationOnMock invocation) throws Throwable {
+        if (invocation.getMethod().getDeclaringClass() == Object.class) {
+            return Mockito.RETURNS_DEFAULTS.answer(invocation);
+        }
+        Object[] arguments = invocation.getArguments();
+        switch (invocation.getMethod().getName()) {
+            case "create" -> {
+                if (arguments.length >= 2 && arguments[1] instanceof byte[] bytes) {
+                    int offset = arguments.length >= 4 && arguments[2] instanceof Integer from ? from : 0;
+                    int length = arguments.length >= 4 && arguments[3] instanceof Integer count ? count : bytes.length;
+                    BlobInfo info = (BlobInfo) arguments[0];
+                    upload(length);
+                    return store(info.getName(), Arrays.copyOfRange(bytes, offset, offset + length));
+                }
+            }
+            case "writer" -> {
+                if (arguments.length >= 1 && arguments[0] instanceof BlobInfo info) {
+                    return new Writer(info.getName());
+                }
+            }
+            case "compose" -> {
+                request();
+                Storage.ComposeRequest request = (Storage.ComposeRequest) arguments[0];
+                ByteArrayOutputStream composed = new ByteArrayOutputStream();
+                for (Storage.ComposeRequest.SourceBlob source : request.getSourceBlobs()) {
+                    byte[] bytes = objects.get(source.getName());
+                    if (bytes == null) {
+                        throw new IllegalStateException("No such object: " + source.getName());
+                    }
+                    composed.writeBytes(bytes);
+                }
+                return store(request.getTarget().getName(), composed.toByteArray());
+            }
+            case "get" -> {
+                if (arguments.length >= 1 && arguments[0] instanceof BlobId id) {
+                    request();
+                    byte[] bytes = objects.get(id.getName());
+                    return bytes == null ? null : blob(id.getName(), bytes);
+                }
+            }
+            case "delete" -> {
+                request();
+                List<Boolean> deleted = new ArrayList<>();
+                if (arguments.length >= 1 && arguments[0] instanceof Iterable<?> ids) {
+                    ids.forEach(id -> deleted.add(objects.remove(((BlobId) id).getName()) != null));
+                    return deleted;
+                }
+                if (arguments.length >= 1 && arguments[0] instanceof BlobId id) {
+                    return objects.remove(id.getName()) != null;
+                }
+            }
+            default -> {
+            }
+        }
+        throw new UnsupportedOperationException("InMemoryStorage does not implement " + invocation.getMethod());
+    }
+
+    private Blob store(String name, byte[] bytes) {
+        if (corrupted.remove(name) && bytes.length > 0) {
+            bytes[bytes.length / 2] ^= 1;
+        }
+        objects.put(name, bytes);
+        return blob(name, bytes);
+    }
+
+    private static Blob blob(String name, byte[] bytes) {
+        Blob blob = mock(Blob.class);
+        when(blob.getName()).thenReturn(name);
+        when(blob.getBlobId()).thenReturn(BlobId.of("bucket", name));
+        when(blob.getSize()).thenReturn((long) bytes.length);
+        when(blob.getCrc32c()).thenReturn(CompositeUploader.crc32c(bytes, bytes.length));
+        return blob;
+    }
+
+    private void request() {
+        requests.incrementAndGet();
+        pause(requestLatency.toNanos());
+    }
+
+    private void upload(long bytes) {
+        int uploads = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(uploads, Math::max);
+        try {
+            request();
+            transfer(bytes);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void transfer(long bytes) {
+        if (bytesPerSecondPerStream > 0) {
+            pause(bytes * 1_000_000_000L / bytesPerSecondPerStream);
+        }
+    }
+
+    private static void pause(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        for (long left = nanos; left > 0; left = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(left);
+        }
+    }
+
+    private final class Writer implements WriteChannel {
+        private final String name;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private boolean open = true;
+
+        private Writer(String name) {
+            this.name = name;
+            int uploads = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(uploads, Math::max);
+            request();
+        }
+
+        @Override
+        public int write(ByteBuffer source) {
+            int length = source.remaining();
+            byte[] chunk = new byte[length];
+            source.get(chunk);
+            bytes.writeBytes(chunk);
+            transfer(length);
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            if (open) {
+                open = false;
+                inFlight.decrementAndGet();
+                request();
+                store(name, bytes.toByteArray());
+            }
+        }
+
+        @Override
+        public void setChunkSize(int chunkSize) {
+        }
+
+        @Override
+        public RestorableState<WriteChannel> capture() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.novalegal.util;
+
+import org.junit.jupiter.api.Test;
+import org.novalegal.models.JobStatus;
+import org.novalegal.models.MeetingJob;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobRegistryTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final List<MeetingJob> evicted = new ArrayList<>();
+    private final JobRegistry<MeetingJob> jobs =
+            new JobRegistry<>(3, Duration.ofMinutes(10), job -> job.getState().isFinished(), evicted::add, now::get);
+
+    @Test
+    void transition_shouldReplaceTheSnapshot_andDeclineWhenTheFunctionReturnsNull() {
+        jobs.add("a", new MeetingJob("a"));
+        MeetingJob pending = jobs.get("a");
+
+        assertEquals(JobStatus.IN_PROGRESS, jobs.transition("a", MeetingJob::inProgress).getState());
+        assertEquals(JobStatus.PENDING, pending.getState(), "earlier snapshots do not change");
+        assertNull(jobs.transition("a", job -> null));
+        assertEquals(JobStatus.IN_PROGRESS, jobs.get("a").getState());
+        assertNull(jobs.transition("missing", MeetingJob::inProgress));
+    }
+
+    @Test
+    void transition_shouldApplyEveryConcurrentUpdateExactlyOnce() throws Exception {
+        jobs.add("a", new MeetingJob("a"));
+        int writers = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        List<Future<MeetingJob>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < writers; i++) {
+                results.add(executor.submit(() -> {
+                    start.await(5, TimeUnit.SECONDS);
+                    return jobs.transition("a", job -> job.getState().canBecome(JobStatus.IN_PROGRESS) ? job.inProgress() : null);
+                }));
+            }
+            start.countDown();
+            int winners = 0;
+            for (Future<MeetingJob> result : results) {
+                if (result.get(5, TimeUnit.SECONDS) != null) {
+                    winners++;
+                }
+            }
+            assertEquals(1, winners, "only one writer moves the job out of PENDING");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void get_shouldHideFinishedJobsOnceTheirTtlHasPassed_butNeverRunningOnes() {
+        jobs.add("done", new MeetingJob("done"));
+        jobs.transition("done", job -> job.failed("boom"));
+        jobs.add("running", new MeetingJob("running"));
+        jobs.transition("running", MeetingJob::inProgress);
+
+        now.addAndGet(Duration.ofMinutes(10).toNanos());
+
+        assertNull(jobs.get("done"));
+        assertNotNull(jobs.get("running"));
+    }
+
+    @Test
+    void add_shouldEvictExpiredJobsOnTheNextSweep() {
+        jobs.add("done", new MeetingJob("done"));
+        jobs.transition("done", job -> job.failed("boom"));
+
+        now.addAndGet(Duration.ofMinutes(10).toNanos());
+        jobs.add("next", new MeetingJob("next"));
+
+        assertEquals(1, jobs.size());
+        assertEquals(1, jobs.expiredCount());
+        assertEquals("done", evicted.get(0).getJobId());
+    }
+
+    @Test
+    void add_shouldEvictTheOldestFinishedJobs_whenOverMaxSize() {
+        jobs.add("old-running", new MeetingJob("old-running"));
+        jobs.transition("old-running", MeetingJob::inProgress);
+        jobs.add("old-done", new MeetingJob("old-done"));
+        jobs.transition("old-done", job -> job.failed("boom"));
+        jobs.add("new-done", new MeetingJob("new-done"));
+        jobs.transition("new-done", job -> job.failed("boom"));
+
+        jobs.add("newest", new MeetingJob("newest"));
+
+        assertEquals(3, jobs.size());
+        assertEquals(1, jobs.displacedCount());
+        assertNull(jobs.get("old-done"));
+        assertNotNull(jobs.get("old-running"), "running jobs are never evicted");
+        assertNotNull(jobs.get("new-done"));
+    }
+
+    @Test
+    void add_shouldGrowPastMaxSize_whenNoJobHasFinished() {
+        for (int i = 0; i < 5; i++) {
+            jobs.add("job-" + i, new MeetingJob("job-" + i));
+        }
+
+        assertEquals(5, jobs.size());
+        assertTrue(evicted.isEmpty());
+    }
+}
@@ -0,0 +1,106 @@
+package org.novalegal.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatestValueSenderTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void offer_shouldSkipToTheLatestValue_whileASendIsInFlight() throws Exception {
+        CountDownLatch firstSendStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstSend = new CountDownLatch(1);
+        AtomicInteger concurrentSends = new AtomicInteger();
+        AtomicInteger maxConcurrentSends = new AtomicInteger();
+        List<Integer> sent = new CopyOnWriteArrayList<>();
+        CountDownLatch lastSent = new CountDownLatch(1);
+        LatestValueSender<Integer> sender = new LatestValueSender<>(executor, scheduler, Duration.ofSeconds(5), Math::max,
+                value -> {
+                    maxConcurrentSends.accumulateAndGet(concurrentSends.incrementAndGet(), Math::max);
+                    if (value == 1) {
+                        firstSendStarted.countDown();
+                        releaseFirstSend.await(5, TimeUnit.SECONDS);
+                    }
+                    sent.add(value);
+                    concurrentSends.decrementAndGet();
+                    if (value == 4) {
+                        lastSent.countDown();
+                    }
+                }, e -> fail(e));
+
+        sender.offer(1);
+        assertTrue(firstSendStarted.await(5, TimeUnit.SECONDS));
+        sender.offer(3);
+        sender.offer(2);
+        sender.offer(4);
+        releaseFirstSend.countDown();
+
+        assertTrue(lastSent.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1, 4), sent);
+        assertEquals(1, maxConcurrentSends.get());
+    }
+
+    @Test
+    void offer_shouldCloseTheSender_whenASendDoesNotFinishInTime() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch failed = new CountDownLatch(1);
+        AtomicInteger sends = new AtomicInteger();
+        LatestValueSender<Integer> sender = new LatestValueSender<>(executor, scheduler, Duration.ofMillis(50), Math::max,
+                value -> {
+                    sends.incrementAndGet();
+                    release.await(5, TimeUnit.SECONDS);
+                }, e -> {
+                    failure.set(e);
+                    failed.countDown();
+                });
+
+        sender.offer(1);
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        sender.offer(2);
+        release.countDown();
+
+        assertInstanceOf(TimeoutException.class, failure.get());
+        assertTrue(sender.isClosed());
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(1, sends.get(), "nothing is sent to a dropped receiver");
+    }
+
+    @Test
+    void offer_shouldReportAFailedSendOnce() {
+        AtomicInteger failures = new AtomicInteger();
+        LatestValueSender<Integer> sender = new LatestValueSender<>(Runnable::run, scheduler, Duration.ofSeconds(5), Math::max,
+                value -> {
+                    throw new IOException("Broken pipe");
+                }, e -> failures.incrementAndGet());
+
+        sender.offer(1);
+        sender.offer(2);
+
+        assertEquals(1, failures.get());
+    }
+}
@@ -0,0 +1,114 @@
+package org.novalegal.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultipartStreamTest {
+    private static final String BOUNDARY = "----WebKitFormBoundary7MA4YWxkTrZu0gW";
+
+    @Test
+    void boundaryOf_shouldReadQuotedAndPlainBoundaries() {
+        assertEquals("abc", MultipartStream.boundaryOf("multipart/form-data; boundary=abc"));
+        assertEquals("a b", MultipartStream.boundaryOf("multipart/form-data; charset=UTF-8; boundary=\"a b\""));
+        assertNull(MultipartStream.boundaryOf("application/json"));
+        assertNull(MultipartStream.boundaryOf(null));
+    }
+
+    @Test
+    void nextPart_shouldReturnEachPartWithItsHeadersAndBody() throws Exception {
+        byte[] video = binary(300_000);
+        MultipartStream parts = new MultipartStream(trickle(body(video)), BOUNDARY, Long.MAX_VALUE);
+
+        MultipartStream.Part note = parts.nextPart();
+        assertEquals("note", note.name());
+        assertNull(note.fileName());
+        assertEquals("first line\r\nsecond line", new String(note.body().readAllBytes(), StandardCharsets.UTF_8));
+
+        MultipartStream.Part file = parts.nextPart();
+        assertEquals("file", file.name());
+        assertEquals("standup.webm", file.fileName());
+        assertEquals("video/webm", file.contentType());
+        assertArrayEquals(video, file.body().readAllBytes());
+
+        assertNull(parts.nextPart());
+    }
+
+    @Test
+    void nextPart_shouldSkipWhatIsLeftOfTheCurrentPart() throws Exception {
+        MultipartStream parts = new MultipartStream(new ByteArrayInputStream(body(binary(100_000))), BOUNDARY, Long.MAX_VALUE);
+
+        parts.nextPart().body().read();
+        MultipartStream.Part file = parts.nextPart();
+
+        assertEquals("file", file.name());
+        assertEquals(100_000, file.body().readAllBytes().length);
+    }
+
+    @Test
+    void body_shouldFailOnceAPartExceedsTheLimit() throws Exception {
+        MultipartStream parts = new MultipartStream(new ByteArrayInputStream(body(binary(100_000))), BOUNDARY, 50_000);
+
+        parts.nextPart();
+        InputStream file = parts.nextPart().body();
+
+        assertThrows(MultipartStream.PartTooLargeException.class, file::readAllBytes);
+    }
+
+    @Test
+    void body_shouldFailWhenTheUploadBreaksOff() throws Exception {
+        byte[] complete = body(binary(100_000));
+        byte[] truncated = java.util.Arrays.copyOf(complete, complete.length - 5_000);
+        MultipartStream parts = new MultipartStream(new ByteArrayInputStream(truncated), BOUNDARY, Long.MAX_VALUE);
+
+        parts.nextPart();
+        InputStream file = parts.nextPart().body();
+
+        assertThrows(IOException.class, file::readAllBytes);
+    }
+
+    private static byte[] body(byte[] video) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(("preamble to ignore\r\n--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"note\"\r\n\r\n"
+                + "first line\r\nsecond line\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"standup.webm\"\r\n"
+                + "Content-Type: video/webm\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(video);
+        body.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return body.toByteArray();
+    }
+
+    // Includes the bytes of the delimiter without the whole of it, so near-matches must not end the part
+    private static byte[] binary(int length) {
+        byte[] prefix = ("\r\n--" + BOUNDARY.substring(0, 20)).getBytes(StandardCharsets.ISO_8859_1);
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 7919 >>> 3);
+        }
+        for (int at = 1000; at + prefix.length < length; at += 50_000) {
+            System.arraycopy(prefix, 0, data, at, prefix.length);
+        }
+        return data;
+    }
+
+    // Hands out the body in small, uneven reads, as a network connection would
+    private static InputStream trickle(byte[] body) {
+        return new FilterInputStream(new ByteArrayInputStream(body)) {
+            private int call;
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 1 + (call++ * 997) % 4096));
+            }
+        };
+    }
+}
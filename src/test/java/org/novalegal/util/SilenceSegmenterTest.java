@@ -0,0 +1,78 @@
+package org.novalegal.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SilenceSegmenterTest {
+
+    private static final String LOG = String.join("\n",
+            "Input #0, ogg, from 'audio.ogg':",
+            "  Duration: 00:31:40.52, start: 0.000000, bitrate: 25 kb/s",
+            "[silencedetect @ 0x5581] silence_start: -0.01",
+            "[silencedetect @ 0x5581] silence_end: 1.2 | silence_duration: 1.21",
+            "[silencedetect @ 0x5581] silence_start: 583.4",
+            "[silencedetect @ 0x5581] silence_end: 584.6 | silence_duration: 1.2",
+            "[silencedetect @ 0x5581] silence_start: 1230",
+            "[silencedetect @ 0x5581] silence_end: 1231 | silence_duration: 1",
+            "size=N/A time=00:31:40.52 bitrate=N/A speed= 812x",
+            "[silencedetect @ 0x5581] silence_start: 1899.9");
+
+    @Test
+    void parseDuration_shouldPreferTheHeader_andFallBackToTheLastProgressTime() {
+        assertEquals(1900.52, SilenceSegmenter.parseDuration(LOG), 1e-9);
+        assertEquals(62.5, SilenceSegmenter.parseDuration(
+                "Duration: N/A, bitrate: N/A\rsize=N/A time=00:00:30.00 bitrate=N/A\rsize=N/A time=00:01:02.50 bitrate=N/A"), 1e-9);
+        assertEquals(-1, SilenceSegmenter.parseDuration("no timing here"));
+    }
+
+    @Test
+    void parseSilences_shouldPairStartsWithEnds_andCloseATrailingSilenceAtTheEnd() {
+        List<SilenceSegmenter.Silence> silences = SilenceSegmenter.parseSilences(LOG, 1900.52);
+
+        assertEquals(List.of(
+                new SilenceSegmenter.Silence(0, 1.2),
+                new SilenceSegmenter.Silence(583.4, 584.6),
+                new SilenceSegmenter.Silence(1230, 1231),
+                new SilenceSegmenter.Silence(1899.9, 1900.52)), silences);
+    }
+
+    @Test
+    void plan_shouldCutInTheMiddleOfThePauseClosestToTheTargetLength() {
+        List<SilenceSegmenter.Piece> pieces = SilenceSegmenter.plan(
+                SilenceSegmenter.parseSilences(LOG, 1900.52), 1900.52, 600);
+
+        assertEquals(List.of(
+                new SilenceSegmenter.Piece(0, 584),
+                new SilenceSegmenter.Piece(584, 1230.5),
+                new SilenceSegmenter.Piece(1230.5, 1900.52)), pieces);
+    }
+
+    @Test
+    void plan_shouldCutAtTheTargetLength_whenNoPauseIsCloseEnough() {
+        List<SilenceSegmenter.Piece> pieces = SilenceSegmenter.plan(
+                List.of(new SilenceSegmenter.Silence(10, 11)), 2000, 600);
+
+        assertEquals(List.of(
+                new SilenceSegmenter.Piece(0, 600),
+                new SilenceSegmenter.Piece(600, 1200),
+                new SilenceSegmenter.Piece(1200, 2000)), pieces);
+    }
+
+    @Test
+    void plan_shouldNeverLeaveLessThanHalfAPieceAtTheEnd() {
+        // The pause at 890 s is within one and a half pieces, but would leave 70 s for the rest
+        List<SilenceSegmenter.Piece> pieces = SilenceSegmenter.plan(
+                List.of(new SilenceSegmenter.Silence(889, 891)), 960, 600);
+
+        assertEquals(List.of(new SilenceSegmenter.Piece(0, 600), new SilenceSegmenter.Piece(600, 960)), pieces);
+    }
+
+    @Test
+    void plan_shouldKeepShortRecordingsInOnePiece() {
+        assertEquals(List.of(new SilenceSegmenter.Piece(0, 900)),
+                SilenceSegmenter.plan(List.of(new SilenceSegmenter.Silence(600, 601)), 900, 600));
+    }
+}
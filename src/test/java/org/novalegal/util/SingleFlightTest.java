@@ -0,0 +1,87 @@
+package org.novalegal.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void execute_shouldRunWorkOnce_forConcurrentCallsWithSameKey() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> leader = executor.submit(() -> flights.execute("nda", () -> {
+                runs.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "summary";
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<String> follower1 = executor.submit(() -> flights.execute("nda", () -> "not used"));
+            Future<String> follower2 = executor.submit(() -> flights.execute("nda", () -> "not used"));
+            while (flights.coalescedCount() < 2) {
+                Thread.sleep(5);
+            }
+            assertEquals("other", flights.execute("lease", () -> "other"), "other keys are not blocked");
+            release.countDown();
+
+            assertEquals("summary", leader.get(5, TimeUnit.SECONDS));
+            assertEquals("summary", follower1.get(5, TimeUnit.SECONDS));
+            assertEquals("summary", follower2.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, runs.get());
+        assertEquals(2, flights.executedCount());
+        assertEquals(2, flights.coalescedCount());
+        assertEquals(0, flights.inFlightCount());
+    }
+
+    @Test
+    void execute_shouldShareFailure_andRunAgainAfterwards() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = executor.submit(() -> flights.execute("k", () -> {
+                started.countDown();
+                await(release);
+                throw new IllegalStateException("LLM down");
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<String> follower = executor.submit(() -> flights.execute("k", () -> "not used"));
+            while (flights.coalescedCount() < 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            Exception leaderFailure = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+            Exception followerFailure = assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, leaderFailure.getCause());
+            assertInstanceOf(IllegalStateException.class, followerFailure.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals("retried", flights.execute("k", () -> "retried"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.novalegal.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranscriptStitcherTest {
+
+    @Test
+    void finish_shouldJoinPiecesOnTheRecordingsTimeline() throws IOException {
+        TranscriptStitcher stitcher = new TranscriptStitcher();
+        stitcher.add("{\"text\":\" Hello all.\",\"segments\":[{\"id\":0,\"start\":0.0,\"end\":2.5,\"text\":\" Hello all.\",\"tokens\":[1]}]}", 0);
+        stitcher.add("{\"segments\":[{\"start\":0.4,\"end\":3.0,\"text\":\" Next item, \\\"budget\\\".\"},"
+                + "{\"start\":3.0,\"end\":4.0,\"text\":\" Agreed.\"}]}", 584);
+
+        List<String> segments = new ArrayList<>();
+        WhisperSegmentParser.forEachSegment(stitcher.finish(), (start, end, text) -> segments.add(start + "|" + end + "|" + text));
+
+        assertEquals(List.of("0.0|2.5| Hello all.", "584.4|587.0| Next item, \"budget\".", "587.0|588.0| Agreed."), segments);
+    }
+
+    @Test
+    void add_shouldRejectAPieceWithoutSegments() {
+        TranscriptStitcher stitcher = new TranscriptStitcher();
+
+        assertThrows(IllegalArgumentException.class, () -> stitcher.add("{\"error\":\"timeout\"}", 0));
+    }
+}
@@ -0,0 +1,48 @@
+package org.novalegal.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VideoUtilsTest {
+
+    @Test
+    void isPipeReadable_shouldAcceptMatroskaAndWebm() {
+        assertTrue(VideoUtils.isPipeReadable(new byte[]{0x1A, 0x45, (byte) 0xDF, (byte) 0xA3, 0x01}));
+    }
+
+    @Test
+    void isPipeReadable_shouldAcceptMp4WithTheIndexFirst() {
+        assertTrue(VideoUtils.isPipeReadable(boxes(box("ftyp", 24), box("free", 8), box("moov", 5_000_000))));
+    }
+
+    @Test
+    void isPipeReadable_shouldRejectMovWithTheIndexAtTheEnd() {
+        assertFalse(VideoUtils.isPipeReadable(boxes(box("ftyp", 20), box("wide", 8), box("mdat", 900_000_000))));
+    }
+
+    @Test
+    void isPipeReadable_shouldRejectWhatItCannotTellWithinTheProbe() {
+        assertFalse(VideoUtils.isPipeReadable(boxes(box("ftyp", 20), box("free", 1_000_000))));
+        assertFalse(VideoUtils.isPipeReadable("not a video".getBytes(StandardCharsets.US_ASCII)));
+        assertFalse(VideoUtils.isPipeReadable(new byte[0]));
+    }
+
+    // Only the box header goes into the probe, as when the box runs past it
+    private static byte[] box(String type, long size) {
+        int length = (int) Math.min(size, 64);
+        return ByteBuffer.allocate(length).putInt((int) size).put(type.getBytes(StandardCharsets.US_ASCII)).array();
+    }
+
+    private static byte[] boxes(byte[]... boxes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] box : boxes) {
+            out.writeBytes(box);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,144 @@
+package org.novalegal.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WhisperSegmentParserTest {
+
+    @Test
+    void forEachSegment_shouldReadTimesAndText_andSkipEverythingElse() throws IOException {
+        String json = "{\"text\":\" Hello all. Let's start.\",\"language\":\"en\",\"segments\":[" +
+                "{\"id\":0,\"start\":0.0,\"end\":2.5,\"text\":\" Hello all.\",\"tokens\":[50364,2425,439],\"avg_logprob\":-0.2," +
+                "\"words\":[{\"word\":\"Hello\",\"start\":0.0}]}," +
+                "{\"id\":1,\"start\":62.9,\"end\":65,\"text\":\" Let's start.\",\"tokens\":[],\"no_speech_prob\":0.01}]}";
+        List<String> segments = new ArrayList<>();
+
+        WhisperSegmentParser.forEachSegment(json, (start, end, text) -> segments.add(start + "|" + end + "|" + text));
+
+        assertEquals(List.of("0.0|2.5| Hello all.", "62.9|65.0| Let's start."), segments);
+    }
+
+    @Test
+    void forEachSegment_shouldRejectResponseWithoutSegments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> WhisperSegmentParser.forEachSegment("{\"text\":\"hi\"}", (start, end, text) -> { }));
+        assertThrows(IllegalArgumentException.class,
+                () -> WhisperSegmentParser.forEachSegment("{\"segments\":{}}", (start, end, text) -> { }));
+    }
+
+    @Test
+    void forEachStreamedSegment_shouldReadNewlineDelimitedSegments() throws IOException {
+        String ndjson = "{\"start\":0.0,\"end\":2.5,\"text\":\" Hello all.\"}\n" +
+                "{\"start\":300.0,\"end\":303.1,\"text\":\" Next window.\",\"tokens\":[1,2]}\n";
+        List<String> segments = new ArrayList<>();
+
+        WhisperSegmentParser.forEachStreamedSegment(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)),
+                (start, end, text) -> segments.add(start + "|" + end + "|" + text));
+
+        assertEquals(List.of("0.0|2.5| Hello all.", "300.0|303.1| Next window."), segments);
+    }
+
+    @Test
+    void transcriptChunker_shouldFormatTimestampsLikeStringFormat() {
+        StringBuilder out = new StringBuilder();
+        TranscriptChunker.appendTimestamp(out, 6005.7);
+        out.append(' ');
+        TranscriptChunker.appendTimestamp(out, 5.2);
+
+        assertEquals(String.format("%02d:%02d %02d:%02d", 100, 5, 0, 5), out.toString());
+    }
+
+    @Test
+    void transcriptChunker_shouldKeepShortTranscriptInOneChunk() {
+        List<String> chunks = new ArrayList<>();
+        TranscriptChunker chunker = new TranscriptChunker(40, 60, (part, chunk) -> chunks.add(chunk));
+
+        chunker.accept(0, 1, "one two three");
+        chunker.accept(1, 2, "four five six");
+        chunker.finish();
+
+        assertEquals(List.of("[00:00 - 00:01] one two three\n[00:01 - 00:02] four five six\n"), chunks);
+    }
+
+    @Test
+    void transcriptChunker_shouldMatchLegacyEntryListChunking() {
+        assertMatchesLegacy(1200, 1300);
+    }
+
+    @Test
+    void transcriptChunker_shouldMatchLegacyEntryListChunking_whenSingleChunkLimitSpansSeveralChunks() {
+        assertMatchesLegacy(1200, 5000);
+    }
+
+    private static void assertMatchesLegacy(int limit, int singleLimit) {
+        Random random = new Random(7);
+        for (int run = 0; run < 50; run++) {
+            List<double[]> times = new ArrayList<>();
+            List<String> texts = new ArrayList<>();
+            int segments = random.nextInt(400);
+            double t = 0;
+            for (int i = 0; i < segments; i++) {
+                double start = t;
+                t += random.nextDouble() * 20;
+                times.add(new double[]{start, t});
+                texts.add(" words ".repeat(1 + random.nextInt(20)));
+            }
+
+            List<String> chunks = new ArrayList<>();
+            List<Integer> parts = new ArrayList<>();
+            TranscriptChunker chunker = new TranscriptChunker(limit, singleLimit, (part, chunk) -> {
+                parts.add(part);
+                chunks.add(chunk);
+            });
+            for (int i = 0; i < segments; i++) {
+                chunker.accept(times.get(i)[0], times.get(i)[1], texts.get(i));
+            }
+            chunker.finish();
+
+            assertEquals(legacyChunks(times, texts, limit, singleLimit), chunks);
+            for (int i = 0; i < parts.size(); i++) {
+                assertEquals(i + 1, parts.get(i));
+            }
+        }
+    }
+
+    // The entries/allText algorithm generateMeetingSummaryFromSegmentsChunked used before streaming
+    private static List<String> legacyChunks(List<double[]> times, List<String> texts, int limit, int singleLimit) {
+        StringBuilder allText = new StringBuilder();
+        List<String> entries = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            double start = times.get(i)[0];
+            double end = times.get(i)[1];
+            String timestamp = String.format("[%02d:%02d - %02d:%02d]",
+                    (int) (start / 60), (int) (start % 60),
+                    (int) (end / 60), (int) (end % 60));
+            String entry = timestamp + " " + texts.get(i);
+            entries.add(entry);
+            allText.append(entry).append("\n");
+        }
+        if (allText.length() <= singleLimit) {
+            return List.of(allText.toString());
+        }
+        List<String> chunks = new ArrayList<>();
+        StringBuilder currentChunk = new StringBuilder();
+        for (String entry : entries) {
+            if (currentChunk.length() + entry.length() + 1 > limit) {
+                chunks.add(currentChunk.toString());
+                currentChunk = new StringBuilder();
+            }
+            currentChunk.append(entry).append("\n");
+        }
+        if (!currentChunk.isEmpty()) {
+            chunks.add(currentChunk.toString());
+        }
+        return chunks;
+    }
+}